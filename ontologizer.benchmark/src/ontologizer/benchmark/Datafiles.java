@@ -8,7 +8,7 @@ import ontologizer.FileCache;
 import ontologizer.association.AssociationContainer;
 import ontologizer.go.Ontology;
 import ontologizer.worksets.WorkSet;
-import ontologizer.worksets.WorkSetLoadThread;
+import ontologizer.worksets.WorkSetLoader;
 
 /**
  * Wrapper for data loading.
@@ -37,12 +37,12 @@ public class Datafiles
 
 		synchronized (notify)
 		{
-			WorkSetLoadThread.obtainDatafiles(ws,
+			WorkSetLoader.obtainDatafiles(ws,
 				new Runnable(){
 					public void run()
 					{
-						graph = WorkSetLoadThread.getGraph(ws.getOboPath());
-						assoc = WorkSetLoadThread.getAssociations(ws.getAssociationPath());
+						graph = WorkSetLoader.getGraph(ws.getOboPath());
+						assoc = WorkSetLoader.getAssociations(ws.getAssociationPath());
 						synchronized (notify)
 						{
 							notify.notifyAll();
@@ -0,0 +1,38 @@
+package ontologizer.benchmark;
+
+import com.beust.jcommander.Parameter;
+
+import ontologizer.benchmark.BenchmarkCLIConfig.ProperPositiveInteger;
+
+/**
+ * The command line interface of the synthetic data generator.
+ */
+public class SyntheticDataCLIConfig
+{
+	@Parameter(names={"--help"},description="Shows this help.",help=true)
+	public boolean help;
+
+	@Parameter(names={"-o", "--obo"}, description="The obo file to which the ontology is written. It is compressed if the name ends with .gz.", arity=1, required=true)
+	public String obo;
+
+	@Parameter(names={"-a", "--association"}, description="The file to which the associations are written in the GAF format. It is compressed if the name ends with .gz.", arity=1, required=true)
+	public String gaf;
+
+	@Parameter(names={"--terms"}, description="The number of terms", validateWith=ProperPositiveInteger.class)
+	public int terms = 40000;
+
+	@Parameter(names={"--genes"}, description="The number of annotated genes", validateWith=ProperPositiveInteger.class)
+	public int genes = 20000;
+
+	@Parameter(names={"--associations"}, description="The total number of associations", validateWith=ProperPositiveInteger.class)
+	public int associations = 200000;
+
+	@Parameter(names={"--namespaces"}, description="The number of namespaces", validateWith=ProperPositiveInteger.class)
+	public int namespaces = 3;
+
+	@Parameter(names={"--max-depth"}, description="The maximal depth of a term", validateWith=ProperPositiveInteger.class)
+	public int maxDepth = 16;
+
+	@Parameter(names={"--seed"}, description="The seed of the random data")
+	public long seed = 1;
+}
@@ -0,0 +1,707 @@
+package ontologizer.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import com.beust.jcommander.JCommander;
+
+import ontologizer.association.Association;
+import ontologizer.association.AssociationContainer;
+import ontologizer.go.Namespace;
+import ontologizer.go.ParentTermID;
+import ontologizer.go.Prefix;
+import ontologizer.go.Term;
+import ontologizer.go.TermContainer;
+import ontologizer.go.TermID;
+import ontologizer.go.TermRelation;
+import ontologizer.types.ByteString;
+
+/**
+ * Generates random ontologies and associations that resemble the
+ * Gene Ontology and its annotations, but of arbitrary size.
+ *
+ * Each namespace is a DAG with a single root. Its terms are arranged
+ * in levels, whose sizes follow a skewed bell shape, and each term
+ * gets a parent on the level above by preferential attachment, so
+ * the number of children follows a power law. Some terms get further
+ * parents on nearby upper levels, either via is_a or part_of. The number
+ * of annotations per gene as well as the popularity of terms follow
+ * a Pareto distribution.
+ *
+ * The same parameters and seed always yield the same data. The data
+ * can be either written as OBO and GAF files, which is done in a
+ * streaming manner so that large data sets can be produced, or be
+ * created directly in memory.
+ */
+public class SyntheticDataGenerator
+{
+	private static final Prefix PREFIX = new Prefix("GO");
+
+	private static final String [] NAMESPACE_NAMES = new String[]{"biological_process", "molecular_function", "cellular_component"};
+	private static final String [] NAMESPACE_ASPECTS = new String[]{"P", "F", "C"};
+	private static final double [] NAMESPACE_WEIGHTS = new double[]{0.6, 0.25, 0.15};
+
+	/* Parameters */
+	private int numberOfTerms;
+	private int numberOfGenes;
+	private int numberOfAssociations;
+	private long seed;
+	private int numberOfNamespaces = 3;
+	private int maxDepth = 16;
+	private double multipleParentProbability = 0.4;
+	private double partOfProbability = 0.3;
+	private double annotationExponent = 2.5;
+	private double termPopularityExponent = 2.0;
+
+	/* The generated ontology, parents are stored in a compressed row fashion */
+	private boolean generated;
+	private byte [] termNamespace;
+	private byte [] termLevel;
+	private int [] parentStart;
+	private int [] parents;
+	private boolean [] parentIsPartOf;
+
+	/* The generated annotation structure */
+	private int [] associationsPerGene;
+	private int [] annotatableTerms;
+	private double [] cumulativeTermWeights;
+
+	/**
+	 * Constructs the generator.
+	 *
+	 * @param numberOfTerms the number of terms of the ontology including the roots
+	 * @param numberOfGenes the number of annotated genes
+	 * @param numberOfAssociations the total number of associations, must be at
+	 *  least the number of genes as each gene is annotated at least once.
+	 * @param seed the seed of the random data
+	 */
+	public SyntheticDataGenerator(int numberOfTerms, int numberOfGenes, int numberOfAssociations, long seed)
+	{
+		if (numberOfGenes < 1)
+			throw new IllegalArgumentException("At least one gene is required");
+		if (numberOfAssociations < numberOfGenes)
+			throw new IllegalArgumentException("The number of associations (" + numberOfAssociations + ") must not be smaller than the number of genes (" + numberOfGenes + ")");
+
+		this.numberOfTerms = numberOfTerms;
+		this.numberOfGenes = numberOfGenes;
+		this.numberOfAssociations = numberOfAssociations;
+		this.seed = seed;
+	}
+
+	private void checkNotGenerated()
+	{
+		if (generated)
+			throw new IllegalStateException("Parameters can be changed only before the data is generated");
+	}
+
+	/**
+	 * Sets the number of namespaces. The first three namespaces are named
+	 * like the ones of the Gene Ontology.
+	 *
+	 * @param numberOfNamespaces
+	 */
+	public void setNumberOfNamespaces(int numberOfNamespaces)
+	{
+		checkNotGenerated();
+		if (numberOfNamespaces < 1)
+			throw new IllegalArgumentException("At least one namespace is required");
+		this.numberOfNamespaces = numberOfNamespaces;
+	}
+
+	/**
+	 * Sets the maximal depth, i.e., the maximal length of a path from
+	 * a term to the root of its namespace.
+	 *
+	 * @param maxDepth
+	 */
+	public void setMaxDepth(int maxDepth)
+	{
+		checkNotGenerated();
+		if (maxDepth < 1 || maxDepth > Byte.MAX_VALUE)
+			throw new IllegalArgumentException("The maximal depth must be between 1 and " + Byte.MAX_VALUE);
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 * Sets the probability that a term gets another parent. The check is
+	 * repeated after each additional parent, up to three additional parents.
+	 *
+	 * @param multipleParentProbability
+	 */
+	public void setMultipleParentProbability(double multipleParentProbability)
+	{
+		checkNotGenerated();
+		this.multipleParentProbability = multipleParentProbability;
+	}
+
+	/**
+	 * Sets the probability that an additional parent is related via part_of
+	 * rather than is_a.
+	 *
+	 * @param partOfProbability
+	 */
+	public void setPartOfProbability(double partOfProbability)
+	{
+		checkNotGenerated();
+		this.partOfProbability = partOfProbability;
+	}
+
+	/**
+	 * Sets the exponent of the Pareto distribution from which the
+	 * relative number of annotations of a gene is drawn. Smaller values
+	 * yield heavier tails.
+	 *
+	 * @param annotationExponent a value larger than 1
+	 */
+	public void setAnnotationExponent(double annotationExponent)
+	{
+		checkNotGenerated();
+		if (annotationExponent <= 1)
+			throw new IllegalArgumentException("The exponent must be larger than 1");
+		this.annotationExponent = annotationExponent;
+	}
+
+	/**
+	 * Sets the exponent of the Pareto distribution from which the
+	 * popularity of a term, i.e., its chance to be annotated, is drawn.
+	 *
+	 * @param termPopularityExponent a value larger than 1
+	 */
+	public void setTermPopularityExponent(double termPopularityExponent)
+	{
+		checkNotGenerated();
+		if (termPopularityExponent <= 1)
+			throw new IllegalArgumentException("The exponent must be larger than 1");
+		this.termPopularityExponent = termPopularityExponent;
+	}
+
+	public int getNumberOfTerms()
+	{
+		return numberOfTerms;
+	}
+
+	public int getNumberOfGenes()
+	{
+		return numberOfGenes;
+	}
+
+	public int getNumberOfAssociations()
+	{
+		return numberOfAssociations;
+	}
+
+	public int getNumberOfNamespaces()
+	{
+		return numberOfNamespaces;
+	}
+
+	/**
+	 * Returns the level of the given term, which is the length of the
+	 * path to the root via the primary parents.
+	 *
+	 * @param term the index of the term
+	 * @return the level
+	 */
+	public int getLevel(int term)
+	{
+		generate();
+		return termLevel[term];
+	}
+
+	/**
+	 * Returns the number of associations of the given gene.
+	 *
+	 * @param gene the index of the gene
+	 * @return the number of associations
+	 */
+	public int getNumberOfAssociations(int gene)
+	{
+		generate();
+		return associationsPerGene[gene];
+	}
+
+	/**
+	 * Returns the id of the term with the given index.
+	 *
+	 * @param term
+	 * @return the id
+	 */
+	public static TermID getTermID(int term)
+	{
+		return new TermID(PREFIX, term + 1);
+	}
+
+	/**
+	 * Returns the name of the gene with the given index.
+	 *
+	 * @param gene
+	 * @return the name
+	 */
+	public static String getGeneName(int gene)
+	{
+		return "gene" + (gene + 1);
+	}
+
+	/**
+	 * @return the names of all genes.
+	 */
+	public List<ByteString> getGenes()
+	{
+		List<ByteString> genes = new ArrayList<ByteString>(numberOfGenes);
+		for (int i=0;i<numberOfGenes;i++)
+			genes.add(new ByteString(getGeneName(i)));
+		return genes;
+	}
+
+	private String getNamespaceName(int namespace)
+	{
+		if (namespace < NAMESPACE_NAMES.length)
+			return NAMESPACE_NAMES[namespace];
+		return "namespace" + (namespace + 1);
+	}
+
+	private String getAspect(int namespace)
+	{
+		if (namespace < NAMESPACE_ASPECTS.length)
+			return NAMESPACE_ASPECTS[namespace];
+		return "X";
+	}
+
+	/**
+	 * Distributes the given total to the given weights such that each
+	 * slot gets at least the given minimum. The remainder is given to the
+	 * slots with the largest fractional parts.
+	 */
+	private static int [] distribute(int total, double [] weights, int minimum)
+	{
+		int [] counts = new int[weights.length];
+		double sum = 0;
+		for (double w : weights)
+			sum += w;
+
+		int rest = total - weights.length * minimum;
+		int assigned = 0;
+		double [] fraction = new double[weights.length];
+		for (int i=0;i<weights.length;i++)
+		{
+			double exact = rest * weights[i] / sum;
+			counts[i] = minimum + (int)exact;
+			fraction[i] = exact - (int)exact;
+			assigned += counts[i];
+		}
+
+		while (assigned < total)
+		{
+			int best = 0;
+			for (int i=1;i<fraction.length;i++)
+			{
+				if (fraction[i] > fraction[best])
+					best = i;
+			}
+			counts[best]++;
+			fraction[best] = -1;
+			assigned++;
+		}
+		return counts;
+	}
+
+	/**
+	 * Draws a value from a Pareto distribution with minimum 1.
+	 */
+	private static double pareto(Random rnd, double exponent)
+	{
+		return Math.pow(1 - rnd.nextDouble(), -1 / (exponent - 1));
+	}
+
+	/**
+	 * Generates the ontology and the annotation structure unless already done.
+	 */
+	private synchronized void generate()
+	{
+		if (generated)
+			return;
+
+		if (numberOfTerms < 2 * numberOfNamespaces)
+			throw new IllegalArgumentException("Each namespace requires at least two terms");
+
+		generateOntology();
+		generateAnnotationStructure();
+		generated = true;
+	}
+
+	private void addParent(int [] numberOfParents, int parent, boolean partOf)
+	{
+		if (numberOfParents[0] == parents.length)
+		{
+			parents = Arrays.copyOf(parents, parents.length * 2);
+			parentIsPartOf = Arrays.copyOf(parentIsPartOf, parents.length);
+		}
+		parents[numberOfParents[0]] = parent;
+		parentIsPartOf[numberOfParents[0]] = partOf;
+		numberOfParents[0]++;
+	}
+
+	private void generateOntology()
+	{
+		Random rnd = new Random(seed);
+
+		termNamespace = new byte[numberOfTerms];
+		termLevel = new byte[numberOfTerms];
+		parentStart = new int[numberOfTerms + 1];
+		parents = new int[numberOfTerms * 2];
+		parentIsPartOf = new boolean[parents.length];
+
+		double [] namespaceWeights = new double[numberOfNamespaces];
+		for (int i=0;i<numberOfNamespaces;i++)
+			namespaceWeights[i] = numberOfNamespaces <= NAMESPACE_WEIGHTS.length ? NAMESPACE_WEIGHTS[i] : 1;
+		int [] namespaceSizes = distribute(numberOfTerms, namespaceWeights, 2);
+
+		int [] numberOfParents = new int[1];
+		int next = 0;
+
+		for (int ns=0;ns<numberOfNamespaces;ns++)
+		{
+			/* The root */
+			int root = next++;
+			termNamespace[root] = (byte)ns;
+			parentStart[root + 1] = numberOfParents[0];
+
+			/* The size of the levels resemble a gamma density with mode 6 */
+			int depth = Math.min(maxDepth, namespaceSizes[ns] - 1);
+			double [] levelWeights = new double[depth];
+			for (int l=1;l<=depth;l++)
+				levelWeights[l-1] = Math.pow(l, 3) * Math.exp(-l / 2.0);
+			int [] levelSizes = distribute(namespaceSizes[ns] - 1, levelWeights, 1);
+
+			int [] levelStart = new int[depth + 1];
+			levelStart[0] = root;
+
+			for (int l=1;l<=depth;l++)
+			{
+				int start = next;
+				levelStart[l] = start;
+
+				/* Each term of the level above enters the urn once and
+				 * once more for each child it gets */
+				int [] urn = new int[start - levelStart[l-1] + levelSizes[l-1]];
+				int urnSize = 0;
+				for (int t=levelStart[l-1];t<start;t++)
+					urn[urnSize++] = t;
+
+				int lowest = levelStart[Math.max(0, l - 3)];
+
+				for (int k=0;k<levelSizes[l-1];k++)
+				{
+					int term = next++;
+					termNamespace[term] = (byte)ns;
+					termLevel[term] = (byte)l;
+
+					int first = numberOfParents[0];
+					int primary = urn[rnd.nextInt(urnSize)];
+					urn[urnSize++] = primary;
+					addParent(numberOfParents, primary, false);
+
+					for (int extra=0;extra<3 && rnd.nextDouble() < multipleParentProbability;extra++)
+					{
+						int parent = lowest + rnd.nextInt(start - lowest);
+						boolean partOf = rnd.nextDouble() < partOfProbability;
+						boolean known = false;
+						for (int i=first;i<numberOfParents[0];i++)
+							known |= parents[i] == parent;
+						if (!known)
+							addParent(numberOfParents, parent, partOf);
+					}
+					parentStart[term + 1] = numberOfParents[0];
+				}
+			}
+		}
+	}
+
+	private void generateAnnotationStructure()
+	{
+		Random rnd = new Random(seed + 1);
+
+		/* Roots are never annotated */
+		annotatableTerms = new int[numberOfTerms - numberOfNamespaces];
+		cumulativeTermWeights = new double[annotatableTerms.length];
+		double sum = 0;
+		int j = 0;
+		for (int i=0;i<numberOfTerms;i++)
+		{
+			if (termLevel[i] == 0)
+				continue;
+			annotatableTerms[j] = i;
+			sum += pareto(rnd, termPopularityExponent);
+			cumulativeTermWeights[j] = sum;
+			j++;
+		}
+
+		/* No gene is annotated to more than half of the terms */
+		int cap = Math.max(1, annotatableTerms.length / 2);
+		if ((long)cap * numberOfGenes < numberOfAssociations)
+			throw new IllegalArgumentException("Too many associations (" + numberOfAssociations + ") for the given number of terms and genes");
+
+		double [] geneWeights = new double[numberOfGenes];
+		double geneWeightSum = 0;
+		for (int i=0;i<numberOfGenes;i++)
+		{
+			geneWeights[i] = pareto(rnd, annotationExponent);
+			geneWeightSum += geneWeights[i];
+		}
+
+		associationsPerGene = new int[numberOfGenes];
+		long assigned = 0;
+		int rest = numberOfAssociations - numberOfGenes;
+		for (int i=0;i<numberOfGenes;i++)
+		{
+			associationsPerGene[i] = 1 + (int)Math.min(cap - 1, Math.floor(rest * geneWeights[i] / geneWeightSum));
+			assigned += associationsPerGene[i];
+		}
+		while (assigned < numberOfAssociations)
+		{
+			int gene = rnd.nextInt(numberOfGenes);
+			if (associationsPerGene[gene] < cap)
+			{
+				associationsPerGene[gene]++;
+				assigned++;
+			}
+		}
+	}
+
+	/**
+	 * Draws a term according to the term popularities.
+	 */
+	private int drawTerm(Random rnd)
+	{
+		double r = rnd.nextDouble() * cumulativeTermWeights[cumulativeTermWeights.length - 1];
+		int idx = Arrays.binarySearch(cumulativeTermWeights, r);
+		if (idx < 0) idx = -idx - 1;
+		return Math.min(idx, cumulativeTermWeights.length - 1);
+	}
+
+	/**
+	 * Receives the generated associations.
+	 */
+	private interface IAssociationSink
+	{
+		void add(int gene, int term) throws IOException;
+	}
+
+	/**
+	 * Generates the associations gene by gene and passes them to the given sink.
+	 * The terms of a gene are distinct.
+	 */
+	private void generateAssociations(IAssociationSink sink) throws IOException
+	{
+		generate();
+
+		Random rnd = new Random(seed + 2);
+		HashSet<Integer> chosen = new HashSet<Integer>();
+		for (int gene=0;gene<numberOfGenes;gene++)
+		{
+			int count = associationsPerGene[gene];
+			chosen.clear();
+
+			/* Popular terms may be hit repeatedly, in which case we fall back
+			 * to pick the next unused term */
+			int attempts = 0;
+			while (chosen.size() < count)
+			{
+				int idx = drawTerm(rnd);
+				if (attempts++ > 10 * count)
+				{
+					while (chosen.contains(idx))
+						idx = (idx + 1) % annotatableTerms.length;
+				}
+				if (chosen.add(idx))
+					sink.add(gene, annotatableTerms[idx]);
+			}
+		}
+	}
+
+	/**
+	 * Creates the terms of the ontology.
+	 *
+	 * @return the terms
+	 */
+	public TermContainer createTermContainer()
+	{
+		generate();
+
+		Namespace [] namespaces = new Namespace[numberOfNamespaces];
+		for (int i=0;i<numberOfNamespaces;i++)
+			namespaces[i] = new Namespace(getNamespaceName(i));
+
+		TermID [] ids = new TermID[numberOfTerms];
+		for (int i=0;i<numberOfTerms;i++)
+			ids[i] = getTermID(i);
+
+		HashSet<Term> terms = new HashSet<Term>();
+		for (int i=0;i<numberOfTerms;i++)
+		{
+			ArrayList<ParentTermID> parentIDs = new ArrayList<ParentTermID>(parentStart[i + 1] - parentStart[i]);
+			for (int j=parentStart[i];j<parentStart[i + 1];j++)
+				parentIDs.add(new ParentTermID(ids[parents[j]], parentIsPartOf[j] ? TermRelation.PART_OF_A : TermRelation.IS_A));
+			terms.add(new Term(ids[i], getTermName(i), namespaces[termNamespace[i]], parentIDs));
+		}
+		return new TermContainer(terms, "1.2", "");
+	}
+
+	private String getTermName(int term)
+	{
+		if (termLevel[term] == 0)
+			return getNamespaceName(termNamespace[term]);
+		return "term" + (term + 1);
+	}
+
+	/**
+	 * Creates the associations.
+	 *
+	 * @return the associations
+	 */
+	public AssociationContainer createAssociationContainer()
+	{
+		final AssociationContainer assoc = new AssociationContainer();
+		final TermID [] ids = new TermID[numberOfTerms];
+		final ByteString [] genes = getGenes().toArray(new ByteString[0]);
+		try
+		{
+			generateAssociations(new IAssociationSink()
+			{
+				public void add(int gene, int term)
+				{
+					if (ids[term] == null)
+						ids[term] = getTermID(term);
+					assoc.addAssociation(new Association(genes[gene], ids[term]));
+				}
+			});
+		} catch (IOException e)
+		{
+			/* Cannot happen as the sink doesn't throw */
+			throw new RuntimeException(e);
+		}
+		return assoc;
+	}
+
+	/**
+	 * Opens the given file for writing, compressed if the file name
+	 * ends with .gz.
+	 */
+	private static Writer open(File file) throws IOException
+	{
+		OutputStream os = new FileOutputStream(file);
+		if (file.getName().endsWith(".gz"))
+			os = new GZIPOutputStream(os, 65536);
+		return new BufferedWriter(new OutputStreamWriter(os, "UTF-8"), 65536);
+	}
+
+	/**
+	 * Writes the ontology in the OBO format. The file is compressed if the
+	 * name ends with .gz.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeOBO(File file) throws IOException
+	{
+		generate();
+
+		Writer out = open(file);
+		try
+		{
+			StringBuilder str = new StringBuilder();
+			str.append("format-version: 1.2\n");
+			str.append("date: 01:01:2000 00:00\n");
+			str.append("default-namespace: ").append(getNamespaceName(0)).append('\n');
+			out.write(str.toString());
+
+			for (int i=0;i<numberOfTerms;i++)
+			{
+				str.setLength(0);
+				str.append("\n[Term]\n");
+				str.append("id: ").append(getTermID(i)).append('\n');
+				str.append("name: ").append(getTermName(i)).append('\n');
+				str.append("namespace: ").append(getNamespaceName(termNamespace[i])).append('\n');
+				for (int j=parentStart[i];j<parentStart[i + 1];j++)
+				{
+					if (parentIsPartOf[j])
+						str.append("relationship: part_of ");
+					else
+						str.append("is_a: ");
+					str.append(getTermID(parents[j])).append('\n');
+				}
+				out.write(str.toString());
+			}
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the associations in the GAF format. The file is compressed if the
+	 * name ends with .gz.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeGAF(File file) throws IOException
+	{
+		final Writer out = open(file);
+		try
+		{
+			out.write("!gaf-version: 1.0\n");
+
+			final StringBuilder str = new StringBuilder();
+			generateAssociations(new IAssociationSink()
+			{
+				public void add(int gene, int term) throws IOException
+				{
+					String name = getGeneName(gene);
+					str.setLength(0);
+					str.append("SYN\t").append(name).append('\t').append(name).append("\t\t");
+					str.append(getTermID(term)).append("\tSYN_REF:1\tIEA\t\t");
+					str.append(getAspect(termNamespace[term]));
+					str.append("\t\t\tgene\ttaxon:1\t20000101\tSYN\n");
+					out.write(str.toString());
+				}
+			});
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		SyntheticDataCLIConfig cliConfig = new SyntheticDataCLIConfig();
+		JCommander jc = new JCommander(cliConfig);
+		jc.parse(args);
+		jc.setProgramName(SyntheticDataGenerator.class.getSimpleName());
+		if (cliConfig.help)
+		{
+			jc.usage();
+			System.exit(0);
+		}
+
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(cliConfig.terms, cliConfig.genes, cliConfig.associations, cliConfig.seed);
+		generator.setNumberOfNamespaces(cliConfig.namespaces);
+		generator.setMaxDepth(cliConfig.maxDepth);
+
+		long start = System.currentTimeMillis();
+		generator.writeOBO(new File(cliConfig.obo));
+		generator.writeGAF(new File(cliConfig.gaf));
+		System.err.println("Wrote " + cliConfig.terms + " terms and " + cliConfig.associations + " associations in " + (System.currentTimeMillis() - start) + " ms");
+	}
+}
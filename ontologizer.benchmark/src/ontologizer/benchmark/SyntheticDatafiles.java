@@ -0,0 +1,76 @@
+package ontologizer.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import ontologizer.go.Ontology;
+import ontologizer.go.TermContainer;
+import ontologizer.types.ByteString;
+
+/**
+ * Provides a random ontology and random associations of the given size.
+ * The same seed yields the same data, so the data can be used for
+ * reproducible benchmarks without the need to download anything.
+ *
+ * @see SyntheticDataGenerator
+ */
+public class SyntheticDatafiles extends Datafiles
+{
+	private SyntheticDataGenerator generator;
+
+	public TermContainer terms;
+
+	/** The names of all genes */
+	public List<ByteString> genes;
+
+	/**
+	 * Creates the data.
+	 *
+	 * @param numberOfTerms the number of terms of the ontology.
+	 * @param numberOfGenes the number of annotated genes.
+	 * @param associationsPerGene the average number of associations of a gene.
+	 * @param seed
+	 */
+	public SyntheticDatafiles(int numberOfTerms, int numberOfGenes, int associationsPerGene, long seed)
+	{
+		this(new SyntheticDataGenerator(numberOfTerms, numberOfGenes, numberOfGenes * associationsPerGene, seed));
+	}
+
+	/**
+	 * Creates the data of the given generator.
+	 *
+	 * @param generator
+	 */
+	public SyntheticDatafiles(SyntheticDataGenerator generator)
+	{
+		this.generator = generator;
+
+		terms = generator.createTermContainer();
+		graph = Ontology.create(terms);
+		assoc = generator.createAssociationContainer();
+		genes = generator.getGenes();
+	}
+
+	/**
+	 * Writes the ontology in the OBO format.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeOBO(File file) throws IOException
+	{
+		generator.writeOBO(file);
+	}
+
+	/**
+	 * Writes the associations in the GAF format.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeGAF(File file) throws IOException
+	{
+		generator.writeGAF(file);
+	}
+}
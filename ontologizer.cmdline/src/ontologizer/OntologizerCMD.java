@@ -2,7 +2,10 @@ package ontologizer;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -11,10 +14,16 @@ import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
+import ontologizer.batch.OntologizerBatch;
 import ontologizer.calculation.EnrichedGOTermsResult;
 import ontologizer.calculation.EnrichedGOTermsTableWriter;
+import ontologizer.calculation.IResultWriter;
+import ontologizer.daemon.OntologizerDaemon;
 import ontologizer.go.OBOParserException;
 import ontologizer.go.TermID;
+import ontologizer.metrics.JSONMetricsExporter;
+import ontologizer.metrics.Metrics;
+import ontologizer.metrics.PhaseTimeline;
 
 /**
  * OntologizerCMD.java
@@ -54,6 +63,21 @@ public class OntologizerCMD
 		return val;
 	}
 
+	/**
+	 * Writes the metrics collected so far into the file that is specified
+	 * by the metrics option, if any.
+	 *
+	 * @param cmd
+	 * @throws IOException
+	 */
+	private static void writeMetrics(CommandLine cmd) throws IOException
+	{
+		if (!cmd.hasOption("metrics"))
+			return;
+
+		new JSONMetricsExporter(new File(cmd.getOptionValue("metrics"))).export(Metrics.getRegistry());
+	}
+
 	/**
 	 * Extract command line arguments and use them to direct program flow using
 	 * a Controller instance.
@@ -88,14 +112,40 @@ public class OntologizerCMD
 				System.exit(0);
 			}
 
+			/* Perform the analyses of a manifest */
+			if (cmd.hasOption('b'))
+			{
+				OntologizerBatch batch;
+				try
+				{
+					batch = new OntologizerBatch(new File(cmd.getOptionValue('b')));
+				} catch (java.text.ParseException e)
+				{
+					System.err.println("Unable to parse the manifest: " + e.getLocalizedMessage());
+					System.exit(-1);
+					return;
+				}
+				batch.run();
+				writeMetrics(cmd);
+				if (batch.getNumberOfFailedTasks() > 0)
+				{
+					System.err.println(batch.getNumberOfFailedTasks() + " of " + batch.getNumberOfTasks() + " analyses have failed!");
+					System.exit(-1);
+				}
+				return;
+			}
+
 			arguments.goTermsOBOFile = getRequiredOptionValue(cmd,'g');
 			arguments.associationFile = getRequiredOptionValue(cmd,'a');
 			arguments.populationFile = getRequiredOptionValue(cmd,'p');
-			arguments.studySet = getRequiredOptionValue(cmd,'s');
+			if (!cmd.hasOption('l'))
+				arguments.studySet = getRequiredOptionValue(cmd,'s');
 			arguments.calculationName = cmd.getOptionValue('c');
 			arguments.correctionName = cmd.getOptionValue('m');
 			arguments.filterOutUnannotatedGenes = cmd.hasOption('i');
 			arguments.filterFile = cmd.getOptionValue('f');
+			arguments.partitionBySubontology = cmd.hasOption('u');
+			arguments.approximateLargePValues = cmd.hasOption("approximate");
 
 			/* Prepare the output directory name */
 			String outputDirectoryName = cmd.getOptionValue('o', ".");
@@ -186,6 +236,34 @@ public class OntologizerCMD
 				}
 			}
 
+			/* Serve requests instead of analyzing the given study sets */
+			if (cmd.hasOption('l'))
+			{
+				int port = -1;
+				try
+				{
+					port = Integer.parseInt(cmd.getOptionValue('l'));
+				} catch (NumberFormatException e)
+				{
+				}
+				if (port < 0 || port > 65535)
+				{
+					System.err.println("The port needs to be an integer between 0 and 65535");
+					System.exit(-1);
+				}
+				if (arguments.partitionBySubontology)
+				{
+					System.err.println("The separate analysis of subontologies (--subontologies) is not supported with --listen");
+					System.exit(-1);
+				}
+
+				int threads = Runtime.getRuntime().availableProcessors();
+				OntologizerDaemon daemon = new OntologizerDaemon(arguments);
+				daemon.start(port, threads, threads * 16);
+				System.err.println("Listening on port " + daemon.getPort());
+				return;
+			}
+
 			/* Evaluate the dot option */
 			boolean createDOTFile = cmd.hasOption('d');
 			double alpha = 0.05;
@@ -235,39 +313,77 @@ public class OntologizerCMD
 			/* Annotations */
 			boolean createAnnotations = cmd.hasOption('n');
 
+			/* Timelines */
+			boolean createTimeline = cmd.hasOption("timeline");
+
 			/* Now issue the calculation */
 			OntologizerCore controller = new OntologizerCore(arguments);
 
 			EnrichedGOTermsResult studySetResult;
 
-			while ((studySetResult = controller.calculateNextStudy()) != null)
-			{
-				/* outfile names are composed of StudySet name, calculation name and correction name */
-				String outBasename = studySetResult.getStudySet().getName()
-						+ "-" + controller.getCalculationName()
-						+ "-" + controller.getTestCorrectionName();
+			/* The results are either streamed into a single file or written as table per study set */
+			IResultWriter resultWriter = null;
+			if (cmd.hasOption('w'))
+				resultWriter = EnrichedGOTermsTableWriter.createWriter(new File(outputDirectoryName,cmd.getOptionValue('w')));
 
+			try
+			{
+				while ((studySetResult = controller.calculateNextStudy()) != null)
 				{
-					String tableName = "table-" + outBasename + ".txt";
-					File outFile = new File(outputDirectoryName,tableName);
-					EnrichedGOTermsTableWriter.writeTable(outFile, studySetResult);
-				}
+					/* outfile names are composed of StudySet name, calculation name and correction name */
+					String outBasename = studySetResult.getStudySet().getName()
+							+ "-" + controller.getCalculationName()
+							+ "-" + controller.getTestCorrectionName();
 
-				if (createDOTFile)
-				{
-					String dotName = "view-" + outBasename + ".dot";
-					File outFile = new File(outputDirectoryName,dotName);
-					studySetResult.writeDOT(controller.getGoGraph(),outFile,alpha,true,dotRootID);
-				}
+					if (resultWriter != null)
+					{
+						resultWriter.write(studySetResult);
+					} else
+					{
+						String tableName = "table-" + outBasename + ".txt";
+						File outFile = new File(outputDirectoryName,tableName);
+						EnrichedGOTermsTableWriter.writeTable(outFile, studySetResult);
+					}
 
-				if (createAnnotations)
-				{
-					String annoName = "anno-" + outBasename + ".txt";
-					File outFile = new File(outputDirectoryName,annoName);
-					System.err.println("Writing anno file to " + outFile.getCanonicalPath());
-					studySetResult.getStudySet().writeSetWithAnnotations(controller.getGoGraph(),controller.getGoAssociations(),outFile);
+					if (createDOTFile)
+					{
+						String dotName = "view-" + outBasename + ".dot";
+						File outFile = new File(outputDirectoryName,dotName);
+						studySetResult.writeDOT(controller.getGoGraph(),outFile,alpha,true,dotRootID);
+					}
+
+					if (createAnnotations)
+					{
+						String annoName = "anno-" + outBasename + ".txt";
+						File outFile = new File(outputDirectoryName,annoName);
+						System.err.println("Writing anno file to " + outFile.getCanonicalPath());
+						studySetResult.getStudySet().writeSetWithAnnotations(controller.getGoGraph(),controller.getGoAssociations(),outFile);
+					}
+
+					if (createTimeline)
+					{
+						/* The loading is done only once but it is included for every study set */
+						PhaseTimeline timeline = new PhaseTimeline();
+						timeline.addAll(controller.getLoadTimeline());
+						timeline.addAll(studySetResult.getTimeline());
+
+						String timelineName = "timeline-" + outBasename + ".json";
+						Writer out = new OutputStreamWriter(new FileOutputStream(new File(outputDirectoryName,timelineName)), "UTF-8");
+						try
+						{
+							timeline.writeJSON(out);
+						} finally
+						{
+							out.close();
+						}
+					}
 				}
+			} finally
+			{
+				if (resultWriter != null)
+					resultWriter.close();
 			}
+			writeMetrics(cmd);
 		} catch (ParseException e)
 		{
 			System.err.println("Unable to parse the command line: " + e.getLocalizedMessage());
@@ -280,6 +396,10 @@ public class OntologizerCMD
 		{
 			System.err.println(e.getMessage());
 			System.exit(-1);
+		} catch (InterruptedException e)
+		{
+			System.err.println("Interrupted!");
+			System.exit(-1);
 		} catch (OBOParserException e)
 		{
 			// TODO Auto-generated catch block
@@ -144,6 +144,9 @@ public class OntologizerMethodCompareCMD
 						EnrichedGOTermsResult studySetResult = iter.next();
 						String studySetName = studySetResult.getStudySet().getName();
 
+						/* The results of all methods are kept until the end */
+						studySetResult.compact();
+
 						if (studResListsHash.containsKey(studySetName)) {
 							studResListsHash.get(studySetName).addStudySetResult(studySetResult);
 						} else {
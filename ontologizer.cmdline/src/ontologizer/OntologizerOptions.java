@@ -99,8 +99,35 @@ public class OntologizerOptions
 				"The GO term identifier id restricts the output to the subgraph originating at id."
 				).build());
 		options.addOption(new Option("n","annotation",false,"Create an additional file per study set which contains the annotations."));
+		options.addOption(Option.builder().longOpt("timeline").desc(
+				"Create an additional JSON file per study set which contains the time spent and the memory allocated in each phase of the analysis."
+				).build());
 		options.addOption(new Option("f","filter",true,"Filter the gene names by appling rules in a given file (currently only mapping supported)."));
 		options.addOption(new Option("o","outdir",true,"Specfies the directory in which the results will be placed."));
+		options.addOption(Option.builder("w").longOpt("write").argName("file").hasArg().desc(
+				"Write the results of all study sets into the given file instead of writing a table per study set. "+
+				"Files ending with \".col\" are written in a columnar binary format, files ending with \".gz\" as "+
+				"compressed table and all others as table with the name of the study set in the first column."
+				).build());
+		options.addOption(Option.builder("l").longOpt("listen").argName("port").hasArg().desc(
+				"Run as a service that keeps the data loaded and analyzes study sets that are sent to the given local port "+
+				"via HTTP (POST to /analyze a JSON object with an array of \"genes\" and optionally \"calculation\" and \"mtc\"). "+
+				"The study set option is not required then. A port of 0 selects any free port."
+				).build());
+		options.addOption(Option.builder("b").longOpt("batch").argName("file").hasArg().desc(
+				"Perform the analyses that are described by the given manifest (a JSON object with an array of \"jobs\", each naming " +
+				"\"studies\", \"ontology\", \"associations\", \"population\", \"calculations\" and \"mtcs\"). Analyses whose " +
+				"result exists already are skipped, so an interrupted batch can be resumed. No other option is required then."
+				).build());
+		options.addOption(Option.builder().longOpt("approximate").desc(
+				"Approximate the p values of terms with many annotated genes when they are far from being significant. " +
+				"Their absolute error is below 0.01, all other p values are exact."
+				).build());
+		options.addOption(Option.builder().longOpt("metrics").argName("file").hasArg().desc(
+				"Write the metrics of the run, e.g., the time spent for parsing and for each calculation, as JSON into the given file."
+				).build());
+		options.addOption(new Option("u","subontologies",false,"Analyze each subontology (e.g., biological_process) separately and concurrently. " +
+				"The multiple test correction is then applied within each subontology."));
 
 		if (resamplingBasedMTCsExists) {
 			options.addOption(new Option("r","resamplingsteps", true, "Specifies the number of steps used in resampling based MTCs"));
@@ -0,0 +1,650 @@
+package ontologizer.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ontologizer.OntologizerCore;
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.AssociationParser;
+import ontologizer.calculation.CalculationMetrics;
+import ontologizer.calculation.CalculationRegistry;
+import ontologizer.calculation.EnrichedGOTermsResult;
+import ontologizer.calculation.ICalculation;
+import ontologizer.calculation.TableResultWriter;
+import ontologizer.filter.GeneFilter;
+import ontologizer.go.OBOParser;
+import ontologizer.go.OBOParserFileInput;
+import ontologizer.go.Ontology;
+import ontologizer.go.TermContainer;
+import ontologizer.set.PopulationSet;
+import ontologizer.set.StudySet;
+import ontologizer.set.StudySetFactory;
+import ontologizer.set.StudySetList;
+import ontologizer.statistics.AbstractTestCorrection;
+import ontologizer.statistics.IResampling;
+import ontologizer.statistics.TestCorrectionRegistry;
+import ontologizer.types.ByteString;
+import ontologizer.util.JSON;
+import ontologizer.worksets.DataCache;
+import ontologizer.worksets.WorkSetLoader;
+
+/**
+ * Runs the analyses that are described by a manifest.
+ *
+ * <P>
+ * The manifest is a JSON object. Its field <code>jobs</code> is an array
+ * of job objects. A job analyzes the study sets given by
+ * <code>studies</code> (a study set file or a directory of study set
+ * files, or an array of them) with each of the <code>calculations</code>
+ * and each of the <code>mtcs</code>. Further fields of a job are
+ * <code>ontology</code>, <code>associations</code>,
+ * <code>population</code>, <code>filter</code>, <code>ignore</code>,
+ * <code>suffix</code>, <code>resamplingSteps</code>,
+ * <code>sizeTolerance</code> and <code>name</code>, which names the
+ * subdirectory of the results. Fields that are not specified by a job
+ * are taken from the manifest object itself. In addition, the manifest
+ * may specify the output directory <code>outdir</code> and the number of
+ * <code>threads</code>. Relative paths are resolved against the directory
+ * of the manifest.
+ * </P>
+ *
+ * Each distinct ontology, annotation and population is loaded and
+ * enumerated only once and all analyses are performed on a shared pool
+ * of threads. Results are written atomically, so if the batch is run
+ * again, analyses whose result already exists are skipped.
+ */
+public class OntologizerBatch
+{
+	private static Logger logger = Logger.getLogger(OntologizerBatch.class.getName());
+
+	/** Estimated number of bytes occupied by a gene of a population */
+	private static final long GENE_WEIGHT = 512;
+
+	/**
+	 * The data that is shared by the tasks of the same ontology, annotation,
+	 * population and filter settings. The parameters of the test correction
+	 * belong to the tasks, so the population is loaded and enumerated only
+	 * once for all of them.
+	 */
+	static class Dataset
+	{
+		public String key;
+
+		public String oboFile;
+		public String associationFile;
+		public String populationFile;
+		public String filterFile;
+		public boolean filterOutUnannotatedGenes;
+
+		/** The study sets analyzed with this data, indexed by their paths */
+		public Map<String,List<StudySet>> studySets = new LinkedHashMap<String,List<StudySet>>();
+
+		/** Number of tasks that are not yet finished */
+		public int remainingTasks;
+
+		/* The loaded data, available while tasks remain */
+		public Ontology graph;
+		public AssociationContainer associations;
+		public PopulationSet populationSet;
+		/** Resampling test corrections, indexed by their name and parameters */
+		public Map<String,AbstractTestCorrection> resamplingCorrections = new HashMap<String,AbstractTestCorrection>();
+	}
+
+	/**
+	 * An analysis of a study set with one calculation and one test
+	 * correction.
+	 */
+	static class Task
+	{
+		public Dataset dataset;
+		public StudySet studySet;
+		public String calculationName;
+		public String correctionName;
+		public int resamplingSteps;
+		public int sizeTolerance;
+		public File outFile;
+	}
+
+	private List<Task> tasks = new ArrayList<Task>();
+	private int numberOfThreads;
+
+	/** Ontologies, associations and populations, shared by the datasets */
+	private DataCache cache = new DataCache(Runtime.getRuntime().maxMemory() / 4);
+
+	private AtomicInteger finishedTasks = new AtomicInteger();
+	private AtomicInteger failedTasks = new AtomicInteger();
+
+	/**
+	 * Creates the plan of the given manifest. The study sets are read,
+	 * the other files are loaded when the batch is run.
+	 *
+	 * @param manifestFile
+	 * @throws IOException
+	 * @throws ParseException if the manifest is invalid.
+	 */
+	public OntologizerBatch(File manifestFile) throws IOException, ParseException
+	{
+		Object json = JSON.parse(read(manifestFile));
+		if (!(json instanceof Map))
+			throw new ParseException("The manifest must be an object", 0);
+
+		Map<?,?> manifest = (Map<?,?>)json;
+		File base = manifestFile.getAbsoluteFile().getParentFile();
+		File outDirectory = new File(base, getString(manifest, null, "outdir", "."));
+		numberOfThreads = getInt(manifest, null, "threads", Runtime.getRuntime().availableProcessors());
+		if (numberOfThreads < 1)
+			throw new ParseException("The number of threads must be positive", 0);
+
+		Object jobs = manifest.get("jobs");
+		if (!(jobs instanceof List))
+			throw new ParseException("The manifest doesn't contain an array of jobs", 0);
+
+		Map<String,Dataset> datasets = new HashMap<String,Dataset>();
+		Map<String,GeneFilter> filters = new HashMap<String,GeneFilter>();
+		Set<File> outFiles = new HashSet<File>();
+
+		for (Object j : (List<?>)jobs)
+		{
+			if (!(j instanceof Map))
+				throw new ParseException("A job must be an object", 0);
+			Map<?,?> job = (Map<?,?>)j;
+
+			Dataset dataset = new Dataset();
+			dataset.oboFile = resolve(base, getString(job, manifest, "ontology", null));
+			dataset.associationFile = resolve(base, getString(job, manifest, "associations", null));
+			dataset.populationFile = resolve(base, getString(job, manifest, "population", null));
+			dataset.filterFile = resolve(base, getString(job, manifest, "filter", null));
+			dataset.filterOutUnannotatedGenes = getBoolean(job, manifest, "ignore", false);
+			if (dataset.oboFile == null || dataset.associationFile == null || dataset.populationFile == null)
+				throw new ParseException("A job lacks the ontology, the associations or the population", 0);
+
+			dataset.key = dataset.oboFile + "\n" + dataset.associationFile + "\n" + dataset.populationFile + "\n" +
+					dataset.filterFile + "\n" + dataset.filterOutUnannotatedGenes;
+			if (datasets.containsKey(dataset.key)) dataset = datasets.get(dataset.key);
+			else datasets.put(dataset.key, dataset);
+
+			List<String> calculations = getStrings(job, manifest, "calculations", "calculation");
+			if (calculations.isEmpty()) calculations.add(CalculationRegistry.getDefault().getName());
+			for (String calculationName : calculations)
+			{
+				if (CalculationRegistry.getCalculationByName(calculationName) == null)
+					throw new ParseException("Unknown calculation \"" + calculationName + "\"", 0);
+			}
+
+			List<String> mtcs = getStrings(job, manifest, "mtcs", "mtc");
+			if (mtcs.isEmpty()) mtcs.add(TestCorrectionRegistry.getDefault().getName());
+			for (String correctionName : mtcs)
+			{
+				if (TestCorrectionRegistry.getCorrectionByName(correctionName) == null)
+					throw new ParseException("Unknown multiple test correction \"" + correctionName + "\"", 0);
+			}
+
+			int resamplingSteps = getInt(job, manifest, "resamplingSteps", 0);
+			int sizeTolerance = getInt(job, manifest, "sizeTolerance", 0);
+
+			String name = getString(job, null, "name", null);
+			File jobOutDirectory = name != null ? new File(outDirectory, name) : outDirectory;
+			String suffix = getString(job, manifest, "suffix", null);
+
+			GeneFilter filter = null;
+			if (dataset.filterFile != null)
+			{
+				filter = filters.get(dataset.filterFile);
+				if (filter == null)
+				{
+					filter = new GeneFilter(new File(dataset.filterFile));
+					filters.put(dataset.filterFile, filter);
+				}
+			}
+
+			for (String studies : getStrings(job, manifest, "studies", "study"))
+			{
+				String path = resolve(base, studies);
+
+				/* Study sets cache data that depends on the dataset, hence
+				 * they are read for each dataset */
+				List<StudySet> studySets = dataset.studySets.get(path);
+				if (studySets == null)
+				{
+					studySets = readStudySets(path, suffix);
+					if (filter != null)
+					{
+						for (StudySet studySet : studySets)
+							studySet.applyFilter(filter);
+					}
+					dataset.studySets.put(path, studySets);
+				}
+
+				for (StudySet studySet : studySets)
+				{
+					for (String calculationName : calculations)
+					{
+						for (String correctionName : mtcs)
+						{
+							Task task = new Task();
+							task.dataset = dataset;
+							task.studySet = studySet;
+							task.calculationName = calculationName;
+							task.correctionName = correctionName;
+							task.resamplingSteps = resamplingSteps;
+							task.sizeTolerance = sizeTolerance;
+							task.outFile = new File(jobOutDirectory, "table-" + studySet.getName() + "-" + calculationName + "-" + correctionName + ".txt");
+							if (!outFiles.add(task.outFile))
+								throw new ParseException("Several analyses would be written to \"" + task.outFile.getPath() + "\". Use distinct job names.", 0);
+							tasks.add(task);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the number of analyses of the batch.
+	 */
+	public int getNumberOfTasks()
+	{
+		return tasks.size();
+	}
+
+	/**
+	 * @return the number of distinct datasets used by the analyses.
+	 */
+	int getNumberOfDatasets()
+	{
+		Set<Dataset> datasets = new HashSet<Dataset>();
+		for (Task task : tasks)
+			datasets.add(task.dataset);
+		return datasets.size();
+	}
+
+	/**
+	 * @return the number of analyses that have failed.
+	 */
+	public int getNumberOfFailedTasks()
+	{
+		return failedTasks.get();
+	}
+
+	/**
+	 * Runs all analyses whose results don't exist yet.
+	 *
+	 * @return the number of analyses that have been performed.
+	 * @throws InterruptedException
+	 */
+	public int run() throws InterruptedException
+	{
+		/* Skip the analyses that have been finished before */
+		final List<Task> pending = new ArrayList<Task>();
+		for (Task task : tasks)
+		{
+			if (!task.outFile.exists())
+			{
+				pending.add(task);
+				task.dataset.remainingTasks++;
+			}
+		}
+		logger.info((tasks.size() - pending.size()) + " of " + tasks.size() + " analyses have been finished before");
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		try
+		{
+			for (final Task task : pending)
+			{
+				executor.execute(new Runnable()
+				{
+					public void run()
+					{
+						try
+						{
+							perform(task);
+							logger.info("[" + finishedTasks.incrementAndGet() + "/" + pending.size() + "] Written \"" + task.outFile.getPath() + "\"");
+						} catch (Exception e)
+						{
+							failedTasks.incrementAndGet();
+							logger.log(Level.SEVERE, "[" + finishedTasks.incrementAndGet() + "/" + pending.size() + "] Failed to analyze \"" + task.studySet.getName() + "\" for \"" + task.outFile.getPath() + "\"", e);
+						} finally
+						{
+							release(task.dataset);
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+		} finally
+		{
+			executor.shutdownNow();
+		}
+		return pending.size();
+	}
+
+	/**
+	 * Performs the given task.
+	 *
+	 * @param task
+	 * @throws Exception
+	 */
+	private void perform(Task task) throws Exception
+	{
+		Dataset dataset = task.dataset;
+		load(dataset);
+
+		ICalculation calculation = OntologizerCore.createCalculation(task.calculationName);
+		AbstractTestCorrection testCorrection = getTestCorrection(dataset, task);
+
+		EnrichedGOTermsResult result;
+		if (testCorrection instanceof IResampling)
+		{
+			/* The caches of the resampling are not thread-safe */
+			synchronized (testCorrection)
+			{
+				result = CalculationMetrics.calculateStudySet(calculation, dataset.graph, dataset.associations, dataset.populationSet, task.studySet, testCorrection);
+			}
+		} else
+		{
+			result = CalculationMetrics.calculateStudySet(calculation, dataset.graph, dataset.associations, dataset.populationSet, task.studySet, testCorrection);
+		}
+
+		/* Write to a temporary file first, so only complete results exist */
+		task.outFile.getParentFile().mkdirs();
+		File partFile = new File(task.outFile.getPath() + ".part");
+		OutputStream os = new FileOutputStream(partFile);
+		try
+		{
+			if (result.iterator().hasNext())
+			{
+				TableResultWriter out = new TableResultWriter(os, false);
+				out.write(result);
+				out.close();
+			}
+		} finally
+		{
+			os.close();
+		}
+		if (!partFile.renameTo(task.outFile))
+			throw new IOException("Unable to rename \"" + partFile + "\" to \"" + task.outFile + "\"");
+	}
+
+	/**
+	 * Returns the test correction for the given task. Resampling based
+	 * test corrections are shared by all tasks of the dataset with the same
+	 * parameters, so their caches are kept.
+	 *
+	 * @param dataset
+	 * @param task
+	 * @return
+	 */
+	private AbstractTestCorrection getTestCorrection(Dataset dataset, Task task)
+	{
+		if (!(TestCorrectionRegistry.getCorrectionByName(task.correctionName) instanceof IResampling))
+			return OntologizerCore.createTestCorrection(task.correctionName, task.resamplingSteps, task.sizeTolerance);
+
+		String key = task.correctionName + "\n" + task.resamplingSteps + "\n" + task.sizeTolerance;
+		synchronized (dataset)
+		{
+			AbstractTestCorrection testCorrection = dataset.resamplingCorrections.get(key);
+			if (testCorrection == null)
+			{
+				testCorrection = OntologizerCore.createTestCorrection(task.correctionName, task.resamplingSteps, task.sizeTolerance);
+				dataset.resamplingCorrections.put(key, testCorrection);
+			}
+			return testCorrection;
+		}
+	}
+
+	/**
+	 * Loads the data of the given dataset unless it has been loaded
+	 * already.
+	 *
+	 * @param dataset
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	private void load(final Dataset dataset) throws InterruptedException, ExecutionException
+	{
+		synchronized (dataset)
+		{
+			if (dataset.populationSet != null)
+				return;
+
+			final Ontology graph = cache.get(dataset.oboFile, new DataCache.Loader<Ontology>()
+			{
+				public Ontology load() throws Exception
+				{
+					logger.info("Parse obo file \"" + dataset.oboFile + "\"");
+					OBOParser oboParser = new OBOParser(new OBOParserFileInput(dataset.oboFile), 0, OBOParser.ESSENTIAL_TAGS);
+					oboParser.doParse();
+					return Ontology.create(new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate()));
+				}
+
+				public long weigh(Ontology value)
+				{
+					return WorkSetLoader.weigh(value);
+				}
+			});
+
+			final AssociationContainer associations = cache.get(dataset.oboFile + "\n" + dataset.associationFile, new DataCache.Loader<AssociationContainer>()
+			{
+				public AssociationContainer load() throws Exception
+				{
+					logger.info("Parse association file \"" + dataset.associationFile + "\"");
+					AssociationParser ap = new AssociationParser(new OBOParserFileInput(dataset.associationFile), graph.getTermContainer());
+					return new AssociationContainer(ap.getAssociations(), ap.getSynonym2gene(), ap.getDbObject2gene());
+				}
+
+				public long weigh(AssociationContainer value)
+				{
+					return WorkSetLoader.weigh(value);
+				}
+			});
+
+			/* The study sets are part of the dataset, so they are prepared
+			 * as in OntologizerCore */
+			final Set<ByteString> studyGenes = new LinkedHashSet<ByteString>();
+			for (List<StudySet> studySets : dataset.studySets.values())
+			{
+				for (StudySet studySet : studySets)
+				{
+					studySet.filterOutDuplicateGenes(associations);
+					if (dataset.filterOutUnannotatedGenes)
+						studySet.filterOutAssociationlessGenes(associations);
+					studyGenes.addAll(studySet.getAllGeneNames());
+				}
+			}
+
+			PopulationSet populationSet = cache.get(dataset.key, new DataCache.Loader<PopulationSet>()
+			{
+				public PopulationSet load() throws Exception
+				{
+					PopulationSet populationSet = (PopulationSet)StudySetFactory.createFromFile(new File(dataset.populationFile), true);
+					if (dataset.filterFile != null)
+						populationSet.applyFilter(new GeneFilter(new File(dataset.filterFile)));
+
+					/* All study genes must be contained within the population */
+					for (ByteString geneName : studyGenes)
+					{
+						if (!populationSet.contains(geneName))
+							populationSet.addGene(geneName, "");
+					}
+
+					populationSet.filterOutDuplicateGenes(associations);
+					if (dataset.filterOutUnannotatedGenes)
+						populationSet.filterOutAssociationlessGenes(associations);
+
+					/* The enumeration is cached and shared by all tasks */
+					populationSet.enumerateGOTerms(graph, associations);
+					return populationSet;
+				}
+
+				public long weigh(PopulationSet value)
+				{
+					return value.getGeneCount() * GENE_WEIGHT;
+				}
+			});
+
+			dataset.graph = graph;
+			dataset.associations = associations;
+			dataset.populationSet = populationSet;
+		}
+	}
+
+	/**
+	 * Called when a task of the dataset has been finished. The data is
+	 * released if no tasks remain.
+	 *
+	 * @param dataset
+	 */
+	private void release(Dataset dataset)
+	{
+		synchronized (dataset)
+		{
+			if (--dataset.remainingTasks > 0)
+				return;
+
+			dataset.graph = null;
+			dataset.associations = null;
+			dataset.populationSet = null;
+			dataset.resamplingCorrections.clear();
+			for (List<StudySet> studySets : dataset.studySets.values())
+			{
+				for (StudySet studySet : studySets)
+					studySet.resetCounterAndEnumerator();
+			}
+		}
+	}
+
+	/**
+	 * Reads the study sets of the given path.
+	 *
+	 * @param path a file or a directory.
+	 * @param suffix
+	 * @return
+	 * @throws IOException
+	 */
+	private static List<StudySet> readStudySets(String path, String suffix) throws IOException
+	{
+		List<StudySet> studySets = new ArrayList<StudySet>();
+		File file = new File(path);
+		if (file.isDirectory())
+		{
+			for (StudySet studySet : new StudySetList(path, suffix))
+				studySets.add(studySet);
+		} else
+		{
+			studySets.add(StudySetFactory.createFromFile(file, false));
+		}
+		return studySets;
+	}
+
+	private static String read(File file) throws IOException
+	{
+		InputStream is = new FileInputStream(file);
+		try
+		{
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			byte [] buf = new byte[8192];
+			int read;
+			while ((read = is.read(buf)) > 0)
+				bos.write(buf, 0, read);
+			return bos.toString("UTF-8");
+		} finally
+		{
+			is.close();
+		}
+	}
+
+	private static String resolve(File base, String path)
+	{
+		if (path == null)
+			return null;
+
+		File file = new File(path);
+		if (!file.isAbsolute())
+			file = new File(base, path);
+		return file.getPath();
+	}
+
+	/**
+	 * Returns the value of the given key of the job, or, if the job
+	 * doesn't specify it, of the defaults.
+	 */
+	private static Object get(Map<?,?> job, Map<?,?> defaults, String key)
+	{
+		if (job.containsKey(key)) return job.get(key);
+		if (defaults != null) return defaults.get(key);
+		return null;
+	}
+
+	private static String getString(Map<?,?> job, Map<?,?> defaults, String key, String def) throws ParseException
+	{
+		Object value = get(job, defaults, key);
+		if (value == null) return def;
+		if (!(value instanceof String)) throw new ParseException("The value of \"" + key + "\" must be a string", 0);
+		return (String)value;
+	}
+
+	private static int getInt(Map<?,?> job, Map<?,?> defaults, String key, int def) throws ParseException
+	{
+		Object value = get(job, defaults, key);
+		if (value == null) return def;
+		if (!(value instanceof Double)) throw new ParseException("The value of \"" + key + "\" must be a number", 0);
+		return ((Double)value).intValue();
+	}
+
+	private static boolean getBoolean(Map<?,?> job, Map<?,?> defaults, String key, boolean def) throws ParseException
+	{
+		Object value = get(job, defaults, key);
+		if (value == null) return def;
+		if (!(value instanceof Boolean)) throw new ParseException("The value of \"" + key + "\" must be a boolean", 0);
+		return (Boolean)value;
+	}
+
+	/**
+	 * Returns the strings of the given key, which may be given as a single
+	 * string under the singular key as well.
+	 */
+	private static List<String> getStrings(Map<?,?> job, Map<?,?> defaults, String key, String singularKey) throws ParseException
+	{
+		Object value = get(job, defaults, key);
+		if (value == null) value = get(job, defaults, singularKey);
+
+		List<String> strings = new ArrayList<String>();
+		if (value instanceof String)
+		{
+			strings.add((String)value);
+		} else if (value instanceof List)
+		{
+			for (Object v : (List<?>)value)
+			{
+				if (!(v instanceof String)) throw new ParseException("The values of \"" + key + "\" must be strings", 0);
+				strings.add((String)v);
+			}
+		} else if (value != null)
+		{
+			throw new ParseException("The value of \"" + key + "\" must be a string or an array of strings", 0);
+		}
+		return strings;
+	}
+}
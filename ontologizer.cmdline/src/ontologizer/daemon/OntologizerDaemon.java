@@ -0,0 +1,584 @@
+package ontologizer.daemon;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ontologizer.OntologizerCore;
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.AssociationParser;
+import ontologizer.calculation.AbstractGOTermProperties;
+import ontologizer.calculation.AbstractHypergeometricCalculation;
+import ontologizer.calculation.CalculationMetrics;
+import ontologizer.calculation.CalculationRegistry;
+import ontologizer.calculation.EnrichedGOTermsResult;
+import ontologizer.calculation.EnrichedGOTermsTableWriter;
+import ontologizer.calculation.ICalculation;
+import ontologizer.filter.GeneFilter;
+import ontologizer.go.OBOParser;
+import ontologizer.go.OBOParserException;
+import ontologizer.go.OBOParserFileInput;
+import ontologizer.go.Ontology;
+import ontologizer.go.TermContainer;
+import ontologizer.metrics.Metrics;
+import ontologizer.metrics.PrometheusMetricsExporter;
+import ontologizer.metrics.Timer;
+import ontologizer.set.PopulationSet;
+import ontologizer.set.StudySet;
+import ontologizer.set.StudySetFactory;
+import ontologizer.statistics.AbstractTestCorrection;
+import ontologizer.statistics.IResampling;
+import ontologizer.statistics.TestCorrectionRegistry;
+import ontologizer.types.ByteString;
+import ontologizer.util.JSON;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A long-running service that keeps the ontology, the associations and
+ * the population loaded and analyzes study sets that are sent via a
+ * small HTTP/JSON API. The service listens only on the loopback
+ * interface.
+ *
+ * <P>
+ * <code>GET /status</code> returns information about the loaded data.
+ * </P>
+ * <P>
+ * <code>GET /metrics</code> returns the metrics of the JVM in the text
+ * format of Prometheus.
+ * </P>
+ * <P>
+ * <code>POST /analyze</code> analyzes the study set given as JSON object
+ * with the fields <code>genes</code> (an array of gene names, required),
+ * <code>name</code>, <code>calculation</code>, <code>mtc</code> and
+ * <code>format</code> (either <code>json</code>, the default, or
+ * <code>table</code>). The result is streamed back as JSON object or in
+ * the tab-separated format of the table files.
+ * </P>
+ *
+ * A bounded number of requests is analyzed concurrently, further
+ * requests wait. Requests that exceed the maximum number of pending
+ * requests are rejected with status 503.
+ */
+public class OntologizerDaemon
+{
+	private static Logger logger = Logger.getLogger(OntologizerDaemon.class.getName());
+
+	private static final Timer REQUEST_TIMER = Metrics.timer("ontologizer_daemon_analyze_seconds", "Time spent for answering analyze requests including waiting");
+
+	/** The arguments with which the data has been loaded */
+	private OntologizerCore.Arguments args;
+
+	private Ontology graph;
+	private AssociationContainer associations;
+	private PopulationSet populationSet;
+
+	/** Resampling based test corrections, which are kept to reuse their caches */
+	private Map<String,AbstractTestCorrection> resamplingCorrections = new HashMap<String,AbstractTestCorrection>();
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	/** Limits the number of requests that are processed or waiting */
+	private Semaphore admission;
+
+	/** Limits the number of requests that are processed concurrently */
+	private Semaphore calculations;
+
+	private AtomicInteger activeRequests = new AtomicInteger();
+	private AtomicInteger completedRequests = new AtomicInteger();
+
+	/**
+	 * Constructs the daemon and loads the data.
+	 *
+	 * @param args the files to be loaded and the defaults of the
+	 *  requests. The study set is ignored. The separate analysis of
+	 *  subontologies is not supported.
+	 * @throws IOException
+	 * @throws OBOParserException
+	 */
+	public OntologizerDaemon(OntologizerCore.Arguments args) throws IOException, OBOParserException
+	{
+		if (args.partitionBySubontology)
+			throw new IllegalArgumentException("The separate analysis of subontologies is not supported by the daemon");
+
+		this.args = args;
+
+		logger.info("Parse obo file \"" + args.goTermsOBOFile + "\"");
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(args.goTermsOBOFile), 0, OBOParser.ESSENTIAL_TAGS);
+		logger.info(oboParser.doParse());
+		TermContainer goTerms = new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate());
+		graph = Ontology.create(goTerms);
+
+		populationSet = (PopulationSet)StudySetFactory.createFromFile(new File(args.populationFile), true);
+		if (args.filterFile != null)
+			populationSet.applyFilter(new GeneFilter(new File(args.filterFile)));
+
+		logger.info("Parse association file \"" + args.associationFile + "\"");
+		AssociationParser ap = new AssociationParser(new OBOParserFileInput(args.associationFile), goTerms, populationSet.getAllGeneNames());
+		associations = new AssociationContainer(ap.getAssociations(), ap.getSynonym2gene(), ap.getDbObject2gene());
+
+		populationSet.filterOutDuplicateGenes(associations);
+		if (args.filterOutUnannotatedGenes)
+			populationSet.filterOutAssociationlessGenes(associations);
+
+		/* The enumeration of the population is cached and reused by all requests */
+		populationSet.enumerateGOTerms(graph, associations);
+		populationSet.countGOTerms(graph, associations);
+	}
+
+	/**
+	 * Starts to listen for requests.
+	 *
+	 * @param port the port on the loopback interface or 0 for any free port.
+	 * @param numberOfThreads the number of requests that are processed concurrently.
+	 * @param maximumPendingRequests the number of requests that are
+	 *  processed or waiting, further requests are rejected.
+	 * @throws IOException
+	 */
+	public void start(int port, int numberOfThreads, int maximumPendingRequests) throws IOException
+	{
+		if (numberOfThreads < 1)
+			throw new IllegalArgumentException("The number of threads must be positive");
+
+		admission = new Semaphore(Math.max(numberOfThreads, maximumPendingRequests));
+		calculations = new Semaphore(numberOfThreads, true);
+
+		/* The threads of the server mostly wait, the number of the
+		 * actual calculations is bounded by the semaphores */
+		executor = Executors.newCachedThreadPool(new ThreadFactory()
+		{
+			private AtomicInteger number = new AtomicInteger();
+
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "Ontologizer Daemon Thread " + number.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(null), port), 0);
+		server.createContext("/status", new HttpHandler()
+		{
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				try
+				{
+					if (!"GET".equals(exchange.getRequestMethod()))
+						sendError(exchange, 405, "Method not allowed");
+					else
+						sendStatus(exchange);
+				} finally
+				{
+					exchange.close();
+				}
+			}
+		});
+		server.createContext("/metrics", new HttpHandler()
+		{
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				try
+				{
+					if (!"GET".equals(exchange.getRequestMethod()))
+						sendError(exchange, 405, "Method not allowed");
+					else
+						sendMetrics(exchange);
+				} finally
+				{
+					exchange.close();
+				}
+			}
+		});
+		server.createContext("/analyze", new HttpHandler()
+		{
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				try
+				{
+					if (!"POST".equals(exchange.getRequestMethod()))
+					{
+						sendError(exchange, 405, "Method not allowed");
+						return;
+					}
+
+					if (!admission.tryAcquire())
+					{
+						sendError(exchange, 503, "Too many pending requests");
+						return;
+					}
+
+					try
+					{
+						long startNanos = System.nanoTime();
+						calculations.acquire();
+						try
+						{
+							activeRequests.incrementAndGet();
+							analyze(exchange);
+						} finally
+						{
+							activeRequests.decrementAndGet();
+							completedRequests.incrementAndGet();
+							calculations.release();
+							REQUEST_TIMER.recordSince(startNanos);
+						}
+					} catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					} finally
+					{
+						admission.release();
+					}
+				} finally
+				{
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+
+		logger.info("Listening on port " + getPort());
+	}
+
+	/**
+	 * Stops the daemon.
+	 */
+	public void stop()
+	{
+		if (server != null)
+		{
+			server.stop(0);
+			server = null;
+		}
+		if (executor != null)
+		{
+			executor.shutdownNow();
+			try
+			{
+				executor.awaitTermination(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			executor = null;
+		}
+	}
+
+	/**
+	 * @return the port on which the daemon listens.
+	 */
+	public int getPort()
+	{
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Returns the test correction of the given name. Resampling based test
+	 * corrections are shared by all requests, so their caches are kept.
+	 *
+	 * @param correctionName
+	 * @return the test correction or null if it doesn't exist.
+	 */
+	private AbstractTestCorrection getTestCorrection(String correctionName)
+	{
+		if (correctionName == null) correctionName = TestCorrectionRegistry.getDefault().getName();
+
+		AbstractTestCorrection testCorrection = TestCorrectionRegistry.getCorrectionByName(correctionName);
+		if (testCorrection == null)
+			return null;
+
+		if (!(testCorrection instanceof IResampling))
+			return OntologizerCore.createTestCorrection(correctionName, args.resamplingSteps, args.sizeTolerance);
+
+		synchronized (resamplingCorrections)
+		{
+			testCorrection = resamplingCorrections.get(correctionName);
+			if (testCorrection == null)
+			{
+				testCorrection = OntologizerCore.createTestCorrection(correctionName, args.resamplingSteps, args.sizeTolerance);
+				resamplingCorrections.put(correctionName, testCorrection);
+			}
+			return testCorrection;
+		}
+	}
+
+	/**
+	 * Analyzes the study set of the given request.
+	 *
+	 * @param exchange
+	 * @throws IOException
+	 */
+	private void analyze(HttpExchange exchange) throws IOException
+	{
+		Map<?,?> request;
+		try
+		{
+			Object json = JSON.parse(readBody(exchange.getRequestBody()));
+			if (!(json instanceof Map))
+				throw new ParseException("Expected an object", 0);
+			request = (Map<?,?>)json;
+		} catch (ParseException e)
+		{
+			sendError(exchange, 400, "Invalid request at position " + e.getErrorOffset() + ": " + e.getMessage());
+			return;
+		}
+
+		Object genes = request.get("genes");
+		if (!(genes instanceof List))
+		{
+			sendError(exchange, 400, "The request doesn't contain an array of genes");
+			return;
+		}
+
+		String name = getString(request, "name", "study");
+		String format = getString(request, "format", "json");
+		String calculationName = getString(request, "calculation", args.calculationName);
+		String correctionName = getString(request, "mtc", args.correctionName);
+
+		if (!format.equals("json") && !format.equals("table"))
+		{
+			sendError(exchange, 400, "Unknown format \"" + format + "\"");
+			return;
+		}
+
+		ICalculation calculation = OntologizerCore.createCalculation(calculationName);
+		if (calculation == null)
+		{
+			sendError(exchange, 400, "Unknown calculation \"" + calculationName + "\"");
+			return;
+		}
+		if (calculation instanceof AbstractHypergeometricCalculation)
+			((AbstractHypergeometricCalculation)calculation).setApproximate(args.approximateLargePValues);
+
+		/* Study genes that are not contained in the population are added to
+		 * a copy of the population, as the population is shared */
+		StudySet studySet = new StudySet(name);
+		PopulationSet population = populationSet;
+		for (Object gene : (List<?>)genes)
+		{
+			if (!(gene instanceof String))
+			{
+				sendError(exchange, 400, "Gene names must be strings");
+				return;
+			}
+
+			ByteString geneName = new ByteString((String)gene);
+			studySet.addGene(geneName, "");
+			if (!population.contains(geneName))
+			{
+				if (population == populationSet)
+				{
+					population = new PopulationSet(populationSet.getName());
+					population.addGenes(populationSet);
+				}
+				population.addGene(geneName, "");
+			}
+		}
+
+		AbstractTestCorrection testCorrection;
+		if (population == populationSet) testCorrection = getTestCorrection(correctionName);
+		else testCorrection = OntologizerCore.createTestCorrection(correctionName, args.resamplingSteps, args.sizeTolerance);
+		if (testCorrection == null)
+		{
+			sendError(exchange, 400, "Unknown multiple test correction \"" + correctionName + "\"");
+			return;
+		}
+
+		studySet.filterOutDuplicateGenes(associations);
+		if (args.filterOutUnannotatedGenes)
+			studySet.filterOutAssociationlessGenes(associations);
+
+		EnrichedGOTermsResult result;
+		try
+		{
+			if (testCorrection instanceof IResampling)
+			{
+				/* The caches of the resampling are not thread-safe */
+				synchronized (testCorrection)
+				{
+					result = CalculationMetrics.calculateStudySet(calculation, graph, associations, population, studySet, testCorrection);
+				}
+			} else
+			{
+				result = CalculationMetrics.calculateStudySet(calculation, graph, associations, population, studySet, testCorrection);
+			}
+		} catch (RuntimeException e)
+		{
+			logger.log(Level.SEVERE, "Failed to analyze \"" + name + "\"", e);
+			sendError(exchange, 500, "Analysis failed: " + e.getMessage());
+			return;
+		}
+		result.setCalculationName(calculation.getName());
+		result.setCorrectionName(testCorrection.getName());
+
+		/* Stream the result */
+		if (format.equals("table"))
+		{
+			exchange.getResponseHeaders().set("Content-Type", "text/tab-separated-values; charset=UTF-8");
+			exchange.sendResponseHeaders(200, 0);
+			if (result.iterator().hasNext())
+				EnrichedGOTermsTableWriter.writeTable(exchange.getResponseBody(), result);
+		} else
+		{
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+			exchange.sendResponseHeaders(200, 0);
+			writeResult(exchange.getResponseBody(), result);
+		}
+	}
+
+	/**
+	 * Writes the given result as JSON object.
+	 *
+	 * @param os
+	 * @param result
+	 * @throws IOException
+	 */
+	private static void writeResult(OutputStream os, EnrichedGOTermsResult result) throws IOException
+	{
+		ArrayList<AbstractGOTermProperties> propsList = new ArrayList<AbstractGOTermProperties>();
+		for (AbstractGOTermProperties props : result)
+			propsList.add(props);
+		Collections.sort(propsList);
+
+		Writer out = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
+		out.write("{\"name\":" + JSON.quote(result.getStudySet().getName()));
+		out.write(",\"calculation\":" + JSON.quote(result.getCalculationName()));
+		out.write(",\"mtc\":" + JSON.quote(result.getCorrectionName()));
+		out.write(",\"populationGenes\":" + result.getPopulationGeneCount());
+		out.write(",\"studyGenes\":" + result.getStudyGeneCount());
+		out.write(",\"terms\":[");
+
+		boolean first = true;
+		for (AbstractGOTermProperties props : propsList)
+		{
+			if (!first) out.write(",\n");
+			first = false;
+
+			out.write("{\"id\":" + JSON.quote(props.goTerm.getIDAsString()));
+			out.write(",\"name\":" + JSON.quote(props.goTerm.getName()));
+			out.write(",\"p\":" + JSON.number(props.p));
+			out.write(",\"p.adjusted\":" + JSON.number(props.p_adjusted));
+			out.write(",\"p.min\":" + JSON.number(props.p_min));
+			out.write(",\"study.term\":" + props.annotatedStudyGenes);
+			out.write(",\"pop.term\":" + props.annotatedPopulationGenes);
+			out.write("}");
+		}
+		out.write("]}\n");
+		out.close();
+	}
+
+	/**
+	 * Sends information about the loaded data.
+	 *
+	 * @param exchange
+	 * @throws IOException
+	 */
+	private void sendStatus(HttpExchange exchange) throws IOException
+	{
+		StringBuilder str = new StringBuilder();
+		str.append("{\"terms\":" + graph.getNumberOfTerms());
+		str.append(",\"populationGenes\":" + populationSet.getGeneCount());
+		str.append(",\"annotatedGenes\":" + associations.getAllAnnotatedGenes().size());
+		str.append(",\"calculations\":[");
+		String [] calculations = CalculationRegistry.getAllRegistered();
+		for (int i=0;i<calculations.length;i++)
+		{
+			if (i > 0) str.append(",");
+			str.append(JSON.quote(calculations[i]));
+		}
+		str.append("],\"mtcs\":[");
+		String [] mtcs = TestCorrectionRegistry.getRegisteredCorrections();
+		for (int i=0;i<mtcs.length;i++)
+		{
+			if (i > 0) str.append(",");
+			str.append(JSON.quote(mtcs[i]));
+		}
+		str.append("],\"activeRequests\":" + activeRequests.get());
+		str.append(",\"completedRequests\":" + completedRequests.get());
+		str.append("}\n");
+		send(exchange, 200, str.toString());
+	}
+
+	/**
+	 * Sends the metrics in the text format of Prometheus.
+	 *
+	 * @param exchange
+	 * @throws IOException
+	 */
+	private static void sendMetrics(HttpExchange exchange) throws IOException
+	{
+		exchange.getResponseHeaders().set("Content-Type", PrometheusMetricsExporter.CONTENT_TYPE);
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream os = exchange.getResponseBody();
+		new PrometheusMetricsExporter(os).export(Metrics.getRegistry());
+		os.close();
+	}
+
+	/**
+	 * Sends an error as JSON object.
+	 *
+	 * @param exchange
+	 * @param status
+	 * @param message
+	 * @throws IOException
+	 */
+	private static void sendError(HttpExchange exchange, int status, String message) throws IOException
+	{
+		send(exchange, status, "{\"error\":" + JSON.quote(message) + "}\n");
+	}
+
+	private static void send(HttpExchange exchange, int status, String json) throws IOException
+	{
+		byte [] bytes = json.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(bytes);
+		os.close();
+	}
+
+	private static String readBody(InputStream is) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte [] buf = new byte[8192];
+		int read;
+		while ((read = is.read(buf)) > 0)
+			bos.write(buf, 0, read);
+		is.close();
+		return bos.toString("UTF-8");
+	}
+
+	private static String getString(Map<?,?> request, String key, String def)
+	{
+		Object value = request.get(key);
+		if (value instanceof String)
+			return (String)value;
+		return def;
+	}
+}
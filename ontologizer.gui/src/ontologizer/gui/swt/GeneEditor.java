@@ -48,6 +48,7 @@ import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.MenuItem;
@@ -59,11 +60,13 @@ import ontologizer.association.AssociationContainer;
 import ontologizer.association.Gene2Associations;
 import ontologizer.filter.GeneFilter;
 import ontologizer.go.Ontology;
+import ontologizer.go.OntologyDiff;
 import ontologizer.go.Term;
 import ontologizer.go.TermID;
 import ontologizer.types.ByteString;
+import ontologizer.worksets.IWorkSetUpdateListener;
 import ontologizer.worksets.WorkSet;
-import ontologizer.worksets.WorkSetLoadThread;
+import ontologizer.worksets.WorkSetLoader;
 
 /**
  * Class used for editing genes.
@@ -109,6 +112,9 @@ public class GeneEditor extends Composite
 	/** The anchor of the tooltip (as in carret) */
 	private int tooltipCarret = -1;
 
+	/** Replaces the data of the displayed work set by refreshed versions */
+	private IWorkSetUpdateListener updateListener;
+
 	/**
 	 * Constructor for the GeneEditor class.
 	 *
@@ -491,9 +497,47 @@ public class GeneEditor extends Composite
 		{
 			public void widgetDisposed(DisposeEvent e)
 			{
+				WorkSetLoader.removeUpdateListener(updateListener);
 				smallFont.dispose();
 			}
 		});
+
+		/* Data of the displayed work set may be refreshed in the meantime */
+		final Display display = parent.getDisplay();
+		updateListener = new IWorkSetUpdateListener()
+		{
+			public void ontologyUpdated(final String oboPath, final Ontology ontology, OntologyDiff diff)
+			{
+				if (display.isDisposed()) return;
+				display.asyncExec(new Runnable()
+				{
+					public void run()
+					{
+						if (text.isDisposed() || graph == null || !oboPath.equals(displayedWorkSet.getOboPath()))
+							return;
+						graph = ontology;
+					}
+				});
+			}
+
+			public void associationsUpdated(final String associationPath, final AssociationContainer associations, Set<ByteString> changedGenes)
+			{
+				if (display.isDisposed()) return;
+				display.asyncExec(new Runnable()
+				{
+					public void run()
+					{
+						if (text.isDisposed() || assoc == null || !associationPath.equals(displayedWorkSet.getAssociationPath()))
+							return;
+						assoc = associations;
+
+						/* The highlighting of the genes depends on their annotations */
+						text.redraw();
+					}
+				});
+			}
+		};
+		WorkSetLoader.addUpdateListener(updateListener);
 	}
 
 	/**
@@ -637,7 +681,7 @@ public class GeneEditor extends Composite
 	public void setWorkSet(WorkSet ws, final String mappingFile)
 	{
 		if (displayedWorkSet != null)
-			WorkSetLoadThread.releaseDatafiles(displayedWorkSet);
+			WorkSetLoader.releaseDatafiles(displayedWorkSet);
 
 		displayedWorkSet = ws.clone();
 		graph = null;
@@ -645,7 +689,7 @@ public class GeneEditor extends Composite
 		gfilter = null;
 		setAllButton.setEnabled(false);
 
-		WorkSetLoadThread.obtainDatafiles(ws,
+		WorkSetLoader.obtainDatafiles(ws,
 				new Runnable(){
 					public void run()
 					{
@@ -653,8 +697,8 @@ public class GeneEditor extends Composite
 						{
 							public void run()
 							{
-								graph = WorkSetLoadThread.getGraph(displayedWorkSet.getOboPath());
-								assoc = WorkSetLoadThread.getAssociations(displayedWorkSet.getAssociationPath());
+								graph = WorkSetLoader.getGraph(displayedWorkSet.getOboPath());
+								assoc = WorkSetLoader.getAssociations(displayedWorkSet.getAssociationPath());
 								try {
 									if (mappingFile != null && mappingFile.length() != 0)
 										gfilter = new GeneFilter(new File(mappingFile));
@@ -88,7 +88,7 @@ import ontologizer.gui.swt.support.SWTUtil;
 import ontologizer.statistics.TestCorrectionRegistry;
 import ontologizer.worksets.WorkSet;
 import ontologizer.worksets.WorkSetList;
-import ontologizer.worksets.WorkSetLoadThread;
+import ontologizer.worksets.WorkSetLoader;
 
 class Settings
 {
@@ -654,7 +654,7 @@ public class MainWindow extends ApplicationWindow
 				final String subontology = settings.subontology;
 				final String subset = settings.subset;
 
-				if (currentWorkSet != null) WorkSetLoadThread.releaseDatafiles(currentWorkSet);
+				if (currentWorkSet != null) WorkSetLoader.releaseDatafiles(currentWorkSet);
 				currentWorkSet = settingsComposite.getSelectedWorkset();
 
 				settingsComposite.setRestrictionChoices(null);
@@ -662,7 +662,7 @@ public class MainWindow extends ApplicationWindow
 
 				updateSettingsCompositeInfoText();
 
-				WorkSetLoadThread.obtainDatafiles(currentWorkSet,
+				WorkSetLoader.obtainDatafiles(currentWorkSet,
 						new Runnable(){
 							public void run()
 							{
@@ -670,8 +670,8 @@ public class MainWindow extends ApplicationWindow
 								{
 									public void run()
 									{
-										Ontology graph = WorkSetLoadThread.getGraph(currentWorkSet.getOboPath());
-										AssociationContainer assoc = WorkSetLoadThread.getAssociations(currentWorkSet.getAssociationPath());
+										Ontology graph = WorkSetLoader.getGraph(currentWorkSet.getOboPath());
+										AssociationContainer assoc = WorkSetLoader.getAssociations(currentWorkSet.getAssociationPath());
 
 										if (graph != null)
 										{
@@ -1766,13 +1766,11 @@ public class MainWindow extends ApplicationWindow
 					if (href.equals("ontology"))
 					{
 						String url = settingsComposite.getDefinitionFileString();
-						FileCache.invalidate(url);
-						FileCache.open(url);
+						FileCache.revalidate(url, null);
 					} else if (href.equals("assoc"))
 					{
 						String url = settingsComposite.getAssociationsFileString();
-						FileCache.invalidate(url);
-						FileCache.open(url);
+						FileCache.revalidate(url, null);
 					}
 				} catch(IOException e)
 				{
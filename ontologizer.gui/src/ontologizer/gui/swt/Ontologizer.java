@@ -430,6 +430,8 @@ public class Ontologizer
 			p.put("upperBeta", Double.toString(GlobalPreferences.getUpperBeta()));
 			p.put("expectedNumberOfTerms", Integer.toString(GlobalPreferences.getExpectedNumber()));
 			p.put("mcmcSteps", Integer.toString(GlobalPreferences.getMcmcSteps()));
+			p.put("maximumCacheSize", Integer.toString(GlobalPreferences.getMaximumCacheSize()));
+			p.put("maximumNumberOfDownloads", Integer.toString(GlobalPreferences.getMaximumNumberOfDownloads()));
 			if (GlobalPreferences.getProxyHost() != null)
 			{
 				p.put("proxyHost",GlobalPreferences.getProxyHost());
@@ -510,6 +512,9 @@ public class Ontologizer
 				GlobalPreferences.setBeta(prefs.getBeta());
 				GlobalPreferences.setExpectedNumber(prefs.getExpectedNumberOfTerms());
 				GlobalPreferences.setMcmcSteps(prefs.getNumberOfMCMCSteps());
+				GlobalPreferences.setMaximumCacheSize(prefs.getMaximumCacheSize());
+				GlobalPreferences.setMaximumNumberOfDownloads(prefs.getMaximumNumberOfDownloads());
+				applyFileCachePreferences();
 			}
 		});
 
@@ -535,6 +540,8 @@ public class Ontologizer
 		GlobalPreferences.setUpperBeta(p.getDouble("upperBeta", 1));
 		GlobalPreferences.setExpectedNumber(p.getInt("expectedNumberOfTerms", -1));
 		GlobalPreferences.setMcmcSteps(p.getInt("mcmcSteps", 500000));
+		GlobalPreferences.setMaximumCacheSize(p.getInt("maximumCacheSize", 1024));
+		GlobalPreferences.setMaximumNumberOfDownloads(p.getInt("maximumNumberOfDownloads", 4));
 
 		/* Prepare workspace */
 		workspace = new File(ontologizer.util.Util.getAppDataDirectory("ontologizer"),"workspace");
@@ -547,6 +554,7 @@ public class Ontologizer
 
 		/* Prepare the file cache */
 		FileCache.setCacheDirectory(new File(workspace,".cache").getAbsolutePath());
+		applyFileCachePreferences();
 		fileCache.setDirectoryText(FileCache.getCacheDirectory());
 
 		Menu systemMenu = display.getSystemMenu();
@@ -666,6 +674,16 @@ public class Ontologizer
 		}
 	}
 
+	/**
+	 * Applies the file cache settings of the global preferences to the
+	 * file cache.
+	 */
+	private static void applyFileCachePreferences()
+	{
+		FileCache.setMaximumCacheSize(Math.max(0, GlobalPreferences.getMaximumCacheSize()) * 1024L * 1024L);
+		FileCache.setMaximumNumberOfDownloads(Math.max(1, GlobalPreferences.getMaximumNumberOfDownloads()));
+	}
+
 	private static PopulationSet getPopulationSetFromList(List<Set> list)
 	{
 		if (list == null) return null;
@@ -29,6 +29,8 @@ import org.eclipse.swt.widgets.Text;
 public class PreferencesWindow extends ApplicationWindow
 {
 	private static String resamplingToolTipText = "Specifies the number of resampling steps which are performed for a permutation based multiple test procedure.";
+	private static String cacheSizeToolTipText = "Specifies the maximum size of the file cache in MiB. Once it is exceeded, the least recently used files are removed. Use 0 for an unbounded cache.";
+	private static String downloadsToolTipText = "Specifies the maximum number of files which are downloaded concurrently.";
 
 	private Button okButton;
 	private Text proxyText;
@@ -37,6 +39,8 @@ public class PreferencesWindow extends ApplicationWindow
 	private Spinner permutationSpinner;
 	private Button wrapColumnCheckbox;
 	private Spinner wrapColumnSpinner;
+	private Spinner cacheSizeSpinner;
+	private Spinner downloadsSpinner;
 
 	private Spinner alphaSpinner;
 	private Button alphaAutoButton;
@@ -130,6 +134,29 @@ public class PreferencesWindow extends ApplicationWindow
 		portSpinner.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_FILL));
 		portSpinner.setMaximum(65535);
 
+		/* File cache */
+		Label cacheSizeLabel = new Label(composite,0);
+		cacheSizeLabel.setText("Maximum Cache Size (MiB)");
+		cacheSizeLabel.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_END));
+		cacheSizeLabel.setToolTipText(cacheSizeToolTipText);
+		cacheSizeSpinner = new Spinner(composite,SWT.BORDER);
+		cacheSizeSpinner.setLayoutData(new GridData(SWT.FILL,0,true,false,2,1));
+		cacheSizeSpinner.setMinimum(0);
+		cacheSizeSpinner.setMaximum(1024*1024);
+		cacheSizeSpinner.setIncrement(64);
+		cacheSizeSpinner.setPageIncrement(1024);
+		cacheSizeSpinner.setToolTipText(cacheSizeToolTipText);
+
+		Label downloadsLabel = new Label(composite,0);
+		downloadsLabel.setText("Concurrent Downloads");
+		downloadsLabel.setLayoutData(new GridData(GridData.HORIZONTAL_ALIGN_END));
+		downloadsLabel.setToolTipText(downloadsToolTipText);
+		downloadsSpinner = new Spinner(composite,SWT.BORDER);
+		downloadsSpinner.setLayoutData(new GridData(SWT.FILL,0,true,false,2,1));
+		downloadsSpinner.setMinimum(1);
+		downloadsSpinner.setMaximum(32);
+		downloadsSpinner.setToolTipText(downloadsToolTipText);
+
 		generalItem.setControl(composite);
 
 		if (true)//CalculationRegistry.experimentalActivated())
@@ -278,6 +305,8 @@ public class PreferencesWindow extends ApplicationWindow
 			dotFileComposite.setPath(GlobalPreferences.getDOTPath());
 			permutationSpinner.setSelection(GlobalPreferences.getNumberOfPermutations());
 			portSpinner.setSelection(GlobalPreferences.getProxyPort());
+			cacheSizeSpinner.setSelection(GlobalPreferences.getMaximumCacheSize());
+			downloadsSpinner.setSelection(GlobalPreferences.getMaximumNumberOfDownloads());
 			upperAlphaSpinner.setSelection((int)(GlobalPreferences.getUpperAlpha() * Math.pow(10, ALPHA_BETA_DIGITS) * 100));
 			upperBetaSpinner.setSelection((int)(GlobalPreferences.getUpperBeta() * Math.pow(10, ALPHA_BETA_DIGITS) * 100 ));
 			mcmcStepsSpinner.setSelection(GlobalPreferences.getMcmcSteps());
@@ -381,6 +410,26 @@ public class PreferencesWindow extends ApplicationWindow
 		return proxyText.getText();
 	}
 
+	/**
+	 * Returns the maximum size of the file cache.
+	 *
+	 * @return the size in MiB or 0 if the size is unbounded.
+	 */
+	public int getMaximumCacheSize()
+	{
+		return cacheSizeSpinner.getSelection();
+	}
+
+	/**
+	 * Returns the maximum number of concurrent downloads.
+	 *
+	 * @return
+	 */
+	public int getMaximumNumberOfDownloads()
+	{
+		return downloadsSpinner.getSelection();
+	}
+
 	/**
 	 * Returns the wrap column or -1 if this feature should
 	 * be disabled.
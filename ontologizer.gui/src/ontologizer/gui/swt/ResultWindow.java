@@ -21,6 +21,7 @@ import ontologizer.gui.swt.result.SemanticSimilarityComposite;
 import ontologizer.gui.swt.support.IMinimizedAdapter;
 import ontologizer.gui.swt.support.IRestoredAdapter;
 import ontologizer.gui.swt.support.SWTUtil;
+import ontologizer.metrics.PhaseTimeline;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.CTabFolder;
@@ -138,6 +139,11 @@ public class ResultWindow extends ApplicationWindow
 			studyResultComposite.setResult(enrichedGOTermsResult);
 			cTabItem.setText(enrichedGOTermsResult.getStudySet().getName());
 			cTabItem.setControl(studyResultComposite);
+
+			/* Show where the time was spent */
+			PhaseTimeline timeline = enrichedGOTermsResult.getTimeline();
+			if (timeline != null)
+				cTabItem.setToolTipText(timeline.toString());
 			added = true;
 		} else if (result instanceof SVDResult)
 		{
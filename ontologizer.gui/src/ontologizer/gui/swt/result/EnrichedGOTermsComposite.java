@@ -76,6 +76,7 @@ import ontologizer.gui.swt.support.GraphCanvas;
 import ontologizer.gui.swt.support.IGraphGenerationFinished;
 import ontologizer.gui.swt.support.SWTUtil;
 import ontologizer.types.ByteString;
+import sonumina.math.graph.DirectedGraphLayout;
 
 /**
  *
@@ -124,6 +125,9 @@ public class EnrichedGOTermsComposite extends AbstractResultComposite implements
 	private CTabFolder tableFolder;
 	private GraphCanvas graphVisual = null;
 
+	/** Layout of the graph displayed in graphVisual */
+	private DirectedGraphLayout<TermID> graphLayout;
+
 	private Composite significanceComposite;
 	private Label significanceLabel;
 	private Spinner significanceSpinner;
@@ -1282,6 +1286,7 @@ public class EnrichedGOTermsComposite extends AbstractResultComposite implements
 		ggt.significanceLevel = getSignificanceLevel();
 		ggt.leafTerms.addAll(getCheckedTermsCollection());
 		ggt.result = result;
+		ggt.previousLayout = graphLayout;
 		return ggt;
 	}
 
@@ -1310,13 +1315,17 @@ public class EnrichedGOTermsComposite extends AbstractResultComposite implements
 	 */
 	public void updateDisplayedGraph()
 	{
-		EnrichedGraphGenerationThread ggt = createGraphGenerationThread(new IGraphGenerationFinished(){
+		final EnrichedGraphGenerationThread [] ggt = new EnrichedGraphGenerationThread[1];
+		ggt[0] = createGraphGenerationThread(new IGraphGenerationFinished(){
 			public void finished(boolean success, String message, File pngFile, File dotFile)
 			{
 				if (success)
 				{
 					logger.info("Layouted graph successful (located in \"" + dotFile.toString() + "\").");
 
+					/* The next graph is laid out relative to this one */
+					graphLayout = ggt[0].getLayout();
+
 					/* make the graph display visible */
 					termSashForm.setMaximizedControl(null);
 
@@ -1339,7 +1348,7 @@ public class EnrichedGOTermsComposite extends AbstractResultComposite implements
 			}
 		});
 		logger.info("Layouting graph.");
-		ggt.start();
+		ggt[0].start();
 	}
 
 	/**
@@ -1,7 +1,12 @@
 package ontologizer.gui.swt.result;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 
 import ontologizer.calculation.EnrichedGOTermsResult;
 import ontologizer.go.Ontology;
@@ -13,11 +18,21 @@ import ontologizer.gui.swt.support.NewGraphGenerationThread;
 
 import org.eclipse.swt.widgets.Display;
 
+import sonumina.math.graph.DirectedGraph;
+import sonumina.math.graph.DirectedGraphLayout;
+import sonumina.math.graph.DirectedGraphLayout.Dimension;
+import sonumina.math.graph.Edge;
+
 /**
  * Generates the graph by executing DOT. When finished
  * the finished method of the specified constructor argument
  * is executed in the context of the GUI thread.
  *
+ * The terms are passed to DOT in the order of a layout of the
+ * induced graph. If the layout of a previously displayed graph is
+ * given, the terms that were displayed before keep their relative
+ * order, so the graph does not change more than necessary.
+ *
  * @author Sebastian Bauer
  */
 public class EnrichedGraphGenerationThread extends NewGraphGenerationThread
@@ -28,6 +43,12 @@ public class EnrichedGraphGenerationThread extends NewGraphGenerationThread
 	public HashSet<TermID> leafTerms = new HashSet<TermID>();
 	public EnrichedGOTermsResult result;
 
+	/** The layout of the previously displayed graph, may be null */
+	public DirectedGraphLayout<TermID> previousLayout;
+
+	/** The layout of the graph, available after the DOT file has been written */
+	private volatile DirectedGraphLayout<TermID> layout;
+
 	private IGraphGenerationFinished finished;
 
 	private IGraphGenerationSupport support = new IGraphGenerationSupport()
@@ -37,7 +58,7 @@ public class EnrichedGraphGenerationThread extends NewGraphGenerationThread
 			result.writeDOT(go, dotFile,
 					significanceLevel, true,
 					emanatingTerm != null ? emanatingTerm.getID() : null,
-					leafTerms);
+					orderTerms());
 		}
 
 		public void layoutFinished(boolean success, String msg, File pngFile,
@@ -55,4 +76,78 @@ public class EnrichedGraphGenerationThread extends NewGraphGenerationThread
 
 		this.finished = finished;
 	}
+
+	/**
+	 * Returns the layout of the induced graph, which can be passed
+	 * as previous layout to a subsequent thread.
+	 *
+	 * @return the layout or null if the graph has not been written yet.
+	 */
+	public DirectedGraphLayout<TermID> getLayout()
+	{
+		return layout;
+	}
+
+	/**
+	 * Lays out the graph induced by the leaf terms and returns its terms
+	 * ordered by level and horizontal position.
+	 *
+	 * @return
+	 */
+	private LinkedHashSet<TermID> orderTerms()
+	{
+		TermID rootTerm = emanatingTerm != null ? emanatingTerm.getID() : null;
+
+		DirectedGraph<TermID> graph = new DirectedGraph<TermID>();
+		for (TermID t : leafTerms)
+		{
+			if (!go.termExists(t))
+				continue;
+			for (TermID it : go.getTermsOfInducedGraph(rootTerm, t))
+				if (!graph.containsVertex(it))
+					graph.addVertex(it);
+		}
+		for (TermID t : graph)
+			for (TermID p : go.getTermParents(t))
+				if (graph.containsVertex(p))
+					graph.addEdge(new Edge<TermID>(p,t));
+
+		final HashMap<TermID,int[]> positions = new HashMap<TermID,int[]>();
+		layout = DirectedGraphLayout.layout(previousLayout, graph, new DirectedGraphLayout.IGetDimension<TermID>()
+				{
+					public void get(TermID vertex, Dimension d)
+					{
+						d.width = go.getTerm(vertex).getName().length();
+						d.height = 1;
+					}
+				}, new DirectedGraphLayout.IPosition<TermID>()
+				{
+					public void setSize(int width, int height) { }
+
+					public void set(TermID vertex, int left, int top)
+					{
+						positions.put(vertex, new int[]{top,left});
+					}
+				}, 2, 2, null);
+
+		ArrayList<TermID> terms = new ArrayList<TermID>(positions.keySet());
+		Collections.sort(terms, new Comparator<TermID>()
+		{
+			public int compare(TermID o1, TermID o2)
+			{
+				int [] p1 = positions.get(o1);
+				int [] p2 = positions.get(o2);
+				if (p1[0] != p2[0])
+					return p1[0] < p2[0] ? -1 : 1;
+				if (p1[1] != p2[1])
+					return p1[1] < p2[1] ? -1 : 1;
+				return 0;
+			}
+		});
+
+		/* Terms that are not part of the graph are passed on nevertheless */
+		LinkedHashSet<TermID> orderedTerms = new LinkedHashSet<TermID>(terms);
+		orderedTerms.addAll(leafTerms);
+		return orderedTerms;
+	}
 };
@@ -401,7 +401,11 @@ public class GraphCanvas extends Canvas implements IGraphCanvas
 
 		prepareGraph();
 
-		updateTransformation();
+		/* Unless the graph is scaled to fit, keep the current view. Graphs
+		 * that are laid out incrementally then change as little as possible */
+		if (scaleToFit)
+			updateTransformation();
+		updateScrollers();
 		redraw();
 	}
 
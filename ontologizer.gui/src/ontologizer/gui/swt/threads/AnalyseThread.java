@@ -10,6 +10,7 @@ import ontologizer.association.AssociationContainer;
 import ontologizer.association.AssociationParser;
 import ontologizer.association.IAssociationParserProgress;
 import ontologizer.calculation.AbstractGOTermsResult;
+import ontologizer.calculation.CalculationMetrics;
 import ontologizer.calculation.CalculationRegistry;
 import ontologizer.calculation.EnrichedGOTermsResult;
 import ontologizer.calculation.ICalculation;
@@ -364,8 +365,8 @@ public class AnalyseThread extends AbstractOntologizerThread
 
 				display.asyncExec(new ResultAppendLogRunnable("Perform analysis on study set " + studyNum + " (out of " + studySetList.size() + ")"));
 
-				EnrichedGOTermsResult studySetResult = calculation.calculateStudySet(
-						goGraph, goAssociations, populationSet, studySet,
+				EnrichedGOTermsResult studySetResult = CalculationMetrics.calculateStudySet(
+						calculation, goGraph, goAssociations, populationSet, studySet,
 						testCorrection);
 
 				/* Reset the counter and enumerator items here. It is not necessarily
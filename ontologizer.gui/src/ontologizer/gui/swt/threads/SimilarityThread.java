@@ -14,7 +14,7 @@ import ontologizer.set.StudySet;
 import ontologizer.set.StudySetList;
 import ontologizer.worksets.IWorkSetProgress;
 import ontologizer.worksets.WorkSet;
-import ontologizer.worksets.WorkSetLoadThread;
+import ontologizer.worksets.WorkSetLoader;
 
 public class SimilarityThread extends AbstractOntologizerThread
 {
@@ -38,7 +38,7 @@ public class SimilarityThread extends AbstractOntologizerThread
 
 		synchronized (lock)
 		{
-			WorkSetLoadThread.obtainDatafiles(workSet, new IWorkSetProgress()
+			WorkSetLoader.obtainDatafiles(workSet, new IWorkSetProgress()
 			{
 				public void message(final String message)
 				{
@@ -100,8 +100,8 @@ public class SimilarityThread extends AbstractOntologizerThread
 
 				/* Stuff should have been loaded at this point */
 
-				Ontology graph = WorkSetLoadThread.getGraph(workSet.getOboPath());
-				AssociationContainer assoc = WorkSetLoadThread.getAssociations(workSet.getAssociationPath());
+				Ontology graph = WorkSetLoader.getGraph(workSet.getOboPath());
+				AssociationContainer assoc = WorkSetLoader.getAssociations(workSet.getAssociationPath());
 
 				if (graph == null) throw new RuntimeException("Error in loading the ontology graph!");
 				if (assoc == null) throw new RuntimeException("Error in loading the associations!");
@@ -160,7 +160,7 @@ public class SimilarityThread extends AbstractOntologizerThread
 					}
 				};});
 
-				WorkSetLoadThread.releaseDatafiles(workSet);
+				WorkSetLoader.releaseDatafiles(workSet);
 			} catch (InterruptedException e)
 			{
 
@@ -0,0 +1,38 @@
+package ontologizer.jmh;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks. The usual JMH options are accepted (use -h for
+ * help). Unless specified otherwise, the results are written as JSON
+ * to "jmh-result.json", so they can be compared across versions.
+ */
+public class Benchmarks
+{
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException
+	{
+		CommandLineOptions cmdOptions = new CommandLineOptions(args);
+		if (cmdOptions.shouldHelp())
+		{
+			cmdOptions.showHelp();
+			return;
+		}
+
+		OptionsBuilder builder = new OptionsBuilder();
+		if (!cmdOptions.getResultFormat().hasValue())
+			builder.resultFormat(ResultFormatType.JSON);
+		if (!cmdOptions.getResult().hasValue())
+			builder.result("jmh-result.json");
+
+		Options options = builder.parent(cmdOptions).build();
+		new Runner(options).run();
+	}
+}
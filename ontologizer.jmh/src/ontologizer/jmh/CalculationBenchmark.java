@@ -0,0 +1,61 @@
+package ontologizer.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ontologizer.calculation.CalculationRegistry;
+import ontologizer.calculation.EnrichedGOTermsResult;
+import ontologizer.calculation.ICalculation;
+import ontologizer.calculation.b2g.Bayes2GOCalculation;
+import ontologizer.statistics.Hypergeometric;
+import ontologizer.statistics.None;
+
+/**
+ * Benchmarks the calculations. The enumeration of the population is
+ * shared, the study set is enumerated by each invocation. The p values
+ * memoized by previous invocations are discarded, as otherwise all
+ * but the first invocation would only measure cache lookups.
+ */
+@State(Scope.Thread)
+public class CalculationBenchmark
+{
+	/** The number of MCMC steps used by MGSA */
+	private static final int MCMC_STEPS = 20000;
+
+	@Param({"Term-For-Term", "Parent-Child-Union", "Parent-Child-Intersection", "Topology-Elim", "Topology-Weighted", "MGSA"})
+	public String calculationName;
+
+	private ICalculation calculation;
+	private SyntheticState state;
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticState state)
+	{
+		this.state = state;
+		calculation = CalculationRegistry.newInstance(CalculationRegistry.getCalculationByName(calculationName));
+		if (calculation instanceof Bayes2GOCalculation)
+		{
+			Bayes2GOCalculation b2g = (Bayes2GOCalculation)calculation;
+			b2g.setSeed(state.seed);
+			b2g.setMcmcSteps(MCMC_STEPS);
+		}
+		state.population.enumerateGOTerms(state.data.graph, state.data.assoc);
+	}
+
+	@Setup(Level.Invocation)
+	public void resetStudy()
+	{
+		state.study.resetCounterAndEnumerator();
+		Hypergeometric.getSharedCache().clear();
+	}
+
+	@Benchmark
+	public EnrichedGOTermsResult calculateStudySet(SyntheticState state)
+	{
+		return calculation.calculateStudySet(state.data.graph, state.data.assoc, state.population, state.study, new None());
+	}
+}
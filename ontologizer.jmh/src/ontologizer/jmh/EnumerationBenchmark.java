@@ -0,0 +1,21 @@
+package ontologizer.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import ontologizer.enumeration.GOTermEnumerator;
+import ontologizer.types.ByteString;
+
+/**
+ * Benchmarks the enumeration of the terms of all genes.
+ */
+public class EnumerationBenchmark
+{
+	@Benchmark
+	public GOTermEnumerator push(SyntheticState state)
+	{
+		GOTermEnumerator enumerator = new GOTermEnumerator(state.data.graph);
+		for (ByteString gene : state.data.genes)
+			enumerator.push(state.data.assoc.get(gene));
+		return enumerator;
+	}
+}
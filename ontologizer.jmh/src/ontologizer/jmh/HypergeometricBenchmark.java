@@ -0,0 +1,82 @@
+package ontologizer.jmh;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ontologizer.statistics.Hypergeometric;
+import ontologizer.statistics.HypergeometricCache;
+
+/**
+ * Benchmarks the evaluation of the hypergeometric distribution with
+ * parameters as they appear in enrichment analyses.
+ */
+@State(Scope.Thread)
+public class HypergeometricBenchmark
+{
+	private static final int SAMPLES = 1024;
+
+	@Param({"5000", "20000"})
+	public int populationSize;
+
+	private Hypergeometric hyper;
+	private Hypergeometric memoizedHyper;
+	private int [] n;
+	private double [] p;
+	private int [] k;
+	private int [] r;
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		Random rnd = new Random(1);
+
+		n = new int[SAMPLES];
+		p = new double[SAMPLES];
+		k = new int[SAMPLES];
+		r = new int[SAMPLES];
+		for (int i=0;i<SAMPLES;i++)
+		{
+			int popTerm = 1 + rnd.nextInt(populationSize / 10);
+			n[i] = populationSize;
+			p[i] = (double)popTerm / populationSize;
+			k[i] = 10 + rnd.nextInt(populationSize / 20);
+			r[i] = rnd.nextInt(Math.min(popTerm, k[i]) + 1);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void newHypergeometric()
+	{
+		/* Don't measure cached values only. The memoized variant reflects
+		 * resampling, in which the same counts reoccur */
+		hyper = new Hypergeometric(null);
+		memoizedHyper = new Hypergeometric(new HypergeometricCache("benchmark", SAMPLES * 4));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double phypergeometric()
+	{
+		double sum = 0;
+		for (int i=0;i<SAMPLES;i++)
+			sum += hyper.phypergeometric(n[i], p[i], k[i], r[i]);
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLES)
+	public double phypergeometricMemoized()
+	{
+		double sum = 0;
+		for (int i=0;i<SAMPLES;i++)
+			sum += memoizedHyper.phypergeometric(n[i], p[i], k[i], r[i]);
+		return sum;
+	}
+}
@@ -0,0 +1,53 @@
+package ontologizer.jmh;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ontologizer.calculation.b2g.FixedAlphaBetaScore;
+import ontologizer.enumeration.GOTermEnumerator;
+
+/**
+ * Benchmarks a single step of the MCMC sampler of MGSA, i.e., the
+ * proposal of a new state and its acceptance or rejection.
+ */
+@State(Scope.Thread)
+public class MGSABenchmark
+{
+	private Random rnd;
+	private FixedAlphaBetaScore score;
+	private double currentScore;
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticState state)
+	{
+		rnd = new Random(state.seed);
+
+		GOTermEnumerator populationEnumerator = state.population.enumerateGOTerms(state.data.graph, state.data.assoc);
+		GOTermEnumerator studyEnumerator = state.study.enumerateGOTerms(state.data.graph, state.data.assoc);
+
+		score = new FixedAlphaBetaScore(rnd, populationEnumerator.getAllAnnotatedTermsAsList(), populationEnumerator, studyEnumerator.getGenes());
+		score.setAlpha(Double.NaN);
+		score.setBeta(Double.NaN);
+		score.setExpectedNumberOfTerms(Double.NaN);
+		currentScore = score.getScore();
+	}
+
+	@Benchmark
+	public double step()
+	{
+		long oldPossibilities = score.getNeighborhoodSize();
+		score.proposeNewState(rnd.nextLong());
+		double newScore = score.getScore();
+		long newPossibilities = score.getNeighborhoodSize();
+
+		double acceptProb = Math.exp(newScore - currentScore) * (double)oldPossibilities / (double)newPossibilities;
+		if (rnd.nextDouble() >= acceptProb) score.undoProposal();
+		else currentScore = newScore;
+		return currentScore;
+	}
+}
@@ -0,0 +1,30 @@
+package ontologizer.jmh;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import ontologizer.association.AssociationParser;
+import ontologizer.go.OBOParser;
+import ontologizer.go.OBOParserException;
+import ontologizer.go.OBOParserFileInput;
+
+/**
+ * Benchmarks the parsers of the ontology and the associations.
+ */
+public class ParserBenchmark
+{
+	@Benchmark
+	public OBOParser parseOBO(SyntheticState state) throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(state.oboFile.getPath()), 0, OBOParser.ESSENTIAL_TAGS);
+		oboParser.doParse();
+		return oboParser;
+	}
+
+	@Benchmark
+	public AssociationParser parseAssociations(SyntheticState state) throws IOException
+	{
+		return new AssociationParser(new OBOParserFileInput(state.gafFile.getPath()), state.data.terms);
+	}
+}
@@ -0,0 +1,50 @@
+package ontologizer.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ontologizer.OntologizerCore;
+import ontologizer.calculation.EnrichedGOTermsResult;
+import ontologizer.calculation.TermForTermCalculation;
+import ontologizer.statistics.Hypergeometric;
+
+/**
+ * Benchmarks the resampling based multiple test corrections. Each
+ * invocation uses a new instance, so no resampling is cached. Neither
+ * are the p values memoized by previous invocations.
+ */
+@State(Scope.Thread)
+public class ResamplingBenchmark
+{
+	@Param({"Westfall-Young-Single-Step", "Westfall-Young-Step-Down"})
+	public String correctionName;
+
+	@Param({"100"})
+	public int resamplingSteps;
+
+	private TermForTermCalculation calculation = new TermForTermCalculation();
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticState state)
+	{
+		state.population.enumerateGOTerms(state.data.graph, state.data.assoc);
+		state.study.enumerateGOTerms(state.data.graph, state.data.assoc);
+	}
+
+	@Setup(Level.Invocation)
+	public void clearCache()
+	{
+		Hypergeometric.getSharedCache().clear();
+	}
+
+	@Benchmark
+	public EnrichedGOTermsResult correct(SyntheticState state)
+	{
+		return calculation.calculateStudySet(state.data.graph, state.data.assoc, state.population, state.study,
+				OntologizerCore.createTestCorrection(correctionName, resamplingSteps, 0));
+	}
+}
@@ -0,0 +1,56 @@
+package ontologizer.jmh;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import ontologizer.calculation.SemanticCalculation;
+import ontologizer.types.ByteString;
+
+/**
+ * Benchmarks the semantic similarity of random gene pairs.
+ */
+@State(Scope.Thread)
+public class SemanticBenchmark
+{
+	private static final int PAIRS = 256;
+
+	private SemanticCalculation semanticCalculation;
+	private ByteString [] genes1 = new ByteString[PAIRS];
+	private ByteString [] genes2 = new ByteString[PAIRS];
+	private SyntheticState state;
+
+	@Setup(Level.Trial)
+	public void setUp(SyntheticState state)
+	{
+		this.state = state;
+		Random rnd = new Random(state.seed);
+		for (int i=0;i<PAIRS;i++)
+		{
+			genes1[i] = state.data.genes.get(rnd.nextInt(state.data.genes.size()));
+			genes2[i] = state.data.genes.get(rnd.nextInt(state.data.genes.size()));
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void newSemanticCalculation()
+	{
+		/* The similarities are cached, so start with a fresh instance */
+		semanticCalculation = new SemanticCalculation(state.data.graph, state.data.assoc);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PAIRS)
+	public double sim()
+	{
+		double sum = 0;
+		for (int i=0;i<PAIRS;i++)
+			sum += semanticCalculation.sim(genes1[i], genes2[i]);
+		return sum;
+	}
+}
@@ -0,0 +1,77 @@
+package ontologizer.jmh;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import ontologizer.benchmark.SyntheticDatafiles;
+import ontologizer.set.PopulationSet;
+import ontologizer.set.StudySet;
+import ontologizer.types.ByteString;
+
+/**
+ * The synthetic data shared by the benchmarks. The size of the data
+ * can be specified via the parameters, the data is the same for equal
+ * parameters.
+ */
+@State(Scope.Benchmark)
+public class SyntheticState
+{
+	@Param({"10000"})
+	public int terms;
+
+	@Param({"5000"})
+	public int genes;
+
+	@Param({"4"})
+	public int associationsPerGene;
+
+	/** Fraction of the genes that are part of the study set */
+	@Param({"0.05"})
+	public double studyFraction;
+
+	@Param({"1"})
+	public long seed;
+
+	public SyntheticDatafiles data;
+	public PopulationSet population;
+	public StudySet study;
+
+	public File oboFile;
+	public File gafFile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException
+	{
+		data = new SyntheticDatafiles(terms, genes, associationsPerGene, seed);
+
+		Random rnd = new Random(seed);
+		population = new PopulationSet("population");
+		study = new StudySet("study");
+		for (ByteString gene : data.genes)
+		{
+			population.addGene(gene, "");
+			if (rnd.nextDouble() < studyFraction)
+				study.addGene(gene, "");
+		}
+
+		oboFile = File.createTempFile("synthetic", ".obo");
+		gafFile = File.createTempFile("synthetic", ".gaf");
+		data.writeOBO(oboFile);
+		data.writeGAF(gafFile);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		oboFile.delete();
+		gafFile.delete();
+	}
+}
@@ -0,0 +1,427 @@
+package ontologizer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class FileCacheTest
+{
+	private static final String ETAG = "\"v1\"";
+
+	/**
+	 * A minimal HTTP server that serves a single file and supports
+	 * range and conditional requests.
+	 */
+	private static class Stub implements HttpHandler
+	{
+		private byte [] content;
+
+		/** If positive, the next response is truncated after this many bytes */
+		private volatile int truncateAfter;
+
+		/** Delay of each response in milliseconds */
+		private volatile int delay;
+
+		private AtomicInteger requests = new AtomicInteger();
+		private AtomicInteger active = new AtomicInteger();
+		private AtomicInteger maxActive = new AtomicInteger();
+		private List<String> ranges = new ArrayList<String>();
+		private AtomicInteger notModified = new AtomicInteger();
+
+		public Stub(byte [] content)
+		{
+			this.content = content;
+		}
+
+		public void handle(HttpExchange exchange) throws IOException
+		{
+			requests.incrementAndGet();
+			int a = active.incrementAndGet();
+			synchronized (maxActive)
+			{
+				if (a > maxActive.get()) maxActive.set(a);
+			}
+
+			try
+			{
+				if (delay > 0)
+					Thread.sleep(delay);
+
+				exchange.getResponseHeaders().set("ETag", ETAG);
+
+				if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+				{
+					notModified.incrementAndGet();
+					exchange.sendResponseHeaders(304, -1);
+					return;
+				}
+
+				int offset = 0;
+				String range = exchange.getRequestHeaders().getFirst("Range");
+				synchronized (ranges)
+				{
+					ranges.add(range);
+				}
+				if (range != null && ETAG.equals(exchange.getRequestHeaders().getFirst("If-Range")))
+				{
+					offset = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+					exchange.getResponseHeaders().set("Content-Range", "bytes " + offset + "-" + (content.length - 1) + "/" + content.length);
+					exchange.sendResponseHeaders(206, content.length - offset);
+				} else
+				{
+					exchange.sendResponseHeaders(200, content.length);
+				}
+
+				OutputStream os = exchange.getResponseBody();
+				int t = truncateAfter;
+				if (t > 0)
+				{
+					/* Simulate an interrupted transfer */
+					truncateAfter = 0;
+					os.write(content, offset, t);
+					os.flush();
+					throw new IOException("Truncated");
+				}
+				os.write(content, offset, content.length - offset);
+				os.close();
+			} catch (InterruptedException e)
+			{
+				throw new IOException(e.getMessage());
+			} finally
+			{
+				active.decrementAndGet();
+				exchange.close();
+			}
+		}
+	}
+
+	private HttpServer server;
+	private Stub stub;
+	private byte [] content;
+	private File cacheDirectory;
+
+	@Before
+	public void setUp() throws IOException
+	{
+		content = new byte[200000];
+		for (int i=0;i<content.length;i++)
+			content[i] = (byte)(i * 31 + i / 7);
+
+		stub = new Stub(content);
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", stub);
+		server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+		server.start();
+
+		cacheDirectory = File.createTempFile("filecache", "");
+		cacheDirectory.delete();
+		FileCache.setCacheDirectory(cacheDirectory.getAbsolutePath());
+	}
+
+	@After
+	public void tearDown()
+	{
+		FileCache.abortAllDownloads();
+		server.stop(0);
+
+		FileCache.setMaximumCacheSize(0);
+		delete(cacheDirectory);
+	}
+
+	private static void delete(File file)
+	{
+		File [] files = file.listFiles();
+		if (files != null)
+			for (File f : files)
+				delete(f);
+		file.delete();
+	}
+
+	private String url(String name)
+	{
+		return "http://localhost:" + server.getAddress().getPort() + "/" + name;
+	}
+
+	private static byte [] read(String name) throws IOException
+	{
+		InputStream is = new FileInputStream(name);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte [] buf = new byte[4096];
+		int read;
+		while ((read = is.read(buf)) > 0)
+			bos.write(buf, 0, read);
+		is.close();
+		return bos.toByteArray();
+	}
+
+	@Test
+	public void testFetch() throws Exception
+	{
+		String url = url("file");
+		String name = FileCache.fetch(url).get();
+		assertArrayEquals(content, read(name));
+		assertEquals(FileCache.FileState.CACHED, FileCache.getState(url));
+
+		/* Cached files are not transfered again */
+		assertEquals(name, FileCache.open(url));
+		assertEquals(1, stub.requests.get());
+	}
+
+	@Test
+	public void testResume() throws Exception
+	{
+		String url = url("file");
+		stub.truncateAfter = 50000;
+
+		try
+		{
+			FileCache.fetch(url).get();
+			assertTrue("Download should have failed", false);
+		} catch (ExecutionException e)
+		{
+		}
+		assertEquals(FileCache.FileState.NOT_CACHED, FileCache.getState(url));
+
+		String name = FileCache.getCachedFileNameBlocking(url);
+		assertArrayEquals(content, read(name));
+		assertEquals(2, stub.ranges.size());
+		assertEquals(null, stub.ranges.get(0));
+		assertTrue(stub.ranges.get(1).startsWith("bytes="));
+		assertTrue(Integer.parseInt(stub.ranges.get(1).substring(6, stub.ranges.get(1).length() - 1)) > 0);
+
+		/* The index keeps the validators */
+		FileCache.setCacheDirectory(cacheDirectory.getAbsolutePath());
+		assertEquals(name, FileCache.revalidate(url, null).get());
+		assertEquals(1, stub.notModified.get());
+	}
+
+	@Test
+	public void testRevalidate() throws Exception
+	{
+		String url = url("file");
+		String name = FileCache.fetch(url).get();
+
+		Future<String> future = FileCache.revalidate(url, null);
+		assertEquals(name, future.get());
+		assertEquals(2, stub.requests.get());
+		assertEquals(1, stub.notModified.get());
+		assertEquals(FileCache.FileState.CACHED, FileCache.getState(url));
+	}
+
+	@Test
+	public void testBoundedDownloads() throws Exception
+	{
+		int old = FileCache.getMaximumNumberOfDownloads();
+		FileCache.setMaximumNumberOfDownloads(2);
+		try
+		{
+			stub.delay = 100;
+
+			List<Future<String>> futures = new ArrayList<Future<String>>();
+			for (int i=0;i<8;i++)
+				futures.add(FileCache.fetch(url("file" + i)));
+
+			/* The same url is downloaded only once */
+			futures.add(FileCache.fetch(url("file0")));
+
+			for (Future<String> f : futures)
+				assertArrayEquals(content, read(f.get()));
+
+			assertEquals(8, stub.requests.get());
+			assertTrue(stub.maxActive.get() <= 2);
+		} finally
+		{
+			FileCache.setMaximumNumberOfDownloads(old);
+		}
+	}
+
+	@Test
+	public void testContentAddressed() throws Exception
+	{
+		String name1 = FileCache.fetch(url("file1")).get();
+		String name2 = FileCache.fetch(url("file2")).get();
+
+		/* Identical contents are stored only once */
+		assertEquals(name1, name2);
+		assertTrue(name1.startsWith(new File(cacheDirectory, "objects").getAbsolutePath()));
+
+		/* The stored file is kept as long as it is referenced */
+		FileCache.invalidate(url("file1"));
+		assertEquals(FileCache.FileState.NOT_CACHED, FileCache.getState(url("file1")));
+		assertEquals(FileCache.FileState.CACHED, FileCache.getState(url("file2")));
+		assertTrue(new File(name2).exists());
+
+		FileCache.invalidate(url("file2"));
+		assertFalse(new File(name2).exists());
+	}
+
+	@Test
+	public void testEviction() throws Exception
+	{
+		byte [] otherContent = new byte[content.length];
+		for (int i=0;i<otherContent.length;i++)
+			otherContent[i] = (byte)(i * 17);
+		server.createContext("/other/", new Stub(otherContent));
+
+		FileCache.setMaximumCacheSize(content.length + content.length / 2);
+
+		String name1 = FileCache.fetch(url("file")).get();
+		new File(name1).setLastModified(System.currentTimeMillis() - 60000);
+		String name2 = FileCache.fetch(url("other/file")).get();
+
+		/* The least recently used file has been evicted */
+		assertFalse(new File(name1).exists());
+		assertArrayEquals(otherContent, read(name2));
+		assertEquals(FileCache.FileState.NOT_CACHED, FileCache.getState(url("file")));
+		assertEquals(FileCache.FileState.CACHED, FileCache.getState(url("other/file")));
+	}
+
+	@Test
+	public void testSharedDirectory() throws Exception
+	{
+		String url = url("file");
+		String name = FileCache.fetch(url).get();
+
+		/* Another process using the same cache directory sees the file */
+		FileCache.setCacheDirectory(cacheDirectory.getAbsolutePath());
+		assertEquals(FileCache.FileState.CACHED, FileCache.getState(url));
+		assertEquals(name, FileCache.fetch(url).get());
+		assertEquals(1, stub.requests.get());
+
+		/* No temporary files are left behind */
+		for (File f : cacheDirectory.listFiles())
+			assertFalse(f.getName(), f.getName().endsWith(".part") || f.getName().endsWith(".new"));
+	}
+
+	@Test
+	public void testEvictionOfFlatLayout() throws Exception
+	{
+		/* A file of the flat layout of earlier versions, listed in the index */
+		File legacy = new File(cacheDirectory, "legacy.obo");
+		OutputStream os = new FileOutputStream(legacy);
+		os.write(content);
+		os.close();
+		legacy.setLastModified(System.currentTimeMillis() - 60000);
+		PrintWriter pw = new PrintWriter(new FileWriter(new File(cacheDirectory, ".index")));
+		pw.println("legacy.obo=" + url("legacy"));
+		pw.close();
+		FileCache.setCacheDirectory(cacheDirectory.getAbsolutePath());
+		assertEquals(FileCache.FileState.CACHED, FileCache.getState(url("legacy")));
+
+		byte [] otherContent = new byte[content.length];
+		for (int i=0;i<otherContent.length;i++)
+			otherContent[i] = (byte)(i * 13);
+		server.createContext("/other/", new Stub(otherContent));
+
+		/* The legacy file counts towards the size and is evicted first */
+		FileCache.setMaximumCacheSize(content.length + content.length / 2);
+		String name = FileCache.fetch(url("other/file")).get();
+		assertFalse(legacy.exists());
+		assertArrayEquals(otherContent, read(name));
+		assertEquals(FileCache.FileState.NOT_CACHED, FileCache.getState(url("legacy")));
+	}
+
+	/**
+	 * Fetches the urls given after the cache directory, used by
+	 * testConcurrentProcesses() as the other process. Prints "ready"
+	 * once the cache has been set up.
+	 *
+	 * @param args
+	 * @throws Exception
+	 */
+	public static void main(String [] args) throws Exception
+	{
+		LogManager.getLogManager().reset();
+		FileCache.setCacheDirectory(args[0]);
+		System.out.println("ready");
+		System.out.flush();
+
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+		for (int i=1;i<args.length;i++)
+			futures.add(FileCache.fetch(args[i]));
+		for (Future<String> future : futures)
+			future.get();
+		System.exit(0);
+	}
+
+	@Test
+	public void testConcurrentProcesses() throws Exception
+	{
+		/* Slow responses make the processes update the index concurrently */
+		stub.delay = 20;
+
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(FileCacheTest.class.getName());
+		command.add(cacheDirectory.getAbsolutePath());
+
+		List<String> urls = new ArrayList<String>();
+		List<String> otherUrls = new ArrayList<String>();
+		for (int i=0;i<16;i++)
+		{
+			urls.add(url("this/" + i));
+			otherUrls.add(url("other/" + i));
+		}
+		urls.add(url("shared"));
+		otherUrls.add(url("shared"));
+		command.addAll(otherUrls);
+
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		StringBuilder output = new StringBuilder();
+		String line;
+		while ((line = br.readLine()) != null && !line.equals("ready"))
+			output.append(line).append('\n');
+		assertEquals(output.toString(), "ready", line);
+
+		List<Future<String>> futures = new ArrayList<Future<String>>();
+		for (String url : urls)
+			futures.add(FileCache.fetch(url));
+		for (Future<String> future : futures)
+			assertArrayEquals(content, read(future.get()));
+
+		while ((line = br.readLine()) != null)
+			output.append(line).append('\n');
+		assertEquals(output.toString(), 0, process.waitFor());
+
+		/* No entry of either process has been lost */
+		FileCache.setCacheDirectory(cacheDirectory.getAbsolutePath());
+		for (String url : urls)
+			assertEquals(url, FileCache.FileState.CACHED, FileCache.getState(url));
+		for (String url : otherUrls)
+			assertEquals(url, FileCache.FileState.CACHED, FileCache.getState(url));
+
+		for (File f : cacheDirectory.listFiles())
+			assertFalse(f.getName(), f.getName().endsWith(".part") || f.getName().endsWith(".new"));
+	}
+}
@@ -0,0 +1,122 @@
+package ontologizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ontologizer.benchmark.SyntheticDataGenerator;
+import ontologizer.calculation.AbstractGOTermProperties;
+import ontologizer.calculation.EnrichedGOTermsResult;
+import ontologizer.go.Ontology;
+import ontologizer.go.TermID;
+import ontologizer.set.PopulationSet;
+import ontologizer.set.StudySet;
+import ontologizer.statistics.Hypergeometric;
+import ontologizer.types.ByteString;
+
+public class OntologizerCoreTest
+{
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static void writeGenes(File file, List<ByteString> genes) throws IOException
+	{
+		PrintWriter pw = new PrintWriter(file);
+		for (ByteString gene : genes)
+			pw.println(gene.toString());
+		pw.close();
+	}
+
+	private static HashMap<TermID,AbstractGOTermProperties> byTerm(EnrichedGOTermsResult result)
+	{
+		HashMap<TermID,AbstractGOTermProperties> map = new HashMap<TermID,AbstractGOTermProperties>();
+		for (AbstractGOTermProperties prop : result)
+			map.put(prop.goTerm.getID(), prop);
+		return map;
+	}
+
+	/**
+	 * Compares the results of the analysis of the subontologies with
+	 * the results of separate analyses of each subontology.
+	 */
+	@Test
+	public void testPartitionBySubontology() throws Exception
+	{
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(3000, 3000, 30000, 7);
+		File obo = tmpFolder.newFile("terms.obo");
+		File gaf = tmpFolder.newFile("associations.gaf");
+		generator.writeOBO(obo);
+		generator.writeGAF(gaf);
+
+		List<ByteString> genes = generator.getGenes();
+		File populationFile = tmpFolder.newFile("population.txt");
+		writeGenes(populationFile, genes);
+
+		File studyDirectory = tmpFolder.newFolder("studies");
+		Random rnd = new Random(3);
+		for (int i=0;i<3;i++)
+			writeGenes(new File(studyDirectory, "study" + i + ".txt"), genes.subList(i * 400, i * 400 + 100 + rnd.nextInt(300)));
+
+		OntologizerCore.Arguments args = new OntologizerCore.Arguments();
+		args.goTermsOBOFile = obo.getAbsolutePath();
+		args.associationFile = gaf.getAbsolutePath();
+		args.populationFile = populationFile.getAbsolutePath();
+		args.studySet = studyDirectory.getAbsolutePath();
+		args.calculationName = "Parent-Child-Union";
+		args.correctionName = "Bonferroni-Holm";
+		args.partitionBySubontology = true;
+		OntologizerCore core = new OntologizerCore(args);
+
+		List<Ontology> subontologies = core.getGoGraph().getSubontologies();
+		assertEquals(3, subontologies.size());
+
+		int numberOfResults = 0;
+		EnrichedGOTermsResult result;
+		while ((result = core.calculateNextStudy()) != null)
+		{
+			HashMap<TermID,AbstractGOTermProperties> partitioned = byTerm(result);
+
+			/* Don't let the separate analyses see p values of the partitioned one */
+			Hypergeometric.getSharedCache().clear();
+			int numberOfProperties = 0;
+
+			for (Ontology subontology : subontologies)
+			{
+				PopulationSet populationSet = new PopulationSet("population");
+				populationSet.addGenes(core.getPopulationSet());
+				StudySet studySet = new StudySet(result.getStudySet().getName());
+				studySet.addGenes(result.getStudySet());
+
+				EnrichedGOTermsResult separate = OntologizerCore.createCalculation(args.calculationName).calculateStudySet(
+						subontology, core.getGoAssociations(), populationSet, studySet,
+						OntologizerCore.createTestCorrection(args.correctionName, 0, 0));
+
+				for (AbstractGOTermProperties prop : separate)
+				{
+					AbstractGOTermProperties partitionedProp = partitioned.get(prop.goTerm.getID());
+					assertNotNull(partitionedProp);
+					assertEquals(prop.p, partitionedProp.p, 0);
+					assertEquals(prop.p_adjusted, partitionedProp.p_adjusted, 0);
+					numberOfProperties++;
+				}
+			}
+			assertEquals(numberOfProperties, partitioned.size());
+			assertTrue(numberOfProperties > 0);
+			numberOfResults++;
+		}
+		assertEquals(3, numberOfResults);
+		assertNull(core.calculateNextStudy());
+	}
+}
@@ -0,0 +1,76 @@
+package ontologizer.association;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import ontologizer.go.TermID;
+import ontologizer.types.ByteString;
+
+public class AssociationContainerTest
+{
+	@Test
+	public void testColumns()
+	{
+		ArrayList<Association> assocs = new ArrayList<Association>();
+		assocs.add(Association.createFromGAFLine(new ByteString("DB\tID1\tSYMBOL1\t\tGO:0000001\tPMID:00000\tIEA\t\tC\tName\tSYN1|SYN2\tgene\ttaxon:4932\t20121212\tSBA")));
+		assocs.add(Association.createFromGAFLine(new ByteString("DB\tID2\tSYMBOL2\tNOT\tGO:0000001\tPMID:00000\tIDA\t\tP\tName\t\tgene\ttaxon:4932\t20121212\tSBA")));
+		assocs.add(Association.createFromGAFLine(new ByteString("DB\tID1\tSYMBOL1\t\tGO:0000002\tPMID:00000\tIDA\t\tF\tName\tSYN1|SYN2\tgene\ttaxon:4932\t20121212\tSBA")));
+		assocs.add(Association.createFromGAFLine(new ByteString("DB\tID1\tSYMBOL1\t\tGO:0000001\tPMID:00000\tIDA\t\tC\tName\tSYN1|SYN2\tgene\ttaxon:4932\t20121212\tSBA")));
+
+		HashMap<ByteString,ByteString> dbObject2gene = new HashMap<ByteString,ByteString>();
+		dbObject2gene.put(new ByteString("ID1"), new ByteString("SYMBOL1"));
+		AssociationContainer container = new AssociationContainer(assocs, new HashMap<ByteString,ByteString>(), dbObject2gene);
+
+		assertEquals(2, container.getAllAnnotatedGenes().size());
+
+		/* The duplicated annotation of SYMBOL1 to GO:0000001 must be ignored */
+		Gene2Associations g2a = container.get(new ByteString("ID1"));
+		assertEquals("SYMBOL1", g2a.name().toString());
+		assertEquals(2, g2a.size());
+		assertEquals(new TermID("GO:0000001"), g2a.getTermID(0));
+		assertEquals(new TermID("GO:0000002"), g2a.getTermID(1));
+		assertEquals("IEA", g2a.getEvidence(0).toString());
+		assertTrue(g2a.containsID(new TermID("GO:0000002")));
+		assertFalse(g2a.containsID(new TermID("GO:0000003")));
+
+		ArrayList<Association> materialized = new ArrayList<Association>();
+		for (Association a : g2a)
+			materialized.add(a);
+		assertEquals(2, materialized.size());
+		assertEquals("ID1", materialized.get(1).getDB_Object().toString());
+		assertEquals("SYN1|SYN2", materialized.get(1).getSynonym().toString());
+		assertEquals("F", materialized.get(1).getAspect().toString());
+		assertEquals("IDA", materialized.get(1).getEvidence().toString());
+
+		Association not = container.get(new ByteString("SYMBOL2")).iterator().next();
+		assertTrue(not.hasNotQualifier());
+		assertNull(container.get(new ByteString("SYMBOL3")));
+
+		/* The index must reflect associations that are added later */
+		container.addAssociation(new Association(new ByteString("SYMBOL2"), "GO:0000003"));
+		container.addAssociation(new Association(new ByteString("SYMBOL3"), "GO:0000003"));
+		assertEquals(2, container.get(new ByteString("SYMBOL2")).size());
+		assertEquals(1, container.get(new ByteString("SYMBOL3")).size());
+		assertEquals(3, container.getAllAnnotatedGenes().size());
+	}
+
+	@Test
+	public void testStandalone()
+	{
+		Gene2Associations g2a = new Gene2Associations(new ByteString("item"));
+		assertEquals(0, g2a.size());
+		g2a.add(new Association(new ByteString("item"), "GO:0000001"));
+		g2a.add(new Association(new ByteString("item"), "GO:0000001"));
+		g2a.add(new Association(new ByteString("other"), "GO:0000002"));
+		assertEquals(1, g2a.size());
+		assertEquals(1, g2a.getAssociations().size());
+		assertEquals(new TermID("GO:0000001"), g2a.getAssociations().get(0));
+	}
+}
@@ -1,6 +1,7 @@
 package ontologizer.association;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedWriter;
 import java.io.File;
@@ -10,6 +11,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.HashSet;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -21,6 +23,7 @@ import ontologizer.go.OBOParser;
 import ontologizer.go.OBOParserException;
 import ontologizer.go.OBOParserFileInput;
 import ontologizer.go.TermContainer;
+import ontologizer.types.ByteString;
 
 public class AssociationParserTest
 {
@@ -96,6 +99,28 @@ public class AssociationParserTest
 		assertEquals(1, assoc.getAllAnnotatedGenes().size());
 	}
 
+	@Test
+	public void testWithoutHeader() throws IOException, OBOParserException
+	{
+		File tmp = tmpFolder.newFile("testWithoutHeader.gaf");
+		BufferedWriter bw = new BufferedWriter(new FileWriter(tmp));
+		bw.write("DB\tDBOBJID1\tSYMBOL1\t\tGO:0005763\tPMID:00000\tEVIDENCE\t\tC\t\tgene\ttaxon:4932\t20121212\tSBA\n");
+		bw.write("DB\tDBOBJID2\tSYMBOL2\t\tGO:0005760\tPMID:00000\tEVIDENCE\t\tC\t\tgene\ttaxon:4932\t20121212\tSBA\n");
+		bw.flush();
+		bw.close();
+
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(OBO_FILE));
+		oboParser.doParse();
+
+		AssociationParser ap = new AssociationParser(new OBOParserFileInput(tmp.getAbsolutePath()), new TermContainer(oboParser.getTermMap(), "", ""));
+		AssociationContainer assoc = new AssociationContainer(ap.getAssociations(), ap.getSynonym2gene(), ap.getDbObject2gene());
+
+		/* The first line must not be merged with the second one */
+		assertEquals(2, assoc.getAllAnnotatedGenes().size());
+		assertTrue(assoc.containsGene(new ByteString("SYMBOL1")));
+		assertEquals("GO:0005763", assoc.get(new ByteString("SYMBOL1")).getAssociations().get(0).toString());
+	}
+
 	@Test
 	public void testReadFromCompressedFile() throws IOException, OBOParserException
 	{
@@ -153,4 +178,49 @@ public class AssociationParserTest
 		AssociationParser ap = new AssociationParser(new OBOParserFileInput(tmp.getAbsolutePath()),new TermContainer(oboParser.getTermMap(), "", ""));
 		assertEquals(21,ap.getAssociations().size());
 	}
+
+	@Test
+	public void testNames() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(OBO_FILE));
+		oboParser.doParse();
+		TermContainer tc = new TermContainer(oboParser.getTermMap(), "", "");
+
+		AssociationParser ap = new AssociationParser(new OBOParserFileInput(ASSOCIATION_FILE), tc);
+
+		/* Select some of the items by symbol, some by db object id */
+		HashSet<ByteString> names = new HashSet<ByteString>();
+		int i = 0;
+		for (Association a : ap.getAssociations())
+		{
+			if (i % 20 == 0) names.add(a.getObjectSymbol());
+			else if (i % 20 == 1) names.add(a.getDB_Object());
+			i++;
+		}
+
+		int expected = 0;
+		for (Association a : ap.getAssociations())
+		{
+			if (refersTo(a, names))
+				expected++;
+		}
+
+		AssociationParser filtered = new AssociationParser(new OBOParserFileInput(ASSOCIATION_FILE), tc, names);
+		assertEquals(expected, filtered.getAssociations().size());
+		for (Association a : filtered.getAssociations())
+			assertTrue(refersTo(a, names));
+	}
+
+	private static boolean refersTo(Association a, HashSet<ByteString> names)
+	{
+		if (names.contains(a.getObjectSymbol()) || names.contains(a.getDB_Object()))
+			return true;
+		if (a.getSynonym() != null && a.getSynonym().length() > 2)
+		{
+			for (ByteString s : a.getSynonym().splitBySingleChar('|'))
+				if (names.contains(s))
+					return true;
+		}
+		return false;
+	}
 }
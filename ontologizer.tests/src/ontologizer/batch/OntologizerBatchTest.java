@@ -0,0 +1,186 @@
+package ontologizer.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.text.ParseException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OntologizerBatchTest
+{
+	private File dir;
+
+	private static void delete(File file)
+	{
+		File [] files = file.listFiles();
+		if (files != null)
+		{
+			for (File f : files)
+				delete(f);
+		}
+		file.delete();
+	}
+
+	private static void write(File file, String contents) throws Exception
+	{
+		PrintWriter pw = new PrintWriter(file);
+		pw.print(contents);
+		pw.close();
+	}
+
+	@Before
+	public void setUp() throws Exception
+	{
+		dir = File.createTempFile("batch", "");
+		dir.delete();
+		dir.mkdirs();
+
+		/* The population consists of the annotated genes */
+		Set<String> population = new LinkedHashSet<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream("data/gene_association.sgd.gz"))));
+		String line;
+		while ((line = br.readLine()) != null)
+		{
+			if (line.startsWith("!")) continue;
+			String [] fields = line.split("\t");
+			if (fields.length > 2) population.add(fields[2]);
+		}
+		br.close();
+
+		PrintWriter population1 = new PrintWriter(new File(dir, "population.txt"));
+		File studies = new File(dir, "studies");
+		studies.mkdirs();
+		PrintWriter study1 = new PrintWriter(new File(studies, "study1.txt"));
+		PrintWriter study2 = new PrintWriter(new File(studies, "study2.txt"));
+		int i = 0;
+		for (String gene : population)
+		{
+			population1.println(gene);
+			if (i < 100) study1.println(gene);
+			else if (i < 150) study2.println(gene);
+			i++;
+		}
+		population1.close();
+		study1.close();
+		study2.close();
+	}
+
+	@After
+	public void tearDown()
+	{
+		delete(dir);
+	}
+
+	@Test
+	public void testBatch() throws Exception
+	{
+		String data = new File("data").getAbsolutePath().replace("\\", "/");
+		File manifest = new File(dir, "manifest.json");
+		write(manifest,
+				"{\"ontology\":\"" + data + "/gene_ontology.1_2.obo.gz\"," +
+				" \"associations\":\"" + data + "/gene_association.sgd.gz\"," +
+				" \"population\":\"population.txt\"," +
+				" \"outdir\":\"results\", \"threads\":2," +
+				" \"jobs\":[" +
+				"  {\"name\":\"all\", \"studies\":\"studies\", \"calculations\":[\"Term-For-Term\",\"Parent-Child-Union\"], \"mtc\":\"Bonferroni\"}," +
+				"  {\"name\":\"single\", \"studies\":[\"studies/study1.txt\"], \"ignore\":true}" +
+				" ]" +
+				"}");
+
+		OntologizerBatch batch = new OntologizerBatch(manifest);
+		assertEquals(5, batch.getNumberOfTasks());
+		assertEquals(5, batch.run());
+		assertEquals(0, batch.getNumberOfFailedTasks());
+
+		File results = new File(dir, "results");
+		for (String study : new String[]{"study1", "study2"})
+		{
+			for (String calculation : new String[]{"Term-For-Term", "Parent-Child-Union"})
+			{
+				File table = new File(new File(results, "all"), "table-" + study + "-" + calculation + "-Bonferroni.txt");
+				assertTrue(table.getPath(), table.length() > 0);
+			}
+		}
+		File[] single = new File(results, "single").listFiles();
+		assertEquals(1, single.length);
+		assertTrue(single[0].getName().startsWith("table-study1-"));
+
+		/* Nothing to be done when run again */
+		batch = new OntologizerBatch(manifest);
+		assertEquals(0, batch.run());
+
+		/* Only the missing analysis is performed */
+		single[0].delete();
+		batch = new OntologizerBatch(manifest);
+		assertEquals(1, batch.run());
+		assertTrue(single[0].exists());
+	}
+
+	@Test
+	public void testSharedDataset() throws Exception
+	{
+		File manifest = new File(dir, "manifest.json");
+
+		/* The parameters of the test correction don't affect the population */
+		write(manifest, "{\"ontology\":\"a\", \"associations\":\"b\", \"population\":\"population.txt\", \"mtc\":\"Westfall-Young-Single-Step\"," +
+				" \"jobs\":[{\"name\":\"a\", \"studies\":\"studies\", \"resamplingSteps\":100}," +
+				"           {\"name\":\"b\", \"studies\":\"studies\", \"resamplingSteps\":200, \"sizeTolerance\":10}]}");
+		OntologizerBatch batch = new OntologizerBatch(manifest);
+		assertEquals(4, batch.getNumberOfTasks());
+		assertEquals(1, batch.getNumberOfDatasets());
+
+		write(manifest, "{\"ontology\":\"a\", \"associations\":\"b\", \"population\":\"population.txt\"," +
+				" \"jobs\":[{\"name\":\"a\", \"studies\":\"studies\"}," +
+				"           {\"name\":\"b\", \"studies\":\"studies\", \"ignore\":true}]}");
+		batch = new OntologizerBatch(manifest);
+		assertEquals(2, batch.getNumberOfDatasets());
+	}
+
+	@Test
+	public void testInvalidManifest() throws Exception
+	{
+		File manifest = new File(dir, "manifest.json");
+
+		write(manifest, "{\"jobs\":[{\"studies\":\"studies\"}]}");
+		try
+		{
+			new OntologizerBatch(manifest);
+			fail();
+		} catch (ParseException e)
+		{
+		}
+
+		write(manifest, "{\"ontology\":\"a\", \"associations\":\"b\", \"population\":\"population.txt\"," +
+				" \"jobs\":[{\"studies\":\"studies\", \"calculation\":\"Unknown\"}]}");
+		try
+		{
+			new OntologizerBatch(manifest);
+			fail();
+		} catch (ParseException e)
+		{
+		}
+
+		/* Both jobs would write the same results */
+		write(manifest, "{\"ontology\":\"a\", \"associations\":\"b\", \"population\":\"population.txt\"," +
+				" \"jobs\":[{\"studies\":\"studies\"},{\"studies\":\"studies/study1.txt\"}]}");
+		try
+		{
+			new OntologizerBatch(manifest);
+			fail();
+		} catch (ParseException e)
+		{
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package ontologizer.benchmark;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.AssociationParser;
+import ontologizer.association.Gene2Associations;
+import ontologizer.go.OBOParser;
+import ontologizer.go.OBOParserFileInput;
+import ontologizer.go.Ontology;
+import ontologizer.go.Term;
+import ontologizer.go.TermContainer;
+import ontologizer.go.TermID;
+import ontologizer.types.ByteString;
+
+public class SyntheticDataGeneratorTest
+{
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static byte [] read(File file) throws IOException
+	{
+		byte [] buf = new byte[(int)file.length()];
+		InputStream is = new FileInputStream(file);
+		int off = 0;
+		int read;
+		while (off < buf.length && (read = is.read(buf, off, buf.length - off)) > 0)
+			off += read;
+		is.close();
+		return buf;
+	}
+
+	@Test
+	public void testInMemory()
+	{
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(5000, 1000, 10000, 1);
+		TermContainer terms = generator.createTermContainer();
+		assertEquals(5000, terms.termCount());
+
+		HashMap<String,TermID> roots = new HashMap<String,TermID>();
+		int maxLevel = 0;
+		for (Term t : terms)
+		{
+			if (t.getParents().length == 0)
+				assertNull(roots.put(t.getNamespace().getName(), t.getID()));
+			maxLevel = Math.max(maxLevel, generator.getLevel(t.getID().id - 1));
+		}
+		assertEquals(3, roots.size());
+		assertTrue(maxLevel > 8);
+		assertTrue(maxLevel <= 16);
+
+		/* Each term can be reached from the root of its namespace */
+		Ontology ontology = Ontology.create(terms);
+		for (Term t : terms)
+		{
+			TermID root = roots.get(t.getNamespace().getName());
+			if (!root.equals(t.getID()))
+				assertTrue(ontology.existsPath(root, t.getID()));
+		}
+
+		AssociationContainer assoc = generator.createAssociationContainer();
+		assertEquals(1000, assoc.getAllAnnotatedGenes().size());
+		int total = 0;
+		int max = 0;
+		for (Gene2Associations g2a : assoc)
+		{
+			assertTrue(g2a.size() > 0);
+			assertEquals(g2a.size(), new HashSet<TermID>(g2a.getAssociations()).size());
+			for (TermID id : g2a.getAssociations())
+				assertTrue(terms.get(id).getParents().length > 0);
+			total += g2a.size();
+			max = Math.max(max, g2a.size());
+		}
+		assertEquals(10000, total);
+
+		/* The number of annotations per gene has a heavy tail */
+		assertTrue(max > 5 * 10);
+	}
+
+	@Test
+	public void testFiles() throws Exception
+	{
+		File obo = tmpFolder.newFile("synthetic.obo");
+		File gaf = tmpFolder.newFile("synthetic.gaf.gz");
+
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(2000, 500, 3000, 2);
+		generator.setNumberOfNamespaces(1);
+		generator.setMaxDepth(10);
+		generator.writeOBO(obo);
+		generator.writeGAF(gaf);
+
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(obo.getAbsolutePath()));
+		oboParser.doParse();
+		TermContainer terms = new TermContainer(oboParser.getTermMap(), "", "");
+		assertEquals(2000, terms.termCount());
+
+		AssociationParser ap = new AssociationParser(new OBOParserFileInput(gaf.getAbsolutePath()), terms);
+		assertEquals(3000, ap.getAssociations().size());
+
+		/* The files agree with the data created in memory */
+		TermContainer memoryTerms = generator.createTermContainer();
+		for (Term t : memoryTerms)
+		{
+			Term parsed = terms.get(t.getID());
+			assertEquals(t.getName(), parsed.getName());
+			assertEquals(t.getParents().length, parsed.getParents().length);
+		}
+		AssociationContainer assoc = generator.createAssociationContainer();
+		for (ByteString gene : generator.getGenes())
+			assertEquals(generator.getNumberOfAssociations(Integer.parseInt(gene.toString().substring(4)) - 1), assoc.get(gene).size());
+
+		/* Same seed, same data */
+		File obo2 = tmpFolder.newFile("synthetic2.obo");
+		File gaf2 = tmpFolder.newFile("synthetic2.gaf");
+		File gaf3 = tmpFolder.newFile("synthetic3.gaf");
+		generator = new SyntheticDataGenerator(2000, 500, 3000, 2);
+		generator.setNumberOfNamespaces(1);
+		generator.setMaxDepth(10);
+		generator.writeOBO(obo2);
+		generator.writeGAF(gaf2);
+		generator.writeGAF(gaf3);
+		assertArrayEquals(read(obo), read(obo2));
+		assertArrayEquals(read(gaf2), read(gaf3));
+
+		/* Different seed, different data */
+		new SyntheticDataGenerator(2000, 500, 3000, 3).writeGAF(gaf3);
+		assertFalse(new String(read(gaf2)).equals(new String(read(gaf3))));
+	}
+
+	@Test
+	public void testInvalidParameters()
+	{
+		try
+		{
+			new SyntheticDataGenerator(1000, 100, 99, 1);
+			fail();
+		} catch (IllegalArgumentException e)
+		{
+		}
+
+		try
+		{
+			new SyntheticDataGenerator(5, 10, 10, 1).createTermContainer();
+			fail();
+		} catch (IllegalArgumentException e)
+		{
+		}
+
+		SyntheticDataGenerator generator = new SyntheticDataGenerator(100, 10, 10, 1);
+		generator.createTermContainer();
+		try
+		{
+			generator.setMaxDepth(4);
+			fail();
+		} catch (IllegalStateException e)
+		{
+		}
+	}
+}
@@ -30,7 +30,7 @@ import ontologizer.statistics.Bonferroni;
 import ontologizer.statistics.None;
 import ontologizer.types.ByteString;
 import ontologizer.worksets.WorkSet;
-import ontologizer.worksets.WorkSetLoadThread;
+import ontologizer.worksets.WorkSetLoader;
 
 class B2GTestParameter
 {
@@ -624,12 +624,12 @@ public class Bayes2GOCalculationTest
 
 		synchronized (notify)
 		{
-			WorkSetLoadThread.obtainDatafiles(ws,
+			WorkSetLoader.obtainDatafiles(ws,
 				new Runnable(){
 					public void run()
 					{
-						graph = WorkSetLoadThread.getGraph(ws.getOboPath());
-						assoc = WorkSetLoadThread.getAssociations(ws.getAssociationPath());
+						graph = WorkSetLoader.getGraph(ws.getOboPath());
+						assoc = WorkSetLoader.getAssociations(ws.getAssociationPath());
 						synchronized (notify)
 						{
 							notify.notifyAll();
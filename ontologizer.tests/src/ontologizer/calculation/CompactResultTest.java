@@ -0,0 +1,126 @@
+package ontologizer.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ontologizer.association.AssociationContainer;
+import ontologizer.go.Ontology;
+import ontologizer.go.TermID;
+import ontologizer.internal.InternalOntology;
+import ontologizer.statistics.Bonferroni;
+
+public class CompactResultTest
+{
+	private InternalOntology internalOntology = new InternalOntology();
+	private SingleCalculationSetting scs;
+
+	public CompactResultTest()
+	{
+		HashMap<TermID,Double> wantedActiveTerms = new HashMap<TermID,Double>();
+		wantedActiveTerms.put(new TermID("GO:0000004"),0.0);
+		scs = SingleCalculationSetting.create(new Random(1), wantedActiveTerms, 0.00, internalOntology.graph, internalOntology.assoc);
+	}
+
+	private EnrichedGOTermsResult calculate(ICalculation calculation)
+	{
+		return calculation.calculateStudySet(internalOntology.graph, internalOntology.assoc, scs.pop, scs.study, new Bonferroni());
+	}
+
+	private static String table(EnrichedGOTermsResult result)
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		EnrichedGOTermsTableWriter.writeTable(bos, result);
+		return bos.toString();
+	}
+
+	@Test
+	public void testCompact()
+	{
+		for (ICalculation calculation : new ICalculation[]{new TermForTermCalculation(), new ParentChildCalculation()})
+		{
+			EnrichedGOTermsResult result = calculate(calculation);
+			EnrichedGOTermsResult compact = calculate(calculation);
+			assertTrue(compact.compact());
+			assertTrue(compact.isCompact());
+			assertFalse(result.isCompact());
+
+			assertEquals(result.getSize(), compact.getSize());
+			assertEquals(table(result), table(compact));
+
+			int count = 0;
+			for (AbstractGOTermProperties props : result)
+			{
+				AbstractGOTermProperties compactProps = compact.getGOTermProperties(props.goTerm);
+				assertEquals(props.goTerm, compactProps.goTerm);
+				assertEquals(props.annotatedPopulationGenes, compactProps.annotatedPopulationGenes);
+				assertEquals(props.annotatedStudyGenes, compactProps.annotatedStudyGenes);
+				assertEquals(props.p, compactProps.p, 0);
+				assertEquals(props.p_adjusted, compactProps.p_adjusted, 0);
+				assertEquals(props.p_min, compactProps.p_min, 0);
+				assertEquals(props.ignoreAtMTC, compactProps.ignoreAtMTC);
+				assertEquals(props.propLineToString(10, 20), compactProps.propLineToString(10, 20));
+				assertEquals(props.propHeaderToString(), compactProps.propHeaderToString());
+				assertEquals(props.goTerm, compact.getGOTermProperties(props.goTerm.getID()).goTerm);
+				count++;
+			}
+			assertEquals(count, compact.getSize());
+
+			/* Views */
+			List<AbstractGOTermProperties> sorted = result.getSortedProperties();
+			List<AbstractGOTermProperties> compactSorted = compact.getSortedProperties();
+			assertEquals(sorted.size(), compactSorted.size());
+			for (int i=0;i<sorted.size();i++)
+				assertEquals(sorted.get(i).p, compactSorted.get(i).p, 0);
+
+			List<AbstractGOTermProperties> significant = result.getSignificantProperties(0.05);
+			List<AbstractGOTermProperties> compactSignificant = compact.getSignificantProperties(0.05);
+			assertTrue(significant.size() > 0);
+			assertEquals(significant.size(), compactSignificant.size());
+			for (int i=0;i<significant.size();i++)
+				assertEquals(significant.get(i).goTerm, compactSignificant.get(i).goTerm);
+
+			assertEquals(result.getGoodTerms(0.05), compact.getGoodTerms(0.05));
+		}
+	}
+
+	@Test
+	public void testCompactRestrictions()
+	{
+		Ontology graph = internalOntology.graph;
+		AssociationContainer assoc = internalOntology.assoc;
+
+		EnrichedGOTermsResult result = new EnrichedGOTermsResult(graph, assoc, scs.study, scs.pop.getGeneCount());
+		TermForTermGOTermProperties tft = new TermForTermGOTermProperties();
+		tft.goTerm = graph.getTerm(new TermID("GO:0000001"));
+		result.addGOTermProperties(tft);
+		ParentChildGOTermProperties pc = new ParentChildGOTermProperties();
+		pc.goTerm = graph.getTerm(new TermID("GO:0000002"));
+		result.addGOTermProperties(pc);
+
+		/* Properties of different classes are not compacted */
+		assertFalse(result.compact());
+		assertFalse(result.isCompact());
+
+		result = new EnrichedGOTermsResult(graph, assoc, scs.study, scs.pop.getGeneCount());
+		result.addGOTermProperties(tft);
+		assertTrue(result.compact());
+		assertNull(result.getGOTermProperties(new TermID("GO:0000002")));
+		try
+		{
+			result.addGOTermProperties(pc);
+			fail();
+		} catch (IllegalStateException e)
+		{
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package ontologizer.calculation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ontologizer.go.OBOParser;
+import ontologizer.go.OBOParserFileInput;
+import ontologizer.go.Ontology;
+import ontologizer.go.TermContainer;
+import ontologizer.go.TermID;
+import ontologizer.go.TermRegistry;
+import ontologizer.internal.InternalOntology;
+
+public class MICAIndexTest
+{
+	/**
+	 * Determines the minimal probability of the shared ancestors in the
+	 * straightforward way.
+	 */
+	private static double sharedP(Ontology o, double [] p, int t1, int t2)
+	{
+		TermRegistry registry = o.getTermRegistry();
+		Set<TermID> a1 = o.getTermsOfInducedGraph(null, registry.get(t1).getID());
+		Set<TermID> a2 = o.getTermsOfInducedGraph(null, registry.get(t2).getID());
+		a1.retainAll(a2);
+
+		double min = 1.0;
+		for (TermID t : a1)
+			min = Math.min(min, p[o.getTermOrdinal(t)]);
+		return min;
+	}
+
+	@Test
+	public void testInternalOntology()
+	{
+		Ontology o = new InternalOntology().graph;
+		int n = o.getTermRegistry().size();
+
+		/* Probabilities that decrease with the depth */
+		double [] p = new double[n];
+		for (int i=0;i<n;i++)
+			p[i] = 1.0 / o.getTermsOfInducedGraph(null, o.getTermRegistry().get(i).getID()).size();
+
+		MICAIndex index = MICAIndex.create(o, p);
+		int [] all = new int[n];
+		for (int i=0;i<n;i++)
+			all[i] = i;
+
+		double [][] sharedInformation = index.getSharedInformation(all, all);
+		for (int i=0;i<n;i++)
+		{
+			for (int j=0;j<n;j++)
+			{
+				double expected = sharedP(o, p, i, j);
+				assertEquals(expected, index.getSharedP(i, j), 1e-12);
+				assertEquals(-Math.log(expected), sharedInformation[i][j], 1e-12);
+			}
+			assertEquals(i, index.getMICA(i, i));
+		}
+	}
+
+	@Test
+	public void testGeneOntology() throws Exception
+	{
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput("data/gene_ontology.1_2.obo.gz"));
+		oboParser.doParse();
+		Ontology o = Ontology.create(new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate()));
+		int n = o.getTermRegistry().size();
+
+		Random rnd = new Random(11);
+		double [] p = new double[n];
+		for (int i=0;i<n;i++)
+			p[i] = rnd.nextDouble();
+
+		MICAIndex index = MICAIndex.create(o, p);
+
+		for (int k=0;k<200;k++)
+		{
+			int [] terms1 = new int[1 + rnd.nextInt(4)];
+			int [] terms2 = new int[1 + rnd.nextInt(4)];
+			for (int i=0;i<terms1.length;i++)
+				terms1[i] = rnd.nextInt(n);
+			for (int i=0;i<terms2.length;i++)
+				terms2[i] = rnd.nextInt(n);
+
+			double max = 0;
+			for (int t1 : terms1)
+			{
+				for (int t2 : terms2)
+				{
+					double expected = sharedP(o, p, t1, t2);
+					assertEquals(expected, index.getSharedP(t1, t2), 1e-12);
+					max = Math.max(max, -Math.log(expected));
+				}
+			}
+			assertEquals(max, index.getMaxSharedInformation(terms1, terms2), 1e-12);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package ontologizer.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ontologizer.association.AssociationContainer;
+import ontologizer.go.Ontology;
+import ontologizer.go.TermID;
+import ontologizer.internal.InternalOntology;
+import ontologizer.statistics.None;
+
+public class ResultWriterTest
+{
+	private static EnrichedGOTermsResult tftResult;
+	private static EnrichedGOTermsResult pcResult;
+
+	@BeforeClass
+	public static void setUp()
+	{
+		InternalOntology internalOntology = new InternalOntology();
+
+		HashMap<TermID,Double> wantedActiveTerms = new HashMap<TermID,Double>();
+		wantedActiveTerms.put(new TermID("GO:0000004"),0.0);
+
+		AssociationContainer assoc = internalOntology.assoc;
+		Ontology ontology = internalOntology.graph;
+
+		SingleCalculationSetting scs = SingleCalculationSetting.create(new Random(1), wantedActiveTerms, 0.00, ontology, assoc);
+		tftResult = new TermForTermCalculation().calculateStudySet(ontology, assoc, scs.pop, scs.study, new None());
+		pcResult = new ParentChildCalculation().calculateStudySet(ontology, assoc, scs.pop, scs.study, new None());
+	}
+
+	/**
+	 * Returns the table as it has been written by earlier versions.
+	 */
+	private static String expectedTable(EnrichedGOTermsResult result, boolean withStudyColumn)
+	{
+		ArrayList<AbstractGOTermProperties> propsList = new ArrayList<AbstractGOTermProperties>();
+		for (AbstractGOTermProperties props : result)
+			propsList.add(props);
+		Collections.sort(propsList);
+
+		StringBuilder str = new StringBuilder();
+		String studyColumn = withStudyColumn ? result.getStudySet().getName() + "\t" : "";
+		str.append(withStudyColumn ? "study\t" : "");
+		str.append(propsList.get(0).propHeaderToString());
+		for (AbstractGOTermProperties props : propsList)
+		{
+			str.append(studyColumn);
+			str.append(props.propLineToString(result.getPopulationGeneCount(), result.getStudyGeneCount()));
+			str.append(System.getProperty("line.separator"));
+		}
+		return str.toString();
+	}
+
+	private static String read(InputStream is) throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte [] buf = new byte[4096];
+		int read;
+		while ((read = is.read(buf)) > 0)
+			bos.write(buf, 0, read);
+		is.close();
+		return bos.toString();
+	}
+
+	@Test
+	public void testTable() throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		EnrichedGOTermsTableWriter.writeTable(bos, tftResult);
+		assertEquals(expectedTable(tftResult, false), bos.toString());
+
+		bos = new ByteArrayOutputStream();
+		EnrichedGOTermsTableWriter.writeTable(bos, pcResult);
+		assertEquals(expectedTable(pcResult, false), bos.toString());
+	}
+
+	@Test
+	public void testCompressedTable() throws Exception
+	{
+		File file = File.createTempFile("results", ".txt.gz");
+		try
+		{
+			IResultWriter writer = EnrichedGOTermsTableWriter.createWriter(file);
+			writer.write(tftResult);
+			writer.write(tftResult);
+			writer.write(pcResult);
+			writer.close();
+
+			/* The header is repeated only when the columns change */
+			String tft = expectedTable(tftResult, true);
+			String tftRows = tft.substring(tft.indexOf('\n') + 1);
+			String expected = tft + tftRows + expectedTable(pcResult, true);
+			assertEquals(expected, read(new GZIPInputStream(new FileInputStream(file))));
+		} finally
+		{
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testColumnar() throws Exception
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ColumnarResultWriter writer = new ColumnarResultWriter(bos);
+		writer.write(tftResult);
+		writer.write(pcResult);
+		writer.close();
+
+		ColumnarResultReader reader = new ColumnarResultReader(new ByteArrayInputStream(bos.toByteArray()));
+		for (EnrichedGOTermsResult result : new EnrichedGOTermsResult[]{tftResult, pcResult})
+		{
+			ArrayList<AbstractGOTermProperties> propsList = new ArrayList<AbstractGOTermProperties>();
+			for (AbstractGOTermProperties props : result)
+				propsList.add(props);
+			Collections.sort(propsList);
+
+			ColumnarResultReader.Table table = reader.next();
+			assertEquals(result.getStudySet().getName(), table.studySetName);
+			assertEquals(result.getPopulationGeneCount(), table.populationGeneCount);
+			assertEquals(result.getStudyGeneCount(), table.studyGeneCount);
+			assertEquals(propsList.size(), table.rows);
+			assertEquals(propsList.get(0).getNumberOfProperties(), table.columnNames.length);
+
+			String [] ids = (String[])table.columns[table.getColumnIndex("ID")];
+			int [] popTotal = (int[])table.columns[table.getColumnIndex("Pop.total")];
+			int [] studyTerm = (int[])table.columns[table.getColumnIndex("Study.term")];
+			double [] p = (double[])table.columns[table.getColumnIndex("p")];
+			String [] names = (String[])table.columns[table.getColumnIndex("name")];
+			for (int i=0;i<propsList.size();i++)
+			{
+				AbstractGOTermProperties props = propsList.get(i);
+				assertEquals(props.goTerm.getIDAsString(), ids[i]);
+				assertEquals(result.getPopulationGeneCount(), popTotal[i]);
+				assertEquals(props.annotatedStudyGenes, studyTerm[i]);
+				assertEquals(props.p, p[i], 0);
+				assertEquals(props.goTerm.getName(), names[i]);
+			}
+
+			/* Parent-Child has a boolean column */
+			if (result == pcResult)
+				assertEquals(boolean[].class, table.columns[table.getColumnIndex("is.trivial")].getClass());
+		}
+		assertNull(reader.next());
+		reader.close();
+	}
+}
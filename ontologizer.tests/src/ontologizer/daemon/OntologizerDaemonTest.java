@@ -0,0 +1,243 @@
+package ontologizer.daemon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import ontologizer.OntologizerCore;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class OntologizerDaemonTest
+{
+	private static OntologizerDaemon daemon;
+	private static File populationFile;
+	private static List<String> genes = new ArrayList<String>();
+
+	@BeforeClass
+	public static void setUp() throws Exception
+	{
+		/* The population consists of the annotated genes */
+		Set<String> population = new LinkedHashSet<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream("data/gene_association.sgd.gz"))));
+		String line;
+		while ((line = br.readLine()) != null)
+		{
+			if (line.startsWith("!")) continue;
+			String [] fields = line.split("\t");
+			if (fields.length > 2) population.add(fields[2]);
+		}
+		br.close();
+
+		populationFile = File.createTempFile("population", ".txt");
+		PrintWriter pw = new PrintWriter(populationFile);
+		for (String gene : population)
+		{
+			pw.println(gene);
+			if (genes.size() < 100) genes.add(gene);
+		}
+		pw.close();
+
+		OntologizerCore.Arguments args = new OntologizerCore.Arguments();
+		args.goTermsOBOFile = "data/gene_ontology.1_2.obo.gz";
+		args.associationFile = "data/gene_association.sgd.gz";
+		args.populationFile = populationFile.getAbsolutePath();
+		args.calculationName = "Term-For-Term";
+
+		daemon = new OntologizerDaemon(args);
+		daemon.start(0, 2, 4);
+	}
+
+	@AfterClass
+	public static void tearDown()
+	{
+		daemon.stop();
+		populationFile.delete();
+	}
+
+	private static String read(InputStream is) throws IOException
+	{
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte [] buf = new byte[4096];
+		int read;
+		while ((read = is.read(buf)) > 0)
+			bos.write(buf, 0, read);
+		is.close();
+		return bos.toString("UTF-8");
+	}
+
+	/**
+	 * Sends the given request.
+	 *
+	 * @param path
+	 * @param body the body of a POST request or null for a GET request.
+	 * @param response receives the response.
+	 * @return the status code.
+	 * @throws IOException
+	 */
+	private static int request(String path, String body, StringBuilder response) throws IOException
+	{
+		URL url = new URL("http://localhost:" + daemon.getPort() + path);
+		HttpURLConnection con = (HttpURLConnection)url.openConnection();
+		if (body != null)
+		{
+			con.setRequestMethod("POST");
+			con.setDoOutput(true);
+			OutputStream os = con.getOutputStream();
+			os.write(body.getBytes("UTF-8"));
+			os.close();
+		}
+
+		int status = con.getResponseCode();
+		InputStream is = status < 400 ? con.getInputStream() : con.getErrorStream();
+		response.append(read(is));
+		return status;
+	}
+
+	private static String studyRequest(String extra)
+	{
+		StringBuilder str = new StringBuilder("{\"name\":\"test\",\"genes\":[");
+		for (int i=0;i<genes.size();i++)
+		{
+			if (i > 0) str.append(",");
+			str.append(JSON.quote(genes.get(i)));
+		}
+		str.append("]");
+		str.append(extra);
+		str.append("}");
+		return str.toString();
+	}
+
+	@Test
+	public void testStatus() throws Exception
+	{
+		StringBuilder response = new StringBuilder();
+		assertEquals(200, request("/status", null, response));
+		Map<?,?> status = (Map<?,?>)JSON.parse(response.toString());
+		assertTrue(((Double)status.get("terms")) > 1000);
+		assertTrue(((List<?>)status.get("mtcs")).contains("Bonferroni"));
+	}
+
+	@Test
+	public void testAnalyze() throws Exception
+	{
+		StringBuilder response = new StringBuilder();
+		assertEquals(200, request("/analyze", studyRequest(",\"mtc\":\"Bonferroni\""), response));
+
+		Map<?,?> result = (Map<?,?>)JSON.parse(response.toString());
+		assertEquals("test", result.get("name"));
+		assertEquals("Term-For-Term", result.get("calculation"));
+		assertEquals("Bonferroni", result.get("mtc"));
+		assertEquals(100.0, result.get("studyGenes"));
+
+		List<?> terms = (List<?>)result.get("terms");
+		assertTrue(terms.size() > 0);
+
+		/* Terms are sorted by their p-values */
+		double last = 0;
+		for (Object t : terms)
+		{
+			Map<?,?> term = (Map<?,?>)t;
+			assertTrue(((String)term.get("id")).startsWith("GO:"));
+			double p = (Double)term.get("p");
+			assertTrue(p >= last);
+			last = p;
+		}
+
+		response.setLength(0);
+		assertEquals(200, request("/analyze", studyRequest(",\"format\":\"table\""), response));
+		assertTrue(response.toString().startsWith("ID\t"));
+		assertEquals(terms.size() + 1, response.toString().split("\n").length);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPartitionBySubontology() throws Exception
+	{
+		OntologizerCore.Arguments args = new OntologizerCore.Arguments();
+		args.goTermsOBOFile = "data/gene_ontology.1_2.obo.gz";
+		args.associationFile = "data/gene_association.sgd.gz";
+		args.populationFile = populationFile.getAbsolutePath();
+		args.partitionBySubontology = true;
+		new OntologizerDaemon(args);
+	}
+
+	@Test
+	public void testInvalidRequests() throws Exception
+	{
+		StringBuilder response = new StringBuilder();
+		assertEquals(400, request("/analyze", "{\"genes\":", response));
+		assertTrue(((Map<?,?>)JSON.parse(response.toString())).containsKey("error"));
+
+		response.setLength(0);
+		assertEquals(400, request("/analyze", studyRequest(",\"calculation\":\"Unknown\""), response));
+
+		response.setLength(0);
+		assertEquals(405, request("/analyze", null, response));
+	}
+
+	@Test
+	public void testConcurrentRequests() throws Exception
+	{
+		final String [] responses = new String[4];
+		Thread [] threads = new Thread[responses.length];
+		for (int i=0;i<threads.length;i++)
+		{
+			final int idx = i;
+			threads[i] = new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						StringBuilder response = new StringBuilder();
+						if (request("/analyze", studyRequest(""), response) == 200)
+							responses[idx] = response.toString();
+					} catch (IOException e)
+					{
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread t : threads)
+			t.join();
+
+		for (String r : responses)
+			assertEquals(responses[0], r);
+		assertTrue(responses[0].contains("\"terms\":[{"));
+	}
+
+	@Test
+	public void testJSON() throws Exception
+	{
+		Map<?,?> map = (Map<?,?>)JSON.parse(" {\"a\" : [1, -2.5e1, true, null, \"x\\ty\\u0041\"], \"b\":{}} ");
+		List<?> a = (List<?>)map.get("a");
+		assertEquals(1.0, a.get(0));
+		assertEquals(-25.0, a.get(1));
+		assertEquals(Boolean.TRUE, a.get(2));
+		assertEquals(null, a.get(3));
+		assertEquals("x\tyA", a.get(4));
+		assertEquals("\"x\\ty\\\"\"", JSON.quote("x\ty\""));
+		assertEquals("3", JSON.number(3.0));
+		assertEquals("null", JSON.number(Double.NaN));
+	}
+}
@@ -8,6 +8,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 
@@ -398,4 +400,67 @@ public class OBOParserTest
 		assertEquals(1, terms.size());
 	}
 
+	@Test
+	public void testSelectedTags() throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(GOtermsOBOFile), 0, OBOParser.ESSENTIAL_TAGS);
+		oboParser.doParse();
+
+		int relations = 0;
+		for (Term t : oboParser.getTermMap())
+		{
+			relations += t.getParents().length;
+			assertTrue(t.getSynonyms() == null || t.getSynonyms().length == 0);
+			assertTrue(t.getSubsets() == null || t.getSubsets().length == 0);
+			assertNull(t.getDefinition());
+			assertTrue(t.getNamespace() != null);
+		}
+		assertEquals(nTermCount, oboParser.getTermMap().size());
+		assertEquals(nRelations, relations);
+	}
+
+	@Test
+	public void testHandler() throws IOException, OBOParserException
+	{
+		File tmp = tmpFolder.newFile();
+		PrintWriter pw = new PrintWriter(tmp);
+		pw.append("[term]\n" +
+		          "id: GO:0000001\n" +
+		          "name: first\n" +
+		          "synonym: \"syn\" EXACT []\n" +
+		          "def: \"Def\" []\n" +
+		          "\n" +
+		          "[typedef]\n" +
+		          "id: part_of\n" +
+		          "name: part of\n" +
+		          "\n" +
+		          "[term]\n" +
+		          "id: GO:0000002\n" +
+		          "name: second\n" +
+		          "is_a: GO:0000001\n");
+		pw.close();
+
+		final ArrayList<String> events = new ArrayList<String>();
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(tmp.getCanonicalPath()), 0, EnumSet.of(OBOParser.Tag.ID, OBOParser.Tag.IS_A));
+		oboParser.doParse(new IOBOParserHandler()
+		{
+			public void startTerm()
+			{
+				events.add("start");
+			}
+
+			public void tag(OBOParser.Tag tag, byte[] buf, int start, int len)
+			{
+				events.add(tag.getKeyword() + "=" + new String(buf, start, len));
+			}
+
+			public void endTerm()
+			{
+				events.add("end");
+			}
+		}, null);
+
+		assertEquals(Arrays.asList("start", "id=GO:0000001", "end", "start", "id=GO:0000002", "is_a=GO:0000001", "end"), events);
+		assertEquals(0, oboParser.getTermMap().size());
+	}
 }
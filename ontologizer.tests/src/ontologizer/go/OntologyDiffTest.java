@@ -0,0 +1,93 @@
+package ontologizer.go;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+public class OntologyDiffTest
+{
+	private static HashSet<Term> createTerms()
+	{
+		HashSet<Term> terms = new HashSet<Term>();
+		Term root = new Term("GO:0000001", "root");
+		terms.add(root);
+		terms.add(new Term("GO:0000002", "a", new ParentTermID(root.getID(), TermRelation.IS_A)));
+		terms.add(new Term("GO:0000003", "b", new ParentTermID(root.getID(), TermRelation.IS_A)));
+		return terms;
+	}
+
+	@Test
+	public void testEqual()
+	{
+		TermContainer oldTerms = new TermContainer(createTerms(), "", "");
+		TermContainer newTerms = new TermContainer(createTerms(), "", "");
+
+		OntologyDiff diff = OntologyDiff.create(oldTerms, newTerms);
+		assertTrue(diff.isEmpty());
+		assertFalse(diff.affectsAnnotations());
+	}
+
+	@Test
+	public void testAddedAndChanged()
+	{
+		TermContainer oldTerms = new TermContainer(createTerms(), "", "");
+
+		HashSet<Term> terms = createTerms();
+		terms.remove(new Term("GO:0000003", "b"));
+		terms.add(new Term("GO:0000003", "b", new ParentTermID(new TermID("GO:0000002"), TermRelation.PART_OF_A)));
+		terms.add(new Term("GO:0000004", "c", new ParentTermID(new TermID("GO:0000002"), TermRelation.IS_A)));
+		TermContainer newTerms = new TermContainer(terms, "", "");
+
+		OntologyDiff diff = OntologyDiff.create(oldTerms, newTerms);
+		assertFalse(diff.isEmpty());
+		assertEquals(1, diff.getAddedTerms().size());
+		assertTrue(diff.getAddedTerms().contains(new TermID("GO:0000004")));
+		assertEquals(1, diff.getChangedTerms().size());
+		assertTrue(diff.getChangedTerms().contains(new TermID("GO:0000003")));
+		assertEquals(0, diff.getRemovedTerms().size());
+		assertFalse(diff.affectsAnnotations());
+	}
+
+	@Test
+	public void testRemovedAndObsolete()
+	{
+		TermContainer oldTerms = new TermContainer(createTerms(), "", "");
+
+		HashSet<Term> terms = createTerms();
+		terms.remove(new Term("GO:0000003", "b"));
+		TermContainer newTerms = new TermContainer(terms, "", "");
+
+		OntologyDiff diff = OntologyDiff.create(oldTerms, newTerms);
+		assertEquals(1, diff.getRemovedTerms().size());
+		assertTrue(diff.affectsAnnotations());
+
+		terms = createTerms();
+		terms.remove(new Term("GO:0000003", "b"));
+		Term obsolete = new Term("GO:0000003", "b", new ParentTermID(new TermID("GO:0000001"), TermRelation.IS_A));
+		obsolete.setObsolete(true);
+		terms.add(obsolete);
+		newTerms = new TermContainer(terms, "", "");
+
+		diff = OntologyDiff.create(oldTerms, newTerms);
+		assertEquals(1, diff.getChangedTerms().size());
+		assertTrue(diff.affectsAnnotations());
+
+		terms = createTerms();
+		Term withAlternative = new Term("GO:0000002", "a", new ParentTermID(new TermID("GO:0000001"), TermRelation.IS_A));
+		ArrayList<TermID> alternatives = new ArrayList<TermID>();
+		alternatives.add(new TermID("GO:0000005"));
+		withAlternative.setAlternatives(alternatives);
+		terms.remove(withAlternative);
+		terms.add(withAlternative);
+		newTerms = new TermContainer(terms, "", "");
+
+		diff = OntologyDiff.create(oldTerms, newTerms);
+		assertEquals(1, diff.getChangedTerms().size());
+		assertTrue(diff.affectsAnnotations());
+	}
+}
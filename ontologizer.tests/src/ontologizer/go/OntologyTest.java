@@ -16,6 +16,8 @@ import org.junit.Test;
 import ontologizer.go.Ontology.GOLevels;
 import ontologizer.go.Ontology.IVisitingGOVertex;
 import ontologizer.internal.InternalOntology;
+import sonumina.math.graph.CSRDirectedGraph;
+import sonumina.math.graph.SlimDirectedGraphView;
 
 public class OntologyTest
 {
@@ -184,6 +186,54 @@ public class OntologyTest
 			assertEquals(nn, t.getNamespace().getName());
 	}
 
+	@Test
+	public void testRelevantTerms()
+	{
+		graph.setRelevantSubontology("molecular_function");
+		TermID mf = graph.getRelevantSubontology();
+
+		for (Term t : graph)
+		{
+			boolean expected = t.getID().equals(mf) || graph.existsPath(mf, t.getID());
+			assertEquals(expected, graph.isRelevantTermID(t.getID()));
+			assertEquals(expected, graph.isRelevantTerm(t));
+		}
+
+		graph.setRelevantSubontology("biological_process");
+		assertFalse(graph.isRelevantTermID(mf));
+	}
+
+	@Test
+	public void testSubontologies()
+	{
+		assertEquals(3, graph.getSubontologies().size());
+
+		Ontology biologicalProcess = null;
+		for (Ontology subontology : graph.getSubontologies())
+		{
+			String name = subontology.getRootTerm().getName();
+			assertTrue(name, Arrays.asList("biological_process", "molecular_function", "cellular_component").contains(name));
+			assertEquals(subontology, graph.getSubontology(subontology.getRootTerm().getID()));
+			assertEquals(graph.getTermRegistry(), subontology.getTermRegistry());
+			if (name.equals("biological_process"))
+				biologicalProcess = subontology;
+		}
+
+		assertEquals(21763, biologicalProcess.getNumberOfTerms());
+		String nn = biologicalProcess.getRootTerm().getNamespace().getName();
+		for (Term t : biologicalProcess)
+		{
+			assertEquals(nn, t.getNamespace().getName());
+			assertTrue(biologicalProcess.isRelevantTerm(t));
+		}
+
+		/* Terms of other subontologies are known but not relevant */
+		TermID mf = graph.getTerm("GO:0003674").getID();
+		assertTrue(biologicalProcess.getTermOrdinal(mf) >= 0);
+		assertFalse(biologicalProcess.isRelevantTermID(mf));
+		assertEquals(0, biologicalProcess.getGraphIndex().getNumberOfDescendants(biologicalProcess.getTermOrdinal(mf)));
+	}
+
 	private static Set<String> subsetNames(Collection<Subset> subsets)
 	{
 		HashSet<String> names = new HashSet<String>();
@@ -296,4 +346,43 @@ public class OntologyTest
 		assertEquals(5, levels.getTermLevel(new TermID("GO:0000010")));
 		assertEquals(5, levels.getTermLevel(new TermID("GO:0000011")));
 	}
+
+	@Test
+	public void testGraphIndex()
+	{
+		CSRDirectedGraph index = graph.getGraphIndex();
+		assertTrue(index == graph.getGraphIndex());
+
+		for (String id : new String[]{"GO:0008152", "GO:0034641", "GO:0006281", "GO:0000000"})
+		{
+			TermID tid = new TermID(id);
+			int ordinal = graph.getTermOrdinal(tid);
+
+			Set<TermID> ancestors = new HashSet<TermID>();
+			for (int i=0;i<index.getNumberOfAncestors(ordinal);i++)
+				ancestors.add(graph.getTermRegistry().get(index.getAncestor(ordinal, i)).getID());
+			assertEquals(graph.getTermsOfInducedGraph(null, tid), ancestors);
+
+			assertEquals(graph.getTermChildren(tid).size(), index.getNumberOfChildren(ordinal));
+			assertEquals(graph.getTermParents(tid).size(), index.getNumberOfParents(ordinal));
+		}
+
+		SlimDirectedGraphView<Term> slim = graph.getSlimGraphView();
+		assertTrue(slim == graph.getSlimGraphView());
+
+		Term root = graph.getRootTerm();
+		assertEquals(slim.getNumberOfDescendants(slim.getVertexIndex(root)), index.getNumberOfDescendants(graph.getTermOrdinal(root.getID())));
+		assertEquals(graph.getNumberOfTerms(), slim.getNumberOfVertices());
+
+		/* The view is based on the graph index */
+		for (String id : new String[]{"GO:0008152", "GO:0034641", "GO:0006281"})
+		{
+			Term t = graph.getTerm(id);
+			Set<TermID> ancestors = new HashSet<TermID>();
+			for (Term a : slim.getAncestors(t))
+				ancestors.add(a.getID());
+			assertEquals(graph.getTermsOfInducedGraph(null, t.getID()), ancestors);
+			assertTrue(slim.isDescendant(slim.getVertexIndex(t), slim.getVertexIndex(root)));
+		}
+	}
 }
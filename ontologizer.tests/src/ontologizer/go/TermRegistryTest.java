@@ -0,0 +1,92 @@
+package ontologizer.go;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import ontologizer.internal.InternalOntology;
+
+public class TermRegistryTest
+{
+	@Test
+	public void testLookups()
+	{
+		List<Term> terms = new ArrayList<Term>();
+		for (int i=1;i<=1000;i++)
+			terms.add(new Term(new TermID(new Prefix("GO"), i * 17), "T" + i));
+		terms.add(new Term(new TermID(new Prefix("HP"), 17), "HP17"));
+
+		TermRegistry registry = TermRegistry.create(terms);
+		assertEquals(1001, registry.size());
+
+		for (int i=0;i<terms.size();i++)
+		{
+			Term t = terms.get(i);
+			assertEquals(i, registry.getOrdinal(t.getID()));
+			assertSame(t, registry.get(i));
+			assertSame(t, registry.get(new TermID(t.getIDAsString())));
+		}
+
+		assertEquals("T1", registry.get(new Prefix("GO"), 17).getName());
+		assertEquals("HP17", registry.get(new Prefix("HP"), 17).getName());
+		assertNull(registry.get(new TermID("GO:0000018")));
+		assertEquals(-1, registry.getOrdinal(new TermID("MP:0000017")));
+		assertFalse(registry.contains(new TermID("GO:0000001")));
+	}
+
+	@Test
+	public void testDuplicatesKeepOrdinal()
+	{
+		List<Term> terms = new ArrayList<Term>();
+		terms.add(new Term("GO:0000001", "first"));
+		terms.add(new Term("GO:0000002", "second"));
+		terms.add(new Term("GO:0000001", "replaced"));
+
+		TermRegistry registry = TermRegistry.create(terms);
+		assertEquals(2, registry.size());
+		assertEquals(0, registry.getOrdinal(new TermID("GO:0000001")));
+		assertEquals("replaced", registry.get(0).getName());
+	}
+
+	@Test
+	public void testOntologyRegistry()
+	{
+		InternalOntology internal = new InternalOntology();
+		Ontology ontology = internal.graph;
+		TermRegistry registry = ontology.getTermRegistry();
+
+		/* The internal ontology has a single root, so the root is among the container's terms */
+		assertEquals(11, registry.size());
+
+		HashSet<Integer> ordinals = new HashSet<Integer>();
+		for (Term t : ontology)
+		{
+			int ordinal = ontology.getTermOrdinal(t.getID());
+			assertTrue(ordinal >= 0 && ordinal < registry.size());
+			assertSame(t, registry.get(ordinal));
+			ordinals.add(ordinal);
+		}
+		assertEquals(11, ordinals.size());
+		assertTrue(ontology.termExists(new TermID("GO:0000011")));
+		assertFalse(ontology.termExists(new TermID("GO:0000012")));
+	}
+
+	@Test
+	public void testStringIDs()
+	{
+		TermID a = new TermID("UPHENO:abc");
+		TermID b = new TermID("UPHENO:abc");
+		TermID c = new TermID("UPHENO:abd");
+
+		assertEquals(a, b);
+		assertFalse(a.equals(c));
+	}
+}
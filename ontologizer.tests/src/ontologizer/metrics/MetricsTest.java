@@ -0,0 +1,142 @@
+package ontologizer.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ontologizer.calculation.CalculationMetrics;
+import ontologizer.calculation.SingleCalculationSetting;
+import ontologizer.calculation.TermForTermCalculation;
+import ontologizer.go.TermID;
+import ontologizer.internal.InternalOntology;
+import ontologizer.statistics.Bonferroni;
+
+public class MetricsTest
+{
+	@Test
+	public void testCounter()
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+		Counter counter = registry.counter("test_total", "Test");
+		counter.inc();
+		counter.add(41);
+		assertEquals(42, counter.get());
+		assertSame(counter, registry.counter("test_total", "Test"));
+
+		Counter labeled = registry.counter("test_total", "Test", "kind", "a");
+		assertTrue(labeled != counter);
+		assertEquals(0, labeled.get());
+		assertEquals("test_total{kind=\"a\"}", labeled.getKey());
+
+		registry.reset();
+		assertEquals(0, counter.get());
+	}
+
+	@Test
+	public void testHistogram()
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+		Histogram histogram = registry.histogram("test", "Test", new double[]{1, 10});
+		histogram.observe(0.5);
+		histogram.observe(1);
+		histogram.observe(5);
+		histogram.observe(100);
+		assertEquals(4, histogram.getCount());
+		assertEquals(106.5, histogram.getSum(), 1e-10);
+		assertEquals(106.5 / 4, histogram.getMean(), 1e-10);
+		assertArrayEquals(new long[]{2, 1, 1}, histogram.getBucketCounts());
+	}
+
+	@Test
+	public void testTimer()
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+		Timer timer = registry.timer("test_seconds", "Test");
+		timer.record(500000000);
+		timer.record(1500000000);
+		assertEquals(2, timer.getCount());
+		assertEquals(2.0, timer.getSum(), 1e-10);
+
+		long start = System.nanoTime();
+		assertTrue(timer.recordSince(start) >= start);
+		assertEquals(3, timer.getCount());
+	}
+
+	@Test
+	public void testTypeConflict()
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("test", "Test");
+		try
+		{
+			registry.timer("test", "Test");
+			fail();
+		} catch (IllegalArgumentException e)
+		{
+		}
+	}
+
+	@Test
+	public void testPrometheus() throws IOException
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("test_total", "Test counter", "cache", "a").add(3);
+		registry.histogram("test", "Test histogram", new double[]{1}).observe(2);
+
+		StringWriter out = new StringWriter();
+		PrometheusMetricsExporter.write(out, registry);
+		assertEquals(
+			"# HELP test Test histogram\n" +
+			"# TYPE test histogram\n" +
+			"test_bucket{le=\"1.0\"} 0\n" +
+			"test_bucket{le=\"+Inf\"} 1\n" +
+			"test_sum 2.0\n" +
+			"test_count 1\n" +
+			"# HELP test_total Test counter\n" +
+			"# TYPE test_total counter\n" +
+			"test_total{cache=\"a\"} 3\n", out.toString());
+	}
+
+	@Test
+	public void testJSON() throws IOException
+	{
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.counter("test_total", "Test \"counter\"", "cache", "a").add(3);
+		registry.timer("test_seconds", "Test timer").record(2000000000);
+
+		StringWriter out = new StringWriter();
+		JSONMetricsExporter.write(out, registry);
+		String json = out.toString();
+		assertTrue(json.startsWith("{\"metrics\":["));
+		assertTrue(json.contains("{\"name\":\"test_total\",\"help\":\"Test \\\"counter\\\"\",\"labels\":{\"cache\":\"a\"},\"type\":\"counter\",\"value\":3}"));
+		assertTrue(json.contains("\"type\":\"timer\",\"count\":1,\"sum\":2.0,\"mean\":2.0"));
+	}
+
+	@Test
+	public void testCalculation()
+	{
+		InternalOntology internalOntology = new InternalOntology();
+		HashMap<TermID,Double> wantedActiveTerms = new HashMap<TermID,Double>();
+		wantedActiveTerms.put(new TermID("GO:0000004"),0.0);
+		SingleCalculationSetting scs = SingleCalculationSetting.create(new Random(1), wantedActiveTerms, 0.00, internalOntology.graph, internalOntology.assoc);
+
+		TermForTermCalculation tft = new TermForTermCalculation();
+		Timer calculationTimer = Metrics.timer("ontologizer_calculation_seconds", "Time spent for calculations", "calculation", tft.getName());
+		Timer mtcTimer = Metrics.timer("ontologizer_mtc_seconds", "Time spent for multiple test correction including the calculation of the p values", "mtc", new Bonferroni().getName());
+		long calculations = calculationTimer.getCount();
+		long mtcs = mtcTimer.getCount();
+
+		CalculationMetrics.calculateStudySet(tft, internalOntology.graph, internalOntology.assoc, scs.pop, scs.study, new Bonferroni());
+		assertEquals(calculations + 1, calculationTimer.getCount());
+		assertEquals(mtcs + 1, mtcTimer.getCount());
+	}
+}
@@ -0,0 +1,114 @@
+package ontologizer.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ontologizer.calculation.CalculationMetrics;
+import ontologizer.calculation.EnrichedGOTermsResult;
+import ontologizer.calculation.SingleCalculationSetting;
+import ontologizer.calculation.TermForTermCalculation;
+import ontologizer.go.TermID;
+import ontologizer.internal.InternalOntology;
+import ontologizer.statistics.Bonferroni;
+
+public class PhaseTimelineTest
+{
+	@Test
+	public void testPhases()
+	{
+		PhaseTimeline timeline = new PhaseTimeline();
+		PhaseTimeline previous = PhaseTimeline.attach(timeline);
+		try
+		{
+			assertSame(timeline, PhaseTimeline.current());
+
+			PhaseTimeline.Phase outer = PhaseTimeline.begin("outer");
+			for (int i=0;i<3;i++)
+			{
+				PhaseTimeline.Phase inner = PhaseTimeline.begin("inner");
+				inner.end();
+			}
+			outer.end();
+			PhaseTimeline.begin("after").end();
+		} finally
+		{
+			PhaseTimeline.attach(previous);
+		}
+
+		List<PhaseTimeline.Phase> phases = timeline.getPhases();
+		assertEquals(3, phases.size());
+		assertEquals("outer", phases.get(0).getName());
+		assertEquals(0, phases.get(0).getLevel());
+		assertEquals("inner", phases.get(1).getName());
+		assertEquals(1, phases.get(1).getLevel());
+		assertEquals(3, phases.get(1).getCount());
+		assertEquals("after", phases.get(2).getName());
+		assertEquals(0, phases.get(2).getLevel());
+		assertTrue(phases.get(0).getDurationNanos() >= phases.get(1).getDurationNanos());
+		if (PhaseTimeline.isAllocationSupported())
+			assertTrue(phases.get(0).getAllocatedBytes() >= 0);
+		else
+			assertEquals(-1, phases.get(0).getAllocatedBytes());
+	}
+
+	@Test
+	public void testWithoutTimeline()
+	{
+		assertNull(PhaseTimeline.current());
+		PhaseTimeline.begin("ignored").end();
+		assertNull(PhaseTimeline.current());
+	}
+
+	@Test
+	public void testJSON() throws IOException
+	{
+		PhaseTimeline timeline = new PhaseTimeline();
+		PhaseTimeline previous = PhaseTimeline.attach(timeline);
+		PhaseTimeline.begin("a \"phase\"").end();
+		PhaseTimeline.attach(previous);
+
+		StringWriter out = new StringWriter();
+		timeline.writeJSON(out);
+		String json = out.toString();
+		assertTrue(json.startsWith("{\"allocationSupported\":"));
+		assertTrue(json.contains("{\"name\":\"a \\\"phase\\\"\",\"level\":0,\"start\":0.0,\"duration\":"));
+	}
+
+	@Test
+	public void testCalculation()
+	{
+		InternalOntology internalOntology = new InternalOntology();
+		HashMap<TermID,Double> wantedActiveTerms = new HashMap<TermID,Double>();
+		wantedActiveTerms.put(new TermID("GO:0000004"),0.0);
+		SingleCalculationSetting scs = SingleCalculationSetting.create(new Random(1), wantedActiveTerms, 0.00, internalOntology.graph, internalOntology.assoc);
+
+		EnrichedGOTermsResult result = CalculationMetrics.calculateStudySet(new TermForTermCalculation(), internalOntology.graph, internalOntology.assoc, scs.pop, scs.study, new Bonferroni());
+		assertNull(PhaseTimeline.current());
+
+		PhaseTimeline timeline = result.getTimeline();
+		assertNotNull(timeline);
+
+		List<PhaseTimeline.Phase> phases = timeline.getPhases();
+		assertEquals("calculation", phases.get(0).getName());
+		assertEquals(0, phases.get(0).getLevel());
+
+		HashMap<String,PhaseTimeline.Phase> byName = new HashMap<String,PhaseTimeline.Phase>();
+		for (PhaseTimeline.Phase phase : phases)
+			byName.put(phase.getName(), phase);
+		assertTrue(byName.containsKey("study enumeration"));
+		assertTrue(byName.containsKey("multiple test correction"));
+		assertEquals(1, byName.get("raw p-values").getCount());
+		assertTrue(byName.get("raw p-values").getLevel() > byName.get("multiple test correction").getLevel());
+	}
+}
@@ -1,11 +1,17 @@
 package ontologizer.statistics.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Random;
+
 import org.junit.Test;
 
+import ontologizer.metrics.Counter;
+import ontologizer.metrics.Metrics;
 import ontologizer.statistics.Hypergeometric;
+import ontologizer.statistics.HypergeometricCache;
 
 public class HypergeometricTest
 {
@@ -40,4 +46,146 @@ public class HypergeometricTest
 		// drawing more white than available in total
 		assertTrue(hyper.phyper(10,8,5,12,false) == 0);
 	}
+
+	@Test
+	public void testMemoizedPhypergeometric()
+	{
+		Hypergeometric uncached = new Hypergeometric(null);
+		HypergeometricCache cache = new HypergeometricCache("test", 16);
+		Hypergeometric cached = new Hypergeometric(cache);
+
+		Random rnd = new Random(1);
+		for (int i=0;i<2000;i++)
+		{
+			int n = 100 + rnd.nextInt(1000);
+			int np = 1 + rnd.nextInt(n / 4);
+			int k = 1 + rnd.nextInt(n / 4);
+			int r = rnd.nextInt(Math.min(np, k) + 1);
+			double p = (double)np / n;
+
+			/* Evaluate twice, the second evaluation may be a hit */
+			assertEquals(uncached.phypergeometric(n, p, k, r), cached.phypergeometric(n, p, k, r), 0);
+			assertEquals(uncached.phypergeometric(n, p, k, r), cached.phypergeometric(n, p, k, r), 0);
+		}
+		assertTrue(cache.getHits() > 0);
+		assertTrue(cache.getMisses() > 0);
+
+		long hits = cache.getHits();
+		cached.phypergeometric(1000, 0.1, 50, 8);
+		cached.phypergeometric(1000, 0.1, 50, 8);
+		assertEquals(hits + 1, cache.getHits());
+
+		cache.clear();
+		cached.phypergeometric(1000, 0.1, 50, 8);
+		assertEquals(hits + 1, cache.getHits());
+	}
+
+	@Test
+	public void testHypergeometricCacheStatistics() throws InterruptedException
+	{
+		final HypergeometricCache cache = new HypergeometricCache("statistics", 16);
+		HypergeometricCache other = new HypergeometricCache("statistics", 16);
+		Counter exportedHits = Metrics.cacheHits("statistics");
+
+		long key = HypergeometricCache.key(1000, 100, 50, 8);
+		cache.put(key, 0.5);
+		assertEquals(0.5, cache.get(key), 0);
+		assertTrue(Double.isNaN(other.get(key)));
+
+		/* Caches of the same name and resets of the registry don't interfere */
+		assertEquals(1, cache.getHits());
+		assertEquals(0, cache.getMisses());
+		assertEquals(0, other.getHits());
+		assertEquals(1, other.getMisses());
+		Metrics.getRegistry().reset();
+		assertEquals(1, cache.getHits());
+
+		/* The lookups of other threads are available once flushed */
+		Thread thread = new Thread()
+		{
+			@Override
+			public void run()
+			{
+				for (int i=0;i<10;i++)
+					cache.get(HypergeometricCache.key(1000, 100, 50, 8));
+				cache.flush();
+			}
+		};
+		thread.start();
+		thread.join();
+		assertEquals(11, cache.getHits());
+
+		cache.flush();
+		assertEquals(11, exportedHits.get());
+	}
+
+	@Test
+	public void testHypergeometricCacheKey()
+	{
+		assertTrue(HypergeometricCache.key(1000, 100, 50, 8) != HypergeometricCache.key(1000, 100, 8, 50));
+		assertTrue(HypergeometricCache.key(HypergeometricCache.MAX_COUNT, 1, 1, 1) != HypergeometricCache.key(HypergeometricCache.MAX_COUNT, 1, 1, 2));
+		assertTrue(HypergeometricCache.isPackable(HypergeometricCache.MAX_COUNT, 1, 1, 1));
+		assertFalse(HypergeometricCache.isPackable(HypergeometricCache.MAX_COUNT + 1, 1, 1, 1));
+		assertFalse(HypergeometricCache.isPackable(1000, -1, 1, 1));
+
+		/* Large populations are not cached but still evaluated */
+		Hypergeometric cached = new Hypergeometric(new HypergeometricCache("test", 16));
+		Hypergeometric uncached = new Hypergeometric(null);
+		assertEquals(uncached.phypergeometric(100000, 0.01, 500, 10), cached.phypergeometric(100000, 0.01, 500, 10), 0);
+	}
+
+	@Test
+	public void testPhypergeometricTails()
+	{
+		Hypergeometric uncached = new Hypergeometric(null);
+		Random rnd = new Random(2);
+		for (int i=0;i<500;i++)
+		{
+			int n = 50 + rnd.nextInt(3000);
+			int np = 1 + rnd.nextInt(n / 2);
+			int k = 1 + rnd.nextInt(n / 2);
+			int lo = Math.max(0, k - (n - np));
+			int hi = Math.min(k, np);
+			int r = Math.max(1, lo + rnd.nextInt(hi - lo + 1));
+
+			/* P(X >= r) = P(X > r - 1) */
+			double expected = hyper.phyper(r - 1, n, np, k, false);
+			double p = uncached.phypergeometric(n, (double)np / n, k, r);
+			assertEquals(expected, p, Math.max(1e-10, expected * 1e-7));
+		}
+
+		/* Outside of the support */
+		assertEquals(0.0, uncached.phypergeometric(1000, 0.01, 100, 11), 0);
+		assertEquals(1.0, uncached.phypergeometric(1000, 0.95, 100, 50), 0);
+	}
+
+	@Test
+	public void testApproximatePhypergeometric()
+	{
+		Hypergeometric exact = new Hypergeometric(null);
+		Hypergeometric approximate = new Hypergeometric(null);
+		approximate.setApproximate(true);
+
+		Random rnd = new Random(3);
+		int approximated = 0;
+		for (int i=0;i<2000;i++)
+		{
+			int n = 5000 + rnd.nextInt(50000);
+			int np = 1 + rnd.nextInt(n / 2);
+			int k = 1 + rnd.nextInt(n / 2);
+			double mean = (double)k * np / n;
+			int r = Math.max(1, (int)(mean + (rnd.nextDouble() - 0.5) * 200));
+			r = Math.min(r, Math.min(k, np));
+
+			double p = exact.phypergeometric(n, (double)np / n, k, r);
+			double q = approximate.phypergeometric(n, (double)np / n, k, r);
+			assertEquals(p, q, 0.01);
+			if (p != q) approximated++;
+
+			/* Small p values are always exact */
+			if (p < 0.05)
+				assertEquals(p, q, 0);
+		}
+		assertTrue(approximated > 0);
+	}
 }
@@ -0,0 +1,36 @@
+package ontologizer.types.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import ontologizer.types.ByteString;
+import ontologizer.types.ByteStringSet;
+
+public class ByteStringSetTest
+{
+	@Test
+	public void testContains()
+	{
+		ArrayList<ByteString> strings = new ArrayList<ByteString>();
+		for (int i=0;i<1000;i++)
+			strings.add(new ByteString("gene" + i));
+		strings.add(new ByteString("gene0"));
+
+		ByteStringSet set = new ByteStringSet(strings);
+		assertEquals(1000, set.size());
+
+		byte [] buf = "xxgene999\tgene1000\tgene12|gene7".getBytes();
+		assertTrue(set.contains(buf, 2, 7));
+		assertFalse(set.contains(buf, 10, 8));
+		assertTrue(set.contains(buf, 19, 6));
+		assertTrue(set.contains(buf, 26, 5));
+		assertFalse(set.contains(buf, 26, 4));
+		assertTrue(set.contains(new ByteString("gene500")));
+		assertFalse(set.contains(new ByteString("")));
+	}
+}
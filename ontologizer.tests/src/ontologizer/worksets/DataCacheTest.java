@@ -0,0 +1,160 @@
+package ontologizer.worksets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class DataCacheTest
+{
+	/**
+	 * A loader that counts its invocations.
+	 */
+	private static class CountingLoader implements DataCache.Loader<Object>
+	{
+		private AtomicInteger loads = new AtomicInteger();
+		private long weight;
+		private CountDownLatch latch;
+
+		public CountingLoader(long weight)
+		{
+			this.weight = weight;
+		}
+
+		public Object load() throws Exception
+		{
+			loads.incrementAndGet();
+			if (latch != null)
+				latch.await();
+			return new Object();
+		}
+
+		public long weigh(Object value)
+		{
+			return weight;
+		}
+	}
+
+	@Test
+	public void testLoadOnce() throws Exception
+	{
+		final DataCache cache = new DataCache(1000);
+		final CountingLoader loader = new CountingLoader(10);
+		loader.latch = new CountDownLatch(1);
+
+		final Object [] values = new Object[4];
+		Thread [] threads = new Thread[values.length];
+		for (int i=0;i<threads.length;i++)
+		{
+			final int idx = i;
+			threads[i] = new Thread()
+			{
+				public void run()
+				{
+					try
+					{
+						values[idx] = cache.get("key", loader);
+					} catch (Exception e)
+					{
+					}
+				}
+			};
+			threads[i].start();
+		}
+
+		/* The value is not available while it is loaded */
+		assertNull(cache.getIfPresent("key"));
+		loader.latch.countDown();
+		for (Thread t : threads)
+			t.join();
+
+		assertEquals(1, loader.loads.get());
+		for (Object v : values)
+			assertSame(values[0], v);
+		assertSame(values[0], cache.getIfPresent("key"));
+		assertEquals(10, cache.getWeight());
+	}
+
+	@Test
+	public void testFailedLoad() throws Exception
+	{
+		DataCache cache = new DataCache(1000);
+		try
+		{
+			cache.get("key", new DataCache.Loader<Object>()
+			{
+				public Object load() throws Exception
+				{
+					throw new IllegalStateException();
+				}
+
+				public long weigh(Object value)
+				{
+					return 0;
+				}
+			});
+			assertTrue("Load should have failed", false);
+		} catch (ExecutionException e)
+		{
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		/* A failed load is not cached */
+		CountingLoader loader = new CountingLoader(10);
+		cache.get("key", loader);
+		assertEquals(1, loader.loads.get());
+	}
+
+	@Test
+	public void testWeight() throws Exception
+	{
+		DataCache cache = new DataCache(25);
+		CountingLoader loader = new CountingLoader(10);
+
+		cache.get("a", loader);
+		cache.get("b", loader);
+		Object pin = cache.pin("a");
+		cache.get("c", loader);
+
+		/* The least recently used value that is not pinned is demoted */
+		assertEquals(20, cache.getWeight());
+
+		cache.release();
+		assertEquals(10, cache.getWeight());
+
+		cache.unpin(pin);
+		cache.release();
+		assertEquals(0, cache.getWeight());
+
+		/* Demoted values are still available, unless they have been reclaimed */
+		Object c = cache.getIfPresent("c");
+		if (c != null)
+			assertEquals(10, cache.getWeight());
+	}
+
+	@Test
+	public void testReplace() throws Exception
+	{
+		DataCache cache = new DataCache(1000);
+		cache.get("a", new CountingLoader(10));
+		Object pin = cache.pin("a");
+
+		Object value = new Object();
+		cache.replace("a", "b", value, 20);
+		assertNull(cache.getIfPresent("a"));
+		assertSame(value, cache.getIfPresent("b"));
+		assertEquals(20, cache.getWeight());
+
+		/* The pin has been taken over */
+		cache.setMaximumWeight(0);
+		assertEquals(20, cache.getWeight());
+		cache.unpin(pin);
+		assertEquals(0, cache.getWeight());
+	}
+}
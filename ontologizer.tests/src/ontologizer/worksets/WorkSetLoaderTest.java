@@ -0,0 +1,209 @@
+package ontologizer.worksets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import ontologizer.association.AssociationContainer;
+import ontologizer.go.Ontology;
+import ontologizer.go.OntologyDiff;
+import ontologizer.go.TermID;
+import ontologizer.types.ByteString;
+
+import org.junit.Test;
+
+public class WorkSetLoaderTest
+{
+	private static final String OBO_FILE = "data/gene_ontology.1_2.obo.gz";
+	private static final String ASSOCIATION_FILE = "data/gene_association.sgd.gz";
+
+	private static WorkSet createWorkSet(String name, String obo, String assoc)
+	{
+		WorkSet ws = new WorkSet(name);
+		ws.setOboPath(obo);
+		ws.setAssociationPath(assoc);
+		return ws;
+	}
+
+	private static void obtain(WorkSet [] workSets) throws InterruptedException
+	{
+		final CountDownLatch latch = new CountDownLatch(workSets.length);
+		for (WorkSet ws : workSets)
+		{
+			WorkSetLoader.obtainDatafiles(ws, new Runnable()
+			{
+				public void run()
+				{
+					latch.countDown();
+				}
+			});
+		}
+		latch.await(5, TimeUnit.MINUTES);
+		assertEquals(0, latch.getCount());
+	}
+
+	@Test
+	public void testSharedOntology() throws Exception
+	{
+		/* A copy of the associations, so the work sets refer to different files */
+		File copy = File.createTempFile("gene_association", ".gz");
+		copy.deleteOnExit();
+		InputStream is = new FileInputStream(ASSOCIATION_FILE);
+		OutputStream os = new FileOutputStream(copy);
+		byte [] buf = new byte[8192];
+		int read;
+		while ((read = is.read(buf)) > 0)
+			os.write(buf, 0, read);
+		os.close();
+		is.close();
+
+		WorkSet [] workSets = new WorkSet[]{
+				createWorkSet("First", OBO_FILE, ASSOCIATION_FILE),
+				createWorkSet("Second", OBO_FILE, copy.getAbsolutePath()),
+				createWorkSet("Third", OBO_FILE, ASSOCIATION_FILE)
+		};
+		obtain(workSets);
+
+		/* The ontology has been parsed once */
+		Ontology graph = WorkSetLoader.getGraph(OBO_FILE);
+		assertNotNull(graph);
+
+		AssociationContainer first = WorkSetLoader.getAssociations(ASSOCIATION_FILE);
+		AssociationContainer second = WorkSetLoader.getAssociations(copy.getAbsolutePath());
+		assertNotNull(first);
+		assertNotNull(second);
+		assertNotSame(first, second);
+		assertEquals(first.getAllAnnotatedGenes(), second.getAllAnnotatedGenes());
+
+		/* Obtained data is kept even if the cache is cleaned */
+		WorkSetLoader.cleanCache();
+		assertSame(graph, WorkSetLoader.getGraph(OBO_FILE));
+		assertSame(first, WorkSetLoader.getAssociations(ASSOCIATION_FILE));
+
+		for (WorkSet ws : workSets)
+			WorkSetLoader.releaseDatafiles(ws);
+	}
+
+	/**
+	 * Writes the given contents to the given file, such that the file
+	 * is recognized as modified.
+	 */
+	private static void write(File file, String contents) throws Exception
+	{
+		long lastModified = file.lastModified();
+		PrintWriter pw = new PrintWriter(file);
+		pw.print(contents);
+		pw.close();
+		file.setLastModified(lastModified + 2000);
+	}
+
+	private static String term(String id, String name, String parent)
+	{
+		return "[Term]\nid: " + id + "\nname: " + name + "\nnamespace: biological_process\n" + (parent != null ? "is_a: " + parent + "\n" : "") + "\n";
+	}
+
+	private static String association(String symbol, String id)
+	{
+		return "DB\t" + symbol + "ID\t" + symbol + "\t\t" + id + "\tPMID:00000\tEVIDENCE\t\tP\t\tgene\ttaxon:4932\t20121212\tSBA\n";
+	}
+
+	@Test
+	public void testRefresh() throws Exception
+	{
+		File obo = File.createTempFile("ontology", ".obo");
+		File gaf = File.createTempFile("gene_association", ".gaf");
+		obo.deleteOnExit();
+		gaf.deleteOnExit();
+
+		String root = term("GO:0000001", "root", null);
+		write(obo, root + term("GO:0000002", "a", "GO:0000001") + term("GO:0000003", "b", "GO:0000001"));
+		write(gaf, association("SYMBOL1", "GO:0000002") + association("SYMBOL2", "GO:0000003"));
+
+		WorkSet ws = createWorkSet("Refresh", obo.getAbsolutePath(), gaf.getAbsolutePath());
+		obtain(new WorkSet[]{ws});
+
+		final List<OntologyDiff> diffs = new ArrayList<OntologyDiff>();
+		final List<Set<ByteString>> changedGenes = new ArrayList<Set<ByteString>>();
+		IWorkSetUpdateListener listener = new IWorkSetUpdateListener()
+		{
+			public void ontologyUpdated(String oboPath, Ontology ontology, OntologyDiff diff)
+			{
+				diffs.add(diff);
+			}
+
+			public void associationsUpdated(String associationPath, AssociationContainer associations, Set<ByteString> changed)
+			{
+				changedGenes.add(changed);
+			}
+		};
+		WorkSetLoader.addUpdateListener(listener);
+
+		try
+		{
+			Ontology graph = WorkSetLoader.getGraph(obo.getAbsolutePath());
+			AssociationContainer associations = WorkSetLoader.getAssociations(gaf.getAbsolutePath());
+			assertNotNull(graph);
+			assertNotNull(associations);
+
+			/* Nothing has changed, the data is kept */
+			write(gaf, association("SYMBOL1", "GO:0000002") + association("SYMBOL2", "GO:0000003"));
+			WorkSetLoader.refreshFile(gaf.getAbsolutePath());
+			assertSame(associations, WorkSetLoader.getAssociations(gaf.getAbsolutePath()));
+			assertTrue(changedGenes.isEmpty());
+
+			/* Only the changed gene is reported */
+			write(gaf, association("SYMBOL1", "GO:0000002") + association("SYMBOL2", "GO:0000002"));
+			WorkSetLoader.refreshFile(gaf.getAbsolutePath());
+			assertNotSame(associations, WorkSetLoader.getAssociations(gaf.getAbsolutePath()));
+			assertEquals(1, changedGenes.size());
+			assertEquals(1, changedGenes.get(0).size());
+			assertTrue(changedGenes.get(0).contains(new ByteString("SYMBOL2")));
+			associations = WorkSetLoader.getAssociations(gaf.getAbsolutePath());
+
+			/* A renamed term doesn't affect the associations */
+			write(obo, root + term("GO:0000002", "a", "GO:0000001") + term("GO:0000003", "c", "GO:0000001"));
+			WorkSetLoader.refreshFile(obo.getAbsolutePath());
+			assertNotSame(graph, WorkSetLoader.getGraph(obo.getAbsolutePath()));
+			assertEquals(1, diffs.size());
+			assertEquals(1, diffs.get(0).getChangedTerms().size());
+			assertFalse(diffs.get(0).affectsAnnotations());
+			assertSame(associations, WorkSetLoader.getAssociations(gaf.getAbsolutePath()));
+
+			/* A removed term does, but the annotations stay the same */
+			write(obo, root + term("GO:0000002", "a", "GO:0000001"));
+			WorkSetLoader.refreshFile(obo.getAbsolutePath());
+			assertEquals(2, diffs.size());
+			assertTrue(diffs.get(1).getRemovedTerms().contains(new TermID("GO:0000003")));
+			assertSame(associations, WorkSetLoader.getAssociations(gaf.getAbsolutePath()));
+			assertEquals(1, changedGenes.size());
+		} finally
+		{
+			WorkSetLoader.removeUpdateListener(listener);
+			WorkSetLoader.releaseDatafiles(ws);
+		}
+	}
+
+	@Test
+	public void testMissingFile() throws Exception
+	{
+		String missing = new File("data/does_not_exist.gz").getAbsolutePath();
+		obtain(new WorkSet[]{createWorkSet("Missing", OBO_FILE, missing)});
+		assertNull(WorkSetLoader.getAssociations(missing));
+	}
+}
@@ -0,0 +1,143 @@
+package sonumina.math.graph;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import sonumina.math.graph.AbstractGraph.IVisitor;
+
+public class CSRDirectedGraphTest
+{
+	@Test
+	public void testSimple()
+	{
+		/* 0 -> 1, 0 -> 2, 1 -> 3, 2 -> 3, 3 -> 4 */
+		CSRDirectedGraph g = CSRDirectedGraph.create(5, new int[]{0,0,1,2,3}, new int[]{1,2,3,3,4});
+
+		assertEquals(5, g.getNumberOfVertices());
+		assertEquals(5, g.getNumberOfEdges());
+		assertArrayEquals(new int[]{1,2}, g.getChildren(0));
+		assertArrayEquals(new int[]{1,2}, g.getParents(3));
+		assertEquals(0, g.getNumberOfParents(0));
+		assertArrayEquals(new int[]{0,1,2,3,4}, g.getAncestors(4));
+		assertArrayEquals(new int[]{2,3,4}, g.getDescendants(2));
+		assertTrue(g.isAncestor(0, 4));
+		assertTrue(g.isAncestor(3, 3));
+		assertFalse(g.isAncestor(1, 2));
+		assertTrue(g.isDescendant(4, 1));
+		assertFalse(g.isDescendant(0, 1));
+	}
+
+	@Test
+	public void testNotPresent()
+	{
+		CSRDirectedGraph g = CSRDirectedGraph.create(3, new boolean[]{true,false,true}, new int[]{0}, new int[]{2}, 1);
+		assertEquals(0, g.getNumberOfAncestors(1));
+		assertEquals(0, g.getNumberOfDescendants(1));
+		assertArrayEquals(new int[]{0,2}, g.getDescendants(0));
+		assertFalse(g.isAncestor(1, 1));
+	}
+
+	@Test
+	public void testRandomDAG()
+	{
+		Random rnd = new Random(2);
+		int n = 300;
+
+		DirectedGraph<Integer> graph = new DirectedGraph<Integer>();
+		for (int i=0;i<n;i++)
+			graph.addVertex(i);
+
+		int [] sources = new int[n * 3];
+		int [] dests = new int[n * 3];
+		int m = 0;
+		for (int i=1;i<n;i++)
+		{
+			int numParents = 1 + rnd.nextInt(3);
+			for (int j=0;j<numParents;j++)
+			{
+				int p = rnd.nextInt(i);
+				if (graph.hasEdge(p, i))
+					continue;
+				graph.addEdge(new Edge<Integer>(p, i));
+				sources[m] = p;
+				dests[m] = i;
+				m++;
+			}
+		}
+
+		CSRDirectedGraph g = CSRDirectedGraph.create(n, null, sources, dests, m);
+		assertEquals(m, g.getNumberOfEdges());
+
+		for (int i=0;i<n;i++)
+		{
+			assertArrayEquals(bfs(graph, i, true), g.getAncestors(i));
+			assertArrayEquals(bfs(graph, i, false), g.getDescendants(i));
+			assertEquals(graph.getInDegree(i), g.getNumberOfParents(i));
+		}
+
+		/* Check all reachability queries */
+		for (int i=0;i<n;i++)
+		{
+			int [] descendants = g.getDescendants(i);
+			for (int j=0;j<n;j++)
+			{
+				boolean expected = Arrays.binarySearch(descendants, j) >= 0;
+				assertEquals(expected, g.isAncestor(i, j));
+				assertEquals(expected, g.isDescendant(j, i));
+			}
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try
+		{
+			CSRDirectedGraph pg = CSRDirectedGraph.create(n, null, sources, dests, null, m, executor);
+			for (int i=0;i<n;i++)
+			{
+				assertArrayEquals(g.getAncestors(i), pg.getAncestors(i));
+				assertArrayEquals(g.getDescendants(i), pg.getDescendants(i));
+			}
+		} finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testCycle()
+	{
+		/* 0 -> 1 -> 2 -> 0, 2 -> 3 */
+		CSRDirectedGraph g = CSRDirectedGraph.create(4, new int[]{0,1,2,2}, new int[]{1,2,0,3});
+		assertArrayEquals(new int[]{0,1,2}, g.getAncestors(1));
+		assertArrayEquals(new int[]{0,1,2,3}, g.getDescendants(0));
+		assertArrayEquals(new int[]{3}, g.getDescendants(3));
+	}
+
+	private static int [] bfs(DirectedGraph<Integer> graph, int v, boolean againstFlow)
+	{
+		final List<Integer> visited = new ArrayList<Integer>();
+		graph.bfs(v, againstFlow, new IVisitor<Integer>()
+		{
+			public boolean visited(Integer vertex)
+			{
+				visited.add(vertex);
+				return true;
+			}
+		});
+		int [] result = new int[visited.size()];
+		for (int i=0;i<result.length;i++)
+			result[i] = visited.get(i);
+		Arrays.sort(result);
+		return result;
+	}
+}
@@ -0,0 +1,135 @@
+package sonumina.math.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import sonumina.math.graph.AbstractGraph.IVisitor;
+
+public class CSRGraphTraversalTest
+{
+	@Test
+	public void testLabels()
+	{
+		/* 0 -1-> 1, 0 -2-> 2, 1 -1-> 3, 2 -2-> 3 */
+		CSRDirectedGraph g = CSRDirectedGraph.create(4, null, new int[]{0,0,1,2}, new int[]{1,2,3,3}, new int[]{1,2,1,2}, 4, null);
+		CSRGraphTraversal t = new CSRGraphTraversal(g);
+
+		assertEquals(4, t.bfs(new int[]{3}, 1, true, CSRGraphTraversal.ALL_LABELS));
+		assertEquals(3, t.getVisited(0));
+
+		assertEquals(3, t.bfs(new int[]{3}, 1, true, 2));
+		assertTrue(t.isVisited(2));
+		assertFalse(t.isVisited(1));
+
+		assertEquals(1, t.bfs(new int[]{3}, 1, true, 4));
+		assertEquals(3, t.bfs(new int[]{0}, 1, false, 1));
+		assertFalse(t.isVisited(2));
+
+		/* Initial vertices given twice are reported twice */
+		assertEquals(3, t.bfs(new int[]{1,1}, 2, false, CSRGraphTraversal.ALL_LABELS));
+		assertEquals(3, t.getVisited(2));
+	}
+
+	@Test
+	public void testVisitor()
+	{
+		/* A chain 0 -> 1 -> 2 -> 3 */
+		CSRDirectedGraph g = CSRDirectedGraph.create(4, new int[]{0,1,2}, new int[]{1,2,3});
+		CSRGraphTraversal t = new CSRGraphTraversal(g);
+
+		final List<Integer> visited = new ArrayList<Integer>();
+		t.bfs(new int[]{0}, 1, false, CSRGraphTraversal.ALL_LABELS, new CSRGraphTraversal.IVertexVisitor()
+		{
+			public boolean visited(int vertex)
+			{
+				visited.add(vertex);
+				return true;
+			}
+		});
+		assertEquals(4, visited.size());
+
+		/* Stopping the traversal doesn't explore the rest of the graph */
+		visited.clear();
+		int count = t.bfs(new int[]{0}, 1, false, CSRGraphTraversal.ALL_LABELS, new CSRGraphTraversal.IVertexVisitor()
+		{
+			public boolean visited(int vertex)
+			{
+				visited.add(vertex);
+				return vertex != 1;
+			}
+		});
+		assertEquals(2, visited.size());
+		assertEquals(1, visited.get(1).intValue());
+		assertFalse(t.isVisited(3));
+		assertTrue(count < 4);
+	}
+
+	@Test
+	public void testRandomDAG()
+	{
+		Random rnd = new Random(4);
+		int n = 200;
+
+		DirectedGraph<Integer> graph = new DirectedGraph<Integer>();
+		for (int i=0;i<n;i++)
+			graph.addVertex(i);
+
+		List<Integer> sources = new ArrayList<Integer>();
+		List<Integer> dests = new ArrayList<Integer>();
+		for (int i=1;i<n;i++)
+		{
+			int numParents = 1 + rnd.nextInt(3);
+			for (int j=0;j<numParents;j++)
+			{
+				int p = rnd.nextInt(i);
+				if (graph.hasEdge(p, i))
+					continue;
+				graph.addEdge(new Edge<Integer>(p, i));
+				sources.add(p);
+				dests.add(i);
+			}
+		}
+
+		int [] s = new int[sources.size()];
+		int [] d = new int[dests.size()];
+		for (int i=0;i<s.length;i++)
+		{
+			s[i] = sources.get(i);
+			d[i] = dests.get(i);
+		}
+		CSRDirectedGraph g = CSRDirectedGraph.create(n, s, d);
+		CSRGraphTraversal t = new CSRGraphTraversal(g);
+
+		/* The same traversal is reused, visited marks must not leak */
+		for (int k=0;k<3;k++)
+		{
+			for (int v=0;v<n;v++)
+			{
+				for (boolean againstFlow : new boolean[]{true,false})
+				{
+					final List<Integer> expected = new ArrayList<Integer>();
+					graph.bfs(v, againstFlow, new IVisitor<Integer>()
+					{
+						public boolean visited(Integer vertex)
+						{
+							expected.add(vertex);
+							return true;
+						}
+					});
+
+					int count = t.bfs(v, againstFlow);
+					assertEquals(expected.size(), count);
+					for (int i=0;i<count;i++)
+						assertEquals(expected.get(i).intValue(), t.getVisited(i));
+				}
+			}
+		}
+	}
+}
@@ -1,5 +1,10 @@
 package sonumina.math.graph;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+
 import org.junit.Test;
 
 import sonumina.math.graph.DirectedGraphLayout.Dimension;
@@ -95,4 +100,134 @@ public class DirectedGraphLayoutTest
 					}
 				 });
 	}
+
+	/**
+	 * Lays out the given graph with unit dimensions and returns the
+	 * positions.
+	 */
+	private static HashMap<Integer,int[]> layout(DirectedGraphLayout<Integer> [] previous, DirectedGraph<Integer> g)
+	{
+		final HashMap<Integer,int[]> positions = new HashMap<Integer,int[]>();
+		previous[0] = DirectedGraphLayout.layout(previous[0], g, new DirectedGraphLayout.IGetDimension<Integer>()
+				{
+					@Override
+					public void get(Integer vertex, Dimension d)
+					{
+						d.width = 10;
+						d.height = 10;
+					}
+				}, new DirectedGraphLayout.IPosition<Integer>()
+				{
+					@Override
+					public void set(Integer vertex, int left, int top)
+					{
+						positions.put(vertex, new int[]{left,top});
+					}
+
+					@Override
+					public void setSize(int width, int height) { }
+				}, 2, 2, null);
+		return positions;
+	}
+
+	@Test
+	public void testCrossingReduction()
+	{
+		DirectedGraph<Integer> g = new DirectedGraph<Integer>();
+		for (int i=0;i<5;i++)
+			g.addVertex(i);
+		g.addEdge(new Edge<Integer>(0,3));
+		g.addEdge(new Edge<Integer>(1,2));
+		g.addEdge(new Edge<Integer>(3,4));
+		g.addEdge(new Edge<Integer>(0,4));
+
+		@SuppressWarnings("unchecked")
+		DirectedGraphLayout<Integer> [] layout = new DirectedGraphLayout[1];
+		HashMap<Integer,int[]> pos = layout(layout, g);
+
+		/* Levels are determined by the longest path */
+		assertEquals(pos.get(0)[1], pos.get(1)[1]);
+		assertEquals(pos.get(2)[1], pos.get(3)[1]);
+		assertTrue(pos.get(4)[1] > pos.get(3)[1]);
+
+		/* The edges must not cross */
+		assertTrue(pos.get(0)[0] < pos.get(1)[0]);
+		assertTrue(pos.get(3)[0] < pos.get(2)[0]);
+	}
+
+	@Test
+	public void testIncremental()
+	{
+		DirectedGraph<Integer> g = new DirectedGraph<Integer>();
+		for (int i=0;i<7;i++)
+			g.addVertex(i);
+		g.addEdge(new Edge<Integer>(0,1));
+		g.addEdge(new Edge<Integer>(0,2));
+		g.addEdge(new Edge<Integer>(0,3));
+		g.addEdge(new Edge<Integer>(1,4));
+		g.addEdge(new Edge<Integer>(2,5));
+		g.addEdge(new Edge<Integer>(3,6));
+
+		@SuppressWarnings("unchecked")
+		DirectedGraphLayout<Integer> [] layout = new DirectedGraphLayout[1];
+		HashMap<Integer,int[]> before = layout(layout, g);
+
+		g.addVertex(7);
+		g.addEdge(new Edge<Integer>(3,7));
+		HashMap<Integer,int[]> after = layout(layout, g);
+
+		/* The horizontal order of the previous vertices is kept */
+		for (int i=0;i<7;i++)
+		{
+			for (int j=0;j<7;j++)
+			{
+				if (before.get(i)[1] != before.get(j)[1])
+					continue;
+				assertEquals(before.get(i)[0] < before.get(j)[0], after.get(i)[0] < after.get(j)[0]);
+			}
+		}
+
+		/* No overlaps */
+		for (int i=0;i<8;i++)
+			for (int j=i+1;j<8;j++)
+				if (after.get(i)[1] == after.get(j)[1])
+					assertTrue(Math.abs(after.get(i)[0] - after.get(j)[0]) >= 10);
+	}
+
+	@Test
+	public void testIncrementalKeepsOrder()
+	{
+		DirectedGraph<Integer> g = new DirectedGraph<Integer>();
+		for (int i=0;i<4;i++)
+			g.addVertex(i);
+		g.addEdge(new Edge<Integer>(0,2));
+		g.addEdge(new Edge<Integer>(1,3));
+
+		@SuppressWarnings("unchecked")
+		DirectedGraphLayout<Integer> [] layout = new DirectedGraphLayout[1];
+		HashMap<Integer,int[]> before = layout(layout, g);
+		assertTrue(before.get(0)[0] < before.get(1)[0]);
+		assertTrue(before.get(2)[0] < before.get(3)[0]);
+
+		/* Swap the edges, which introduces a crossing */
+		DirectedGraph<Integer> h = new DirectedGraph<Integer>();
+		for (int i=0;i<5;i++)
+			h.addVertex(i);
+		h.addEdge(new Edge<Integer>(0,3));
+		h.addEdge(new Edge<Integer>(1,2));
+		h.addEdge(new Edge<Integer>(0,4));
+
+		/* Without a previous layout, the crossing is resolved */
+		@SuppressWarnings("unchecked")
+		DirectedGraphLayout<Integer> [] fresh = new DirectedGraphLayout[1];
+		HashMap<Integer,int[]> unconstrained = layout(fresh, h);
+		assertEquals(unconstrained.get(0)[0] < unconstrained.get(1)[0], unconstrained.get(3)[0] < unconstrained.get(2)[0]);
+
+		/* With the previous layout, the known vertices keep their order
+		 * and only the new vertex is placed according to its parent */
+		HashMap<Integer,int[]> after = layout(layout, h);
+		assertTrue(after.get(0)[0] < after.get(1)[0]);
+		assertTrue(after.get(2)[0] < after.get(3)[0]);
+		assertTrue(after.get(4)[0] < after.get(2)[0]);
+	}
 }
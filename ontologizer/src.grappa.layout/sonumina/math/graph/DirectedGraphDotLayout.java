@@ -6,6 +6,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,6 +38,9 @@ public class DirectedGraphDotLayout<T> extends DirectedGraphLayout<T>
 	 */
 	final private static double DPI = 72;
 
+	/** The vertices in the order of their labels */
+	private ArrayList<T> vertices = new ArrayList<T>();
+
 	private DirectedGraphDotLayout(DirectedGraph<T> graph, IGetDimension<T> dimensionCallback, IPosition<T> positionCallback)
 	{
 		super(graph,dimensionCallback,positionCallback);
@@ -62,9 +67,9 @@ public class DirectedGraphDotLayout<T> extends DirectedGraphLayout<T>
 						int x = (int)(center.x - w/2);
 						int y = (int)(center.y - miny - h/2);
 
-						/* Retrieve back the slim graph index which was stored as a label */
+						/* Retrieve back the vertex index which was stored as a label */
 						int index = Integer.parseInt(e.getName());
-						positionCallback.set(slimGraph.getVertex(index), x, y);
+						positionCallback.set(vertices.get(index), x, y);
 					}
 					break;
 
@@ -98,6 +103,13 @@ public class DirectedGraphDotLayout<T> extends DirectedGraphLayout<T>
 		final Dimension dim = new Dimension();
 		boolean rc = false;
 
+		final HashMap<T,Integer> vertex2Index = new HashMap<T,Integer>();
+		for (T v : graph.getVertices())
+		{
+			vertex2Index.put(v, vertices.size());
+			vertices.add(v);
+		}
+
 		try {
 			final File dotTmpFile = File.createTempFile("onto", ".dot");
 			final File layoutedDotTmpFile = File.createTempFile("onto", ".dot");
@@ -112,8 +124,8 @@ public class DirectedGraphDotLayout<T> extends DirectedGraphLayout<T>
 							dimensionCallback.get(vt, dim);
 
 							/* The fixedsize attribute tells dot not to change width and height.
-							 * We store the unique slim graph index of this vertex as label. */
-							return "width=" + dim.width / DPI + ",height=" + dim.height / DPI + ",fixedsize=true,shape=box,label=\"" + slimGraph.getVertexIndex(vt) + "\"";
+							 * We store the unique index of this vertex as label. */
+							return "width=" + dim.width / DPI + ",height=" + dim.height / DPI + ",fixedsize=true,shape=box,label=\"" + vertex2Index.get(vt) + "\"";
 						};
 					}, horizSpace / DPI, vertSpace / DPI);
 			String [] args = new String[]{
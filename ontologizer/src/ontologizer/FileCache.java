@@ -3,61 +3,100 @@ package ontologizer;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
-import java.io.Serializable;
+import java.io.RandomAccessFile;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
 /**
- * Thread-class for downloading.
+ * Transfers a remote file into the cache. The file is written to a
+ * partial file first, which is moved into the store of the cache once
+ * the transfer is complete. If the partial file of an interrupted
+ * transfer exists, only the missing part is requested. If a cached file
+ * is given, the transfer is conditional, i.e., the file is transferred
+ * only if it has been changed on the server.
  *
  * @author Sebastian Bauer
  */
-class DownloadThread extends Thread
+class Download implements Callable<String>
 {
-	private static Logger logger = Logger.getLogger(DownloadThread.class.getName());
-
-	private List<FileCache.FileDownload> callbackSubscriberList = new LinkedList<FileCache.FileDownload>();
+	private static Logger logger = Logger.getLogger(Download.class.getName());
 
 	private FileCache.FileDownload downloadCallback;
-	private File destFile;
+	private File partFile;
 	private URL u;
 	private Proxy proxy;
 
-	private URLConnection urlConnection;
+	/** The cached file that is revalidated or null */
+	private CachedFile cached;
+
+	/** The partial file that is resumed or null */
+	private CachedFile partial;
+
+	private volatile URLConnection urlConnection;
+	private volatile boolean aborted;
 
 	private int contentLength = -1;
 	private int contentActual = 0;
 
+	/** The validators of the transfered file */
+	private String etag;
+	private String lastModified;
+
+	/** Whether the cached file was not modified */
+	private boolean notModified;
+
+	/** Whether the ready status has been forwarded */
+	private boolean finished;
+
 	/**
 	 * @param u defines the URL where to download.
-	 * @param destFile defines the file to which the download is written.
-	 * @param threadCallback basic callback.
-	 * @param callback callback from the issuer.
+	 * @param partFile defines the file to which the download is written.
+	 * @param cached the cached file that should be revalidated or null.
+	 * @param partial the partial file that should be resumed or null.
 	 */
-	public DownloadThread(URL u, File destFile)
+	public Download(URL u, File partFile, CachedFile cached, CachedFile partial)
 	{
-		super(FileCache.downloadThreadGroup,"Download Thread");
-
 		this.u = u;
-		this.destFile = destFile;
+		this.partFile = partFile;
+		this.cached = cached;
+		this.partial = partial;
 
 		String proxyHost = GlobalPreferences.getProxyHost();
 		if (proxyHost != null && proxyHost.length()>0)
@@ -74,6 +113,16 @@ class DownloadThread extends Thread
 		this.downloadCallback = downloadCallback;
 	}
 
+	/**
+	 * Returns the download callback.
+	 *
+	 * @return
+	 */
+	public FileCache.FileDownload getDownloadCallback()
+	{
+		return downloadCallback;
+	}
+
 	/**
 	 * Returns the content length or -1 if it has not been defined yet.
 	 *
@@ -101,13 +150,43 @@ class DownloadThread extends Thread
 	}
 
 	/**
-	 * Returns the list of subscribers.
-	 *
-	 * @return
+	 * @return the file to which the download is written.
 	 */
-	public List<FileCache.FileDownload> getCallbackSubscriberList()
+	public synchronized File getPartFile()
 	{
-		return callbackSubscriberList;
+		return partFile;
+	}
+
+	/**
+	 * @return the cached file that is revalidated or null.
+	 */
+	public CachedFile getCached()
+	{
+		return cached;
+	}
+
+	/**
+	 * @return the ETag of the transfered file or null.
+	 */
+	public synchronized String getETag()
+	{
+		return etag;
+	}
+
+	/**
+	 * @return the Last-Modified date of the transfered file or null.
+	 */
+	public synchronized String getLastModified()
+	{
+		return lastModified;
+	}
+
+	/**
+	 * @return whether the server reported that the cached file was not modified.
+	 */
+	public synchronized boolean isNotModified()
+	{
+		return notModified;
 	}
 
 	/**
@@ -115,72 +194,259 @@ class DownloadThread extends Thread
 	 */
 	public void abort()
 	{
-		interrupt();
+		aborted = true;
 
-		if (urlConnection instanceof HttpURLConnection)
+		URLConnection connection = urlConnection;
+		if (connection instanceof HttpURLConnection)
 		{
-			HttpURLConnection httpConnection = (HttpURLConnection) urlConnection;
+			HttpURLConnection httpConnection = (HttpURLConnection) connection;
 			httpConnection.disconnect();
 		}
 	}
 
+	/**
+	 * Forwards the ready status to the download callback. Only the first
+	 * call has an effect.
+	 *
+	 * @param ex the exception that occurred or null.
+	 * @param name the name of the downloaded file or null.
+	 */
+	public void finish(Exception ex, String name)
+	{
+		synchronized (this)
+		{
+			if (finished) return;
+			finished = true;
+		}
+
+		if (ex != null)
+			logger.log(Level.SEVERE, "Exception while downloading a file.", ex);
+
+		/* Forward ready status */
+		downloadCallback.ready(ex, name);
+	}
+
+	/**
+	 * Checks whether the download has been aborted.
+	 *
+	 * @throws InterruptedIOException
+	 */
+	private void checkAborted() throws InterruptedIOException
+	{
+		if (aborted || Thread.currentThread().isInterrupted())
+			throw new InterruptedIOException("Download of \"" + u + "\" has been aborted");
+	}
+
 	/**
 	 * The download runner.
+	 *
+	 * @return the path of the downloaded file within the cache.
 	 */
-	public void run()
+	public String call() throws IOException
 	{
 		byte [] buf = new byte[32768];
 		int read;
+		long offset = 0;
+
+		checkAborted();
+
+		/* The partial file is locked while it is written, as the cache may be
+		 * shared by several processes. If it is locked by someone else, the
+		 * download is started from scratch using a new partial file */
+		RandomAccessFile out = new RandomAccessFile(partFile, "rw");
+		if (out.getChannel().tryLock() == null)
+		{
+			out.close();
+			logger.info("Partial file \"" + partFile + "\" is locked by another process");
+
+			File newPartFile = FileCache.createPartFile();
+			synchronized (this)
+			{
+				partFile = newPartFile;
+				partial = null;
+			}
+			out = new RandomAccessFile(newPartFile, "rw");
+			out.getChannel().lock();
+		}
 
-		InputStream stream;
 		try
 		{
 			logger.fine("Open connection");
 
-			if (proxy != null) urlConnection = u.openConnection(proxy);
-			else urlConnection = u.openConnection();
+			URLConnection connection;
+			if (proxy != null) connection = u.openConnection(proxy);
+			else connection = u.openConnection();
+			urlConnection = connection;
 
-			urlConnection.setConnectTimeout(10000);
+			connection.setConnectTimeout(10000);
+			connection.setReadTimeout(60000);
 
-			int cl = urlConnection.getContentLength();
+			if (partial != null && out.length() > 0 && (partial.etag != null || partial.lastModified != null))
+			{
+				/* Ask for the missing part. The server sends the entire file if
+				 * it has been changed since the partial file was written */
+				offset = out.length();
+				connection.setRequestProperty("Range", "bytes=" + offset + "-");
+				connection.setRequestProperty("If-Range", partial.etag != null ? partial.etag : partial.lastModified);
+			} else if (cached != null)
+			{
+				if (cached.etag != null) connection.setRequestProperty("If-None-Match", cached.etag);
+				if (cached.lastModified != null) connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+			}
 
-			logger.fine("Content-Length = " + cl);
-			synchronized (this)
+			boolean append = false;
+			if (connection instanceof HttpURLConnection)
+			{
+				int code = ((HttpURLConnection)connection).getResponseCode();
+				if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null)
+				{
+					logger.fine("URL \"" + u + "\" has not been modified");
+					synchronized (this)
+					{
+						notModified = true;
+						etag = cached.etag;
+						lastModified = cached.lastModified;
+					}
+					((HttpURLConnection)connection).disconnect();
+					return cached.cachedFilename;
+				}
+
+				if (code == HttpURLConnection.HTTP_PARTIAL && offset > 0)
+					append = true;
+				else if (code != HttpURLConnection.HTTP_OK)
+					throw new IOException("Server returned HTTP response code " + code + " for URL \"" + u + "\"");
+			}
+			if (!append)
 			{
-				contentLength = cl;
+				offset = 0;
+				out.setLength(0);
 			}
-			/* Forward content length */
-			downloadCallback.initProgress(contentLength);
+			out.seek(offset);
 
-			stream = urlConnection.getInputStream();
-			BufferedOutputStream bos = new BufferedOutputStream(new FileOutputStream(destFile));
+			int cl = connection.getContentLength();
+			logger.fine("Content-Length = " + cl + ", Offset = " + offset);
 
-			while ((read = stream.read(buf)) > 0)
+			synchronized (this)
 			{
-				bos.write(buf,0,read);
-				synchronized (this)
+				etag = connection.getHeaderField("ETag");
+				lastModified = connection.getHeaderField("Last-Modified");
+				if (append)
 				{
-					contentActual += read;
+					/* The partial file must still be valid, so keep its validators if
+					 * the server doesn't send them again */
+					if (etag == null) etag = partial.etag;
+					if (lastModified == null) lastModified = partial.lastModified;
 				}
+				contentLength = cl < 0 ? -1 : (int)(cl + offset);
+				contentActual = (int)offset;
+			}
 
-				/* Forward current state */
-				downloadCallback.progress(contentActual);
+			/* Forward content length */
+			downloadCallback.initProgress(getContentLength());
+
+			InputStream stream = connection.getInputStream();
+			try
+			{
+				OutputStream bos = new BufferedOutputStream(Channels.newOutputStream(out.getChannel()));
+				while ((read = stream.read(buf)) > 0)
+				{
+					checkAborted();
+
+					bos.write(buf,0,read);
+					synchronized (this)
+					{
+						contentActual += read;
+					}
+
+					/* Forward current state */
+					downloadCallback.progress(getContentActual());
+				}
+				bos.flush();
+			} finally
+			{
+				stream.close();
 			}
-			bos.close();
 
-			/* Forward ready status */
-			downloadCallback.ready(null, destFile.getCanonicalPath());
-		} catch (Exception e)
+			if (cl >= 0 && out.length() != offset + cl)
+				throw new IOException("Download of \"" + u + "\" is incomplete");
+		} finally
 		{
-			/* Delete the file in this to avoid ending up with partial files */
-			destFile.delete();
-
-			logger.log(Level.SEVERE, "Exception while downloading a file.", e);
-			/* Forward ready status */
-			downloadCallback.ready(e, null);
+			/* Also releases the lock */
+			out.close();
 		}
+
+		return FileCache.storeObject(partFile).getPath();
+	}
+}
+
+/**
+ * A download that is performed by the download executor. The ready()
+ * method of the download callback is invoked before the future is
+ * completed, so the cache is up to date once get() returns.
+ */
+class DownloadTask extends FutureTask<String>
+{
+	private Download download;
+
+	private List<FileCache.FileDownload> callbackSubscriberList = new LinkedList<FileCache.FileDownload>();
+
+	public DownloadTask(final Download download)
+	{
+		super(new Callable<String>()
+		{
+			public String call() throws Exception
+			{
+				String name;
+				try
+				{
+					name = download.call();
+				} catch (Exception e)
+				{
+					download.finish(e, null);
+					throw e;
+				}
+				download.finish(null, name);
+				return name;
+			}
+		});
+
+		this.download = download;
 	}
 
+	/**
+	 * @return the actual download.
+	 */
+	public Download getDownload()
+	{
+		return download;
+	}
+
+	/**
+	 * Returns the list of subscribers.
+	 *
+	 * @return
+	 */
+	public List<FileCache.FileDownload> getCallbackSubscriberList()
+	{
+		return callbackSubscriberList;
+	}
+
+	/**
+	 * Abort the download.
+	 */
+	public void abort()
+	{
+		download.abort();
+		cancel(true);
+	}
+
+	@Override
+	protected void done()
+	{
+		/* Downloads that are cancelled don't get the chance to do this */
+		if (isCancelled())
+			download.finish(new CancellationException("Download has been cancelled"), null);
+	}
 }
 
 /**
@@ -188,18 +454,40 @@ class DownloadThread extends Thread
  *
  * @author Sebastian Bauer
  */
-class CachedFile implements Serializable
+class CachedFile
 {
-	private static final long serialVersionUID = 1L;
-
 	public String cachedFilename;
 	public String url;
+
+	/** The ETag sent by the server or null */
+	public String etag;
+
+	/** The Last-Modified date sent by the server or null */
+	public String lastModified;
+
+	/** The time at which the file was downloaded or 0 if unknown */
+	public long downloadTime;
 }
 
 /**
  * This class handles the file i/o. Files are cached in the
  * cache directory.
  *
+ * Remote files are downloaded by a pool with a bounded number of
+ * threads, see setMaximumNumberOfDownloads(). Downloads that are
+ * interrupted are resumed where they stopped if the server supports
+ * range requests. Cached files can be revalidated, in which case they
+ * are transferred again only if they have been changed.
+ *
+ * The contents of the files are stored in the "objects" subdirectory
+ * under the name of their SHA-256 hash, so identical files that are
+ * fetched from different URLs are stored only once. The index maps the
+ * URLs to the stored files. If a maximum cache size is set, the least
+ * recently used files are evicted once the cache exceeds this size.
+ * The cache directory can be shared by several processes. The index
+ * is updated only while holding a lock on the ".lock" file, and files
+ * are written by renaming temporary files.
+ *
  * @author Sebastian Bauer
  */
 public class FileCache
@@ -239,114 +527,592 @@ public class FileCache
 
 	private static Map<String,CachedFile> fileCache;
 
+	/** Partial files of interrupted downloads */
+	private static Map<String,CachedFile> partialFiles;
+
 	/** Also used the arbitrate access to fileCache and other stuff */
-	private static Map<String,DownloadThread> downloadHashMap;
+	private static Map<String,DownloadTask> downloadHashMap;
 	private static List<FileCacheUpdateCallback> cacheUpdateCallbackList;
 
+	/** The maximum number of concurrent downloads */
+	private static int maximumNumberOfDownloads = 4;
+
+	/** Executes the downloads, created on demand */
+	private static ThreadPoolExecutor downloadExecutor;
+
+	/** The maximum size of the cache in bytes or 0 if unbounded */
+	private static long maximumCacheSize;
+
+	/** The file whose lock guards the index against other processes */
+	private static RandomAccessFile lockFile;
+
 	static
 	{
 		fileCache = new HashMap<String, CachedFile>();
-		downloadHashMap = new HashMap<String,DownloadThread>();
+		partialFiles = new HashMap<String, CachedFile>();
+		downloadHashMap = new HashMap<String,DownloadTask>();
 		cacheUpdateCallbackList = new LinkedList<FileCacheUpdateCallback>();
 		downloadThreadGroup = new ThreadGroup("Download Thread Group");
 	};
 
 	private static String cacheDirectory;
 
+	/**
+	 * Sets the maximum number of concurrent downloads. Further downloads
+	 * wait until a running one has been finished.
+	 *
+	 * @param maximumNumberOfDownloads
+	 */
+	public static void setMaximumNumberOfDownloads(int maximumNumberOfDownloads)
+	{
+		if (maximumNumberOfDownloads < 1)
+			throw new IllegalArgumentException("The maximum number of downloads must be positive");
+
+		synchronized (downloadHashMap)
+		{
+			FileCache.maximumNumberOfDownloads = maximumNumberOfDownloads;
+			if (downloadExecutor != null)
+			{
+				if (maximumNumberOfDownloads > downloadExecutor.getMaximumPoolSize())
+				{
+					downloadExecutor.setMaximumPoolSize(maximumNumberOfDownloads);
+					downloadExecutor.setCorePoolSize(maximumNumberOfDownloads);
+				} else
+				{
+					downloadExecutor.setCorePoolSize(maximumNumberOfDownloads);
+					downloadExecutor.setMaximumPoolSize(maximumNumberOfDownloads);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the maximum number of concurrent downloads.
+	 *
+	 * @return
+	 */
+	public static int getMaximumNumberOfDownloads()
+	{
+		synchronized (downloadHashMap)
+		{
+			return maximumNumberOfDownloads;
+		}
+	}
+
+	/**
+	 * Sets the maximum size of the cache. Once a download has been
+	 * completed, the least recently used files are removed until the
+	 * size of the stored files doesn't exceed the given size.
+	 *
+	 * @param maximumCacheSize the size in bytes or 0 if the size is unbounded.
+	 */
+	public static void setMaximumCacheSize(long maximumCacheSize)
+	{
+		if (maximumCacheSize < 0)
+			throw new IllegalArgumentException("The maximum cache size must not be negative");
+
+		synchronized (downloadHashMap)
+		{
+			FileCache.maximumCacheSize = maximumCacheSize;
+		}
+	}
+
+	/**
+	 * Returns the maximum size of the cache.
+	 *
+	 * @return the size in bytes or 0 if the size is unbounded.
+	 */
+	public static long getMaximumCacheSize()
+	{
+		synchronized (downloadHashMap)
+		{
+			return maximumCacheSize;
+		}
+	}
+
+	/**
+	 * Returns the executor for the downloads. Must be called with
+	 * downloadHashMap being locked.
+	 *
+	 * @return
+	 */
+	private static ThreadPoolExecutor getDownloadExecutor()
+	{
+		if (downloadExecutor == null)
+		{
+			downloadExecutor = new ThreadPoolExecutor(maximumNumberOfDownloads, maximumNumberOfDownloads,
+					30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory()
+					{
+						public Thread newThread(Runnable r)
+						{
+							Thread t = new Thread(downloadThreadGroup, r, "Download Thread");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			downloadExecutor.allowCoreThreadTimeOut(true);
+		}
+		return downloadExecutor;
+	}
+
+	/**
+	 * Aborts all downloads and waits until they are finished.
+	 */
 	public static void abortAllDownloads()
 	{
+		ThreadPoolExecutor executor;
+
+		synchronized (downloadHashMap)
+		{
+			for (DownloadTask dt : new ArrayList<DownloadTask>(downloadHashMap.values()))
+				dt.abort();
+
+			executor = downloadExecutor;
+			downloadExecutor = null;
+		}
+
+		if (executor == null)
+			return;
+
 		try
 		{
-			synchronized(downloadThreadGroup)
-			{
-				downloadThreadGroup.interrupt();
+			executor.shutdownNow();
+			executor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e)
+		{
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Sets the directory in which remote files are cached.
+	 *
+	 * @param cachePath
+	 */
+	public static void setCacheDirectory(String cachePath)
+	{
+		synchronized (downloadHashMap)
+		{
+			FileCache.cacheDirectory = new File(cachePath).getAbsolutePath();
+			logger.info("Cache directory set to \"" + cachePath + "\"");
+			new File(FileCache.cacheDirectory).mkdirs();
 
-				for (DownloadThread dt : downloadHashMap.values())
-					dt.abort();
+			try
+			{
+				if (lockFile != null)
+					lockFile.close();
+				lockFile = new RandomAccessFile(new File(cacheDirectory,".lock"), "rw");
 
-				while ( downloadThreadGroup.activeCount() > 0 )
-					downloadThreadGroup.wait( 10 );
+				FileLock lock = lockCache();
+				try
+				{
+					loadIndex();
+				} finally
+				{
+					lock.release();
+				}
+			} catch (IOException e)
+			{
+				logger.log(Level.WARNING, "", e);
 			}
+		}
+	}
+
+	/**
+	 * Returns the full path of the cache directory.
+	 *
+	 * @return
+	 */
+	public static String getCacheDirectory()
+	{
+		return cacheDirectory;
+	}
+
+	/**
+	 * Acquires the lock of the cache directory, which guards the index
+	 * against other processes. Must be called with downloadHashMap being
+	 * locked, which guards it against other threads.
+	 *
+	 * @return the lock, which must be released by the caller.
+	 * @throws IOException
+	 */
+	private static FileLock lockCache() throws IOException
+	{
+		return lockFile.getChannel().lock();
+	}
+
+	/**
+	 * Creates a new partial file to which a download can be written.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	static File createPartFile() throws IOException
+	{
+		return File.createTempFile("download", ".part", new File(cacheDirectory));
+	}
+
+	/**
+	 * Returns the hex encoded SHA-256 hash of the given file.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	static String hash(File file) throws IOException
+	{
+		MessageDigest digest;
+		try
+		{
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e)
+		{
+			throw new RuntimeException(e);
+		}
+
+		InputStream is = new FileInputStream(file);
+		try
+		{
+			byte [] buf = new byte[32768];
+			int read;
+			while ((read = is.read(buf)) > 0)
+				digest.update(buf, 0, read);
+		} finally
+		{
+			is.close();
+		}
+
+		StringBuilder str = new StringBuilder();
+		for (byte b : digest.digest())
+			str.append(String.format("%02x", b & 0xff));
+		return str.toString();
+	}
+
+	/**
+	 * Moves the given file into the store of the cache. If a file with the
+	 * same contents is already stored, the given file is deleted.
+	 *
+	 * @param file
+	 * @return the stored file.
+	 * @throws IOException
+	 */
+	static File storeObject(File file) throws IOException
+	{
+		String hash = hash(file);
+		File dir = new File(new File(cacheDirectory, "objects"), hash.substring(0,2));
+		File object = new File(dir, hash);
+		dir.mkdirs();
+
+		if (object.exists())
+		{
+			logger.fine("Contents of \"" + file + "\" have already been stored as \"" + object + "\"");
+			file.delete();
+			object.setLastModified(System.currentTimeMillis());
+		} else if (!file.renameTo(object))
+		{
+			/* Another process could have stored the same contents in the meantime */
+			if (!object.exists())
+				throw new IOException("Unable to rename \"" + file + "\" to \"" + object + "\"");
+			file.delete();
+		}
+		return object;
+	}
+
+	/**
+	 * Resolves the name of a file as it is written to the index.
+	 *
+	 * @param name
+	 * @return
+	 */
+	private static String resolve(String name)
+	{
+		File f = new File(name);
+		if (f.isAbsolute())
+			return name;
+		return new File(cacheDirectory, name).getPath();
+	}
 
-		} catch (InterruptedException e)
-		{
-			e.printStackTrace();
-		}
+	/**
+	 * Returns the name of the given file as it is written to the index,
+	 * i.e., relative to the cache directory if possible.
+	 *
+	 * @param name
+	 * @return
+	 */
+	private static String relativize(String name)
+	{
+		String prefix = cacheDirectory + File.separator;
+		if (name.startsWith(prefix))
+			return name.substring(prefix.length());
+		return name;
 	}
 
 	/**
-	 * Sets the directory in which remote files are cached.
+	 * Reads the index. Must be called with the cache being locked.
 	 *
-	 * @param cachePath
+	 * @throws IOException
 	 */
-	public static void setCacheDirectory(String cachePath)
+	private static void loadIndex() throws IOException
 	{
-		FileCache.cacheDirectory = cachePath;
-		logger.info("Cache directory set to \"" + cachePath + "\"");
-		new File(FileCache.cacheDirectory).mkdirs();
+		fileCache.clear();
+		partialFiles.clear();
 
 		File index = new File(cacheDirectory,".index");
+		if (!index.exists())
+			return;
+
+		BufferedReader br = new BufferedReader(new FileReader(index));
 		try
 		{
-			BufferedReader br = new BufferedReader(new FileReader(index));
 			String line;
 			while ((line = br.readLine()) != null)
 			{
 				int idx = line.indexOf('=');
 				if (idx != -1)
 				{
+					/* The url may be followed by the tab-separated validators,
+					 * the kind of the entry and the download time */
 					String cacheName = line.substring(0,idx);
-					String url = line.substring(idx+1);
+					String [] fields = line.substring(idx+1).split("\t", -1);
 
 					CachedFile cf = new CachedFile();
-					cf.cachedFilename = cacheName;
-					cf.url = url;
+					cf.cachedFilename = resolve(cacheName);
+					cf.url = fields[0];
+					if (fields.length > 1 && fields[1].length() > 0) cf.etag = fields[1];
+					if (fields.length > 2 && fields[2].length() > 0) cf.lastModified = fields[2];
+					if (fields.length > 4 && fields[4].length() > 0)
+					{
+						try
+						{
+							cf.downloadTime = Long.parseLong(fields[4]);
+						} catch (NumberFormatException e)
+						{
+						}
+					}
 
-					fileCache.put(url, cf);
+					if (fields.length > 3 && fields[3].equals("partial"))
+						partialFiles.put(cf.url, cf);
+					else
+						fileCache.put(cf.url, cf);
 				}
 			}
-		} catch (FileNotFoundException e)
-		{
-			logger.log(Level.WARNING, "", e);
-		} catch (IOException e)
+		} finally
 		{
-			logger.log(Level.WARNING, "", e);
+			br.close();
 		}
 	}
 
 	/**
-	 * Returns the full path of the cache directory.
+	 * Writes the given entry to the index.
 	 *
-	 * @return
+	 * @param pw
+	 * @param cf
+	 * @param kind
 	 */
-	public static String getCacheDirectory()
+	private static void storeCachedFile(PrintWriter pw, CachedFile cf, String kind)
 	{
-		return cacheDirectory;
+		pw.print(relativize(cf.cachedFilename) + "=" + cf.url);
+		pw.print("\t" + (cf.etag != null ? cf.etag : ""));
+		pw.print("\t" + (cf.lastModified != null ? cf.lastModified : ""));
+		pw.print("\t" + kind);
+		pw.print("\t" + cf.downloadTime);
+		pw.println();
 	}
 
 	/**
-	 * Stores the contents of the cache.
+	 * Writes the index. The index is written to a temporary file first,
+	 * which then replaces the index. Must be called with the cache being
+	 * locked.
+	 *
+	 * @throws IOException
 	 */
-	private static void storeCache()
+	private static void storeIndex() throws IOException
 	{
 		File index = new File(cacheDirectory,".index");
+		File newIndex = new File(cacheDirectory,".index.new");
+
+		PrintWriter bw = new PrintWriter(newIndex);
+		for (CachedFile cf : fileCache.values())
+			storeCachedFile(bw, cf, "complete");
+		for (CachedFile cf : partialFiles.values())
+			storeCachedFile(bw, cf, "partial");
+		bw.close();
+		if (bw.checkError())
+			throw new IOException("Unable to write \"" + newIndex + "\"");
+
+		if (!newIndex.renameTo(index))
+		{
+			/* Renaming onto an existing file fails on some platforms */
+			index.delete();
+			if (!newIndex.renameTo(index))
+				throw new IOException("Unable to rename \"" + newIndex + "\" to \"" + index + "\"");
+		}
+	}
 
-		synchronized (downloadHashMap)
+	/**
+	 * Returns whether the given stored file is referenced by an entry of
+	 * the index.
+	 *
+	 * @param name
+	 * @return
+	 */
+	private static boolean isReferenced(String name)
+	{
+		for (CachedFile cf : fileCache.values())
+			if (cf.cachedFilename.equals(name))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Removes the least recently used stored files until the cache doesn't
+	 * exceed the maximum cache size. Besides the files in the store, files
+	 * of the flat layout of earlier versions that are still referenced by
+	 * the index are considered. Entries of the index that refer to files
+	 * that no longer exist are removed. Must be called with the cache
+	 * being locked.
+	 *
+	 * @param keep a file that must not be removed or null.
+	 */
+	private static void evict(File keep)
+	{
+		if (maximumCacheSize > 0)
 		{
-			try
+			ArrayList<File> objects = new ArrayList<File>();
+			long size = 0;
+
+			File [] dirs = new File(cacheDirectory, "objects").listFiles();
+			if (dirs != null)
+			{
+				for (File dir : dirs)
+				{
+					File [] files = dir.listFiles();
+					if (files == null) continue;
+					for (File f : files)
+					{
+						objects.add(f);
+						size += f.length();
+					}
+				}
+			}
+
+			/* Files of the flat layout reside directly in the cache directory */
+			HashSet<File> legacy = new HashSet<File>();
+			File directory = new File(cacheDirectory);
+			for (CachedFile cf : fileCache.values())
+			{
+				File f = new File(cf.cachedFilename);
+				if (directory.equals(f.getParentFile()) && f.isFile() && legacy.add(f))
+				{
+					objects.add(f);
+					size += f.length();
+				}
+			}
+
+			/* The last modification time of a stored file is updated whenever it is used */
+			final HashMap<File,Long> lastUsed = new HashMap<File,Long>();
+			for (File f : objects)
+				lastUsed.put(f, f.lastModified());
+			Collections.sort(objects, new Comparator<File>()
 			{
-				PrintWriter bw = new PrintWriter(index);
+				public int compare(File o1, File o2)
+				{
+					long l1 = lastUsed.get(o1);
+					long l2 = lastUsed.get(o2);
+					if (l1 < l2) return -1;
+					if (l1 > l2) return 1;
+					return o1.compareTo(o2);
+				}
+			});
+
+			for (int i=0;i<objects.size() && size > maximumCacheSize;i++)
+			{
+				File f = objects.get(i);
+				if (f.equals(keep))
+					continue;
 
-				for (String key : fileCache.keySet())
+				long length = f.length();
+				if (f.delete())
 				{
-					CachedFile cf = fileCache.get(key);
-					bw.println(cf.cachedFilename + "=" + cf.url);
+					logger.fine("Evicted \"" + f + "\"");
+					size -= length;
 				}
+			}
+		}
+
+		Iterator<CachedFile> iter = fileCache.values().iterator();
+		while (iter.hasNext())
+		{
+			if (!new File(iter.next().cachedFilename).exists())
+				iter.remove();
+		}
+	}
+
+	/**
+	 * Updates the entries of the given url in the index. As the index could
+	 * have been altered by other processes, it is read before the entries
+	 * are changed. Must be called with downloadHashMap being locked.
+	 *
+	 * @param url
+	 * @param cached the new entry of the cached file or null, if the entry should be removed.
+	 * @param partial the new entry of the partial file or null, if the entry should be removed.
+	 * @param keep a file that must not be evicted or null.
+	 */
+	private static void storeCache(String url, CachedFile cached, CachedFile partial, File keep)
+	{
+		try
+		{
+			FileLock lock = lockCache();
+			try
+			{
+				loadIndex();
+
+				CachedFile old;
+				if (cached != null) old = fileCache.put(url, cached);
+				else old = fileCache.remove(url);
+
+				/* The contents of the previous entry could be shared with other entries */
+				if (old != null && !isReferenced(old.cachedFilename) && (cached == null || !old.cachedFilename.equals(cached.cachedFilename)))
+					new File(old.cachedFilename).delete();
+
+				CachedFile oldPartial;
+				if (partial != null) oldPartial = partialFiles.put(url, partial);
+				else oldPartial = partialFiles.remove(url);
+				if (oldPartial != null && (partial == null || !oldPartial.cachedFilename.equals(partial.cachedFilename)))
+					new File(oldPartial.cachedFilename).delete();
+
+				evict(keep);
+				storeIndex();
+			} finally
+			{
+				lock.release();
+			}
+		} catch (IOException e)
+		{
+			logger.log(Level.WARNING, "Unable to update the index of the cache", e);
+		}
+	}
 
-				bw.close();
-			} catch (FileNotFoundException e)
+	/**
+	 * Reads the index again, e.g., to see the files cached by other
+	 * processes. Must be called with downloadHashMap being locked.
+	 */
+	private static void reloadCache()
+	{
+		try
+		{
+			FileLock lock = lockCache();
+			try
 			{
+				loadIndex();
+			} finally
+			{
+				lock.release();
 			}
+		} catch (IOException e)
+		{
+			logger.log(Level.WARNING, "Unable to read the index of the cache", e);
 		}
 	}
 
@@ -376,6 +1142,20 @@ public class FileCache
 		}
 	}
 
+	/**
+	 * Notifies the global callbacks about an update of the given url.
+	 *
+	 * @param url
+	 */
+	private static void notifyUpdate(String url)
+	{
+		synchronized (cacheUpdateCallbackList)
+		{
+			for (FileCacheUpdateCallback fcuc : cacheUpdateCallbackList)
+				fcuc.update(url);
+		}
+	}
+
 	private static boolean isRemoteFile(String url)
 	{
 		if (url.startsWith("http://"))
@@ -421,27 +1201,103 @@ public class FileCache
 	}
 
 	/**
+	 * Starts to open the given url. If file is in cache, the file name in this
+	 * cache is returned otherwise null. In the latter case, the given callback
+	 * is informed about the progress of the download.
 	 *
 	 * @param url
-	 * @param basePath
-	 * @param run
+	 * @param ready
 	 * @return
 	 * @throws IOException
 	 */
 	public static String open(final String url, FileDownload ready) throws IOException
+	{
+		Future<String> future = fetch(url, ready);
+		if (!future.isDone())
+			return null;
+
+		try
+		{
+			return future.get();
+		} catch (InterruptedException e)
+		{
+			return null;
+		} catch (ExecutionException e)
+		{
+			return null;
+		} catch (CancellationException e)
+		{
+			return null;
+		}
+	}
+
+	/**
+	 * Returns an already completed future.
+	 *
+	 * @param name
+	 * @return
+	 */
+	private static Future<String> completed(String name)
+	{
+		FutureTask<String> future = new FutureTask<String>(new Runnable()
+		{
+			public void run() { }
+		}, name);
+		future.run();
+		return future;
+	}
+
+	/**
+	 * Returns the name of the cached file of the given url if it exists.
+	 * The file is marked as being used. Must be called with downloadHashMap
+	 * being locked.
+	 *
+	 * @param url
+	 * @return
+	 */
+	private static String getExistingCachedFilename(String url)
+	{
+		CachedFile cf = fileCache.get(url);
+		if (cf == null)
+			return null;
+
+		File f = new File(cf.cachedFilename);
+		if (!f.exists())
+			return null;
+
+		f.setLastModified(System.currentTimeMillis());
+		return cf.cachedFilename;
+	}
+
+	/**
+	 * Fetches the given url. The returned future provides the name of the
+	 * local file once it is available. If the file is cached or not remote
+	 * the future is already done and the callback is not invoked.
+	 * Otherwise, the file is downloaded and the callback is informed about
+	 * the progress. If the url is currently downloaded, the running
+	 * download is joined.
+	 *
+	 * @param url
+	 * @param ready the callback or null.
+	 * @return the future of the local file name.
+	 * @throws IOException
+	 */
+	public static Future<String> fetch(final String url, FileDownload ready) throws IOException
 	{
 		if (cacheDirectory == null)
-			return url;
+			return completed(url);
 
 		if (!url.startsWith("http://"))
-			return url;
+			return completed(url);
+
+		DownloadTask newDt;
 
-		/* If there is currently a download thread for this file download
-		 * subscribe to its callbacks.
-		 */
 		synchronized (downloadHashMap)
 		{
-			DownloadThread dt = downloadHashMap.get(url);
+			/* If there is currently a download for this file download
+			 * subscribe to its callbacks.
+			 */
+			DownloadTask dt = downloadHashMap.get(url);
 			if (dt != null)
 			{
 				synchronized (dt)
@@ -450,43 +1306,115 @@ public class FileCache
 
 					if (ready != null)
 						dt.getCallbackSubscriberList().add(ready);
-					return null;
+					return dt;
 				}
 			}
 
-			/* The file could be in the cache as well */
-			if (fileCache.containsKey(url))
+			/* The file could be in the cache as well, possibly it has been
+			 * cached by another process */
+			String cachedFilename = getExistingCachedFilename(url);
+			if (cachedFilename == null)
 			{
-				String cachedFilename = fileCache.get(url).cachedFilename;
-				if (new File(cachedFilename).exists())
-				{
-					logger.fine("URL \"" + url + "\" has already been cached.");
-					return cachedFilename;
-				}
-				fileCache.remove(url);
+				reloadCache();
+				cachedFilename = getExistingCachedFilename(url);
+			}
+			if (cachedFilename != null)
+			{
+				logger.fine("URL \"" + url + "\" has already been cached.");
+				return completed(cachedFilename);
 			}
+
+			/* Okay, it's neither about to be downloaded nor in the cache. So,
+			 * start the download process now.
+			 */
+			newDt = startDownload(url, null, ready);
 		}
 
-		/* Okay, it's neither about to be downloaded nor in the cache. So,
-		 * start the download process now.
-		 */
-		File destFile;
-		int hashCode = url.hashCode();
-		int t = 0;
+		/* Notify the global updates */
+		notifyUpdate(url);
+		return newDt;
+	}
+
+	/**
+	 * Fetches the given url.
+	 *
+	 * @param url
+	 * @return the future of the local file name.
+	 * @throws IOException
+	 * @see #fetch(String, FileDownload)
+	 */
+	public static Future<String> fetch(String url) throws IOException
+	{
+		return fetch(url, null);
+	}
+
+	/**
+	 * Revalidates the given url. If the url has been cached, the server is
+	 * asked to transfer the file only if it has been changed in the
+	 * meantime (according to its ETag or Last-Modified date). Otherwise,
+	 * this is the same as fetch().
+	 *
+	 * @param url
+	 * @param ready the callback or null.
+	 * @return the future of the local file name.
+	 * @throws IOException
+	 */
+	public static Future<String> revalidate(final String url, FileDownload ready) throws IOException
+	{
+		if (cacheDirectory == null || !url.startsWith("http://"))
+			return completed(url);
 
-		/* Find appropriate cached file name */
-		do
+		DownloadTask dt = null;
+
+		synchronized (downloadHashMap)
 		{
-			String name = String.format("%x_%d",hashCode,t);
-			destFile = new File(cacheDirectory,name);
-			t++;
-		} while (destFile.exists());
+			CachedFile cf = fileCache.get(url);
+			if (!downloadHashMap.containsKey(url) && cf != null && new File(cf.cachedFilename).exists())
+			{
+				logger.fine("Revalidating URL \"" + url + "\"");
+				dt = startDownload(url, cf, ready);
+			}
+		}
+
+		if (dt == null)
+			return fetch(url, ready);
+
+		/* Notify the global updates */
+		notifyUpdate(url);
+		return dt;
+	}
+
+	/**
+	 * Starts the download of the given url. Must be called with
+	 * downloadHashMap being locked. The global callbacks are not
+	 * notified.
+	 *
+	 * @param url
+	 * @param cached the cached file that should be revalidated or null.
+	 * @param ready the callback or null.
+	 * @return
+	 * @throws IOException
+	 */
+	private static DownloadTask startDownload(final String url, CachedFile cached, FileDownload ready) throws IOException
+	{
+		File partFile;
 
+		/* Resume a previously interrupted download if possible */
+		CachedFile partial = partialFiles.get(url);
+		if (partial != null && new File(partial.cachedFilename).exists())
+		{
+			partFile = new File(partial.cachedFilename);
+		} else
+		{
+			partFile = createPartFile();
+			partial = null;
+		}
 
-		logger.fine("Starting new download thread for URL \"" + url + "\" (cached as \""+destFile.getAbsolutePath()+"\"");
+		logger.fine("Starting new download for URL \"" + url + "\" (written to \""+partFile.getAbsolutePath()+"\"");
 
-		/* Leave the process of downloading to the separate thread */
-		final DownloadThread dt = new DownloadThread(new URL(url),destFile);
+		/* Leave the process of downloading to the executor */
+		final Download download = new Download(new URL(url),partFile,cached,partial);
+		final DownloadTask dt = new DownloadTask(download);
 
 		FileDownload cfd = new FileDownload()
 		{
@@ -501,11 +1429,7 @@ public class FileCache
 				}
 
 				/* Notify the global updates */
-				synchronized (cacheUpdateCallbackList)
-				{
-					for (FileCacheUpdateCallback fcuc : cacheUpdateCallbackList)
-						fcuc.update(url);
-				}
+				notifyUpdate(url);
 			}
 
 			public void progress(int current)
@@ -513,6 +1437,8 @@ public class FileCache
 				long progressMillis = System.currentTimeMillis();
 				if (progressMillis - lastProgressMillis > 200)
 				{
+					lastProgressMillis = progressMillis;
+
 					synchronized (dt)
 					{
 						for (FileDownload fd : dt.getCallbackSubscriberList())
@@ -520,11 +1446,7 @@ public class FileCache
 					}
 
 					/* Notify the global updates. TODO: The progress update should be global here */
-					synchronized (cacheUpdateCallbackList)
-					{
-						for (FileCacheUpdateCallback fcuc : cacheUpdateCallbackList)
-							fcuc.update(url);
-					}
+					notifyUpdate(url);
 				}
 			};
 
@@ -533,13 +1455,39 @@ public class FileCache
 				synchronized (downloadHashMap)
 				{
 					downloadHashMap.remove(url);
+
+					File partFile = download.getPartFile();
 					if (name != null)
 					{
 						CachedFile cf = new CachedFile();
 						cf.cachedFilename = name;
 						cf.url = url;
-						fileCache.put(cf.url, cf);
-						storeCache();
+						cf.etag = download.getETag();
+						cf.lastModified = download.getLastModified();
+						cf.downloadTime = System.currentTimeMillis();
+
+						/* The partial file has been moved into the store unless
+						 * the file was not modified */
+						partFile.delete();
+						new File(name).setLastModified(cf.downloadTime);
+
+						storeCache(url, cf, null, new File(name));
+					} else
+					{
+						/* Keep the partial file if the download can be resumed later */
+						CachedFile cf = null;
+						if (partFile.length() > 0 && (download.getETag() != null || download.getLastModified() != null))
+						{
+							cf = new CachedFile();
+							cf.cachedFilename = partFile.getPath();
+							cf.url = url;
+							cf.etag = download.getETag();
+							cf.lastModified = download.getLastModified();
+						} else
+						{
+							partFile.delete();
+						}
+						storeCache(url, fileCache.get(url), cf, null);
 					}
 				}
 
@@ -551,34 +1499,26 @@ public class FileCache
 
 				/* Notify the global updates */
 				if (ex != null)
-				{
-					for (FileCacheUpdateCallback fcuc : cacheUpdateCallbackList)
-						fcuc.exception(ex,url);
-				} else
 				{
 					synchronized (cacheUpdateCallbackList)
 					{
 						for (FileCacheUpdateCallback fcuc : cacheUpdateCallbackList)
-							fcuc.update(url);
+							fcuc.exception(ex,url);
 					}
+				} else
+				{
+					notifyUpdate(url);
 				}
 			}
 		};
 
 		if (ready != null)
 			dt.getCallbackSubscriberList().add(ready);
-		dt.setDownloadCallback(cfd);
+		download.setDownloadCallback(cfd);
 		downloadHashMap.put(url, dt);
 
-		/* Notify the global updates */
-		synchronized (cacheUpdateCallbackList)
-		{
-			for (FileCacheUpdateCallback fcuc : cacheUpdateCallbackList)
-				fcuc.update(url);
-		}
-
-		dt.start();
-		return null;
+		getDownloadExecutor().execute(dt);
+		return dt;
 	}
 
 	/**
@@ -608,61 +1548,18 @@ public class FileCache
 	 */
 	public static String getCachedFileNameBlocking(String url, final FileDownload ready) throws IOException, InterruptedException
 	{
-		Object lock = new Object();
-
-		/**
-		 * Handles the FileDownload Callback. The given lock object is notified
-		 * once the download has been completed, thus, a synchron download can be
-		 * mimiced.
-		 *
-		 * @author Sebastian Bauer
-		 */
-		class SynchronDownloaderCallback implements	FileCache.FileDownload
+		Future<String> future = fetch(url, ready);
+		try
 		{
-			private final Object lock;
-			private String name;
-			private Exception ex;
-
-			private SynchronDownloaderCallback(Object lock) { this.lock = lock; }
-
-			public String getName() { return name; }
-			public Exception getException() { return ex; }
-
-			public void initProgress(int max) { if (ready!=null) ready.initProgress(max); }
-			public void progress(int current) { if (ready!=null) ready.progress(current); }
-			public void ready(Exception ex, String name)
-			{
-				if (name != null) this.name = name;
-				if (ex != null) this.ex = ex;
-
-				synchronized (lock)
-				{
-					lock.notifyAll();
-				}
-				if (ready != null) ready.ready(ex, name);
-			}
-		}
-
-		synchronized (lock)
+			return future.get();
+		} catch (CancellationException e)
 		{
-			SynchronDownloaderCallback sdc = new SynchronDownloaderCallback(lock);
-			String newPath = FileCache.open(url, sdc);
-
-			if (newPath == null)
-			{
-				Exception ex;
-
-				lock.wait();
-
-				ex = sdc.getException();
-				if (ex != null)
-				{
-					if (ex instanceof IOException)
-						throw (IOException)ex;
-					throw new RuntimeException(sdc.getException());
-				}
-				return sdc.getName();
-			} else return newPath;
+			throw new InterruptedIOException("Download of \"" + url + "\" has been aborted");
+		} catch (ExecutionException e)
+		{
+			if (e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+			throw new RuntimeException(e.getCause());
 		}
 	}
 
@@ -679,10 +1576,10 @@ public class FileCache
 
 		synchronized (downloadHashMap)
 		{
-			DownloadThread dt = downloadHashMap.get(url);
+			DownloadTask dt = downloadHashMap.get(url);
 			if (dt != null)
 			{
-				if (dt.getContentActual() == 0)
+				if (dt.getDownload().getContentActual() == 0)
 					return FileState.WAITING;
 				return FileState.DOWNLOADING;
 			}
@@ -728,8 +1625,9 @@ public class FileCache
 				CachedFile cf = fileCache.get(url);
 				if (cf != null)
 				{
-					File f = new File(cf.cachedFilename);
-					long modTime = f.lastModified();
+					long modTime = cf.downloadTime;
+					if (modTime == 0)
+						modTime = new File(cf.cachedFilename).lastModified();
 					SimpleDateFormat sdf = new SimpleDateFormat();
 					Date date = new Date(modTime);
 					return sdf.format(date);
@@ -752,15 +1650,15 @@ public class FileCache
 			if (fs == FileState.WAITING) return "Waiting for download";
 			if (fs == FileState.LOCAL) return "Local";
 
-			DownloadThread dt = downloadHashMap.get(url);
+			DownloadTask dt = downloadHashMap.get(url);
 			if (dt != null)
 			{
-				int length = dt.getContentLength();
-				if (length != -1)
+				int length = dt.getDownload().getContentLength();
+				if (length > 0)
 				{
-					int currentPos = dt.getContentActual();
+					int currentPos = dt.getDownload().getContentActual();
 
-					return String.format("Downloading (%d%%)",currentPos * 100 / length);
+					return String.format("Downloading (%d%%)",(int)(currentPos * 100L / length));
 				}
 			}
 
@@ -768,27 +1666,29 @@ public class FileCache
 		}
 	}
 
+	/**
+	 * Removes the given url from the cache. The stored file is deleted
+	 * unless it is shared with other urls.
+	 *
+	 * @param url
+	 */
 	public static void invalidate(String url)
 	{
 		synchronized (downloadHashMap)
 		{
-			if (getState(url) == FileState.CACHED)
-			{
-				CachedFile cf = fileCache.get(url);
-				if (cf != null)
-				{
-					new File(cf.cachedFilename).delete();
-					fileCache.remove(url);
+			if (downloadHashMap.containsKey(url) || cacheDirectory == null)
+				return;
 
-					/* Notify the global updates */
-					synchronized (cacheUpdateCallbackList)
-					{
-						for (FileCacheUpdateCallback fcuc : cacheUpdateCallbackList)
-							fcuc.update(url);
-					}
-				}
-			}
+			boolean wasCached = getState(url) == FileState.CACHED;
+			if (fileCache.containsKey(url) || partialFiles.containsKey(url))
+				storeCache(url, null, null, null);
+
+			if (!wasCached)
+				return;
 		}
+
+		/* Notify the global updates */
+		notifyUpdate(url);
 	}
 
 	/**
@@ -14,6 +14,8 @@ public final class GlobalPreferences
 	private static int proxyPort;
 	private static int wrapColumn = 30;
 	private static int mcmcSteps = 500000;
+	private static int maximumCacheSize = 1024;
+	private static int maximumNumberOfDownloads = 4;
 
 	private static double b2gAlpha = Double.NaN;
 	private static double b2gBeta = Double.NaN;
@@ -179,6 +181,46 @@ public final class GlobalPreferences
 		return mcmcSteps;
 	}
 
+	/**
+	 * Returns the maximum size of the file cache.
+	 *
+	 * @return the size in MiB or 0 if the size is unbounded.
+	 */
+	public static int getMaximumCacheSize()
+	{
+		return maximumCacheSize;
+	}
+
+	/**
+	 * Sets the maximum size of the file cache.
+	 *
+	 * @param maximumCacheSize the size in MiB or 0 if the size is unbounded.
+	 */
+	public static void setMaximumCacheSize(int maximumCacheSize)
+	{
+		GlobalPreferences.maximumCacheSize = maximumCacheSize;
+	}
+
+	/**
+	 * Returns the maximum number of concurrent downloads of the file cache.
+	 *
+	 * @return
+	 */
+	public static int getMaximumNumberOfDownloads()
+	{
+		return maximumNumberOfDownloads;
+	}
+
+	/**
+	 * Sets the maximum number of concurrent downloads of the file cache.
+	 *
+	 * @param maximumNumberOfDownloads
+	 */
+	public static void setMaximumNumberOfDownloads(int maximumNumberOfDownloads)
+	{
+		GlobalPreferences.maximumNumberOfDownloads = maximumNumberOfDownloads;
+	}
+
 	public static void setAlpha(double alpha)
 	{
 		GlobalPreferences.b2gAlpha = alpha;
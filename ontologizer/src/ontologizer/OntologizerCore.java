@@ -2,10 +2,18 @@ package ontologizer;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import ontologizer.association.AssociationContainer;
 import ontologizer.association.AssociationParser;
 import ontologizer.association.IAssociationParserProgress;
+import ontologizer.calculation.AbstractGOTermProperties;
+import ontologizer.calculation.AbstractHypergeometricCalculation;
+import ontologizer.calculation.CalculationMetrics;
 import ontologizer.calculation.CalculationRegistry;
 import ontologizer.calculation.EnrichedGOTermsResult;
 import ontologizer.calculation.ICalculation;
@@ -17,6 +25,7 @@ import ontologizer.go.OBOParser;
 import ontologizer.go.OBOParserException;
 import ontologizer.go.OBOParserFileInput;
 import ontologizer.go.TermContainer;
+import ontologizer.metrics.PhaseTimeline;
 import ontologizer.set.PopulationSet;
 import ontologizer.set.StudySet;
 import ontologizer.set.StudySetFactory;
@@ -88,6 +97,20 @@ public class OntologizerCore
 
 		/** Specifies the filter file */
 		public String filterFile;
+
+		/**
+		 * Should each subontology (e.g., biological_process) be analyzed
+		 * separately? The analyses are performed concurrently and the
+		 * multiple test correction is applied within each subontology.
+		 */
+		public boolean partitionBySubontology;
+
+		/**
+		 * Should large p values of terms with many annotated genes be
+		 * approximated? Applies to calculations based on the hypergeometric
+		 * distribution.
+		 */
+		public boolean approximateLargePValues;
 	};
 
 	/** Contains all available GOTerms */
@@ -115,6 +138,15 @@ public class OntologizerCore
 	 * analysis based on the scheme in GeneMerge. */
 	private PopulationSet populationSet;
 
+	/** Whether each subontology is analyzed separately */
+	private boolean partitionBySubontology;
+
+	/** Whether large p values are approximated */
+	private boolean approximateLargePValues;
+
+	/** The phases of loading the data */
+	private PhaseTimeline loadTimeline;
+
 	/**
 	 * Construct the object.
 	 *
@@ -126,44 +158,53 @@ public class OntologizerCore
 	public OntologizerCore(Arguments args) throws FileNotFoundException, IOException, OBOParserException
 	{
 		/* Set the desired calculation method or the default */
-		calculation = CalculationRegistry.getCalculationByName(args.calculationName);
+		calculation = createCalculation(args.calculationName);
 		if (calculation == null)
-			calculation = CalculationRegistry.getDefault();
-		if (calculation instanceof Bayes2GOCalculation) {
-			Bayes2GOCalculation b2g = (Bayes2GOCalculation) calculation;
-			b2g.setAlpha(B2GParam.Type.MCMC);
-			b2g.setBeta(B2GParam.Type.MCMC);
-			b2g.setExpectedNumber(B2GParam.Type.MCMC);
-			b2g.setMcmcSteps(1000000);
-		}
+			calculation = createCalculation(null);
+
+		partitionBySubontology = args.partitionBySubontology;
+		approximateLargePValues = args.approximateLargePValues;
+		configureCalculation(calculation);
 
 		/* Set the desired test correction or set the default */
-		testCorrection = TestCorrectionRegistry.getCorrectionByName(args.correctionName);
+		testCorrection = createTestCorrection(args.correctionName, args.resamplingSteps, args.sizeTolerance);
 		if (testCorrection == null)
-			testCorrection = TestCorrectionRegistry.getDefault();
-		/* Empty cache for resampling based MTCs and set number of sampling steps */
-		if (testCorrection instanceof IResampling) {
-			IResampling resampling = (IResampling) testCorrection;
-			resampling.resetCache();
-			if (args.resamplingSteps > 0) {
-				resampling.setNumberOfResamplingSteps(args.resamplingSteps);
+			testCorrection = createTestCorrection(null, args.resamplingSteps, args.sizeTolerance);
 
-			}
-			if (args.sizeTolerance > 0) {
-				resampling.setSizeTolerance(args.sizeTolerance);
-			}
+		loadTimeline = new PhaseTimeline();
+		PhaseTimeline previous = PhaseTimeline.attach(loadTimeline);
+		try
+		{
+			load(args);
+		} finally
+		{
+			PhaseTimeline.attach(previous);
 		}
+	}
 
+	/**
+	 * Loads the ontology, the associations and the gene sets
+	 * specified by the arguments.
+	 *
+	 * @param args
+	 * @throws IOException
+	 * @throws FileNotFoundException
+	 * @throws OBOParserException
+	 */
+	private void load(Arguments args) throws FileNotFoundException, IOException, OBOParserException
+	{
 		/* Parse the gene_ontology.obo file to get information about all terms.
 		 * Transfer the information to a TermContainer object.
 		 */
 		System.err.println("Parse obo file \"" + args.goTermsOBOFile + "\"");
 
-		OBOParser oboParser = new OBOParser(new OBOParserFileInput(args.goTermsOBOFile));
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(args.goTermsOBOFile), 0, OBOParser.ESSENTIAL_TAGS);
 		System.err.println(oboParser.doParse());
 		goTerms = new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate());
 		System.err.println("Building graph");
+		PhaseTimeline.Phase phase = PhaseTimeline.begin("graph construction");
 		goGraph = Ontology.create(goTerms);
+		phase.end();
 
 		/* create the study list. A directory or a single file might be given */
 		File studyFile = new File(args.studySet);
@@ -247,6 +288,79 @@ public class OntologizerCore
 		}
 	}
 
+	/**
+	 * Creates a new instance of the given calculation, configured as it is
+	 * used by the command line.
+	 *
+	 * @param calculationName the name of the calculation or null for the
+	 *  default calculation.
+	 * @return the calculation or null if no calculation of the given name
+	 *  is registered.
+	 */
+	public static ICalculation createCalculation(String calculationName)
+	{
+		ICalculation calculation;
+		if (calculationName == null) calculation = CalculationRegistry.getDefault();
+		else calculation = CalculationRegistry.getCalculationByName(calculationName);
+		if (calculation == null)
+			return null;
+
+		calculation = CalculationRegistry.newInstance(calculation);
+		if (calculation instanceof Bayes2GOCalculation) {
+			Bayes2GOCalculation b2g = (Bayes2GOCalculation) calculation;
+			b2g.setAlpha(B2GParam.Type.MCMC);
+			b2g.setBeta(B2GParam.Type.MCMC);
+			b2g.setExpectedNumber(B2GParam.Type.MCMC);
+			b2g.setMcmcSteps(1000000);
+		}
+		return calculation;
+	}
+
+	/**
+	 * Applies the arguments that concern the calculation to the given
+	 * calculation.
+	 *
+	 * @param calc
+	 */
+	private void configureCalculation(ICalculation calc)
+	{
+		if (calc instanceof AbstractHypergeometricCalculation)
+			((AbstractHypergeometricCalculation)calc).setApproximate(approximateLargePValues);
+	}
+
+	/**
+	 * Creates a new instance of the given test correction.
+	 *
+	 * @param correctionName the name of the test correction or null for the
+	 *  default test correction.
+	 * @param resamplingSteps the number of steps of resampling based test
+	 *  corrections or 0 for the default.
+	 * @param sizeTolerance the size tolerance of resampling based test
+	 *  corrections or 0 for the default.
+	 * @return the test correction or null if no test correction of the given
+	 *  name is registered.
+	 */
+	public static AbstractTestCorrection createTestCorrection(String correctionName, int resamplingSteps, int sizeTolerance)
+	{
+		AbstractTestCorrection testCorrection;
+		if (correctionName == null) testCorrection = TestCorrectionRegistry.getDefault();
+		else testCorrection = TestCorrectionRegistry.getCorrectionByName(correctionName);
+		if (testCorrection == null)
+			return null;
+
+		testCorrection = TestCorrectionRegistry.newInstance(testCorrection);
+		if (testCorrection instanceof IResampling) {
+			IResampling resampling = (IResampling) testCorrection;
+			if (resamplingSteps > 0) {
+				resampling.setNumberOfResamplingSteps(resamplingSteps);
+			}
+			if (sizeTolerance > 0) {
+				resampling.setSizeTolerance(sizeTolerance);
+			}
+		}
+		return testCorrection;
+	}
+
 	/**
 	 * Returns the iterator over all results.
 	 *
@@ -272,9 +386,7 @@ public class OntologizerCore
 
 		for (StudySet studySet : studySetList)
 		{
-			studySetResultList.addStudySetResult(
-					calculation.calculateStudySet(goGraph,goAssociations,populationSet,studySet,testCorrection)
-					);
+			studySetResultList.addStudySetResult(calculateStudySet(studySet));
 
 			/* Reset the counter and enumerator items here. It is not necessarily
 			 * nice to place it here, but for the moment it's the easiest way
@@ -285,6 +397,50 @@ public class OntologizerCore
 
 	private Iterator<StudySet> studySetIter;
 
+	/**
+	 * The instances that are used for the analysis of a single subontology.
+	 * The sets cache the term enumerators of the ontology they were used
+	 * with, resampling based corrections cache samples and calculations are
+	 * not thread-safe, hence each subontology gets its own instances.
+	 */
+	private static class SubontologyAnalysis
+	{
+		Ontology graph;
+		PopulationSet populationSet;
+		ICalculation calculation;
+		AbstractTestCorrection testCorrection;
+	}
+
+	/** The analyses of the subontologies, created on demand */
+	private List<SubontologyAnalysis> subontologyAnalyses;
+
+	/**
+	 * Returns the analyses of the subontologies. They are created when
+	 * needed first and reused for all study sets, so the population is
+	 * enumerated only once per subontology.
+	 *
+	 * @return the analyses
+	 */
+	private List<SubontologyAnalysis> getSubontologyAnalyses()
+	{
+		if (subontologyAnalyses == null)
+		{
+			subontologyAnalyses = new ArrayList<SubontologyAnalysis>();
+			for (Ontology subontology : goGraph.getSubontologies())
+			{
+				SubontologyAnalysis analysis = new SubontologyAnalysis();
+				analysis.graph = subontology;
+				analysis.populationSet = new PopulationSet(populationSet.getName());
+				analysis.populationSet.addGenes(populationSet);
+				analysis.calculation = createCalculation(calculation.getName());
+				configureCalculation(analysis.calculation);
+				analysis.testCorrection = TestCorrectionRegistry.newInstance(testCorrection);
+				subontologyAnalyses.add(analysis);
+			}
+		}
+		return subontologyAnalyses;
+	}
+
 	/**
 	 * Perform the statistical calculation of the next study. When called
 	 * first, the first study is considered as the next study.
@@ -302,7 +458,7 @@ public class OntologizerCore
 		}
 
 		StudySet studySet = studySetIter.next();
-		EnrichedGOTermsResult studySetResult = calculation.calculateStudySet(goGraph,goAssociations,populationSet,studySet,testCorrection);
+		EnrichedGOTermsResult studySetResult = calculateStudySet(studySet);
 
 		/* Reset the counter and enumerator items here. It is not necessarily
 		 * nice to place it here, but for the moment it's the easiest way
@@ -311,6 +467,77 @@ public class OntologizerCore
 		return studySetResult;
 	}
 
+	/**
+	 * Perform the statistical calculation of the given study, either on
+	 * the entire ontology or on each subontology.
+	 *
+	 * @param studySet
+	 * @return the result of the calculation.
+	 */
+	private EnrichedGOTermsResult calculateStudySet(StudySet studySet)
+	{
+		if (!partitionBySubontology)
+			return CalculationMetrics.calculateStudySet(calculation,goGraph,goAssociations,populationSet,studySet,testCorrection);
+
+		List<SubontologyAnalysis> analyses = getSubontologyAnalyses();
+		int numberOfThreads = Math.max(1, Math.min(analyses.size(), Runtime.getRuntime().availableProcessors()));
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+
+		try
+		{
+			List<Future<EnrichedGOTermsResult>> futures = new ArrayList<Future<EnrichedGOTermsResult>>();
+			for (final SubontologyAnalysis analysis : analyses)
+			{
+				/* The study set caches the term enumerators, too */
+				final StudySet subStudySet = new StudySet(studySet.getName());
+				subStudySet.addGenes(studySet);
+
+				futures.add(executor.submit(new Callable<EnrichedGOTermsResult>()
+				{
+					public EnrichedGOTermsResult call() throws Exception
+					{
+						return CalculationMetrics.calculateStudySet(analysis.calculation,analysis.graph,goAssociations,analysis.populationSet,subStudySet,analysis.testCorrection);
+					}
+				}));
+			}
+
+			/* Merge the results in the order of the subontologies */
+			EnrichedGOTermsResult studySetResult = new EnrichedGOTermsResult(goGraph, goAssociations, studySet, populationSet.getGeneCount());
+			studySetResult.setCalculationName(calculation.getName());
+			studySetResult.setCorrectionName(testCorrection.getName());
+			PhaseTimeline timeline = new PhaseTimeline();
+			for (Future<EnrichedGOTermsResult> future : futures)
+			{
+				for (AbstractGOTermProperties prop : future.get())
+					studySetResult.addGOTermProperties(prop);
+				timeline.addAll(future.get().getTimeline());
+			}
+			studySetResult.setTimeline(timeline);
+			return studySetResult;
+		} catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e)
+		{
+			throw new RuntimeException(e.getCause());
+		} finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the phases of loading the data, e.g., the parsing of
+	 * the ontology and the associations.
+	 *
+	 * @return the timeline
+	 */
+	public PhaseTimeline getLoadTimeline()
+	{
+		return loadTimeline;
+	}
+
 	public AssociationContainer getGoAssociations()
 	{
 		return goAssociations;
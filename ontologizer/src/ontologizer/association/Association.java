@@ -6,6 +6,7 @@ import ontologizer.association.AssociationParser.Type;
 import ontologizer.go.PrefixPool;
 import ontologizer.go.TermID;
 import ontologizer.types.ByteString;
+import ontologizer.types.ByteStringSet;
 
 /**
  * <P>
@@ -185,6 +186,31 @@ public class Association
 
 	private Association() {};
 
+	/**
+	 * Constructs a new association object from the given attributes.
+	 *
+	 * @param dbObject
+	 * @param dbObjectSymbol
+	 * @param synonym
+	 * @param termID
+	 * @param evidence
+	 * @param aspect
+	 * @param notQualifier
+	 * @return the association
+	 */
+	static Association create(ByteString dbObject, ByteString dbObjectSymbol, ByteString synonym, TermID termID, ByteString evidence, ByteString aspect, boolean notQualifier)
+	{
+		Association a = new Association();
+		a.DB_Object = dbObject;
+		a.DB_Object_Symbol = dbObjectSymbol;
+		a.synonym = synonym;
+		a.termID = termID;
+		a.evidence = evidence;
+		a.aspect = aspect;
+		a.notQualifier = notQualifier;
+		return a;
+	}
+
 	/**
 	 * Returns the Term ID of this association.
 	 *
@@ -434,6 +460,62 @@ public class Association
 		return a;
 	}
 
+	/**
+	 * Checks whether the GAF line stored in the given byte array refers
+	 * to an item of the given set, i.e., whether the db object id, the
+	 * object symbol, or one of the synonyms is contained in names.
+	 * In contrast to createFromGAFLine() no objects are created.
+	 *
+	 * @param byteBuf
+	 * @param offset
+	 * @param len
+	 * @param names
+	 * @return whether the line refers to one of the given names.
+	 */
+	public static boolean gafLineRefersTo(byte[] byteBuf, int offset, int len, ByteStringSet names)
+	{
+		int fieldOffset = offset;
+		int p = offset;
+		int fieldNo = 0;
+
+		while (p < offset + len && fieldNo <= SYNONYMFIELD)
+		{
+			if (byteBuf[p] == '\t')
+			{
+				switch (fieldNo)
+				{
+					case	DBOBJECTFIELD:
+					case	DBOBJECTSYMBOLFIELD:
+							if (names.contains(byteBuf, fieldOffset, p - fieldOffset))
+								return true;
+							break;
+
+					case	SYNONYMFIELD:
+							/* Note that there can be multiple synonyms, separated by a pipe */
+							if (p - fieldOffset > 2)
+							{
+								int synonymOffset = fieldOffset;
+								for (int i=fieldOffset;i<=p;i++)
+								{
+									if (i == p || byteBuf[i] == '|')
+									{
+										if (names.contains(byteBuf, synonymOffset, i - synonymOffset))
+											return true;
+										synonymOffset = i + 1;
+									}
+								}
+							}
+							break;
+				}
+
+				fieldOffset = p + 1;
+				fieldNo++;
+			}
+			p++;
+		}
+		return false;
+	}
+
 	@Override
 	public String toString() {
 	    StringBuilder builder = new StringBuilder();
@@ -2,23 +2,131 @@ package ontologizer.association;
 
 import java.util.*;
 
+import ontologizer.go.TermID;
 import ontologizer.types.ByteString;
 
 /**
  * After AssociationParser was used to parse the gene_association.XXX file, this
  * class is used to store and process the information about Associations.
+ *
+ * The associations are stored in a columnar fashion, i.e., for each
+ * association only indices into tables of distinct genes, terms, evidence
+ * codes, etc. are kept. Association objects are created on demand only.
+ * The associations of a gene are located via an index that is built lazily
+ * after associations have been added.
  */
 public class AssociationContainer implements Iterable<Gene2Associations>
 {
-	/** Mapping from gene (or gene product) names to Association objects */
+	/**
+	 * Maps distinct values to dense indices and back.
+	 *
+	 * @param <T>
+	 */
+	private static class Dictionary<T>
+	{
+		private ArrayList<T> values = new ArrayList<T>();
+		private HashMap<T,Integer> indices = new HashMap<T,Integer>();
+
+		/**
+		 * Returns the index of the given value. The value is added
+		 * if not already present.
+		 *
+		 * @param value
+		 * @return the index or -1 if value is null.
+		 */
+		public int index(T value)
+		{
+			if (value == null) return -1;
+
+			Integer idx = indices.get(value);
+			if (idx == null)
+			{
+				idx = values.size();
+				values.add(value);
+				indices.put(value, idx);
+			}
+			return idx;
+		}
+
+		/**
+		 * Returns the index of the given value.
+		 *
+		 * @param value
+		 * @return the index or -1 if the value is not present.
+		 */
+		public int find(T value)
+		{
+			if (value == null) return -1;
+
+			Integer idx = indices.get(value);
+			if (idx == null) return -1;
+			return idx;
+		}
+
+		/**
+		 * Returns the value of the given index.
+		 *
+		 * @param index
+		 * @return the value or null if index is -1.
+		 */
+		public T get(int index)
+		{
+			if (index == -1) return null;
+			return values.get(index);
+		}
+
+		public int size()
+		{
+			return values.size();
+		}
+	}
+
+	/** Flag for associations with a NOT qualifier */
+	private static final byte NOT_QUALIFIER = 1;
+
+	/** Mapping from gene (or gene product) names to the associations of the gene */
 	private HashMap<ByteString, Gene2Associations> gene2assocs;
 
+	/** The associations of each gene, indexed by the index of the gene */
+	private ArrayList<Gene2Associations> genes;
+
 	/** Mapping of synonyms to gene names */
 	private HashMap<ByteString, ByteString> synonym2gene;
 
 	/** <I>key</I>: dbObject <I>value</I>: main gene name (dbObject_Symbol) */
 	private HashMap<ByteString, ByteString> dbObject2gene;
 
+	/* Distinct values of the association attributes */
+	private Dictionary<TermID> termIDs;
+	private Dictionary<ByteString> evidences;
+	private Dictionary<ByteString> aspects;
+	private Dictionary<ByteString> dbObjects;
+	private Dictionary<ByteString> synonyms;
+
+	/* The columns, indexed by the number of the association */
+	private int [] assocGene;
+	private int [] assocTerm;
+	private int [] assocEvidence;
+	private int [] assocAspect;
+	private int [] assocDbObject;
+	private int [] assocSynonym;
+	private byte [] assocFlags;
+
+	/** Number of stored associations */
+	private int numberOfAssociations;
+
+	/**
+	 * The index from genes to associations. The associations of gene g
+	 * are geneAssocs[geneOffsets[g]] to geneAssocs[geneOffsets[g+1]-1].
+	 * Associations that annotate a gene to an already annotated term
+	 * are not part of the index.
+	 */
+	private int [] geneOffsets;
+	private int [] geneAssocs;
+
+	/** Whether the index reflects all added associations */
+	private volatile boolean indexValid;
+
 	/**
 	 * Total number of annotations available for the genes in our dataset.
 	 */
@@ -52,8 +160,7 @@ public class AssociationContainer implements Iterable<Gene2Associations>
 		synonym2gene = s2g;
 		dbObject2gene = dbo2g;
 
-		totalAnnotations = 0;
-		gene2assocs = new HashMap<ByteString, Gene2Associations>();
+		init(assocs.size());
 
 		for (Association a : assocs)
 			addAssociation(a);
@@ -68,33 +175,248 @@ public class AssociationContainer implements Iterable<Gene2Associations>
 	{
 		synonym2gene = new HashMap<ByteString,ByteString>();
 		dbObject2gene = new HashMap<ByteString, ByteString>();
+
+		init(16);
+	}
+
+	/**
+	 * Initializes the association storage.
+	 *
+	 * @param capacity the initial number of associations that can be stored.
+	 */
+	private void init(int capacity)
+	{
+		capacity = Math.max(capacity, 16);
+
 		gene2assocs = new HashMap<ByteString, Gene2Associations>();
+		genes = new ArrayList<Gene2Associations>();
+
+		termIDs = new Dictionary<TermID>();
+		evidences = new Dictionary<ByteString>();
+		aspects = new Dictionary<ByteString>();
+		dbObjects = new Dictionary<ByteString>();
+		synonyms = new Dictionary<ByteString>();
+
+		assocGene = new int[capacity];
+		assocTerm = new int[capacity];
+		assocEvidence = new int[capacity];
+		assocAspect = new int[capacity];
+		assocDbObject = new int[capacity];
+		assocSynonym = new int[capacity];
+		assocFlags = new byte[capacity];
 
 		totalAnnotations = 0;
 	}
 
+	/**
+	 * Ensures that the given number of associations can be stored.
+	 *
+	 * @param capacity
+	 */
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity <= assocGene.length)
+			return;
+
+		int newCapacity = Math.max(capacity, assocGene.length * 2);
+		assocGene = Arrays.copyOf(assocGene, newCapacity);
+		assocTerm = Arrays.copyOf(assocTerm, newCapacity);
+		assocEvidence = Arrays.copyOf(assocEvidence, newCapacity);
+		assocAspect = Arrays.copyOf(assocAspect, newCapacity);
+		assocDbObject = Arrays.copyOf(assocDbObject, newCapacity);
+		assocSynonym = Arrays.copyOf(assocSynonym, newCapacity);
+		assocFlags = Arrays.copyOf(assocFlags, newCapacity);
+	}
+
 
 	/**
 	 * Adds a new association.
 	 *
 	 * @param a
 	 */
-	public void addAssociation(Association a)
+	public synchronized void addAssociation(Association a)
 	{
 		totalAnnotations++;
-		Gene2Associations g2a = null;
-		if (gene2assocs.containsKey(a.getObjectSymbol()))
-		{
-			g2a = gene2assocs.get(a.getObjectSymbol());
-			g2a.add(a); // Add the Association to existing g2a
-		} else
+
+		Gene2Associations g2a = gene2assocs.get(a.getObjectSymbol());
+		if (g2a == null)
 		{
-			// Otherwise create new Gene2Associations object
-			// for this gene.
-			g2a = new Gene2Associations(a.getObjectSymbol());
-			g2a.add(a);
+			g2a = new Gene2Associations(this, a.getObjectSymbol(), genes.size());
+			genes.add(g2a);
 			gene2assocs.put(a.getObjectSymbol(), g2a);
 		}
+
+		int idx = numberOfAssociations;
+		ensureCapacity(idx + 1);
+		assocGene[idx] = g2a.index();
+		assocTerm[idx] = termIDs.index(a.getTermID());
+		assocEvidence[idx] = evidences.index(a.getEvidence());
+		assocAspect[idx] = aspects.index(a.getAspect());
+		assocDbObject[idx] = dbObjects.index(a.getDB_Object());
+		assocSynonym[idx] = synonyms.index(a.getSynonym());
+		assocFlags[idx] = a.hasNotQualifier() ? NOT_QUALIFIER : 0;
+		numberOfAssociations++;
+
+		indexValid = false;
+	}
+
+	/**
+	 * Builds the index from genes to associations unless it is
+	 * already up-to-date.
+	 */
+	private void ensureIndex()
+	{
+		if (indexValid)
+			return;
+
+		synchronized (this)
+		{
+			if (indexValid)
+				return;
+
+			int numberOfGenes = genes.size();
+
+			/* Sort the associations by gene, retaining the order of insertion */
+			int [] offsets = new int[numberOfGenes + 1];
+			for (int i=0;i<numberOfAssociations;i++)
+				offsets[assocGene[i] + 1]++;
+			for (int g=0;g<numberOfGenes;g++)
+				offsets[g + 1] += offsets[g];
+
+			int [] assocs = new int[numberOfAssociations];
+			int [] next = Arrays.copyOf(offsets, numberOfGenes);
+			for (int i=0;i<numberOfAssociations;i++)
+				assocs[next[assocGene[i]]++] = i;
+
+			/* Keep only the first association of a gene to a term */
+			int [] lastGeneOfTerm = new int[termIDs.size()];
+			Arrays.fill(lastGeneOfTerm, -1);
+
+			int n = 0;
+			for (int g=0;g<numberOfGenes;g++)
+			{
+				int start = offsets[g];
+				int end = offsets[g + 1];
+				offsets[g] = n;
+
+				for (int j=start;j<end;j++)
+				{
+					int a = assocs[j];
+					int t = assocTerm[a];
+					if (t != -1)
+					{
+						if (lastGeneOfTerm[t] == g)
+							continue;
+						lastGeneOfTerm[t] = g;
+					}
+					assocs[n++] = a;
+				}
+			}
+			offsets[numberOfGenes] = n;
+
+			geneOffsets = offsets;
+			geneAssocs = assocs;
+			indexValid = true;
+		}
+	}
+
+	/**
+	 * Returns the number of associations of the given gene.
+	 *
+	 * @param gene the index of the gene
+	 * @return the number of associations.
+	 */
+	int getNumberOfAssociations(int gene)
+	{
+		ensureIndex();
+		if (gene >= genes.size())
+			return 0;
+		return geneOffsets[gene + 1] - geneOffsets[gene];
+	}
+
+	/**
+	 * Returns the number of the i-th association of the given gene.
+	 *
+	 * @param gene the index of the gene
+	 * @param i
+	 * @return
+	 */
+	private int getAssociationNumber(int gene, int i)
+	{
+		ensureIndex();
+		int offset = geneOffsets[gene] + i;
+		if (i < 0 || offset >= geneOffsets[gene + 1])
+			throw new IndexOutOfBoundsException("Association " + i + " is out of range");
+		return geneAssocs[offset];
+	}
+
+	/**
+	 * Returns the term id of the i-th association of the given gene.
+	 *
+	 * @param gene the index of the gene
+	 * @param i
+	 * @return
+	 */
+	TermID getTermID(int gene, int i)
+	{
+		return termIDs.get(assocTerm[getAssociationNumber(gene, i)]);
+	}
+
+	/**
+	 * Returns the evidence code of the i-th association of the given gene.
+	 *
+	 * @param gene the index of the gene
+	 * @param i
+	 * @return
+	 */
+	ByteString getEvidence(int gene, int i)
+	{
+		return evidences.get(assocEvidence[getAssociationNumber(gene, i)]);
+	}
+
+	/**
+	 * Returns whether the given gene is annotated to the given term.
+	 *
+	 * @param gene the index of the gene
+	 * @param tid
+	 * @return
+	 */
+	boolean containsID(int gene, TermID tid)
+	{
+		int t = termIDs.find(tid);
+		if (t == -1)
+			return false;
+
+		ensureIndex();
+		if (gene >= genes.size())
+			return false;
+
+		for (int j=geneOffsets[gene];j<geneOffsets[gene + 1];j++)
+		{
+			if (assocTerm[geneAssocs[j]] == t)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Creates the object for the i-th association of the given gene.
+	 *
+	 * @param gene the index of the gene
+	 * @param i
+	 * @return
+	 */
+	Association getAssociation(int gene, int i)
+	{
+		int a = getAssociationNumber(gene, i);
+		return Association.create(
+				dbObjects.get(assocDbObject[a]),
+				genes.get(assocGene[a]).name(),
+				synonyms.get(assocSynonym[a]),
+				termIDs.get(assocTerm[a]),
+				evidences.get(assocEvidence[a]),
+				aspects.get(assocAspect[a]),
+				(assocFlags[a] & NOT_QUALIFIER) != 0);
 	}
 
 	/** For debugging */
@@ -103,6 +425,7 @@ public class AssociationContainer implements Iterable<Gene2Associations>
 		StringBuilder sb = new StringBuilder();
 		sb.append("*****\n---AssociationContainer---\n*****\n");
 		sb.append("Total annotations: " + totalAnnotations + "\n");
+		sb.append("Number of distinct terms: " + termIDs.size() + "\n");
 		sb.append("Number of genes with associations: " + gene2assocs.size()
 				+ "\n");
 		sb.append("Number of synonyms: " + synonym2gene.size() + "\n");
@@ -182,13 +505,60 @@ public class AssociationContainer implements Iterable<Gene2Associations>
 		return gene2assocs.keySet();
 	}
 
+	/**
+	 * Returns the total number of associations stored in this container.
+	 *
+	 * @return the number of associations.
+	 */
+	public synchronized int getNumberOfAssociations()
+	{
+		return numberOfAssociations;
+	}
+
 	public boolean containsGene(ByteString g1)
 	{
 		return get(g1) != null;
 	}
 
+	/**
+	 * Determines the genes whose annotations differ between this and the
+	 * given container. Genes that are annotated in only one of the
+	 * containers are included as well. Only the annotated term ids are
+	 * compared.
+	 *
+	 * @param other
+	 * @return the symbols of the genes whose annotations differ.
+	 */
+	public Set<ByteString> getChangedGenes(AssociationContainer other)
+	{
+		Set<ByteString> changed = new HashSet<ByteString>();
+
+		for (Gene2Associations g2a : this)
+		{
+			Gene2Associations otherG2a = other.gene2assocs.get(g2a.name());
+			if (otherG2a == null)
+			{
+				changed.add(g2a.name());
+				continue;
+			}
+
+			Set<TermID> tids = new HashSet<TermID>(g2a.getAssociations());
+			Set<TermID> otherTids = new HashSet<TermID>(otherG2a.getAssociations());
+			if (!tids.equals(otherTids))
+				changed.add(g2a.name());
+		}
+
+		for (ByteString gene : other.gene2assocs.keySet())
+		{
+			if (!gene2assocs.containsKey(gene))
+				changed.add(gene);
+		}
+
+		return changed;
+	}
+
 	public Iterator<Gene2Associations> iterator()
 	{
-		return gene2assocs.values().iterator();
+		return Collections.unmodifiableList(genes).iterator();
 	}
 }
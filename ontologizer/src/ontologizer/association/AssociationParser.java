@@ -19,6 +19,10 @@ import ontologizer.go.OBOParserFileInput;
 import ontologizer.go.TermID;
 import ontologizer.go.TermMap;
 import ontologizer.linescanner.AbstractByteLineScanner;
+import ontologizer.metrics.Counter;
+import ontologizer.metrics.Metrics;
+import ontologizer.metrics.PhaseTimeline;
+import ontologizer.metrics.Timer;
 import ontologizer.types.ByteString;
 
 /**
@@ -37,6 +41,10 @@ public class AssociationParser
 {
 	private static Logger logger = Logger.getLogger(AssociationParser.class.getName());
 
+	private static final Timer PARSE_TIMER = Metrics.timer("ontologizer_association_parse_seconds", "Time spent for parsing association files");
+	private static final Counter PARSED_ASSOCIATIONS = Metrics.counter("ontologizer_associations_total", "Number of parsed associations");
+	private static final Counter PARSED_BYTES = Metrics.counter("ontologizer_association_input_bytes_total", "Number of bytes of parsed association files as stored on disk");
+
 	public enum Type
 	{
 		UNKNOWN,
@@ -154,8 +162,10 @@ public class AssociationParser
 				{
 					if (len > 0 && buf[start] != '#')
 					{
-						byte [] b = new byte[len];
+						/* Keep the line break, otherwise the line would be merged with the next one */
+						byte [] b = new byte[len + 1];
 						System.arraycopy(buf, start, b, 0, len);
+						b[len] = '\n';
 						lines.add(b);
 						return false;
 					}
@@ -246,8 +256,11 @@ public class AssociationParser
 	    	if (progress != null)
         		progress.init(input.getSize());
         
+        	long startNanos = System.nanoTime();
+        	PhaseTimeline.Phase phase = PhaseTimeline.begin("association parse");
         	PafLineScanner ls = new PafLineScanner(input, head, names, terms, getByteStringSetFromStringCollection(evidences), progress);
         	ls.scan();
+        	recordMetrics(phase, startNanos, ls.good, input.getSize());
         
         	if (progress != null)
         		progress.update(input.getSize());
@@ -272,6 +285,22 @@ public class AssociationParser
 
 	
 
+	/**
+	 * Records the metrics of a finished parse.
+	 *
+	 * @param phase the phase of the parse
+	 * @param startNanos
+	 * @param parsed number of parsed associations
+	 * @param size the size of the input
+	 */
+	private static void recordMetrics(PhaseTimeline.Phase phase, long startNanos, int parsed, int size)
+	{
+		phase.end();
+		PARSE_TIMER.recordSince(startNanos);
+		PARSED_ASSOCIATIONS.add(parsed);
+		if (size > 0) PARSED_BYTES.add(size);
+	}
+
 	/**
 	 * Get from a collection of strings a ByteString set.
 	 *
@@ -310,8 +339,11 @@ public class AssociationParser
 		if (progress != null)
 			progress.init(input.getSize());
 
+		long startNanos = System.nanoTime();
+		PhaseTimeline.Phase phase = PhaseTimeline.begin("association parse");
 		GAFByteLineScanner ls = new GAFByteLineScanner(input, head, names, terms,getByteStringSetFromStringCollection(evidences), progress);
 		ls.scan();
+		recordMetrics(phase, startNanos, ls.good, input.getSize());
 
 		if (progress != null)
 			progress.update(input.getSize());
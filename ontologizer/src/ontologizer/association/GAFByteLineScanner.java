@@ -13,6 +13,7 @@ import ontologizer.go.TermID;
 import ontologizer.go.TermMap;
 import ontologizer.linescanner.AbstractByteLineScanner;
 import ontologizer.types.ByteString;
+import ontologizer.types.ByteStringSet;
 
 /**
  * A GAF Line scanner.
@@ -27,7 +28,7 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 	private IParserInput input;
 
 	/** Contains all items whose associations should gathered or null if all should be gathered */
-	private Set<ByteString> names;
+	private ByteStringSet names;
 
 	/** All known terms */
 	private TermMap terms;
@@ -77,7 +78,8 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 		push(head);
 
 		this.input = input;
-		this.names = names;
+		if (names != null)
+			this.names = new ByteStringSet(names);
 		this.terms = terms;
 		this.evidences = evidences;
 		this.progress = progress;
@@ -103,6 +105,14 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 		if (len < 1 || buf[start]=='!')
 			return true;
 
+		/* Skip lines of uninteresting items before anything is decoded */
+		if (names != null && !Association.gafLineRefersTo(buf, start, len, names))
+		{
+			good++;
+			skipped++;
+			return true;
+		}
+
 		Association assoc = Association.createFromGAFLine(buf,start,len,prefixPool);
 
 		try
@@ -189,36 +199,8 @@ class GAFByteLineScanner extends AbstractByteLineScanner
 			} else
 				synonyms = null;
 
-			if (names != null)
-			{
-				/* We are only interested in associations to given genes */
-				boolean keep = false;
-
-				/* Check if synonyms are contained */
-				if (synonyms != null)
-				{
-					for (int i = 0; i < synonyms.length; i++)
-					{
-						if (names.contains(synonyms[i]))
-						{
-							keep = true;
-							break;
-						}
-					}
-				}
-
-				if (keep || names.contains(assoc.getObjectSymbol()) || names.contains(assoc.getDB_Object()))
-				{
-					kept++;
-				} else
-				{
-					skipped++;
-					return true;
-				}
-			} else
-			{
-				kept++;
-			}
+			/* Items that are not of interest have been filtered out already */
+			kept++;
 
 			if (synonyms != null)
 			{
@@ -1,6 +1,8 @@
 package ontologizer.association;
 
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import ontologizer.go.TermID;
 import ontologizer.types.ByteString;
@@ -12,8 +14,9 @@ import ontologizer.types.ByteString;
  * </P>
  * <P>
  * Note that duplicate entries are possible in the association files. For this
- * reason, we make sure there is only one entry for each GO:id number. We do
- * this by storing a list of all goIDs seen in the arrayList goIDs.
+ * reason, we make sure there is only one entry for each GO:id number.
+ * Objects of this class are views on the associations that are stored
+ * by an AssociationContainer.
  * </P>
  * <P>
  * This class implements the Iterable interface, so you easly can iterate
@@ -27,13 +30,30 @@ public class Gene2Associations implements Iterable<Association>
 	/** Name of the gene for which this object stores 0 - n associations */
 	private ByteString gene;
 
-	/** List of GO functional annotations */
-	private ArrayList<Association> associations;
+	/** The container that stores the associations */
+	private AssociationContainer container;
+
+	/** The index of the gene within the container */
+	private int index;
 
 	public Gene2Associations(ByteString name)
 	{
-		associations = new ArrayList<Association>();
-		gene = name;
+		this(new AssociationContainer(), name, 0);
+	}
+
+	/**
+	 * Constructs the view on the associations of a gene stored
+	 * in the given container.
+	 *
+	 * @param container
+	 * @param name
+	 * @param index
+	 */
+	Gene2Associations(AssociationContainer container, ByteString name, int index)
+	{
+		this.container = container;
+		this.gene = name;
+		this.index = index;
 	}
 
 	/**
@@ -49,7 +69,7 @@ public class Gene2Associations implements Iterable<Association>
 			if (containsID(a.getTermID()))
 				return;
 
-			associations.add(a);
+			container.addAssociation(a);
 		}
 	}
 
@@ -58,6 +78,46 @@ public class Gene2Associations implements Iterable<Association>
 		return gene;
 	}
 
+	/**
+	 * @return the index of the gene within the container.
+	 */
+	int index()
+	{
+		return index;
+	}
+
+	/**
+	 * @return the number of associations of the gene.
+	 */
+	public int size()
+	{
+		return container.getNumberOfAssociations(index);
+	}
+
+	/**
+	 * Returns the term id of the i-th association. Unlike
+	 * getAssociations() or iterator() this does not create
+	 * any objects.
+	 *
+	 * @param i
+	 * @return the term id.
+	 */
+	public TermID getTermID(int i)
+	{
+		return container.getTermID(index, i);
+	}
+
+	/**
+	 * Returns the evidence code of the i-th association.
+	 *
+	 * @param i
+	 * @return the evidence code.
+	 */
+	public ByteString getEvidence(int i)
+	{
+		return container.getEvidence(index, i);
+	}
+
 	/**
 	 * Get an arraylist of all GO Ids to which this gene is directly
 	 * annotated by extracting the information from the Association object(s)
@@ -65,22 +125,41 @@ public class Gene2Associations implements Iterable<Association>
 	 */
 	public ArrayList<TermID> getAssociations()
 	{
-		ArrayList<TermID> a = new ArrayList<TermID>();
-		Iterator<Association> it = associations.iterator();
-		while (it.hasNext())
-		{
-			Association assoc = it.next();
-			a.add(assoc.getTermID());
-		}
+		int size = size();
+		ArrayList<TermID> a = new ArrayList<TermID>(size);
+		for (int i=0;i<size;i++)
+			a.add(getTermID(i));
 		return a;
 	}
 
 	/**
-	 * Returns the iterator to iterate over all associations.
+	 * Returns the iterator to iterate over all associations. The
+	 * association objects are created on the fly.
 	 */
 	public Iterator<Association> iterator()
 	{
-		return associations.iterator();
+		return new Iterator<Association>()
+		{
+			private int next;
+			private int size = size();
+
+			public boolean hasNext()
+			{
+				return next < size;
+			}
+
+			public Association next()
+			{
+				if (next >= size)
+					throw new NoSuchElementException();
+				return container.getAssociation(index, next++);
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	/**
@@ -91,11 +170,6 @@ public class Gene2Associations implements Iterable<Association>
 	 */
 	public boolean containsID(TermID tid)
 	{
-		for (Association assoc : associations)
-		{
-			if (assoc.getTermID().equals(tid))
-				return true;
-		}
-		return false;
+		return container.containsID(index, tid);
 	}
 }
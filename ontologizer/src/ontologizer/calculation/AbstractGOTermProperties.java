@@ -83,6 +83,26 @@ public abstract class AbstractGOTermProperties extends PValue
 		return false;
 	}
 
+	/**
+	 * Passes the specified property to the given appender. In contrast to
+	 * getProperty() numbers are passed as numbers and the population and
+	 * study gene counts are resolved.
+	 *
+	 * Subclasses should overwrite this, the default implementation
+	 * passes the properties as strings.
+	 *
+	 * @param propNumber
+	 * @param populationGeneCount
+	 * @param studyGeneCount
+	 * @param appender
+	 */
+	public void appendProperty(int propNumber, int populationGeneCount, int studyGeneCount, IPropertyAppender appender)
+	{
+		if (isPropertyPopulationGeneCount(propNumber)) appender.appendInt(populationGeneCount);
+		else if (isPropertyStudyGeneCount(propNumber)) appender.appendInt(studyGeneCount);
+		else appender.appendString(getProperty(propNumber), false);
+	}
+
 	/**
 	 * Creates a line giving the data in the object.
 	 *
@@ -8,9 +8,11 @@ package ontologizer.calculation;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 
 import ontologizer.association.AssociationContainer;
 import ontologizer.dotwriter.AbstractDotAttributesProvider;
@@ -27,9 +29,12 @@ import ontologizer.go.TermID;
  */
 public class AbstractGOTermsResult implements Iterable<AbstractGOTermProperties>
 {
-	/** A linear list containing properties for go terms */
+	/** A linear list containing properties for go terms, null if the result has been compacted */
 	protected ArrayList<AbstractGOTermProperties> list = new ArrayList<AbstractGOTermProperties>();
 
+	/** The properties for go terms after the result has been compacted */
+	private GOTermPropertiesColumns columns;
+
 	/** Maps the go term to an integer (for accesses in constant time) */
 	private HashMap<Term,Integer> go2Index = new HashMap<Term,Integer>();
 
@@ -59,9 +64,88 @@ public class AbstractGOTermsResult implements Iterable<AbstractGOTermProperties>
 	 */
 	public Iterator<AbstractGOTermProperties> iterator()
 	{
+		if (columns != null)
+			return columns.view(null).iterator();
 		return list.iterator();
 	}
 
+	/**
+	 * Stores the properties in primitive columns rather than in
+	 * individual objects, which saves a lot of memory for results that
+	 * are kept for a long time. Afterwards, the property objects are
+	 * created when they are accessed. They are no longer instances of
+	 * the class used by the calculation and changing them has no effect
+	 * on the result. No properties can be added after the result has
+	 * been compacted.
+	 *
+	 * Results whose properties are of different classes are not
+	 * compacted.
+	 *
+	 * @return whether the result is compact.
+	 */
+	public boolean compact()
+	{
+		if (columns != null)
+			return true;
+
+		for (AbstractGOTermProperties prop : list)
+		{
+			if (prop.getClass() != list.get(0).getClass())
+				return false;
+		}
+
+		columns = new GOTermPropertiesColumns(list);
+		list = null;
+		go2Index = null;
+		return true;
+	}
+
+	/**
+	 * @return whether the result has been compacted.
+	 */
+	public boolean isCompact()
+	{
+		return columns != null;
+	}
+
+	/**
+	 * Returns the properties sorted by their p values. For a compact
+	 * result, the order is determined only once and the property
+	 * objects are created when they are accessed.
+	 *
+	 * @return
+	 */
+	public List<AbstractGOTermProperties> getSortedProperties()
+	{
+		if (columns != null)
+			return columns.view(columns.getPOrder());
+
+		ArrayList<AbstractGOTermProperties> propsList = new ArrayList<AbstractGOTermProperties>(list);
+		Collections.sort(propsList);
+		return propsList;
+	}
+
+	/**
+	 * Returns the properties whose adjusted p values are below the given
+	 * threshold, sorted by their p values.
+	 *
+	 * @param thresh
+	 * @return
+	 */
+	public List<AbstractGOTermProperties> getSignificantProperties(double thresh)
+	{
+		if (columns != null)
+			return columns.view(columns.getSignificantRows(thresh));
+
+		ArrayList<AbstractGOTermProperties> propsList = new ArrayList<AbstractGOTermProperties>();
+		for (AbstractGOTermProperties props : getSortedProperties())
+		{
+			if (props.isSignificant(thresh))
+				propsList.add(props);
+		}
+		return propsList;
+	}
+
 	/**
 	 *
 	 * @param prop
@@ -70,6 +154,8 @@ public class AbstractGOTermsResult implements Iterable<AbstractGOTermProperties>
 	{
 		if (prop.goTerm == null)
 			throw new IllegalArgumentException("prop.goTerm mustn't be null");
+		if (columns != null)
+			throw new IllegalStateException("No properties can be added to a compact result");
 
 		list.add(prop);
 		Integer integer = new Integer(index);
@@ -85,10 +171,10 @@ public class AbstractGOTermsResult implements Iterable<AbstractGOTermProperties>
 	 */
 	public AbstractGOTermProperties getGOTermProperties(TermID goID)
 	{
-		Integer index = go2Index.get(go.getTerm(goID));
-		if (index == null)
+		Term term = go.getTerm(goID);
+		if (term == null)
 			return null;
-		return list.get(index);
+		return getGOTermProperties(term);
 	}
 
 	/**
@@ -99,6 +185,13 @@ public class AbstractGOTermsResult implements Iterable<AbstractGOTermProperties>
 	 */
 	public AbstractGOTermProperties getGOTermProperties(Term term)
 	{
+		if (columns != null)
+		{
+			int row = columns.find(term);
+			if (row == -1) return null;
+			return columns.get(row);
+		}
+
 		Integer idx = go2Index.get(term);
 		if (idx == null) return null;
 		return list.get(idx);
@@ -122,6 +215,8 @@ public class AbstractGOTermsResult implements Iterable<AbstractGOTermProperties>
 	 */
 	public int getSize()
 	{
+		if (columns != null)
+			return columns.rows;
 		return list.size();
 	}
 
@@ -158,7 +253,7 @@ public class AbstractGOTermsResult implements Iterable<AbstractGOTermProperties>
 	 */
 	public void writeDOT(Ontology graph, File file, TermID rootTerm, HashSet<TermID> terms, AbstractDotAttributesProvider provider)
 	{
-		if (list.isEmpty())
+		if (getSize() == 0)
 			return;
 
 		GODOTWriter.writeDOT(graph, file, rootTerm, terms, provider);
@@ -17,4 +17,16 @@ public abstract class AbstractHypergeometricCalculation implements ICalculation
 	 * data
 	 */
 	protected Hypergeometric hyperg = new Hypergeometric();
+
+	/**
+	 * Sets whether large p values of terms with many annotated
+	 * genes are approximated rather than calculated exactly.
+	 *
+	 * @param approximate
+	 * @see Hypergeometric#setApproximate(boolean)
+	 */
+	public void setApproximate(boolean approximate)
+	{
+		hyperg.setApproximate(approximate);
+	}
 }
@@ -0,0 +1,60 @@
+package ontologizer.calculation;
+
+import ontologizer.association.AssociationContainer;
+import ontologizer.go.Ontology;
+import ontologizer.metrics.Metrics;
+import ontologizer.metrics.PhaseTimeline;
+import ontologizer.set.PopulationSet;
+import ontologizer.set.StudySet;
+import ontologizer.statistics.AbstractTestCorrection;
+import ontologizer.statistics.Hypergeometric;
+
+/**
+ * Performs calculations while recording their duration in the
+ * metrics, labeled by the name of the calculation, and their phases
+ * in a timeline that is attached to the result. Afterwards, the
+ * lookups of the shared hypergeometric cache are added to the metrics.
+ */
+public class CalculationMetrics
+{
+	private CalculationMetrics()
+	{
+	}
+
+	/**
+	 * Performs the given calculation on the given study set. The phases
+	 * of the calculation are recorded in a new timeline that is attached
+	 * to the current thread during the calculation and to the result
+	 * afterwards.
+	 *
+	 * @param calculation
+	 * @param graph
+	 * @param goAssociations
+	 * @param populationSet
+	 * @param studySet
+	 * @param testCorrection
+	 * @return the result of the calculation
+	 * @see ICalculation#calculateStudySet(Ontology, AssociationContainer, PopulationSet, StudySet, AbstractTestCorrection)
+	 */
+	public static EnrichedGOTermsResult calculateStudySet(ICalculation calculation, Ontology graph, AssociationContainer goAssociations,
+			PopulationSet populationSet, StudySet studySet, AbstractTestCorrection testCorrection)
+	{
+		long startNanos = System.nanoTime();
+		PhaseTimeline timeline = new PhaseTimeline();
+		PhaseTimeline previous = PhaseTimeline.attach(timeline);
+		EnrichedGOTermsResult result;
+		try
+		{
+			PhaseTimeline.Phase phase = PhaseTimeline.begin("calculation");
+			result = calculation.calculateStudySet(graph, goAssociations, populationSet, studySet, testCorrection);
+			phase.end();
+		} finally
+		{
+			PhaseTimeline.attach(previous);
+			Hypergeometric.getSharedCache().flush();
+		}
+		result.setTimeline(timeline);
+		Metrics.timer("ontologizer_calculation_seconds", "Time spent for calculations", "calculation", calculation.getName()).recordSince(startNanos);
+		return result;
+	}
+}
@@ -45,6 +45,28 @@ public class CalculationRegistry
 		return calculationMap.get(name);
 	}
 
+	/**
+	 * Creates a new instance of the given calculation, e.g., if the
+	 * calculation is performed for several study sets concurrently.
+	 *
+	 * @param calculation
+	 *            the calculation to be instantiated.
+	 * @return the new instance.
+	 */
+	public static ICalculation newInstance(ICalculation calculation)
+	{
+		try
+		{
+			return calculation.getClass().newInstance();
+		} catch (InstantiationException e)
+		{
+			throw new IllegalArgumentException("Calculation \"" + calculation.getName() + "\" couldn't be instantiated!", e);
+		} catch (IllegalAccessException e)
+		{
+			throw new IllegalArgumentException("Calculation \"" + calculation.getName() + "\" couldn't be instantiated!", e);
+		}
+	}
+
 	/**
 	 * Returns the default calculation
 	 *
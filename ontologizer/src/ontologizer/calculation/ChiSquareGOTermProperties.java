@@ -42,6 +42,24 @@ public class ChiSquareGOTermProperties extends AbstractGOTermProperties
 		return null;
 	}
 
+	@Override
+	public void appendProperty(int propNumber, int populationGeneCount, int studyGeneCount, IPropertyAppender appender)
+	{
+		switch (propNumber)
+		{
+			case	0: appender.appendString(goTerm.getIDAsString(), false); break;
+			case	1: appender.appendInt(populationGeneCount); break;
+			case	2: appender.appendInt(annotatedPopulationGenes); break;
+			case	3: appender.appendInt(studyGeneCount); break;
+			case	4: appender.appendInt(annotatedStudyGenes); break;
+			case	5: appender.appendInt(nchildren); break;
+			case	6: appender.appendInt(df); break;
+			case	7: appender.appendDouble(chisquare); break;
+			case	8: appender.appendDouble(p); break;
+			default: super.appendProperty(propNumber, populationGeneCount, studyGeneCount, appender); break;
+		}
+	}
+
 	public boolean isPropertyPopulationGeneCount(int propNumber)
 	{
 		return propNumber == 1;
@@ -0,0 +1,142 @@
+package ontologizer.calculation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads results that have been written by ColumnarResultWriter.
+ */
+public class ColumnarResultReader implements Closeable
+{
+	/**
+	 * The result of a single study set.
+	 */
+	public static class Table
+	{
+		public String studySetName;
+		public int populationGeneCount;
+		public int studyGeneCount;
+		public int rows;
+
+		public String [] columnNames;
+
+		/** The columns, either int[], double[], boolean[] or String[] arrays */
+		public Object [] columns;
+
+		/**
+		 * Returns the index of the column with the given name.
+		 *
+		 * @param name
+		 * @return the index or -1 if no such column exists.
+		 */
+		public int getColumnIndex(String name)
+		{
+			for (int i=0;i<columnNames.length;i++)
+			{
+				if (columnNames[i].equals(name))
+					return i;
+			}
+			return -1;
+		}
+	}
+
+	private DataInputStream in;
+
+	/**
+	 * Constructs a reader reading from the given stream.
+	 *
+	 * @param is
+	 * @throws IOException if the stream is not in the expected format.
+	 */
+	public ColumnarResultReader(InputStream is) throws IOException
+	{
+		in = new DataInputStream(new BufferedInputStream(is, 65536));
+		if (in.readInt() != ColumnarResultWriter.MAGIC)
+			throw new IOException("Not a columnar result file");
+		int version = in.readInt();
+		if (version != ColumnarResultWriter.VERSION)
+			throw new IOException("Unsupported version " + version + " of the columnar result file");
+	}
+
+	/**
+	 * Reads the next table.
+	 *
+	 * @return the table or null if there are no more tables.
+	 * @throws IOException
+	 */
+	public Table next() throws IOException
+	{
+		int b = in.read();
+		if (b == -1)
+			return null;
+		if (b != ColumnarResultWriter.BLOCK)
+			throw new IOException("Corrupted columnar result file");
+
+		Table table = new Table();
+		table.studySetName = in.readUTF();
+		table.populationGeneCount = in.readInt();
+		table.studyGeneCount = in.readInt();
+		table.rows = in.readInt();
+
+		int columns = in.readShort();
+		table.columnNames = new String[columns];
+		table.columns = new Object[columns];
+
+		for (int i=0;i<columns;i++)
+		{
+			table.columnNames[i] = in.readUTF();
+			if (table.rows == 0)
+			{
+				table.columns[i] = new String[0];
+				continue;
+			}
+
+			byte type = in.readByte();
+			switch (type)
+			{
+				case	ColumnarResultWriter.TYPE_INT:
+						int [] ints = new int[table.rows];
+						for (int j=0;j<ints.length;j++)
+							ints[j] = in.readInt();
+						table.columns[i] = ints;
+						break;
+
+				case	ColumnarResultWriter.TYPE_DOUBLE:
+						double [] doubles = new double[table.rows];
+						for (int j=0;j<doubles.length;j++)
+							doubles[j] = in.readDouble();
+						table.columns[i] = doubles;
+						break;
+
+				case	ColumnarResultWriter.TYPE_BOOLEAN:
+						boolean [] booleans = new boolean[table.rows];
+						for (int j=0;j<booleans.length;j++)
+							booleans[j] = in.readBoolean();
+						table.columns[i] = booleans;
+						break;
+
+				case	ColumnarResultWriter.TYPE_STRING:
+						String [] strings = new String[table.rows];
+						for (int j=0;j<strings.length;j++)
+						{
+							if (in.readBoolean())
+								strings[j] = in.readUTF();
+						}
+						table.columns[i] = strings;
+						break;
+
+				default:
+						throw new IOException("Unknown column type " + type);
+			}
+		}
+		return table;
+	}
+
+	public void close() throws IOException
+	{
+		in.close();
+	}
+}
@@ -0,0 +1,175 @@
+package ontologizer.calculation;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes results in a compact binary format in which the values of
+ * each column are stored contiguously. Results of any number of study
+ * sets can be appended to the same stream. Use ColumnarResultReader to
+ * read the data back.
+ *
+ * The format consists of the magic number followed by the blocks of the
+ * results. Each block starts with the BLOCK byte followed by the name
+ * of the study set, the population and study gene counts, the number of
+ * rows and the number of columns. Each column consists of its name, its
+ * type and the values of all rows. All numbers are big endian, strings
+ * are in modified UTF-8 as written by DataOutputStream. String values
+ * are preceded by a boolean that indicates whether the value is present.
+ * The rows are sorted by p value.
+ */
+public class ColumnarResultWriter implements IResultWriter
+{
+	/** The suffix of files in this format */
+	public static final String SUFFIX = ".col";
+
+	public static final int MAGIC = 0x4f434f4c; /* "OCOL" */
+	public static final int VERSION = 1;
+	public static final byte BLOCK = 'B';
+
+	public static final byte TYPE_INT = 1;
+	public static final byte TYPE_DOUBLE = 2;
+	public static final byte TYPE_BOOLEAN = 3;
+	public static final byte TYPE_STRING = 4;
+
+	private DataOutputStream out;
+
+	/** Whether the type of the current column has been written */
+	private boolean typeWritten;
+	private byte type;
+	private IOException exception;
+
+	/**
+	 * Writes the values of the current column. The type of a column
+	 * is determined by its first value.
+	 */
+	private IPropertyAppender appender = new IPropertyAppender()
+	{
+		public void appendInt(int value)
+		{
+			try
+			{
+				type(TYPE_INT);
+				out.writeInt(value);
+			} catch (IOException e)
+			{
+				exception = e;
+			}
+		}
+
+		public void appendDouble(double value)
+		{
+			try
+			{
+				type(TYPE_DOUBLE);
+				out.writeDouble(value);
+			} catch (IOException e)
+			{
+				exception = e;
+			}
+		}
+
+		public void appendBoolean(boolean value)
+		{
+			try
+			{
+				type(TYPE_BOOLEAN);
+				out.writeBoolean(value);
+			} catch (IOException e)
+			{
+				exception = e;
+			}
+		}
+
+		public void appendString(String value, boolean quote)
+		{
+			try
+			{
+				type(TYPE_STRING);
+				out.writeBoolean(value != null);
+				if (value != null) out.writeUTF(value);
+			} catch (IOException e)
+			{
+				exception = e;
+			}
+		}
+	};
+
+	/**
+	 * Constructs a writer writing to the given stream.
+	 *
+	 * @param os
+	 * @throws IOException
+	 */
+	public ColumnarResultWriter(OutputStream os) throws IOException
+	{
+		out = new DataOutputStream(new BufferedOutputStream(os, 65536));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+	private void type(byte newType) throws IOException
+	{
+		if (!typeWritten)
+		{
+			out.writeByte(newType);
+			type = newType;
+			typeWritten = true;
+		} else if (type != newType)
+		{
+			throw new IllegalArgumentException("The values of a column must be of the same type");
+		}
+	}
+
+	public void write(EnrichedGOTermsResult result) throws IOException
+	{
+		/* The properties are accessed once per column, so they are fetched only once */
+		List<AbstractGOTermProperties> propsList = new ArrayList<AbstractGOTermProperties>(result.getSortedProperties());
+
+		int populationGeneCount = result.getPopulationGeneCount();
+		int studyGeneCount = result.getStudyGeneCount();
+		int columns = propsList.size() > 0 ? propsList.get(0).getNumberOfProperties() : 0;
+
+		out.writeByte(BLOCK);
+		out.writeUTF(result.getStudySet().getName());
+		out.writeInt(populationGeneCount);
+		out.writeInt(studyGeneCount);
+		out.writeInt(propsList.size());
+		out.writeShort(columns);
+
+		for (int i=0;i<columns;i++)
+		{
+			out.writeUTF(propsList.get(0).getPropertyName(i));
+			typeWritten = false;
+			for (AbstractGOTermProperties props : propsList)
+			{
+				props.appendProperty(i, populationGeneCount, studyGeneCount, appender);
+				if (exception != null)
+				{
+					IOException e = exception;
+					exception = null;
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Flushes all data written so far.
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	public void close() throws IOException
+	{
+		out.close();
+	}
+}
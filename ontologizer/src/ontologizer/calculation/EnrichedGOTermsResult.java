@@ -8,7 +8,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,6 +20,7 @@ import ontologizer.go.Namespace;
 import ontologizer.go.Term;
 import ontologizer.go.TermID;
 import ontologizer.go.Ontology.IVisitingGOVertex;
+import ontologizer.metrics.PhaseTimeline;
 import ontologizer.set.StudySet;
 import ontologizer.util.Util;
 
@@ -41,6 +41,9 @@ public class EnrichedGOTermsResult extends AbstractGOTermsResult
 	private String calculationName;
 	private String correctionName;
 
+	/** The phases of the calculation that lead to this result */
+	private PhaseTimeline timeline;
+
 	/**
 	 *
 	 * @param studySet
@@ -96,6 +99,29 @@ public class EnrichedGOTermsResult extends AbstractGOTermsResult
 		this.correctionName = correctionName;
 	}
 
+	/**
+	 * Returns the phases of the calculation that lead to this
+	 * result, e.g., the enumeration or the calculation of the
+	 * raw p values.
+	 *
+	 * @return the timeline or null if it was not recorded.
+	 */
+	public PhaseTimeline getTimeline()
+	{
+		return timeline;
+	}
+
+	/**
+	 * Sets the phases of the calculation that lead to this
+	 * result.
+	 *
+	 * @param timeline
+	 */
+	public void setTimeline(PhaseTimeline timeline)
+	{
+		this.timeline = timeline;
+	}
+
 	/**
 	 * Returns the set of terms for which the all-subset minimal p-value is
 	 * below the given cutoff. Those are the "good" terms.
@@ -148,7 +174,7 @@ public class EnrichedGOTermsResult extends AbstractGOTermsResult
 		/* Build the props Array and count the number significant p values */
 		int i = 0;
 		int scount = 0;
-		AbstractGOTermProperties propArray[] = new AbstractGOTermProperties[list.size()];
+		AbstractGOTermProperties propArray[] = new AbstractGOTermProperties[getSize()];
 		for (AbstractGOTermProperties props : this)
 		{
 			propArray[i++] = props;
@@ -273,11 +299,6 @@ public class EnrichedGOTermsResult extends AbstractGOTermsResult
 		writeDOT(graph,file,thresh,counts,rootTerm,nodes);
 	}
 
-	public Iterator<AbstractGOTermProperties> iterator()
-	{
-		return list.iterator();
-	}
-
 	/**
 	 * Returns the studyset where these results are belonging to.
 	 *
@@ -4,11 +4,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Class implementing methods to write enrichment results.
@@ -27,28 +25,38 @@ public class EnrichedGOTermsTableWriter
 	 */
 	public static void writeTable(OutputStream os, EnrichedGOTermsResult result)
 	{
-		AbstractGOTermProperties first = result.iterator().next();
-
-		PrintWriter out = new PrintWriter(os);
-
-		/* Write out the table header */
-
-		out.write(first.propHeaderToString());
-
-		/* Place the result into an own list, so we can sort the results */
-		ArrayList<AbstractGOTermProperties> propsList = new ArrayList<AbstractGOTermProperties>();
-		for (AbstractGOTermProperties props : result)
-			propsList.add(props);
-		Collections.sort(propsList);
-
-		/* Write out table contents */
-		for (AbstractGOTermProperties props : propsList)
+		TableResultWriter out = new TableResultWriter(os, false);
+		try
+		{
+			out.write(result);
+			out.close();
+		} catch (IOException e)
 		{
-			out.println(props.propLineToString(result.getPopulationGeneCount(), result.getStudyGeneCount()));
+			logger.log(Level.SEVERE, "Exception occured when writing the table.", e);
 		}
+	}
 
-		out.flush();
-		out.close();
+	/**
+	 * Creates a writer to which the results of several study sets can be
+	 * written. The format is determined by the name of the file. Files
+	 * ending with ColumnarResultWriter.SUFFIX are written in the columnar
+	 * format, files ending with ".gz" as compressed tab-separated table,
+	 * all others as tab-separated table. The tables contain the name of
+	 * the study set in the first column.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static IResultWriter createWriter(File file) throws IOException
+	{
+		OutputStream os = new FileOutputStream(file);
+		String name = file.getName();
+		if (name.endsWith(ColumnarResultWriter.SUFFIX))
+			return new ColumnarResultWriter(os);
+		if (name.endsWith(".gz"))
+			os = new GZIPOutputStream(os, 65536);
+		return new TableResultWriter(os, true);
 	}
 
 	/**
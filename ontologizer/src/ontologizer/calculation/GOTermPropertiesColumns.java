@@ -0,0 +1,432 @@
+package ontologizer.calculation;
+
+import java.util.AbstractList;
+import java.util.List;
+
+import ontologizer.go.Term;
+
+/**
+ * Stores the properties of the terms of a result in primitive columns
+ * rather than in individual objects.
+ */
+class GOTermPropertiesColumns
+{
+	static final byte TYPE_INT = 1;
+	static final byte TYPE_DOUBLE = 2;
+	static final byte TYPE_BOOLEAN = 3;
+	static final byte TYPE_STRING = 4;
+
+	/* The fields that are common to all properties */
+	final int rows;
+	final Term [] terms;
+	final int [] annotatedPopulationGenes;
+	final int [] annotatedStudyGenes;
+	final double [] p;
+	final double [] pAdjusted;
+	final double [] pMin;
+	final boolean [] ignoreAtMTC;
+
+	/* The table columns of the properties */
+	final String [] names;
+	final byte [] types;
+	final boolean [] quoted;
+	final boolean [] populationGeneCount;
+	final boolean [] studyGeneCount;
+
+	/** The values of the table columns, either int[], double[], boolean[] or String[] */
+	final Object [] values;
+
+	/** The rows sorted by the ids of their terms */
+	private final int [] idOrder;
+
+	/** The rows sorted by their p values, created on demand */
+	private volatile int [] pOrder;
+
+	/**
+	 * Builds a table column of the properties. The type of the column is
+	 * determined by its first value, but if the properties pass values
+	 * of different types, the column is turned into a string column.
+	 */
+	private class ColumnBuilder implements IPropertyAppender
+	{
+		private int column;
+		private int row;
+
+		public ColumnBuilder(int column)
+		{
+			this.column = column;
+		}
+
+		private boolean prepare(byte type)
+		{
+			if (row == 0)
+			{
+				types[column] = type;
+				switch (type)
+				{
+					case	TYPE_INT: values[column] = new int[rows]; break;
+					case	TYPE_DOUBLE: values[column] = new double[rows]; break;
+					case	TYPE_BOOLEAN: values[column] = new boolean[rows]; break;
+					default: values[column] = new String[rows]; break;
+				}
+			} else if (types[column] != type)
+			{
+				/* Convert the values got so far */
+				String [] strings = new String[rows];
+				for (int i=0;i<row;i++)
+					strings[i] = getString(column, i);
+				types[column] = TYPE_STRING;
+				values[column] = strings;
+			}
+			return types[column] == type;
+		}
+
+		public void appendInt(int value)
+		{
+			if (prepare(TYPE_INT)) ((int[])values[column])[row] = value;
+			else ((String[])values[column])[row] = Integer.toString(value);
+			row++;
+		}
+
+		public void appendDouble(double value)
+		{
+			if (prepare(TYPE_DOUBLE)) ((double[])values[column])[row] = value;
+			else ((String[])values[column])[row] = Double.toString(value);
+			row++;
+		}
+
+		public void appendBoolean(boolean value)
+		{
+			if (prepare(TYPE_BOOLEAN)) ((boolean[])values[column])[row] = value;
+			else ((String[])values[column])[row] = Boolean.toString(value);
+			row++;
+		}
+
+		public void appendString(String value, boolean quote)
+		{
+			prepare(TYPE_STRING);
+			((String[])values[column])[row] = value;
+			quoted[column] = quote;
+			row++;
+		}
+	}
+
+	/**
+	 * Constructs the columns of the given properties. All properties
+	 * must be of the same class.
+	 *
+	 * @param list
+	 */
+	GOTermPropertiesColumns(List<AbstractGOTermProperties> list)
+	{
+		rows = list.size();
+		terms = new Term[rows];
+		annotatedPopulationGenes = new int[rows];
+		annotatedStudyGenes = new int[rows];
+		p = new double[rows];
+		pAdjusted = new double[rows];
+		pMin = new double[rows];
+		ignoreAtMTC = new boolean[rows];
+
+		for (int i=0;i<rows;i++)
+		{
+			AbstractGOTermProperties props = list.get(i);
+			terms[i] = props.goTerm;
+			annotatedPopulationGenes[i] = props.annotatedPopulationGenes;
+			annotatedStudyGenes[i] = props.annotatedStudyGenes;
+			p[i] = props.p;
+			pAdjusted[i] = props.p_adjusted;
+			pMin[i] = props.p_min;
+			ignoreAtMTC[i] = props.ignoreAtMTC;
+		}
+
+		int columns = rows > 0 ? list.get(0).getNumberOfProperties() : 0;
+		names = new String[columns];
+		types = new byte[columns];
+		quoted = new boolean[columns];
+		this.populationGeneCount = new boolean[columns];
+		this.studyGeneCount = new boolean[columns];
+		values = new Object[columns];
+
+		for (int c=0;c<columns;c++)
+		{
+			AbstractGOTermProperties first = list.get(0);
+			names[c] = first.getPropertyName(c);
+			this.populationGeneCount[c] = first.isPropertyPopulationGeneCount(c);
+			this.studyGeneCount[c] = first.isPropertyStudyGeneCount(c);
+
+			/* The gene counts are not stored per term */
+			if (this.populationGeneCount[c] || this.studyGeneCount[c])
+				continue;
+
+			ColumnBuilder builder = new ColumnBuilder(c);
+			for (AbstractGOTermProperties props : list)
+				props.appendProperty(c, 0, 0, builder);
+		}
+
+		/* Sort the rows by the ids of the terms, so terms can be found by binary search */
+		idOrder = sortedRows(new RowComparator()
+		{
+			public int compare(int r1, int r2)
+			{
+				int id1 = terms[r1].getID().id;
+				int id2 = terms[r2].getID().id;
+				if (id1 < id2) return -1;
+				if (id1 > id2) return 1;
+				return 0;
+			}
+		});
+	}
+
+	/** Compares two rows */
+	private static interface RowComparator
+	{
+		public int compare(int r1, int r2);
+	}
+
+	/**
+	 * Returns the rows in the order defined by the given comparator.
+	 * The sort is stable.
+	 */
+	private int [] sortedRows(final RowComparator comparator)
+	{
+		int [] order = new int[rows];
+		for (int i=0;i<rows;i++)
+			order[i] = i;
+		mergeSort(order.clone(), order, 0, rows, comparator);
+		return order;
+	}
+
+	private static void mergeSort(int [] src, int [] dest, int low, int high, RowComparator comparator)
+	{
+		if (high - low < 2)
+			return;
+
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, comparator);
+		mergeSort(dest, src, mid, high, comparator);
+
+		for (int i = low, p = low, q = mid; i < high; i++)
+		{
+			if (q >= high || (p < mid && comparator.compare(src[p], src[q]) <= 0))
+				dest[i] = src[p++];
+			else
+				dest[i] = src[q++];
+		}
+	}
+
+	/**
+	 * Returns the row of the given term.
+	 *
+	 * @param term
+	 * @return the row or -1 if the term is not contained.
+	 */
+	int find(Term term)
+	{
+		int id = term.getID().id;
+		int low = 0;
+		int high = rows - 1;
+
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			int midId = terms[idOrder[mid]].getID().id;
+			if (midId < id) low = mid + 1;
+			else if (midId > id) high = mid - 1;
+			else
+			{
+				/* Terms of different prefixes may share the same number */
+				while (mid > 0 && terms[idOrder[mid - 1]].getID().id == id)
+					mid--;
+				for (;mid < rows && terms[idOrder[mid]].getID().id == id;mid++)
+				{
+					if (terms[idOrder[mid]].equals(term))
+						return idOrder[mid];
+				}
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the rows sorted by their p values.
+	 *
+	 * @return
+	 */
+	int [] getPOrder()
+	{
+		int [] order = pOrder;
+		if (order == null)
+		{
+			pOrder = order = sortedRows(new RowComparator()
+			{
+				public int compare(int r1, int r2)
+				{
+					if (p[r1] < p[r2]) return -1;
+					if (p[r1] > p[r2]) return 1;
+					return 0;
+				}
+			});
+		}
+		return order;
+	}
+
+	/**
+	 * Returns the rows whose adjusted p value is below the given
+	 * threshold, sorted by their p values.
+	 *
+	 * @param thresh
+	 * @return
+	 */
+	int [] getSignificantRows(double thresh)
+	{
+		int [] order = getPOrder();
+		int [] significant = new int[rows];
+		int count = 0;
+		for (int row : order)
+		{
+			if (pAdjusted[row] < thresh)
+				significant[count++] = row;
+		}
+		int [] result = new int[count];
+		System.arraycopy(significant, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Returns the value of the given table column as string.
+	 *
+	 * @param column
+	 * @param row
+	 * @return
+	 */
+	String getString(int column, int row)
+	{
+		switch (types[column])
+		{
+			case	TYPE_INT: return Integer.toString(((int[])values[column])[row]);
+			case	TYPE_DOUBLE: return Double.toString(((double[])values[column])[row]);
+			case	TYPE_BOOLEAN: return Boolean.toString(((boolean[])values[column])[row]);
+			case	TYPE_STRING:
+					String value = ((String[])values[column])[row];
+					if (quoted[column] && value != null) return "\"" + value + "\"";
+					return value;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the properties of the given row. The object is created
+	 * by this call.
+	 *
+	 * @param row
+	 * @return
+	 */
+	AbstractGOTermProperties get(int row)
+	{
+		return new CompactGOTermProperties(this, row);
+	}
+
+	/**
+	 * Returns a list view of the given rows, whose properties are created
+	 * when they are accessed.
+	 *
+	 * @param order the rows or null for all rows in their natural order.
+	 * @return
+	 */
+	List<AbstractGOTermProperties> view(final int [] order)
+	{
+		return new AbstractList<AbstractGOTermProperties>()
+		{
+			@Override
+			public AbstractGOTermProperties get(int index)
+			{
+				if (order == null)
+				{
+					if (index < 0 || index >= rows)
+						throw new IndexOutOfBoundsException();
+					return GOTermPropertiesColumns.this.get(index);
+				}
+				return GOTermPropertiesColumns.this.get(order[index]);
+			}
+
+			@Override
+			public int size()
+			{
+				return order == null ? rows : order.length;
+			}
+		};
+	}
+
+	/**
+	 * The properties of a single row.
+	 */
+	static class CompactGOTermProperties extends AbstractGOTermProperties
+	{
+		private GOTermPropertiesColumns columns;
+		private int row;
+
+		CompactGOTermProperties(GOTermPropertiesColumns columns, int row)
+		{
+			this.columns = columns;
+			this.row = row;
+
+			goTerm = columns.terms[row];
+			annotatedPopulationGenes = columns.annotatedPopulationGenes[row];
+			annotatedStudyGenes = columns.annotatedStudyGenes[row];
+			p = columns.p[row];
+			p_adjusted = columns.pAdjusted[row];
+			p_min = columns.pMin[row];
+			ignoreAtMTC = columns.ignoreAtMTC[row];
+		}
+
+		@Override
+		public int getNumberOfProperties()
+		{
+			return columns.names.length;
+		}
+
+		@Override
+		public String getPropertyName(int propNumber)
+		{
+			return columns.names[propNumber];
+		}
+
+		@Override
+		public String getProperty(int propNumber)
+		{
+			if (columns.populationGeneCount[propNumber] || columns.studyGeneCount[propNumber])
+				return null;
+			return columns.getString(propNumber, row);
+		}
+
+		@Override
+		public boolean isPropertyPopulationGeneCount(int propNumber)
+		{
+			return columns.populationGeneCount[propNumber];
+		}
+
+		@Override
+		public boolean isPropertyStudyGeneCount(int propNumber)
+		{
+			return columns.studyGeneCount[propNumber];
+		}
+
+		@Override
+		public void appendProperty(int propNumber, int populationGeneCount, int studyGeneCount, IPropertyAppender appender)
+		{
+			if (columns.populationGeneCount[propNumber]) { appender.appendInt(populationGeneCount); return; }
+			if (columns.studyGeneCount[propNumber]) { appender.appendInt(studyGeneCount); return; }
+
+			Object value = columns.values[propNumber];
+			switch (columns.types[propNumber])
+			{
+				case	TYPE_INT: appender.appendInt(((int[])value)[row]); break;
+				case	TYPE_DOUBLE: appender.appendDouble(((double[])value)[row]); break;
+				case	TYPE_BOOLEAN: appender.appendBoolean(((boolean[])value)[row]); break;
+				default: appender.appendString(((String[])value)[row], columns.quoted[propNumber]); break;
+			}
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package ontologizer.calculation;
+
+/**
+ * Receives the typed properties of a term, so they can be written
+ * without creating intermediate strings.
+ *
+ * @see AbstractGOTermProperties#appendProperty(int, int, int, IPropertyAppender)
+ */
+public interface IPropertyAppender
+{
+	public void appendInt(int value);
+	public void appendDouble(double value);
+	public void appendBoolean(boolean value);
+
+	/**
+	 * @param value the string, may be null.
+	 * @param quote whether the string is quoted in textual representations.
+	 */
+	public void appendString(String value, boolean quote);
+}
@@ -0,0 +1,20 @@
+package ontologizer.calculation;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Interface for classes that write the results of several study sets
+ * to a single destination. Results are written as soon as they are
+ * passed, so they need not to be kept.
+ */
+public interface IResultWriter extends Closeable
+{
+	/**
+	 * Appends the given result.
+	 *
+	 * @param result
+	 * @throws IOException
+	 */
+	public void write(EnrichedGOTermsResult result) throws IOException;
+}
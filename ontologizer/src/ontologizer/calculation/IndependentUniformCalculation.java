@@ -109,7 +109,7 @@ public class IndependentUniformCalculation implements ICalculation
 		pValueCalculation.graph = graph;
 		pValueCalculation.populationSet = populationSet;
 		pValueCalculation.observedStudySet = studySet;
-		PValue p[] = testCorrection.adjustPValues(pValueCalculation);
+		PValue p[] = testCorrection.adjustPValuesMeasured(pValueCalculation);
 
 		/*
 		 * Add the results to the result list and filter out terms with no
@@ -0,0 +1,276 @@
+package ontologizer.calculation;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import ontologizer.go.Ontology;
+import sonumina.math.graph.CSRDirectedGraph;
+
+/**
+ * An index to determine the most informative common ancestor (MICA) of
+ * terms, i.e., the common ancestor with the lowest probability of being
+ * annotated.
+ *
+ * The ancestors of each term are stored in the order of increasing
+ * probability. Hence, the MICA of two terms is the first ancestor that
+ * occurs in both lists, and the search stops as soon as it is found.
+ * Terms are identified by their ordinals, see Ontology.getTermOrdinal().
+ *
+ * Instances are thread-safe.
+ */
+public class MICAIndex
+{
+	/** The probabilities, indexed by term ordinal */
+	private double [] p;
+
+	/** Term ordinals sorted by increasing probability */
+	private int [] rank2Ordinal;
+
+	/** Offsets of the ancestor lists */
+	private int [] ancestorOffsets;
+
+	/** The ranks of the ancestors, each list sorted in ascending order */
+	private int [] ancestorRanks;
+
+	/** Scratch space for the batch queries */
+	private ThreadLocal<int []> marks = new ThreadLocal<int []>();
+
+	private MICAIndex()
+	{
+	}
+
+	/**
+	 * @return the number of terms.
+	 */
+	public int size()
+	{
+		return p.length;
+	}
+
+	/**
+	 * Returns the probability of the given term as specified on creation.
+	 *
+	 * @param ordinal
+	 * @return
+	 */
+	public double getP(int ordinal)
+	{
+		return p[ordinal];
+	}
+
+	/**
+	 * Returns the most informative common ancestor of the given terms.
+	 *
+	 * @param t1 ordinal of the first term
+	 * @param t2 ordinal of the second term
+	 * @return the ordinal of the MICA or -1 if the terms have no common ancestor.
+	 */
+	public int getMICA(int t1, int t2)
+	{
+		int i = ancestorOffsets[t1];
+		int iend = ancestorOffsets[t1+1];
+		int j = ancestorOffsets[t2];
+		int jend = ancestorOffsets[t2+1];
+
+		while (i < iend && j < jend)
+		{
+			int r1 = ancestorRanks[i];
+			int r2 = ancestorRanks[j];
+			if (r1 < r2) i++;
+			else if (r1 > r2) j++;
+			else return rank2Ordinal[r1];
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the probability of the most informative common ancestor
+	 * of the given terms.
+	 *
+	 * @param t1 ordinal of the first term
+	 * @param t2 ordinal of the second term
+	 * @return the probability or 1.0 if the terms have no common ancestor.
+	 */
+	public double getSharedP(int t1, int t2)
+	{
+		int mica = getMICA(t1, t2);
+		if (mica < 0) return 1.0;
+		return p[mica];
+	}
+
+	/**
+	 * Returns the marks array for the current thread.
+	 *
+	 * @return
+	 */
+	private int [] getMarks()
+	{
+		int [] m = marks.get();
+		if (m == null)
+		{
+			/* Entry 0 holds the current stamp */
+			m = new int[rank2Ordinal.length + 1];
+			marks.set(m);
+		}
+		if (++m[0] == Integer.MAX_VALUE)
+		{
+			Arrays.fill(m, 0);
+			m[0] = 1;
+		}
+		return m;
+	}
+
+	/**
+	 * Determines the shared information content, i.e., the negative
+	 * logarithm of the probability of the MICA, for all pairs of the
+	 * given terms.
+	 *
+	 * @param terms1 ordinals of the first terms
+	 * @param terms2 ordinals of the second terms
+	 * @return a matrix with terms1.length rows and terms2.length columns.
+	 */
+	public double [][] getSharedInformation(int [] terms1, int [] terms2)
+	{
+		double [][] result = new double[terms1.length][terms2.length];
+
+		for (int i=0;i<terms1.length;i++)
+		{
+			/* Mark the ancestors of the first term with a new stamp,
+			 * so the lists of the second terms can be scanned in order
+			 * until the first marked ancestor is found */
+			int [] m = getMarks();
+			int stamp = m[0];
+			int t1 = terms1[i];
+			for (int k=ancestorOffsets[t1];k<ancestorOffsets[t1+1];k++)
+				m[ancestorRanks[k]+1] = stamp;
+
+			for (int j=0;j<terms2.length;j++)
+			{
+				int t2 = terms2[j];
+				double sharedP = 1.0;
+				for (int k=ancestorOffsets[t2];k<ancestorOffsets[t2+1];k++)
+				{
+					int r = ancestorRanks[k];
+					if (m[r+1] == stamp)
+					{
+						sharedP = p[rank2Ordinal[r]];
+						break;
+					}
+				}
+				result[i][j] = -Math.log(sharedP);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Determines the maximum shared information content over all pairs
+	 * of the given terms, i.e., the similarity of Resnik when the terms
+	 * are the annotations of two genes. This is the information content
+	 * of the most informative term that is an ancestor of both a term in
+	 * terms1 and a term in terms2, which is determined without considering
+	 * the pairs individually.
+	 *
+	 * @param terms1 ordinals of the first terms
+	 * @param terms2 ordinals of the second terms
+	 * @return the maximum shared information content or 0 if there is no
+	 *  common ancestor.
+	 */
+	public double getMaxSharedInformation(int [] terms1, int [] terms2)
+	{
+		int [] m = getMarks();
+		int stamp = m[0];
+
+		for (int t1 : terms1)
+			for (int k=ancestorOffsets[t1];k<ancestorOffsets[t1+1];k++)
+				m[ancestorRanks[k]+1] = stamp;
+
+		int best = Integer.MAX_VALUE;
+		for (int t2 : terms2)
+		{
+			/* As lists are sorted, only the first marked entry is of interest */
+			for (int k=ancestorOffsets[t2];k<ancestorOffsets[t2+1];k++)
+			{
+				int r = ancestorRanks[k];
+				if (r >= best)
+					break;
+				if (m[r+1] == stamp)
+				{
+					best = r;
+					break;
+				}
+			}
+		}
+
+		if (best == Integer.MAX_VALUE)
+			return 0;
+		return -Math.log(p[rank2Ordinal[best]]);
+	}
+
+	/**
+	 * Creates the index.
+	 *
+	 * @param graph the graph whose vertices are the term ordinals.
+	 * @param p the probability of each term, indexed by the term ordinal.
+	 * @return the index.
+	 */
+	public static MICAIndex create(CSRDirectedGraph graph, double [] p)
+	{
+		int n = graph.getNumberOfVertices();
+		if (p.length != n)
+			throw new IllegalArgumentException("Number of probabilities (" + p.length + ") doesn't match number of terms (" + n + ")");
+
+		MICAIndex index = new MICAIndex();
+		index.p = p;
+
+		/* Sort ordinals by probability, ties are broken by the ordinal */
+		Integer [] sorted = new Integer[n];
+		for (int i=0;i<n;i++)
+			sorted[i] = i;
+		final double [] fp = p;
+		Arrays.sort(sorted, new Comparator<Integer>()
+		{
+			public int compare(Integer o1, Integer o2)
+			{
+				int c = Double.compare(fp[o1], fp[o2]);
+				if (c != 0) return c;
+				return o1.compareTo(o2);
+			}
+		});
+
+		index.rank2Ordinal = new int[n];
+		int [] ordinal2Rank = new int[n];
+		for (int r=0;r<n;r++)
+		{
+			index.rank2Ordinal[r] = sorted[r];
+			ordinal2Rank[sorted[r]] = r;
+		}
+
+		index.ancestorOffsets = new int[n+1];
+		for (int v=0;v<n;v++)
+			index.ancestorOffsets[v+1] = index.ancestorOffsets[v] + graph.getNumberOfAncestors(v);
+
+		index.ancestorRanks = new int[index.ancestorOffsets[n]];
+		for (int v=0;v<n;v++)
+		{
+			int start = index.ancestorOffsets[v];
+			int len = graph.getNumberOfAncestors(v);
+			for (int i=0;i<len;i++)
+				index.ancestorRanks[start + i] = ordinal2Rank[graph.getAncestor(v, i)];
+			Arrays.sort(index.ancestorRanks, start, start + len);
+		}
+		return index;
+	}
+
+	/**
+	 * Creates the index for the given ontology.
+	 *
+	 * @param ontology
+	 * @param p the probability of each term, indexed by the term ordinal.
+	 * @return the index.
+	 */
+	public static MICAIndex create(Ontology ontology, double [] p)
+	{
+		return create(ontology.getGraphIndex(), p);
+	}
+}
@@ -188,7 +188,7 @@ public class ParentChildCalculation extends
 		pValueCalculation.populationSet = popSet;
 		pValueCalculation.popTermEnumerator = popSet.enumerateGOTerms(graph, goAssociations);
 		pValueCalculation.observedStudySet = studySet;
-		PValue p[] = testCorrection.adjustPValues(pValueCalculation);
+		PValue p[] = testCorrection.adjustPValuesMeasured(pValueCalculation);
 
 		/* Add the results to the result list and filter out terms
 		 * with no annotated genes.
@@ -207,7 +207,7 @@ public class ParentChildCutCalculation extends
 		pValueCalculation.popTermEnumerator = popSet.enumerateGOTerms(graph,
 				goAssociations);
 		pValueCalculation.observedStudySet = studySet;
-		PValue p[] = testCorrection.adjustPValues(pValueCalculation);
+		PValue p[] = testCorrection.adjustPValuesMeasured(pValueCalculation);
 
 		/*
 		 * Add the results to the result list and filter out terms with no
@@ -2,7 +2,6 @@ package ontologizer.calculation;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -438,6 +437,12 @@ public class SemanticCalculation
 	 */
 	private Object [] associations;
 
+	/** The ordinals of the non-redundant associations (indexed by genes) */
+	private int [][] associationOrdinals;
+
+	/** Used to determine the most informative common ancestors */
+	private MICAIndex micaIndex;
+
 	private HashMap<ByteString,Integer> gene2index = new HashMap<ByteString,Integer>();
 
 	public SemanticCalculation(Ontology g, AssociationContainer assoc)
@@ -454,8 +459,15 @@ public class SemanticCalculation
 
 		cache = new IntHashMapForDoubles[g.maximumTermID()];
 
+		/* Probabilities of all terms, indexed by ordinal */
+		double [] termP = new double[g.getTermRegistry().size()];
+		for (int o=0;o<termP.length;o++)
+			termP[o] = p(g.getTermRegistry().get(o).getID());
+		micaIndex = MICAIndex.create(g, termP);
+
 		/* Making associations non-redundant */
 		associations = new Object[allGenesStudy.getGeneCount()];
+		associationOrdinals = new int[allGenesStudy.getGeneCount()][];
 		int i = 0;
 		for (ByteString gene : allGenesStudy)
 		{
@@ -485,6 +497,10 @@ public class SemanticCalculation
 
 			/* TODO: Sort terms according to their information content */
 			associations[i] = terms;
+
+			associationOrdinals[i] = new int[terms.length];
+			for (j=0;j<terms.length;j++)
+				associationOrdinals[i][j] = g.getTermOrdinal(terms[j]);
 			i++;
 		}
 
@@ -516,18 +532,11 @@ public class SemanticCalculation
 	 */
 	private double p(TermID t1, TermID t2)
 	{
-		Collection<TermID> sharedParents = graph.getSharedParents(t1, t2);
-		double p = 1.0;
-
 		/* The information content of two terms is defined as the minimum of
-		 * the information content of the shared parents.
+		 * the information content of the shared parents, i.e., the one of the
+		 * most informative common ancestor.
 		 */
-		for (TermID t : sharedParents)
-		{
-			double newP = p(t);
-			if (newP < p) p = newP;
-		}
-		return p;
+		return micaIndex.getSharedP(graph.getTermOrdinal(t1), graph.getTermOrdinal(t2));
 	}
 
 	/**
@@ -597,22 +606,9 @@ public class SemanticCalculation
 
 		if (g1 < 0 || g2 < 0) return 0;
 
-		sim = 0.0;
-
-		TermID [] tl1 = (TermID[])associations[g1];
-		TermID [] tl2 = (TermID[])associations[g2];
-
-		/* TODO: Research if we can employ sorting omit some or many of
-		 * the pairs.
-		 */
-		for (TermID t1 : tl1)
-		{
-			for (TermID t2 : tl2)
-			{
-				double newSim = sim(t1,t2);
-				if (newSim > sim) sim = newSim;
-			}
-		}
+		/* The maximum over all term pairs is the information content of
+		 * the most informative ancestor shared by any of the pairs */
+		sim = micaIndex.getMaxSharedInformation(associationOrdinals[g1], associationOrdinals[g2]);
 		return sim;
 	}
 
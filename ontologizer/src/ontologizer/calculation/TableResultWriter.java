@@ -0,0 +1,128 @@
+package ontologizer.calculation;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes results in a tab-separated format. The lines are assembled in
+ * a reused buffer, so no strings are created for numerical properties.
+ *
+ * If the study column is enabled, the results of several study sets can
+ * be written to the same table. A header is written whenever the
+ * columns change.
+ */
+public class TableResultWriter implements IResultWriter
+{
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	private Writer out;
+	private boolean withStudyColumn;
+
+	/** The header that has been written last */
+	private String header;
+
+	/** The current line */
+	private StringBuilder line = new StringBuilder(256);
+	private char [] buf = new char[256];
+
+	/** Appends the properties to the current line */
+	private IPropertyAppender appender = new IPropertyAppender()
+	{
+		public void appendInt(int value)
+		{
+			line.append(value);
+		}
+
+		public void appendDouble(double value)
+		{
+			line.append(value);
+		}
+
+		public void appendBoolean(boolean value)
+		{
+			line.append(value);
+		}
+
+		public void appendString(String value, boolean quote)
+		{
+			if (quote) line.append('"');
+			line.append(value);
+			if (quote) line.append('"');
+		}
+	};
+
+	/**
+	 * Constructs a writer writing to the given stream.
+	 *
+	 * @param os
+	 * @param withStudyColumn whether the name of the study set is written
+	 *  into the first column.
+	 */
+	public TableResultWriter(OutputStream os, boolean withStudyColumn)
+	{
+		this.out = new OutputStreamWriter(new BufferedOutputStream(os, 65536));
+		this.withStudyColumn = withStudyColumn;
+	}
+
+	public void write(EnrichedGOTermsResult result) throws IOException
+	{
+		List<AbstractGOTermProperties> propsList = result.getSortedProperties();
+		if (propsList.isEmpty())
+			return;
+
+		/* Write out the table header */
+		String newHeader = propsList.get(0).propHeaderToString();
+		if (withStudyColumn) newHeader = "study\t" + newHeader;
+		if (!newHeader.equals(header))
+		{
+			out.write(newHeader);
+			header = newHeader;
+		}
+
+		/* Write out table contents */
+		String studyName = result.getStudySet().getName();
+		int populationGeneCount = result.getPopulationGeneCount();
+		int studyGeneCount = result.getStudyGeneCount();
+		for (AbstractGOTermProperties props : propsList)
+		{
+			line.setLength(0);
+			if (withStudyColumn)
+			{
+				line.append(studyName);
+				line.append('\t');
+			}
+
+			int columns = props.getNumberOfProperties();
+			for (int i=0;i<columns;i++)
+			{
+				if (i != 0) line.append('\t');
+				props.appendProperty(i, populationGeneCount, studyGeneCount, appender);
+			}
+			line.append(LINE_SEPARATOR);
+
+			int len = line.length();
+			if (len > buf.length) buf = new char[len * 2];
+			line.getChars(0, len, buf, 0);
+			out.write(buf, 0, len);
+		}
+	}
+
+	/**
+	 * Flushes all data written so far.
+	 *
+	 * @throws IOException
+	 */
+	public void flush() throws IOException
+	{
+		out.flush();
+	}
+
+	public void close() throws IOException
+	{
+		out.close();
+	}
+}
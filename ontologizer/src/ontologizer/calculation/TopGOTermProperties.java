@@ -44,6 +44,26 @@ public class TopGOTermProperties extends AbstractGOTermProperties
 		return propertyNames[propNumber];
 	}
 
+	@Override
+	public void appendProperty(int propNumber, int populationGeneCount, int studyGeneCount, IPropertyAppender appender)
+	{
+		switch (propNumber)
+		{
+			case	0: appender.appendString(goTerm.getIDAsString(), false); break;
+			case	1: appender.appendInt(populationGeneCount); break;
+			case	2: appender.appendInt(annotatedPopulationGenes); break;
+			case	3: appender.appendInt(studyGeneCount); break;
+			case	4: appender.appendInt(annotatedStudyGenes); break;
+			case	5: appender.appendInt(popFamilyGenes); break;
+			case	6: appender.appendInt(studyFamilyGenes); break;
+			case	7: appender.appendBoolean(ignoreAtMTC); break;
+			case	8: appender.appendDouble(p); break;
+			case	9: appender.appendDouble(p_adjusted); break;
+			case	10: appender.appendDouble(p_min); break;
+			default: super.appendProperty(propNumber, populationGeneCount, studyGeneCount, appender); break;
+		}
+	}
+
 	@Override
 	public boolean isPropertyPopulationGeneCount(int propNumber)
 	{
@@ -16,6 +16,9 @@ import ontologizer.calculation.ICalculationProgress;
 import ontologizer.enumeration.GOTermEnumerator;
 import ontologizer.go.Ontology;
 import ontologizer.go.TermID;
+import ontologizer.metrics.Counter;
+import ontologizer.metrics.Metrics;
+import ontologizer.metrics.PhaseTimeline;
 import ontologizer.parser.ItemAttribute;
 import ontologizer.parser.ValuedItemAttribute;
 import ontologizer.set.PopulationSet;
@@ -34,6 +37,9 @@ public class Bayes2GOCalculation implements ICalculation
 {
 	private static Logger logger = Logger.getLogger(Bayes2GOCalculation.class.getCanonicalName());
 
+	private static final Counter MCMC_STEPS = Metrics.counter("ontologizer_mcmc_steps_total", "Number of proposed MCMC steps");
+	private static final Counter MCMC_ACCEPTS = Metrics.counter("ontologizer_mcmc_accepted_steps_total", "Number of accepted MCMC steps");
+
 	private boolean WRITE_STATS_FILE = false;
 
 	private long seed = 0;
@@ -420,6 +426,7 @@ public class Bayes2GOCalculation implements ICalculation
 			int maxWhenSeen = -1;
 
 			long start = System.currentTimeMillis();
+			PhaseTimeline.Phase mcmcPhase = PhaseTimeline.begin("MCMC");
 
 			for (int t=0;t<maxSteps;t++)
 			{
@@ -487,6 +494,10 @@ public class Bayes2GOCalculation implements ICalculation
 				}
 			}
 
+			mcmcPhase.end();
+			MCMC_STEPS.add(maxSteps);
+			MCMC_ACCEPTS.add(numAccepts);
+
 			if (fixedAlphaBetaScore != null)
 			{
 				if (doAlphaEm)
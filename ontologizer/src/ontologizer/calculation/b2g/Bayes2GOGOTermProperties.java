@@ -1,6 +1,7 @@
 package ontologizer.calculation.b2g;
 
 import ontologizer.calculation.AbstractGOTermProperties;
+import ontologizer.calculation.IPropertyAppender;
 
 /**
  * GO Properties for term for term approach.
@@ -44,6 +45,22 @@ public class Bayes2GOGOTermProperties extends AbstractGOTermProperties
 		return null;
 	}
 
+	@Override
+	public void appendProperty(int propNumber, int populationGeneCount, int studyGeneCount, IPropertyAppender appender)
+	{
+		switch (propNumber)
+		{
+			case	0: appender.appendString(goTerm.getIDAsString(), false); break;
+			case	1: appender.appendInt(populationGeneCount); break;
+			case	2: appender.appendInt(annotatedPopulationGenes); break;
+			case	3: appender.appendInt(studyGeneCount); break;
+			case	4: appender.appendInt(annotatedStudyGenes); break;
+			case	5: appender.appendDouble(marg); break;
+			case	6: appender.appendString(goTerm.getName(), true); break;
+			default: super.appendProperty(propNumber, populationGeneCount, studyGeneCount, appender); break;
+		}
+	}
+
 	@Override
 	public boolean isPropertyPopulationGeneCount(int propNumber)
 	{
@@ -3,7 +3,7 @@ package ontologizer.dotwriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -71,8 +71,9 @@ public class GODOTWriter
 	 */
 	public static void writeDOT(final Ontology graph, File file, TermID rootTerm, Set<TermID> terms, final IDotAttributesProvider provider, final String graphAttrs, final boolean reverseDirection, final boolean edgeLabels, Set<TermID> ignoreTerms)
 	{
-		/* Collect terms starting from the terms upto the root term and place them into nodeSet */
-		HashSet<Term> nodeSet = new HashSet<Term>();
+		/* Collect terms starting from the terms upto the root term and place them into nodeSet.
+		 * The order of the terms is kept, as dot uses it as initial order of the nodes */
+		LinkedHashSet<Term> nodeSet = new LinkedHashSet<Term>();
 		for (TermID term : terms)
 		{
 			if (!graph.termExists(term))
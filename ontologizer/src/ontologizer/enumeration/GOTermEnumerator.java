@@ -10,7 +10,6 @@ import java.util.List;
 import java.util.Set;
 import java.util.Map.Entry;
 
-import ontologizer.association.Association;
 import ontologizer.association.Gene2Associations;
 import ontologizer.go.Ontology;
 import ontologizer.go.Term;
@@ -124,16 +123,16 @@ public class GOTermEnumerator implements Iterable<TermID>
 		HashSet<TermID> termIDSet = new HashSet<TermID>();
 
 		/* At first add the direct counts and remember the terms */
-		for (Association association : geneAssociations)
+		for (int i=0;i<geneAssociations.size();i++)
 		{
-			TermID termID = association.getTermID();
+			TermID termID = geneAssociations.getTermID(i);
 
 			if (!graph.isRelevantTermID(termID))
 				continue;
 
 			if (evidences != null)
 			{
-				if (!evidences.contains(association.getEvidence()))
+				if (!evidences.contains(geneAssociations.getEvidence(i)))
 					continue;
 			}
 
@@ -149,7 +148,7 @@ public class GOTermEnumerator implements Iterable<TermID>
 			termGenes.directAnnotated.add(geneName);
 
 			/* This term is annotated */
-			termIDSet.add(association.getTermID());
+			termIDSet.add(termID);
 		}
 
 		/* Then add the total counts */
@@ -0,0 +1,30 @@
+package ontologizer.go;
+
+/**
+ * Receives the contents of term stanzas when the OBOParser is
+ * operated in event mode.
+ */
+public interface IOBOParserHandler
+{
+	/**
+	 * Called when a new term stanza starts.
+	 */
+	void startTerm();
+
+	/**
+	 * Called for each selected tag of the current term stanza.
+	 * The buffer is reused by the parser, so its contents is only
+	 * valid during the call.
+	 *
+	 * @param tag the tag.
+	 * @param buf the buffer containing the raw value.
+	 * @param start where the value starts within buf.
+	 * @param len the length of the value.
+	 */
+	void tag(OBOParser.Tag tag, byte [] buf, int start, int len);
+
+	/**
+	 * Called when the current term stanza ends.
+	 */
+	void endTerm();
+}
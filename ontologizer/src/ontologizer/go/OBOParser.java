@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -12,6 +14,10 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import ontologizer.linescanner.AbstractByteLineScanner;
+import ontologizer.metrics.Counter;
+import ontologizer.metrics.Metrics;
+import ontologizer.metrics.PhaseTimeline;
+import ontologizer.metrics.Timer;
 import ontologizer.types.ByteString;
 import sonumina.collections.ReferencePool;
 import sonumina.math.graph.AbstractGraph.DotAttributesProvider;
@@ -38,12 +44,63 @@ public class OBOParser
 {
 	private static Logger logger = Logger.getLogger(OBOParser.class.getName());
 
+	private static final Timer PARSE_TIMER = Metrics.timer("ontologizer_obo_parse_seconds", "Time spent for parsing OBO files");
+	private static final Counter PARSED_TERMS = Metrics.counter("ontologizer_obo_terms_total", "Number of parsed OBO terms");
+	private static final Counter PARSED_BYTES = Metrics.counter("ontologizer_obo_input_bytes_total", "Number of bytes of parsed OBO files as stored on disk");
+
 	private enum Stanza
 	{
 		TERM,
 		TYPEDEF
 	}
 
+	/**
+	 * The tags of a term stanza that are understood by the parser.
+	 */
+	public enum Tag
+	{
+		ID("id"),
+		NAME("name"),
+		IS_A("is_a"),
+		RELATIONSHIP("relationship"),
+		SYNONYM("synonym"),
+		DEF("def"),
+		REPLACED_BY("replaced_by"),
+		NAMESPACE("namespace"),
+		EQUIVALENT_TO("equivalent_to"),
+		IS_OBSOLETE("is_obsolete"),
+		ALT_ID("alt_id"),
+		XREF("xref"),
+		SUBSET("subset");
+
+		/** The lower case keyword of the tag */
+		private final byte [] keyword;
+
+		private Tag(String keyword)
+		{
+			this.keyword = keyword.getBytes();
+		}
+
+		/**
+		 * @return the keyword of the tag as it appears in the obo file.
+		 */
+		public String getKeyword()
+		{
+			return new String(keyword);
+		}
+	}
+
+	/**
+	 * The tags that are needed for a plain enrichment analysis, i.e.,
+	 * the id, name, namespace, parents, alternative ids and the obsolete
+	 * state of a term.
+	 */
+	public static final Set<Tag> ESSENTIAL_TAGS = Collections.unmodifiableSet(EnumSet.of(
+			Tag.ID, Tag.NAME, Tag.NAMESPACE, Tag.IS_A, Tag.RELATIONSHIP, Tag.ALT_ID, Tag.IS_OBSOLETE));
+
+	/** All tags in the order in which they are tried */
+	private static final Tag [] ALL_TAGS = Tag.values();
+
 	/** Flag to keep the definitions */
 	public final static int PARSE_DEFINITIONS 	= 1 << 0;
 
@@ -103,6 +160,18 @@ public class OBOParser
 	/** The current parse options */
 	private int options;
 
+	/** The tags that were explicitly selected, or null if they are derived from the options */
+	private Set<Tag> tags;
+
+	/** Indexed by the ordinal of the tag, true if the tag is processed */
+	private boolean [] selectedTags;
+
+	/** The handler that receives the tags in event mode, or null */
+	private IOBOParserHandler handler;
+
+	/** The number of term stanzas that were passed to the handler */
+	private int numberOfHandledTerms;
+
 	/** Format version of the gene_ontology.obo file */
 	private String format_version;
 
@@ -214,6 +283,48 @@ public class OBOParser
 		this.options = options;
 	}
 
+	/**
+	 * Constructs an obo parser for a particular input that processes
+	 * only the given tags. Values of all other tags are skipped
+	 * without being decoded, thus the corresponding attributes of the
+	 * parsed terms stay empty. The tag selection overrides the
+	 * IGNORE_SYNONYMS, PARSE_DEFINITIONS, PARSE_XREFS, and
+	 * PARSE_REPLACEDBY options.
+	 *
+	 * @param input defines the input wrapping the stanza files
+	 * @param options defines some options.
+	 * @param tags the tags that should be processed, e.g., ESSENTIAL_TAGS.
+	 */
+	public OBOParser(IParserInput input, int options, Set<Tag> tags)
+	{
+		this.input = input;
+		this.options = options;
+		this.tags = EnumSet.copyOf(tags);
+	}
+
+	/**
+	 * Determines the tags that are processed.
+	 */
+	private void selectTags()
+	{
+		selectedTags = new boolean[ALL_TAGS.length];
+
+		if (tags != null)
+		{
+			for (Tag t : tags)
+				selectedTags[t.ordinal()] = true;
+			return;
+		}
+
+		for (Tag t : ALL_TAGS)
+			selectedTags[t.ordinal()] = true;
+
+		selectedTags[Tag.SYNONYM.ordinal()] = (options & IGNORE_SYNONYMS) == 0;
+		selectedTags[Tag.DEF.ordinal()] = (options & PARSE_DEFINITIONS) != 0;
+		selectedTags[Tag.XREF.ordinal()] = (options & PARSE_XREFS) != 0;
+		selectedTags[Tag.REPLACED_BY.ordinal()] = (options & PARSE_REPLACEDBY) != 0;
+	}
+
 	public Set<Term> getTermMap()
 	{
 		return this.terms;
@@ -225,6 +336,16 @@ public class OBOParser
 	 */
 	private void enterNewTerm()
 	{
+		if (handler != null)
+		{
+			if (currentStanza == Stanza.TERM)
+			{
+				handler.endTerm();
+				numberOfHandledTerms++;
+			}
+			return;
+		}
+
 		if (currentStanza != null)
 		{
 			/* Ignore typedefs */
@@ -292,7 +413,7 @@ public class OBOParser
 	 */
 	public String doParse() throws IOException, OBOParserException
 	{
-		return doParse(null);
+		return doParse(null, null);
 	}
 
 	/**
@@ -304,8 +425,30 @@ public class OBOParser
 	 * @throws IOException
 	 */
 	public String doParse(final IOBOParserProgress progress) throws IOException, OBOParserException
+	{
+		return doParse(null, progress);
+	}
+
+	/**
+	 * Parses the input in event mode, i.e., no Term objects are created
+	 * but the values of the selected tags of each term stanza are passed
+	 * to the given handler as they are read.
+	 *
+	 * @param handler the handler receiving the events. If null, terms
+	 *  are created as usual and can be obtained via getTermMap().
+	 * @param progress
+	 * @return A string giving details about the parsed obo file
+	 * @throws OBOParserException
+	 * @throws IOException
+	 */
+	public String doParse(final IOBOParserHandler handler, final IOBOParserProgress progress) throws IOException, OBOParserException
 	{
 		long startMillis = System.currentTimeMillis();
+		long startNanos = System.nanoTime();
+		PhaseTimeline.Phase phase = PhaseTimeline.begin("ontology parse");
+
+		this.handler = handler;
+		selectTags();
 
 		if (progress != null)
 			progress.init(input.getSize());
@@ -713,8 +856,12 @@ public class OBOParser
 					start++;
 					len-=2;
 
-					if (equalsIgnoreCase(line, start, len, TERM_KEYWORD)) currentStanza = Stanza.TERM;
-					else if (equalsIgnoreCase(line, start, len, TYPEDEF_KEYWORD)) currentStanza = Stanza.TYPEDEF;
+					if (equalsIgnoreCase(line, start, len, TERM_KEYWORD))
+					{
+						currentStanza = Stanza.TERM;
+						if (handler != null)
+							handler.startTerm();
+					} else if (equalsIgnoreCase(line, start, len, TYPEDEF_KEYWORD)) currentStanza = Stanza.TYPEDEF;
 					else
 					{
 						exception = new OBOParserException("Unknown stanza type", getLineContens(), linenum);
@@ -1063,46 +1210,52 @@ public class OBOParser
 			 */
 			private void readTermValue(byte[] buf, int keyStart, int keyLen, int valueStart, int valueLen)
 			{
-				if (equalsIgnoreCase(buf, keyStart, keyLen, ID_KEYWORD))
-				{
-					parse_id(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, NAME_KEYWORD))
-				{
-					parse_name(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, IS_A_KEYWORD))
-				{
-					parse_is_a(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, RELATIONSHIP_KEYWORD))
-				{
-					parse_relationship(buf, valueStart, valueLen);
-				} else if ((options & IGNORE_SYNONYMS) == 0 && equalsIgnoreCase(buf, keyStart, keyLen, SYNONYM_KEYWORD))
-				{
-					parse_synonym(buf, valueStart, valueLen);
-				} else if ((options & PARSE_DEFINITIONS) != 0 && equalsIgnoreCase(buf, keyStart, keyLen, DEF_KEYWORD))
-				{
-					parse_def(buf, valueStart, valueLen);
-				} else if ((options & PARSE_REPLACEDBY) != 0 && equalsIgnoreCase(buf, keyStart, keyLen, REPLACEDBY_KEYWORD))
-				{
-					parse_replacedby(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, NAMESPACE_KEYWORD))
-				{
-					parse_namespace(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, EQUIVALENT_TO_KEYWORD))
-				{
-					parse_equivalent_to(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, IS_OBSOLETE_KEYWORD))
-				{
-					parse_is_obsolete(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, ALT_ID_KEYWORD))
+				Tag tag = identifyTag(buf, keyStart, keyLen);
+
+				/* Values of tags we are not interested in are not decoded at all */
+				if (tag == null || !selectedTags[tag.ordinal()])
+					return;
+
+				if (handler != null)
 				{
-					parse_alt_id(buf, valueStart, valueLen);
-				} else if (((options & PARSE_XREFS) !=0) && equalsIgnoreCase(buf, keyStart, keyLen, XREF_KEYWORD))
+					handler.tag(tag, buf, valueStart, valueLen);
+					return;
+				}
+
+				switch (tag)
 				{
-					parse_xref(buf, valueStart, valueLen);
-				} else if (equalsIgnoreCase(buf, keyStart, keyLen, SUBSET_KEYWORD))
+					case	ID: parse_id(buf, valueStart, valueLen); break;
+					case	NAME: parse_name(buf, valueStart, valueLen); break;
+					case	IS_A: parse_is_a(buf, valueStart, valueLen); break;
+					case	RELATIONSHIP: parse_relationship(buf, valueStart, valueLen); break;
+					case	SYNONYM: parse_synonym(buf, valueStart, valueLen); break;
+					case	DEF: parse_def(buf, valueStart, valueLen); break;
+					case	REPLACED_BY: parse_replacedby(buf, valueStart, valueLen); break;
+					case	NAMESPACE: parse_namespace(buf, valueStart, valueLen); break;
+					case	EQUIVALENT_TO: parse_equivalent_to(buf, valueStart, valueLen); break;
+					case	IS_OBSOLETE: parse_is_obsolete(buf, valueStart, valueLen); break;
+					case	ALT_ID: parse_alt_id(buf, valueStart, valueLen); break;
+					case	XREF: parse_xref(buf, valueStart, valueLen); break;
+					case	SUBSET: parse_subset(buf, valueStart, valueLen); break;
+				}
+			}
+
+			/**
+			 * Identifies the tag of the given key.
+			 *
+			 * @param buf
+			 * @param keyStart
+			 * @param keyLen
+			 * @return the tag or null if the key is not known.
+			 */
+			private Tag identifyTag(byte[] buf, int keyStart, int keyLen)
+			{
+				for (Tag t : ALL_TAGS)
 				{
-					parse_subset(buf, valueStart, valueLen);
+					if (equalsIgnoreCase(buf, keyStart, keyLen, t.keyword))
+						return t;
 				}
+				return null;
 			}
 		}
 
@@ -1114,10 +1267,17 @@ public class OBOParser
 
 		if (obls.exception != null)
 			throw obls.exception;
+		int size = input.getSize();
 		input.close();
 
+		phase.end();
+		PARSE_TIMER.recordSince(startNanos);
+		PARSED_TERMS.add(handler != null ? numberOfHandledTerms : terms.size());
+		if (size > 0) PARSED_BYTES.add(size);
+
 		long durationMillis = System.currentTimeMillis() - startMillis;
-		logger.log(Level.INFO, "Got " + terms.size() + " terms and " + numberOfRelations + " relations in " + durationMillis + " ms");
+		if (handler != null) logger.log(Level.INFO, "Passed " + numberOfHandledTerms + " terms to the handler in " + durationMillis + " ms");
+		else logger.log(Level.INFO, "Got " + terms.size() + " terms and " + numberOfRelations + " relations in " + durationMillis + " ms");
 		return this.getParseDiagnostics();
 	}
 
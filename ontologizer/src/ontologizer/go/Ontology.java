@@ -3,18 +3,21 @@ package ontologizer.go;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import sonumina.math.graph.CSRDirectedGraph;
+import sonumina.math.graph.CSRGraphTraversal;
 import sonumina.math.graph.DirectedGraph;
 import sonumina.math.graph.Edge;
 import sonumina.math.graph.SlimDirectedGraphView;
-import sonumina.math.graph.AbstractGraph.INeighbourGrabber;
 import sonumina.math.graph.AbstractGraph.IVisitor;
 import sonumina.math.graph.DirectedGraph.IDistanceVisitor;
 
@@ -67,6 +70,37 @@ public class Ontology implements Iterable<Term>
 	/** The (possibly) artificial root term */
 	private Term rootTerm;
 
+	/**
+	 * Assigns dense ordinals to all terms of the term container
+	 * and the root term. Used for fast term lookups.
+	 */
+	private TermRegistry termRegistry;
+
+	/**
+	 * The compressed graph index whose vertices are the ordinals of the
+	 * term registry. Initialized lazily by getGraphIndex().
+	 */
+	private volatile CSRDirectedGraph graphIndex;
+
+	/**
+	 * Traversals on the graph index that are currently not in use. Traversals
+	 * in use are removed from the pool, so walks can be nested or performed
+	 * concurrently. Traversals of a previous graph index are discarded.
+	 */
+	private final ConcurrentLinkedQueue<CSRGraphTraversal> traversals = new ConcurrentLinkedQueue<CSRGraphTraversal>();
+
+	/** The slim view. Initialized lazily by getSlimGraphView() */
+	private volatile SlimDirectedGraphView<Term> slimGraphView;
+
+	/**
+	 * The relevance of each term, indexed by the term ordinal. Initialized
+	 * lazily by isRelevantTerm() if a relevant subset or subontology is set.
+	 */
+	private volatile boolean [] relevantTerms;
+
+	/** The views of the subontologies. Initialized lazily by getSubontologies() */
+	private volatile List<Ontology> subontologies;
+
 	/** Level 1 terms */
 	private List<Term> level1terms = new ArrayList<Term>();
 
@@ -114,6 +148,7 @@ public class Ontology implements Iterable<Term>
 		subgraph.availableSubsets 	= availableSubsets;
 
 		subgraph.assignLevel1TermsAndFixRoot();
+		subgraph.initTermRegistry(this);
 
 		return subgraph;
 	}
@@ -163,13 +198,118 @@ public class Ontology implements Iterable<Term>
 	}
 
 	/**
-	 * Returns a slim representation of the ontology.
+	 * Returns a slim representation of the ontology. The view is based on
+	 * the graph index, see getGraphIndex(), so the ancestors and descendants
+	 * are not determined again. The vertices of the view are ordered by
+	 * their term ordinals.
 	 *
 	 * @return
 	 */
 	public SlimDirectedGraphView<Term> getSlimGraphView()
 	{
-		return SlimDirectedGraphView.create(graph);
+		SlimDirectedGraphView<Term> view = slimGraphView;
+		if (view == null)
+		{
+			synchronized (this)
+			{
+				view = slimGraphView;
+				if (view == null)
+				{
+					CSRDirectedGraph index = getGraphIndex();
+					List<Term> indexTerms = new ArrayList<Term>(termRegistry.size());
+					for (int i=0;i<termRegistry.size();i++)
+					{
+						Term t = termRegistry.get(i);
+						indexTerms.add(graph.containsVertex(t) ? t : null);
+					}
+					slimGraphView = view = SlimDirectedGraphView.create(index, indexTerms);
+				}
+			}
+		}
+		return view;
+	}
+
+	/**
+	 * Returns the immutable graph index of the ontology. The vertices of
+	 * the index are the ordinals of the term registry, see getTermOrdinal().
+	 * Terms of the registry that are not part of this ontology's graph (e.g.,
+	 * for induced graphs) have neither edges nor ancestors and descendants.
+	 * The index is built once on the first call.
+	 *
+	 * @return the graph index.
+	 */
+	public CSRDirectedGraph getGraphIndex()
+	{
+		CSRDirectedGraph index = graphIndex;
+		if (index == null)
+		{
+			synchronized (this)
+			{
+				index = graphIndex;
+				if (index == null)
+					graphIndex = index = createGraphIndex();
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Creates the graph index.
+	 *
+	 * @return the graph index.
+	 */
+	private CSRDirectedGraph createGraphIndex()
+	{
+		int n = termRegistry.size();
+		boolean [] present = new boolean[n];
+		int [] sources = new int[graph.getNumberEdges()];
+		int [] dests = new int[sources.length];
+		int [] relations = new int[sources.length];
+		int numberOfEdges = 0;
+
+		/* The in-going edges are enumerated, so the parents of a term keep
+		 * the order of the graph */
+		for (Term t : graph)
+		{
+			int ordinal = termRegistry.getOrdinal(t.getID());
+			if (ordinal < 0)
+				continue;
+			present[ordinal] = true;
+
+			Iterator<Edge<Term>> iter = graph.getInEdges(t);
+			while (iter.hasNext())
+			{
+				OntologyEdge edge = (OntologyEdge)iter.next();
+				int parent = termRegistry.getOrdinal(edge.getSource().getID());
+				if (parent < 0)
+					continue;
+				if (numberOfEdges == sources.length)
+				{
+					sources = Arrays.copyOf(sources, numberOfEdges * 2 + 1);
+					dests = Arrays.copyOf(dests, sources.length);
+					relations = Arrays.copyOf(relations, sources.length);
+				}
+				TermRelation relation = edge.getRelation() != null ? edge.getRelation() : TermRelation.UNKOWN;
+				sources[numberOfEdges] = parent;
+				dests[numberOfEdges] = ordinal;
+				relations[numberOfEdges] = relation.mask();
+				numberOfEdges++;
+			}
+		}
+		return CSRDirectedGraph.create(n, present, sources, dests, relations, numberOfEdges, null);
+	}
+
+	/**
+	 * Discards the lazily initialized graph views. Must be called
+	 * whenever the graph is altered.
+	 */
+	private synchronized void invalidateGraphViews()
+	{
+		graphIndex = null;
+		traversals.clear();
+		slimGraphView = null;
+		relevantTerms = null;
+		subontologies = null;
 	}
 
 	/**
@@ -237,6 +377,43 @@ public class Ontology implements Iterable<Term>
 		}
 	}
 
+	/**
+	 * Initializes the term registry. The registry of the given parent
+	 * ontology is reused if both share the same root term.
+	 *
+	 * @param parent the ontology from which this one was derived or null.
+	 */
+	private void initTermRegistry(Ontology parent)
+	{
+		if (parent != null && parent.termContainer == termContainer && parent.rootTerm == rootTerm)
+			termRegistry = parent.termRegistry;
+		else
+			termRegistry = TermRegistry.create(termContainer, rootTerm);
+	}
+
+	/**
+	 * Returns the term registry, which assigns each term of the ontology's
+	 * term map (plus the root term) a dense ordinal.
+	 *
+	 * @return the term registry.
+	 */
+	public TermRegistry getTermRegistry()
+	{
+		return termRegistry;
+	}
+
+	/**
+	 * Returns the ordinal of the given term id.
+	 *
+	 * @param tid
+	 * @return the ordinal or -1 if the term is unknown.
+	 * @see #getTermRegistry()
+	 */
+	public int getTermOrdinal(TermID tid)
+	{
+		return termRegistry.getOrdinal(tid);
+	}
+
 	/**
 	 * Determines whether the given id is the id of the (possible artifactial)
 	 * root term
@@ -489,6 +666,19 @@ public class Ontology implements Iterable<Term>
 		final Term source = termContainer.get(sourceID);
 		Term dest = termContainer.get(destID);
 
+		if (source != null && dest != null)
+		{
+			/* Use the reachability information of the graph index if possible */
+			int s = termRegistry.getOrdinal(source.getID());
+			int d = termRegistry.getOrdinal(dest.getID());
+			if (s >= 0 && d >= 0)
+			{
+				CSRDirectedGraph index = getGraphIndex();
+				if (index.getNumberOfAncestors(d) > 0)
+					return index.isAncestor(s, d);
+			}
+		}
+
 		graph.bfs(dest, true, new IVisitor<Term>()
 		{
 			@Override
@@ -532,26 +722,82 @@ public class Ontology implements Iterable<Term>
 	}
 
 	/**
-	 * Convert a collection of termids to a list of terms.
+	 * Convert a collection of termids to an array of term ordinals.
 	 *
 	 * @param termIDSet
 	 * @return
 	 */
-	private ArrayList<Term> termIDsToTerms(Collection<TermID> termIDSet)
+	private int [] termIDsToOrdinals(Collection<TermID> termIDSet)
 	{
-		ArrayList<Term> termList = new ArrayList<Term>(termIDSet.size());
+		int [] ordinals = new int[termIDSet.size()];
+		int i = 0;
 		for (TermID id : termIDSet)
 		{
-			Term t;
-
-			if (isRootTerm(id)) t = rootTerm;
-			else t = termContainer.get(id);
+			Term t = termRegistry.get(id);
 			if (t == null)
 				throw new IllegalArgumentException("\"" + id + "\" could not be mapped to a known term!");
 
-			termList.add(t);
+			ordinals[i++] = termRegistry.getOrdinal(t.getID());
+		}
+		return ordinals;
+	}
+
+	/**
+	 * Returns a traversal on the graph index that is not in use.
+	 *
+	 * @return the traversal, which must be given back via releaseTraversal().
+	 */
+	private CSRGraphTraversal acquireTraversal()
+	{
+		CSRDirectedGraph index = getGraphIndex();
+		CSRGraphTraversal traversal;
+		while ((traversal = traversals.poll()) != null)
+		{
+			if (traversal.getGraph() == index)
+				return traversal;
+		}
+		return new CSRGraphTraversal(index);
+	}
+
+	/**
+	 * Gives back a traversal obtained via acquireTraversal().
+	 *
+	 * @param traversal
+	 */
+	private void releaseTraversal(CSRGraphTraversal traversal)
+	{
+		if (traversal.getGraph() == graphIndex)
+			traversals.offer(traversal);
+	}
+
+	/**
+	 * Walks the graph index starting at the given terms and calls the
+	 * visitor for each reached term. The visitor is called during the
+	 * walk, so a visitor that stops the walk avoids the traversal of
+	 * the remaining graph.
+	 *
+	 * @param termIDSet the terms to start with.
+	 * @param vistingVertex the visitor.
+	 * @param againstFlow whether to walk to the source.
+	 * @param relationMask the mask of relations to follow, see TermRelation.mask().
+	 */
+	private void walk(Collection<TermID> termIDSet, final IVisitingGOVertex vistingVertex, boolean againstFlow, int relationMask)
+	{
+		int [] initial = termIDsToOrdinals(termIDSet);
+		CSRGraphTraversal traversal = acquireTraversal();
+		try
+		{
+			traversal.bfs(initial, initial.length, againstFlow, relationMask, new CSRGraphTraversal.IVertexVisitor()
+			{
+				public boolean visited(int vertex)
+				{
+					return vistingVertex.visited(termRegistry.get(vertex));
+				}
+			});
+		} finally
+		{
+			releaseTraversal(traversal);
 		}
-		return termList;
 	}
 
 	/**
@@ -567,7 +813,7 @@ public class Ontology implements Iterable<Term>
 	 */
 	public void walkToSource(Collection<TermID> termIDSet, IVisitingGOVertex vistingVertex)
 	{
-		graph.bfs(termIDsToTerms(termIDSet), true, vistingVertex);
+		walk(termIDSet, vistingVertex, true, CSRGraphTraversal.ALL_LABELS);
 	}
 
 	/**
@@ -582,20 +828,22 @@ public class Ontology implements Iterable<Term>
 	 */
 	public void walkToSource(Collection<TermID>  termIDSet, IVisitingGOVertex vistingVertex, final Set<TermRelation> relationsToFollow)
 	{
-		graph.bfs(termIDsToTerms(termIDSet), new INeighbourGrabber<Term>() {
-			public Iterator<Term> grabNeighbours(Term t)
-			{
-				Iterator<Edge<Term>> inIter = graph.getInEdges(t);
-				ArrayList<Term> termsToConsider = new ArrayList<Term>();
-				while (inIter.hasNext())
-				{
-					OntologyEdge edge = (OntologyEdge)inIter.next(); /* Ugly cast */
-					if (relationsToFollow.contains(edge.getRelation()))
-						termsToConsider.add(edge.getSource());
-				}
-				return termsToConsider.iterator();
-			}
-		}, vistingVertex);
+		walkToSource(termIDSet, vistingVertex, TermRelation.mask(relationsToFollow));
+	}
+
+	/**
+	 * Starting at the vertices within the goTermIDSet walk to the source of the
+	 * DAG (ontology vertex) and call the method visiting of given object
+	 * Implementing IVisitingGOVertex. Only relations whose bit is set in
+	 * relationMask are considered.
+	 *
+	 * @param termIDSet
+	 * @param vistingVertex
+	 * @param relationMask the relations to follow, see TermRelation.mask().
+	 */
+	public void walkToSource(Collection<TermID>  termIDSet, IVisitingGOVertex vistingVertex, int relationMask)
+	{
+		walk(termIDSet, vistingVertex, true, relationMask);
 	}
 
 	/**
@@ -630,7 +878,7 @@ public class Ontology implements Iterable<Term>
 	 */
 	public void walkToSinks(Collection<TermID> goTermIDSet, IVisitingGOVertex vistingVertex)
 	{
-		graph.bfs(termIDsToTerms(goTermIDSet), false, vistingVertex);
+		walk(goTermIDSet, vistingVertex, false, CSRGraphTraversal.ALL_LABELS);
 	}
 
 	/**
@@ -761,7 +1009,7 @@ public class Ontology implements Iterable<Term>
 	 */
 	public Term getTerm(TermID id)
 	{
-		Term go = termContainer.get(id);
+		Term go = termRegistry.get(id);
 		if (go == null && id.id == rootTerm.getID().id)
 			return rootTerm;
 		return go;
@@ -776,7 +1024,9 @@ public class Ontology implements Iterable<Term>
 	 */
 	public boolean termExists(TermID term)
 	{
-		return graph.getOutDegree(getTerm(term)) != -1;
+		Term t = getTerm(term);
+		if (t == null) return false;
+		return graph.containsVertex(t);
 	}
 
 
@@ -926,6 +1176,35 @@ public class Ontology implements Iterable<Term>
 	 */
 	public Collection<TermID> getSharedParents(TermID t1, TermID t2)
 	{
+		int o1 = termRegistry.getOrdinal(t1);
+		int o2 = termRegistry.getOrdinal(t2);
+		if (o1 >= 0 && o2 >= 0)
+		{
+			CSRDirectedGraph index = getGraphIndex();
+			int n1 = index.getNumberOfAncestors(o1);
+			int n2 = index.getNumberOfAncestors(o2);
+			if (n1 > 0 && n2 > 0)
+			{
+				/* Both ancestor lists are sorted, so we can merge them */
+				ArrayList<TermID> sharedParents = new ArrayList<TermID>();
+				int i = 0, j = 0;
+				while (i < n1 && j < n2)
+				{
+					int a1 = index.getAncestor(o1, i);
+					int a2 = index.getAncestor(o2, j);
+					if (a1 < a2) i++;
+					else if (a1 > a2) j++;
+					else
+					{
+						sharedParents.add(termRegistry.get(a1).getID());
+						i++;
+						j++;
+					}
+				}
+				return sharedParents;
+			}
+		}
+
 		final Set<TermID> p1 = getTermsOfInducedGraph(null,t1);
 
 		final ArrayList<TermID> sharedParents = new ArrayList<TermID>();
@@ -1096,11 +1375,15 @@ public class Ontology implements Iterable<Term>
 			if (s.getName().equals(subsetName))
 			{
 				relevantSubset = s;
+				relevantTerms = null;
+				subontologies = null;
 				return;
 			}
 		}
 
 		relevantSubset = null;
+		relevantTerms = null;
+		subontologies = null;
 		throw new IllegalArgumentException("Subset \"" + subsetName + "\" couldn't be found!");
 	}
 
@@ -1127,6 +1410,7 @@ public class Ontology implements Iterable<Term>
 			if (t.getName().equals(subontologyName))
 			{
 				relevantSubontology = t;
+				relevantTerms = null;
 				return;
 			}
 		}
@@ -1152,6 +1436,13 @@ public class Ontology implements Iterable<Term>
 	 */
 	public boolean isRelevantTerm(Term term)
 	{
+		if (relevantSubset == null && relevantSubontology == null)
+			return true;
+
+		int ordinal = termRegistry.getOrdinal(term.getID());
+		if (ordinal >= 0)
+			return getRelevantTerms()[ordinal];
+
 		if (relevantSubset != null)
 		{
 			boolean found = false;
@@ -1184,11 +1475,160 @@ public class Ontology implements Iterable<Term>
 	 */
 	public boolean isRelevantTermID(TermID goTermID)
 	{
-		Term t;
-		if (isRootTerm(goTermID)) t = rootTerm;
-		else t = termContainer.get(goTermID);
+		if (relevantSubset == null && relevantSubontology == null)
+			return true;
+
+		int ordinal = termRegistry.getOrdinal(goTermID);
+		if (ordinal >= 0)
+			return getRelevantTerms()[ordinal];
+
+		return isRelevantTerm(termRegistry.get(goTermID));
+	}
+
+	/**
+	 * Returns the relevance of the terms, indexed by the term ordinal.
+	 *
+	 * @return
+	 */
+	private boolean [] getRelevantTerms()
+	{
+		boolean [] relevant = relevantTerms;
+		if (relevant == null)
+		{
+			synchronized (this)
+			{
+				relevant = relevantTerms;
+				if (relevant == null)
+					relevantTerms = relevant = createRelevantTerms();
+			}
+		}
+		return relevant;
+	}
+
+	/**
+	 * Determines the relevance of all terms of the registry with respect to
+	 * the relevant subset and subontology.
+	 *
+	 * @return
+	 */
+	private boolean [] createRelevantTerms()
+	{
+		int n = termRegistry.size();
+		boolean [] relevant = new boolean[n];
 
-		return isRelevantTerm(t);
+		if (relevantSubontology != null)
+		{
+			/* The descendants of the subontology, which include the
+			 * subontology term itself */
+			int ordinal = termRegistry.getOrdinal(relevantSubontology.getID());
+			CSRDirectedGraph index = getGraphIndex();
+			for (int i=0;i<index.getNumberOfDescendants(ordinal);i++)
+				relevant[index.getDescendant(ordinal, i)] = true;
+			relevant[ordinal] = true;
+		} else
+		{
+			Arrays.fill(relevant, true);
+		}
+
+		if (relevantSubset != null)
+		{
+			for (int i=0;i<n;i++)
+			{
+				if (!relevant[i])
+					continue;
+
+				boolean found = false;
+				for (Subset s : termRegistry.get(i).getSubsets())
+				{
+					if (s.equals(relevantSubset))
+					{
+						found = true;
+						break;
+					}
+				}
+				relevant[i] = found;
+			}
+		}
+		return relevant;
+	}
+
+	/**
+	 * Returns the views of the subontologies, i.e., one view for each
+	 * level 1 term (e.g., biological_process, molecular_function and
+	 * cellular_component for the Gene Ontology). Each view is the graph
+	 * induced by the descendants of its level 1 term, which is the root
+	 * of the view and its relevant subontology. The views share the term
+	 * registry with this ontology, so term ordinals are the same. The views
+	 * are created once on the first call.
+	 *
+	 * @return the views of the subontologies.
+	 */
+	public List<Ontology> getSubontologies()
+	{
+		List<Ontology> views = subontologies;
+		if (views == null)
+		{
+			synchronized (this)
+			{
+				views = subontologies;
+				if (views == null)
+				{
+					ArrayList<Ontology> newViews = new ArrayList<Ontology>(level1terms.size());
+					for (Term t : level1terms)
+						newViews.add(createSubontology(t));
+					subontologies = views = Collections.unmodifiableList(newViews);
+				}
+			}
+		}
+		return views;
+	}
+
+	/**
+	 * Returns the view of the subontology whose root has the given id.
+	 *
+	 * @param subontologyID
+	 * @return the view or null if there is no such subontology.
+	 * @see #getSubontologies()
+	 */
+	public Ontology getSubontology(TermID subontologyID)
+	{
+		for (Ontology view : getSubontologies())
+		{
+			if (view.isRootTerm(subontologyID))
+				return view;
+		}
+		return null;
+	}
+
+	/**
+	 * Creates the view of the subontology rooted at the given term.
+	 *
+	 * @param subontologyRoot
+	 * @return
+	 */
+	private Ontology createSubontology(Term subontologyRoot)
+	{
+		CSRDirectedGraph index = getGraphIndex();
+		int ordinal = termRegistry.getOrdinal(subontologyRoot.getID());
+
+		ArrayList<Term> terms = new ArrayList<Term>(index.getNumberOfDescendants(ordinal));
+		for (int i=0;i<index.getNumberOfDescendants(ordinal);i++)
+			terms.add(termRegistry.get(index.getDescendant(ordinal, i)));
+
+		Ontology view				= new Ontology();
+		view.graph					= graph.subGraph(terms);
+		view.termContainer			= termContainer;
+		view.availableSubsets		= availableSubsets;
+		view.assignLevel1TermsAndFixRoot();
+		view.termRegistry			= termRegistry;
+		view.relevantSubontology	= view.rootTerm;
+		view.relevantSubset			= relevantSubset;
+
+		/* Views are meant to be shared by concurrent analyses, hence the
+		 * lazily initialized structures are prepared here */
+		view.getGraphIndex();
+		view.getRelevantTerms();
+		return view;
 	}
 
 	/**
@@ -1259,6 +1699,7 @@ public class Ontology implements Iterable<Term>
 		g.graph 			= trans;
 		g.termContainer	= termContainer;
 		g.assignLevel1TermsAndFixRoot();
+		g.initTermRegistry(this);
 
 		/* TODO: Add real GOEdges */
 
@@ -1290,6 +1731,7 @@ public class Ontology implements Iterable<Term>
 		}
 
 		this.graph.mergeVertices(t1,eqTerms);
+		invalidateGraphViews();
 	}
 
 	/**
@@ -1338,6 +1780,7 @@ public class Ontology implements Iterable<Term>
 		if (skippedEdges > 0)
 			logger.log(Level.INFO,"A total of " + skippedEdges + " edges were skipped.");
 		o.assignLevel1TermsAndFixRoot();
+		o.initTermRegistry(null);
 
 	}
 
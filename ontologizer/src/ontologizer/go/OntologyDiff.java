@@ -0,0 +1,181 @@
+package ontologizer.go;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Describes the differences between two versions of a set of terms,
+ * e.g., between two releases of an ontology. A term is considered
+ * changed if its name, namespace, parents, alternative ids, or
+ * obsolete state differs.
+ */
+public class OntologyDiff
+{
+	/** Ids of terms that are only present in the new version */
+	private Set<TermID> added = new HashSet<TermID>();
+
+	/** Ids of terms that are only present in the old version */
+	private Set<TermID> removed = new HashSet<TermID>();
+
+	/** Ids of terms that are present in both versions but differ */
+	private Set<TermID> changed = new HashSet<TermID>();
+
+	/** Whether annotations that refer to the old version may become invalid */
+	private boolean affectsAnnotations;
+
+	private OntologyDiff()
+	{
+	}
+
+	/**
+	 * @return the ids of the terms that were added.
+	 */
+	public Set<TermID> getAddedTerms()
+	{
+		return Collections.unmodifiableSet(added);
+	}
+
+	/**
+	 * @return the ids of the terms that were removed.
+	 */
+	public Set<TermID> getRemovedTerms()
+	{
+		return Collections.unmodifiableSet(removed);
+	}
+
+	/**
+	 * @return the ids of the terms that were changed.
+	 */
+	public Set<TermID> getChangedTerms()
+	{
+		return Collections.unmodifiableSet(changed);
+	}
+
+	/**
+	 * @return whether both versions are equal.
+	 */
+	public boolean isEmpty()
+	{
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+
+	/**
+	 * Returns whether annotations that were resolved against the old
+	 * version may be invalid for the new version. This is the case if
+	 * terms were removed, became obsolete, or if alternative ids changed.
+	 *
+	 * @return whether annotations are affected.
+	 */
+	public boolean affectsAnnotations()
+	{
+		return affectsAnnotations;
+	}
+
+	/**
+	 * Compares the given terms.
+	 *
+	 * @param oldTerm
+	 * @param newTerm
+	 * @return whether the terms are equal with respect to the compared attributes.
+	 */
+	private static boolean equalTerms(Term oldTerm, Term newTerm)
+	{
+		if (!oldTerm.getName().equals(newTerm.getName()))
+			return false;
+
+		Namespace oldNamespace = oldTerm.getNamespace();
+		Namespace newNamespace = newTerm.getNamespace();
+		if (oldNamespace == null ? newNamespace != null : !oldNamespace.equals(newNamespace))
+			return false;
+
+		if (oldTerm.isObsolete() != newTerm.isObsolete())
+			return false;
+
+		ParentTermID [] oldParents = oldTerm.getParents();
+		ParentTermID [] newParents = newTerm.getParents();
+		if (oldParents.length != newParents.length)
+			return false;
+
+		for (int i=0;i<oldParents.length;i++)
+		{
+			if (!oldParents[i].termid.equals(newParents[i].termid))
+				return false;
+			if (oldParents[i].relation != newParents[i].relation)
+				return false;
+		}
+
+		return equalAlternatives(oldTerm, newTerm);
+	}
+
+	/**
+	 * Compares the alternative ids of the given terms.
+	 *
+	 * @param oldTerm
+	 * @param newTerm
+	 * @return whether the alternative ids are equal.
+	 */
+	private static boolean equalAlternatives(Term oldTerm, Term newTerm)
+	{
+		TermID [] oldAlternatives = oldTerm.getAlternatives();
+		TermID [] newAlternatives = newTerm.getAlternatives();
+		int oldLength = oldAlternatives != null ? oldAlternatives.length : 0;
+		int newLength = newAlternatives != null ? newAlternatives.length : 0;
+		if (oldLength != newLength)
+			return false;
+
+		for (int i=0;i<oldLength;i++)
+		{
+			if (!oldAlternatives[i].equals(newAlternatives[i]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Determines the differences between the old and new terms.
+	 *
+	 * @param oldTerms
+	 * @param newTerms
+	 * @return the differences.
+	 */
+	public static OntologyDiff create(TermMap oldTerms, TermMap newTerms)
+	{
+		OntologyDiff diff = new OntologyDiff();
+
+		for (Term newTerm : newTerms)
+		{
+			Term oldTerm = oldTerms.get(newTerm.getID());
+			if (oldTerm == null)
+			{
+				diff.added.add(newTerm.getID());
+				if (newTerm.getAlternatives() != null && newTerm.getAlternatives().length != 0)
+					diff.affectsAnnotations = true;
+			} else if (!equalTerms(oldTerm, newTerm))
+			{
+				diff.changed.add(newTerm.getID());
+				if (newTerm.isObsolete() && !oldTerm.isObsolete())
+					diff.affectsAnnotations = true;
+				if (!equalAlternatives(oldTerm, newTerm))
+					diff.affectsAnnotations = true;
+			}
+		}
+
+		for (Term oldTerm : oldTerms)
+		{
+			if (newTerms.get(oldTerm.getID()) == null)
+			{
+				diff.removed.add(oldTerm.getID());
+				diff.affectsAnnotations = true;
+			}
+		}
+
+		return diff;
+	}
+
+	@Override
+	public String toString()
+	{
+		return added.size() + " terms added, " + removed.size() + " terms removed, " + changed.size() + " terms changed";
+	}
+}
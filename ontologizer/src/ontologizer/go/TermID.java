@@ -1,7 +1,8 @@
 package ontologizer.go;
 
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import ontologizer.types.ByteString;
 
@@ -33,11 +34,14 @@ public class TermID implements Serializable
 	/** Its integer part */
 	public final int id;
 
-	/** Map arbitrary ids to integer ids. Used for ontologies like Uberpheno */
-	private static final HashMap<String, Integer> string2id = new HashMap<String, Integer>();
+	/**
+	 * Map arbitrary ids to integer ids. Used for ontologies like Uberpheno.
+	 * As parsers may run concurrently, the map must be thread-safe.
+	 */
+	private static final ConcurrentHashMap<String, Integer> string2id = new ConcurrentHashMap<String, Integer>();
 
-	/** The id to be used for the next string id. This is decreasing. */
-	private static int nextId = Integer.MAX_VALUE;
+	/** The id that was used for the last string id. This is decreasing. */
+	private static final AtomicInteger lastId = new AtomicInteger(Integer.MAX_VALUE);
 
 	/**
 	 * Constructs the TermID from a plain integer value. The prefix defaults
@@ -190,14 +194,18 @@ public class TermID implements Serializable
 	 * @param id
 	 * @return the id referencing the the id.
 	 */
-	private int makeIdFromString(String id)
+	private static int makeIdFromString(String id)
 	{
-		if (string2id.containsKey(id))
-			return string2id.get(id);
-
-		nextId--;
-		string2id.put(id, nextId);
-		return nextId;
+		Integer intId = string2id.get(id);
+		if (intId != null)
+			return intId;
+
+		/* If another thread was faster, the freshly allocated id is simply wasted */
+		Integer newId = lastId.decrementAndGet();
+		intId = string2id.putIfAbsent(id, newId);
+		if (intId != null)
+			return intId;
+		return newId;
 	}
 
 	/**
@@ -1,8 +1,6 @@
 package ontologizer.go;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 
 /**
  * A simple class mapping term ids to actual terms.
@@ -11,8 +9,8 @@ import java.util.Map;
  */
 public class TermMap implements Iterable<Term>
 {
-	/** The set of GO terms */
-	private Map<TermID, Term> map = new HashMap<TermID, Term>();
+	/** The terms, which are looked up via a primitive hash table */
+	private TermRegistry registry;
 
 	private TermMap()
 	{
@@ -35,8 +33,7 @@ public class TermMap implements Iterable<Term>
 	 */
 	private void init(Iterable<Term> terms)
 	{
-		for (Term t : terms)
-			map.put(t.getID(), t);
+		registry = TermRegistry.create(terms);
 	}
 
 	/**
@@ -47,7 +44,17 @@ public class TermMap implements Iterable<Term>
 	 */
 	public Term get(TermID tid)
 	{
-		return map.get(tid);
+		return registry.get(tid);
+	}
+
+	/**
+	 * Returns the number of terms in this map.
+	 *
+	 * @return the number of terms.
+	 */
+	public int size()
+	{
+		return registry.size();
 	}
 
 	/**
@@ -66,6 +73,6 @@ public class TermMap implements Iterable<Term>
 	@Override
 	public Iterator<Term> iterator()
 	{
-		return map.values().iterator();
+		return registry.iterator();
 	}
 }
@@ -0,0 +1,294 @@
+package ontologizer.go;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A registry that assigns each term a dense ordinal, i.e., a number between
+ * 0 and size() - 1. Terms can be looked up either by their ordinal or by
+ * their term id. The latter is implemented via an open-addressing hash
+ * table on plain ints, so no boxing and no entry objects are involved.
+ *
+ * Once created, the registry is not modified anymore and can be safely
+ * shared among threads.
+ */
+public class TermRegistry implements Iterable<Term>
+{
+	/** Marks an empty slot in the table */
+	private static final int EMPTY = -1;
+
+	/** The terms indexed by their ordinal */
+	private Term [] terms;
+
+	/** The integer part of the term ids, indexed by the ordinal */
+	private int [] ids;
+
+	/** The open-addressing table. Contains ordinals or EMPTY */
+	private int [] table;
+
+	/** Mask used to map hash values to table slots */
+	private int mask;
+
+	/** Number of registered terms */
+	private int size;
+
+	private TermRegistry(int expectedSize)
+	{
+		int capacity = 16;
+		while (capacity < expectedSize * 2)
+			capacity <<= 1;
+
+		terms = new Term[Math.max(expectedSize, 4)];
+		ids = new int[terms.length];
+		table = new int[capacity];
+		mask = capacity - 1;
+		for (int i=0;i<capacity;i++)
+			table[i] = EMPTY;
+	}
+
+	/**
+	 * Spreads the bits of the given int.
+	 *
+	 * @param id
+	 * @return the hash value
+	 */
+	private static int hash(int id)
+	{
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Returns the slot of the term with the given prefix and integer id
+	 * or the free slot where it would be placed.
+	 *
+	 * @param prefix
+	 * @param id
+	 * @return the slot
+	 */
+	private int findSlot(Prefix prefix, int id)
+	{
+		int slot = hash(id) & mask;
+		int ordinal;
+
+		while ((ordinal = table[slot]) != EMPTY)
+		{
+			if (ids[ordinal] == id)
+			{
+				Prefix p = terms[ordinal].getID().getPrefix();
+				if (p == prefix || p.equals(prefix))
+					return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Doubles the size of the table and rehashes all entries.
+	 */
+	private void growTable()
+	{
+		int capacity = table.length << 1;
+		table = new int[capacity];
+		mask = capacity - 1;
+		for (int i=0;i<capacity;i++)
+			table[i] = EMPTY;
+
+		for (int ordinal=0;ordinal<size;ordinal++)
+		{
+			int slot = hash(ids[ordinal]) & mask;
+			while (table[slot] != EMPTY)
+				slot = (slot + 1) & mask;
+			table[slot] = ordinal;
+		}
+	}
+
+	/**
+	 * Adds the given term. If a term with the same id has been
+	 * added already, the new term replaces the old one but keeps
+	 * the ordinal.
+	 *
+	 * @param t
+	 */
+	private void add(Term t)
+	{
+		TermID tid = t.getID();
+		int slot = findSlot(tid.getPrefix(), tid.id);
+		if (table[slot] != EMPTY)
+		{
+			terms[table[slot]] = t;
+			return;
+		}
+
+		if (size == terms.length)
+		{
+			Term [] newTerms = new Term[size * 2];
+			int [] newIds = new int[size * 2];
+			System.arraycopy(terms, 0, newTerms, 0, size);
+			System.arraycopy(ids, 0, newIds, 0, size);
+			terms = newTerms;
+			ids = newIds;
+		}
+
+		terms[size] = t;
+		ids[size] = tid.id;
+		table[slot] = size;
+		size++;
+
+		/* Keep the load factor below 0.5 */
+		if (size * 2 > table.length)
+			growTable();
+	}
+
+	/**
+	 * Returns the number of registered terms.
+	 *
+	 * @return the number of terms.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns the ordinal of the term with the given prefix and integer id.
+	 *
+	 * @param prefix
+	 * @param id
+	 * @return the ordinal or -1 if no such term is registered.
+	 */
+	public int getOrdinal(Prefix prefix, int id)
+	{
+		return table[findSlot(prefix, id)];
+	}
+
+	/**
+	 * Returns the ordinal of the term with the given id.
+	 *
+	 * @param tid
+	 * @return the ordinal or -1 if no such term is registered.
+	 */
+	public int getOrdinal(TermID tid)
+	{
+		return table[findSlot(tid.getPrefix(), tid.id)];
+	}
+
+	/**
+	 * Returns the term with the given ordinal.
+	 *
+	 * @param ordinal
+	 * @return the term.
+	 */
+	public Term get(int ordinal)
+	{
+		if (ordinal < 0 || ordinal >= size)
+			throw new IndexOutOfBoundsException("Ordinal " + ordinal + " is out of range");
+		return terms[ordinal];
+	}
+
+	/**
+	 * Returns the term with the given prefix and integer id.
+	 *
+	 * @param prefix
+	 * @param id
+	 * @return the term or null if no such term is registered.
+	 */
+	public Term get(Prefix prefix, int id)
+	{
+		int ordinal = getOrdinal(prefix, id);
+		if (ordinal == EMPTY) return null;
+		return terms[ordinal];
+	}
+
+	/**
+	 * Returns the term with the given id.
+	 *
+	 * @param tid
+	 * @return the term or null if no such term is registered.
+	 */
+	public Term get(TermID tid)
+	{
+		int ordinal = getOrdinal(tid);
+		if (ordinal == EMPTY) return null;
+		return terms[ordinal];
+	}
+
+	/**
+	 * Returns whether a term with the given id is registered.
+	 *
+	 * @param tid
+	 * @return
+	 */
+	public boolean contains(TermID tid)
+	{
+		return getOrdinal(tid) != EMPTY;
+	}
+
+	/**
+	 * Iterates over the terms in the order of their ordinals.
+	 */
+	@Override
+	public Iterator<Term> iterator()
+	{
+		return new Iterator<Term>()
+		{
+			private int next;
+
+			public boolean hasNext()
+			{
+				return next < size;
+			}
+
+			public Term next()
+			{
+				if (next >= size)
+					throw new NoSuchElementException();
+				return terms[next++];
+			}
+
+			public void remove()
+			{
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Creates a registry for the given terms. Ordinals are assigned
+	 * in the order of the iteration.
+	 *
+	 * @param terms
+	 * @return the registry.
+	 */
+	public static TermRegistry create(Iterable<Term> terms)
+	{
+		return create(terms, null);
+	}
+
+	/**
+	 * Creates a registry for the given terms plus an additional term
+	 * that gets the last ordinal, unless it is already contained in terms.
+	 * Useful to register an artificial root term.
+	 *
+	 * @param terms
+	 * @param additional the additional term, may be null.
+	 * @return the registry.
+	 */
+	public static TermRegistry create(Iterable<Term> terms, Term additional)
+	{
+		int expected = 16;
+		if (terms instanceof Collection)
+			expected = ((Collection<?>)terms).size() + 1;
+		else if (terms instanceof TermMap)
+			expected = ((TermMap)terms).size() + 1;
+
+		TermRegistry registry = new TermRegistry(expected);
+		for (Term t : terms)
+			registry.add(t);
+		if (additional != null && !registry.contains(additional.getID()))
+			registry.add(additional);
+		return registry;
+	}
+}
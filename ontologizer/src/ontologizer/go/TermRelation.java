@@ -12,5 +12,29 @@ public enum TermRelation
 	REGULATES,
 	NEGATIVELY_REGULATES,
 	POSITIVELY_REGULATES,
-	UNKOWN
+	UNKOWN;
+
+	/**
+	 * Returns the bit that represents this relation in a relation mask.
+	 *
+	 * @return the bit.
+	 */
+	public int mask()
+	{
+		return 1 << ordinal();
+	}
+
+	/**
+	 * Returns the mask representing the given relations.
+	 *
+	 * @param relations
+	 * @return the mask.
+	 */
+	public static int mask(Iterable<TermRelation> relations)
+	{
+		int mask = 0;
+		for (TermRelation r : relations)
+			mask |= r.mask();
+		return mask;
+	}
 }
@@ -0,0 +1,48 @@
+package ontologizer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A monotonically increasing count.
+ */
+public class Counter extends Metric
+{
+	private final AtomicLong value = new AtomicLong();
+
+	Counter(String name, String help, String [] labels)
+	{
+		super(name, help, labels);
+	}
+
+	/**
+	 * Increments the count by one.
+	 */
+	public void inc()
+	{
+		value.incrementAndGet();
+	}
+
+	/**
+	 * Increments the count by the given amount.
+	 *
+	 * @param n
+	 */
+	public void add(long n)
+	{
+		value.addAndGet(n);
+	}
+
+	/**
+	 * @return the current count.
+	 */
+	public long get()
+	{
+		return value.get();
+	}
+
+	@Override
+	public void reset()
+	{
+		value.set(0);
+	}
+}
@@ -0,0 +1,112 @@
+package ontologizer.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the distribution of observed values within fixed buckets as
+ * well as their number and sum. Recording is lock-free.
+ */
+public class Histogram extends Metric
+{
+	/** Default bucket bounds, spanning several orders of magnitude */
+	public static final double [] DEFAULT_BOUNDS = new double[]{0.0001, 0.001, 0.01, 0.1, 1, 10, 100, 1000};
+
+	private final double [] bounds;
+
+	/** The last bucket counts the values above the largest bound */
+	private final AtomicLongArray buckets;
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sumBits = new AtomicLong(Double.doubleToLongBits(0));
+
+	Histogram(String name, String help, double [] bounds, String [] labels)
+	{
+		super(name, help, labels);
+
+		for (int i=1;i<bounds.length;i++)
+		{
+			if (bounds[i] <= bounds[i-1])
+				throw new IllegalArgumentException("Bounds must be increasing");
+		}
+		this.bounds = bounds.clone();
+		this.buckets = new AtomicLongArray(bounds.length + 1);
+	}
+
+	/**
+	 * Records the given value.
+	 *
+	 * @param value
+	 */
+	public void observe(double value)
+	{
+		int i = 0;
+		while (i < bounds.length && value > bounds[i])
+			i++;
+		buckets.incrementAndGet(i);
+		count.incrementAndGet();
+
+		long old;
+		do
+		{
+			old = sumBits.get();
+		} while (!sumBits.compareAndSet(old, Double.doubleToLongBits(Double.longBitsToDouble(old) + value)));
+	}
+
+	/**
+	 * @return the number of recorded values.
+	 */
+	public long getCount()
+	{
+		return count.get();
+	}
+
+	/**
+	 * @return the sum of the recorded values.
+	 */
+	public double getSum()
+	{
+		return Double.longBitsToDouble(sumBits.get());
+	}
+
+	/**
+	 * @return the mean of the recorded values or NaN if no values were recorded.
+	 */
+	public double getMean()
+	{
+		long n = getCount();
+		if (n == 0) return Double.NaN;
+		return getSum() / n;
+	}
+
+	/**
+	 * @return the upper bounds of the buckets.
+	 */
+	public double [] getBounds()
+	{
+		return bounds.clone();
+	}
+
+	/**
+	 * Returns the number of values per bucket. The array contains one more
+	 * element than the bounds, the last element denotes the number of
+	 * values that are larger than the largest bound.
+	 *
+	 * @return the counts, not cumulative.
+	 */
+	public long [] getBucketCounts()
+	{
+		long [] counts = new long[buckets.length()];
+		for (int i=0;i<counts.length;i++)
+			counts[i] = buckets.get(i);
+		return counts;
+	}
+
+	@Override
+	public void reset()
+	{
+		for (int i=0;i<buckets.length();i++)
+			buckets.set(i, 0);
+		count.set(0);
+		sumBits.set(Double.doubleToLongBits(0));
+	}
+}
@@ -0,0 +1,17 @@
+package ontologizer.metrics;
+
+import java.io.IOException;
+
+/**
+ * Exports the current state of the metrics of a registry.
+ */
+public interface IMetricsExporter
+{
+	/**
+	 * Exports the metrics of the given registry.
+	 *
+	 * @param registry
+	 * @throws IOException
+	 */
+	void export(MetricsRegistry registry) throws IOException;
+}
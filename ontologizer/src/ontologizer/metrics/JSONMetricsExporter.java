@@ -0,0 +1,123 @@
+package ontologizer.metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Exports the metrics as a JSON document into a file. The document
+ * consists of an object with the single field <code>metrics</code>,
+ * an array of objects, one for each metric.
+ */
+public class JSONMetricsExporter implements IMetricsExporter
+{
+	private File file;
+
+	/**
+	 * Constructs the exporter.
+	 *
+	 * @param file the file that is (over)written on each export.
+	 */
+	public JSONMetricsExporter(File file)
+	{
+		this.file = file;
+	}
+
+	public void export(MetricsRegistry registry) throws IOException
+	{
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try
+		{
+			write(out, registry);
+		} finally
+		{
+			out.close();
+		}
+	}
+
+	private static String quote(String str)
+	{
+		StringBuilder quoted = new StringBuilder(str.length() + 2);
+		quoted.append('"');
+		for (int i=0;i<str.length();i++)
+		{
+			char c = str.charAt(i);
+			switch (c)
+			{
+				case	'"': quoted.append("\\\""); break;
+				case	'\\': quoted.append("\\\\"); break;
+				case	'\n': quoted.append("\\n"); break;
+				case	'\r': quoted.append("\\r"); break;
+				case	'\t': quoted.append("\\t"); break;
+				default:
+					if (c < 0x20) quoted.append(String.format("\\u%04x", (int)c));
+					else quoted.append(c);
+					break;
+			}
+		}
+		quoted.append('"');
+		return quoted.toString();
+	}
+
+	private static String number(double d)
+	{
+		if (Double.isNaN(d) || Double.isInfinite(d))
+			return "null";
+		return Double.toString(d);
+	}
+
+	/**
+	 * Writes the metrics of the given registry as JSON document.
+	 *
+	 * @param out
+	 * @param registry
+	 * @throws IOException
+	 */
+	public static void write(Writer out, MetricsRegistry registry) throws IOException
+	{
+		out.write("{\"metrics\":[");
+		boolean first = true;
+		for (Metric metric : registry.getMetrics())
+		{
+			out.write(first ? "\n" : ",\n");
+			first = false;
+
+			out.write("{\"name\":" + quote(metric.getName()));
+			out.write(",\"help\":" + quote(metric.getHelp()));
+			out.write(",\"labels\":{");
+			String [] labels = metric.getLabels();
+			for (int i=0;i<labels.length;i+=2)
+			{
+				if (i > 0) out.write(",");
+				out.write(quote(labels[i]) + ":" + quote(labels[i+1]));
+			}
+			out.write("}");
+
+			if (metric instanceof Counter)
+			{
+				out.write(",\"type\":\"counter\",\"value\":" + ((Counter)metric).get());
+			} else if (metric instanceof Histogram)
+			{
+				Histogram histogram = (Histogram)metric;
+				out.write(",\"type\":" + (metric instanceof Timer ? "\"timer\"" : "\"histogram\""));
+				out.write(",\"count\":" + histogram.getCount());
+				out.write(",\"sum\":" + number(histogram.getSum()));
+				out.write(",\"mean\":" + number(histogram.getMean()));
+				out.write(",\"buckets\":[");
+				double [] bounds = histogram.getBounds();
+				long [] counts = histogram.getBucketCounts();
+				for (int i=0;i<counts.length;i++)
+				{
+					if (i > 0) out.write(",");
+					out.write("{\"le\":" + (i < bounds.length ? number(bounds[i]) : "null") + ",\"count\":" + counts[i] + "}");
+				}
+				out.write("]");
+			}
+			out.write("}");
+		}
+		out.write("\n]}\n");
+	}
+}
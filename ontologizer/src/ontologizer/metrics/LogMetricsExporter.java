@@ -0,0 +1,49 @@
+package ontologizer.metrics;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exports the metrics to a logger, one line per metric.
+ */
+public class LogMetricsExporter implements IMetricsExporter
+{
+	private Logger logger;
+	private Level level;
+
+	/**
+	 * Constructs the exporter.
+	 *
+	 * @param logger the logger to which the metrics are written
+	 * @param level the level of the log records
+	 */
+	public LogMetricsExporter(Logger logger, Level level)
+	{
+		this.logger = logger;
+		this.level = level;
+	}
+
+	public void export(MetricsRegistry registry)
+	{
+		if (!logger.isLoggable(level))
+			return;
+
+		for (Metric metric : registry.getMetrics())
+		{
+			if (metric instanceof Counter)
+			{
+				logger.log(level, metric.getKey() + ": " + ((Counter)metric).get());
+			} else if (metric instanceof Histogram)
+			{
+				Histogram histogram = (Histogram)metric;
+				if (histogram.getCount() == 0)
+					continue;
+
+				String unit = metric instanceof Timer ? "s" : "";
+				logger.log(level, metric.getKey() + ": count=" + histogram.getCount() +
+						" sum=" + String.format("%.4g", histogram.getSum()) + unit +
+						" mean=" + String.format("%.4g", histogram.getMean()) + unit);
+			}
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package ontologizer.metrics;
+
+/**
+ * Base class of all metrics. A metric is identified by its name and
+ * an optional list of labels.
+ */
+public abstract class Metric
+{
+	private final String name;
+	private final String help;
+	private final String [] labels;
+
+	/**
+	 * Constructs the metric.
+	 *
+	 * @param name the name of the metric
+	 * @param help a short description
+	 * @param labels alternating label names and values
+	 */
+	protected Metric(String name, String help, String [] labels)
+	{
+		if (labels.length % 2 != 0)
+			throw new IllegalArgumentException("Labels must be given as pairs of names and values");
+
+		this.name = name;
+		this.help = help;
+		this.labels = labels.clone();
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getHelp()
+	{
+		return help;
+	}
+
+	/**
+	 * @return the labels as alternating names and values.
+	 */
+	public String [] getLabels()
+	{
+		return labels.clone();
+	}
+
+	/**
+	 * Returns the key of the metric as it is used within the registry.
+	 *
+	 * @param name
+	 * @param labels
+	 * @return the key
+	 */
+	static String key(String name, String [] labels)
+	{
+		if (labels.length == 0)
+			return name;
+
+		StringBuilder str = new StringBuilder(name);
+		str.append('{');
+		for (int i=0;i<labels.length;i+=2)
+		{
+			if (i > 0) str.append(',');
+			str.append(labels[i]).append("=\"").append(labels[i+1]).append('"');
+		}
+		str.append('}');
+		return str.toString();
+	}
+
+	/**
+	 * @return the key of the metric, i.e., the name including the labels.
+	 */
+	public String getKey()
+	{
+		return key(name, labels);
+	}
+
+	/**
+	 * Resets the metric to its initial state.
+	 */
+	public abstract void reset();
+}
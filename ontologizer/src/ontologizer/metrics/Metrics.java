@@ -0,0 +1,82 @@
+package ontologizer.metrics;
+
+/**
+ * Provides the registry that collects the metrics of all parts of
+ * Ontologizer within the JVM.
+ *
+ * Metrics should be obtained once and kept in a static field if they are
+ * updated often. Names follow the conventions of Prometheus, i.e., they
+ * start with <code>ontologizer_</code>, counters end with <code>_total</code>
+ * and timers with <code>_seconds</code>.
+ */
+public class Metrics
+{
+	private static final MetricsRegistry registry = new MetricsRegistry();
+
+	private Metrics()
+	{
+	}
+
+	/**
+	 * @return the global registry.
+	 */
+	public static MetricsRegistry getRegistry()
+	{
+		return registry;
+	}
+
+	/**
+	 * Returns the counter of the given name and labels from the
+	 * global registry.
+	 *
+	 * @see MetricsRegistry#counter(String, String, String...)
+	 */
+	public static Counter counter(String name, String help, String...labels)
+	{
+		return registry.counter(name, help, labels);
+	}
+
+	/**
+	 * Returns the timer of the given name and labels from the
+	 * global registry.
+	 *
+	 * @see MetricsRegistry#timer(String, String, String...)
+	 */
+	public static Timer timer(String name, String help, String...labels)
+	{
+		return registry.timer(name, help, labels);
+	}
+
+	/**
+	 * Returns the histogram of the given name and labels from the
+	 * global registry.
+	 *
+	 * @see MetricsRegistry#histogram(String, String, double[], String...)
+	 */
+	public static Histogram histogram(String name, String help, double [] bounds, String...labels)
+	{
+		return registry.histogram(name, help, bounds, labels);
+	}
+
+	/**
+	 * Returns the counter of the hits of the given cache.
+	 *
+	 * @param cache the name of the cache
+	 * @return the counter
+	 */
+	public static Counter cacheHits(String cache)
+	{
+		return counter("ontologizer_cache_hits_total", "Number of cache hits", "cache", cache);
+	}
+
+	/**
+	 * Returns the counter of the misses of the given cache.
+	 *
+	 * @param cache the name of the cache
+	 * @return the counter
+	 */
+	public static Counter cacheMisses(String cache)
+	{
+		return counter("ontologizer_cache_misses_total", "Number of cache misses", "cache", cache);
+	}
+}
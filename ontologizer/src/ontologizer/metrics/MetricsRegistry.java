@@ -0,0 +1,104 @@
+package ontologizer.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds a set of metrics. Metrics are created on first request and
+ * returned on any further request of the same name and labels, so
+ * clients may keep references to the metrics.
+ */
+public class MetricsRegistry
+{
+	private final ConcurrentHashMap<String,Metric> metrics = new ConcurrentHashMap<String,Metric>();
+
+	private <T extends Metric> T register(T metric, Class<T> type)
+	{
+		Metric old = metrics.putIfAbsent(metric.getKey(), metric);
+		if (old == null)
+			return metric;
+		if (old.getClass() != type)
+			throw new IllegalArgumentException("Metric \"" + metric.getKey() + "\" is already registered as " + old.getClass().getSimpleName());
+		return type.cast(old);
+	}
+
+	private <T extends Metric> T lookup(String name, String [] labels, Class<T> type)
+	{
+		Metric metric = metrics.get(Metric.key(name, labels));
+		if (metric == null)
+			return null;
+		if (metric.getClass() != type)
+			throw new IllegalArgumentException("Metric \"" + metric.getKey() + "\" is already registered as " + metric.getClass().getSimpleName());
+		return type.cast(metric);
+	}
+
+	/**
+	 * Returns the counter of the given name and labels.
+	 *
+	 * @param name
+	 * @param help
+	 * @param labels alternating label names and values
+	 * @return the counter
+	 */
+	public Counter counter(String name, String help, String...labels)
+	{
+		Counter counter = lookup(name, labels, Counter.class);
+		if (counter != null)
+			return counter;
+		return register(new Counter(name, help, labels), Counter.class);
+	}
+
+	/**
+	 * Returns the timer of the given name and labels. The timer uses
+	 * the default bounds.
+	 *
+	 * @param name
+	 * @param help
+	 * @param labels alternating label names and values
+	 * @return the timer
+	 */
+	public Timer timer(String name, String help, String...labels)
+	{
+		Timer timer = lookup(name, labels, Timer.class);
+		if (timer != null)
+			return timer;
+		return register(new Timer(name, help, Histogram.DEFAULT_BOUNDS, labels), Timer.class);
+	}
+
+	/**
+	 * Returns the histogram of the given name and labels.
+	 *
+	 * @param name
+	 * @param help
+	 * @param bounds the upper bounds of the buckets, used only if the
+	 *  histogram is created
+	 * @param labels alternating label names and values
+	 * @return the histogram
+	 */
+	public Histogram histogram(String name, String help, double [] bounds, String...labels)
+	{
+		Histogram histogram = lookup(name, labels, Histogram.class);
+		if (histogram != null)
+			return histogram;
+		return register(new Histogram(name, help, bounds, labels), Histogram.class);
+	}
+
+	/**
+	 * @return all metrics sorted by their keys.
+	 */
+	public List<Metric> getMetrics()
+	{
+		return new ArrayList<Metric>(new TreeMap<String,Metric>(metrics).values());
+	}
+
+	/**
+	 * Resets all metrics. The metrics stay registered.
+	 */
+	public void reset()
+	{
+		for (Metric metric : metrics.values())
+			metric.reset();
+	}
+}
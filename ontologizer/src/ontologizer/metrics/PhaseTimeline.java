@@ -0,0 +1,366 @@
+package ontologizer.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Records the phases of an analysis, e.g., parsing, enumeration or
+ * the calculation of the raw p values, together with their durations
+ * and, where supported by the JVM, the number of bytes that were
+ * allocated by the thread during the phase.
+ *
+ * A timeline is attached to the current thread via attach(). Phases
+ * begun afterwards within that thread are recorded into the timeline.
+ * If no timeline is attached, phases are not recorded, so code can
+ * declare its phases unconditionally:
+ * <pre>
+ * PhaseTimeline.Phase phase = PhaseTimeline.begin("study enumeration");
+ * ...
+ * phase.end();
+ * </pre>
+ *
+ * Phases of the same name and nesting level are accumulated, i.e.,
+ * a phase that is passed many times, like a single resampling step,
+ * appears only once but with its count.
+ */
+public class PhaseTimeline
+{
+	/** The timeline that is attached to a thread */
+	private static final ThreadLocal<PhaseTimeline> current = new ThreadLocal<PhaseTimeline>();
+
+	/**
+	 * Holds the bean that provides the allocated bytes. The access is
+	 * done in an own class as the bean is specific to some JVMs.
+	 */
+	private static class Allocation
+	{
+		private static final com.sun.management.ThreadMXBean bean;
+
+		static
+		{
+			com.sun.management.ThreadMXBean b = null;
+			try
+			{
+				java.lang.management.ThreadMXBean tb = ManagementFactory.getThreadMXBean();
+				if (tb instanceof com.sun.management.ThreadMXBean)
+				{
+					b = (com.sun.management.ThreadMXBean)tb;
+					if (!b.isThreadAllocatedMemorySupported())
+						b = null;
+					else if (!b.isThreadAllocatedMemoryEnabled())
+						b.setThreadAllocatedMemoryEnabled(true);
+				}
+			} catch (Throwable t)
+			{
+				b = null;
+			}
+			bean = b;
+		}
+
+		static long allocatedBytes()
+		{
+			if (bean == null) return -1;
+			return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+	}
+
+	private static final boolean allocationSupported;
+
+	static
+	{
+		boolean supported;
+		try
+		{
+			supported = Allocation.allocatedBytes() >= 0;
+		} catch (Throwable t)
+		{
+			/* E.g., NoClassDefFoundError on JVMs without com.sun.management */
+			supported = false;
+		}
+		allocationSupported = supported;
+	}
+
+	/**
+	 * A single phase of the timeline.
+	 */
+	public static class Phase
+	{
+		private final PhaseTimeline timeline;
+		private final String name;
+		private final int level;
+		private final long startNanos;
+		private final long startBytes;
+
+		private long durationNanos;
+		private long allocatedBytes;
+		private int count;
+
+		private Phase(PhaseTimeline timeline, String name, int level, long startNanos, long startBytes)
+		{
+			this.timeline = timeline;
+			this.name = name;
+			this.level = level;
+			this.startNanos = startNanos;
+			this.startBytes = startBytes;
+		}
+
+		/**
+		 * Ends the phase. Has no effect if no timeline was attached
+		 * when the phase was begun.
+		 */
+		public void end()
+		{
+			if (timeline == null)
+				return;
+
+			long bytes = allocationSupported ? Allocation.allocatedBytes() - startBytes : -1;
+			timeline.add(this, System.nanoTime() - startNanos, bytes);
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * @return the nesting level of the phase, 0 for phases
+		 *  that were begun outside of any other phase.
+		 */
+		public int getLevel()
+		{
+			return level;
+		}
+
+		/**
+		 * @return the start of the first pass as returned by System.nanoTime()
+		 */
+		public long getStartNanos()
+		{
+			return startNanos;
+		}
+
+		/**
+		 * @return the accumulated duration of all passes.
+		 */
+		public long getDurationNanos()
+		{
+			return durationNanos;
+		}
+
+		/**
+		 * @return the accumulated number of allocated bytes or -1 if
+		 *  this is not supported by the JVM.
+		 */
+		public long getAllocatedBytes()
+		{
+			return allocatedBytes;
+		}
+
+		/**
+		 * @return how often the phase was passed.
+		 */
+		public int getCount()
+		{
+			return count;
+		}
+	}
+
+	private final List<Phase> phases = new ArrayList<Phase>();
+
+	/** Number of currently open phases */
+	private int level;
+
+	/**
+	 * Attaches the given timeline to the current thread.
+	 *
+	 * @param timeline the timeline to attach or null to detach the
+	 *  current one
+	 * @return the timeline that was attached before, which should be
+	 *  attached again when the caller is done.
+	 */
+	public static PhaseTimeline attach(PhaseTimeline timeline)
+	{
+		PhaseTimeline previous = current.get();
+		if (timeline != null) current.set(timeline);
+		else current.remove();
+		return previous;
+	}
+
+	/**
+	 * @return the timeline attached to the current thread or null.
+	 */
+	public static PhaseTimeline current()
+	{
+		return current.get();
+	}
+
+	/**
+	 * Begins a phase in the timeline that is attached to the current
+	 * thread.
+	 *
+	 * @param name the name of the phase
+	 * @return the phase that needs to be ended.
+	 */
+	public static Phase begin(String name)
+	{
+		PhaseTimeline timeline = current.get();
+		if (timeline == null)
+			return new Phase(null, name, 0, 0, 0);
+
+		return new Phase(timeline, name, timeline.level++, System.nanoTime(), allocationSupported ? Allocation.allocatedBytes() : -1);
+	}
+
+	/**
+	 * @return whether the allocated bytes are recorded.
+	 */
+	public static boolean isAllocationSupported()
+	{
+		return allocationSupported;
+	}
+
+	private synchronized void add(Phase phase, long durationNanos, long allocatedBytes)
+	{
+		level = phase.level;
+
+		Phase accumulated = null;
+		for (Phase p : phases)
+		{
+			if (p.level == phase.level && p.name.equals(phase.name))
+			{
+				accumulated = p;
+				break;
+			}
+		}
+		if (accumulated == null)
+		{
+			accumulated = phase;
+			phases.add(phase);
+		}
+		accumulated.durationNanos += durationNanos;
+		accumulated.allocatedBytes = allocatedBytes < 0 ? -1 : accumulated.allocatedBytes + allocatedBytes;
+		accumulated.count++;
+	}
+
+	/**
+	 * Adds all phases of the given timeline to this timeline.
+	 *
+	 * @param timeline
+	 */
+	public synchronized void addAll(PhaseTimeline timeline)
+	{
+		if (timeline == null)
+			return;
+
+		for (Phase p : timeline.getPhases())
+		{
+			Phase copy = new Phase(this, p.name, p.level, p.startNanos, 0);
+			copy.durationNanos = p.durationNanos;
+			copy.allocatedBytes = p.allocatedBytes;
+			copy.count = p.count;
+			phases.add(copy);
+		}
+	}
+
+	/**
+	 * Returns the recorded phases ordered by their start. A phase
+	 * is added to the timeline when it ends, so phases that have not
+	 * ended are not included.
+	 *
+	 * @return the phases
+	 */
+	public synchronized List<Phase> getPhases()
+	{
+		List<Phase> sorted = new ArrayList<Phase>(phases);
+		Collections.sort(sorted, new Comparator<Phase>()
+		{
+			public int compare(Phase o1, Phase o2)
+			{
+				if (o1.startNanos < o2.startNanos) return -1;
+				if (o1.startNanos > o2.startNanos) return 1;
+				return o1.level - o2.level;
+			}
+		});
+		return sorted;
+	}
+
+	/**
+	 * Returns the accumulated duration of all phases with the given
+	 * name.
+	 *
+	 * @param name
+	 * @return the duration in nano seconds.
+	 */
+	public synchronized long getDurationNanos(String name)
+	{
+		long nanos = 0;
+		for (Phase p : phases)
+			if (p.name.equals(name))
+				nanos += p.durationNanos;
+		return nanos;
+	}
+
+	private static String quote(String str)
+	{
+		return "\"" + str.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	/**
+	 * Writes the timeline as JSON object with an array of phases. The
+	 * start of a phase is given in seconds relative to the start of the
+	 * first phase.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeJSON(Writer out) throws IOException
+	{
+		List<Phase> sorted = getPhases();
+		long origin = sorted.isEmpty() ? 0 : sorted.get(0).startNanos;
+
+		out.write("{\"allocationSupported\":" + allocationSupported + ",\"phases\":[");
+		boolean first = true;
+		for (Phase p : sorted)
+		{
+			out.write(first ? "\n" : ",\n");
+			first = false;
+
+			out.write("{\"name\":" + quote(p.name));
+			out.write(",\"level\":" + p.level);
+			out.write(",\"start\":" + (p.startNanos - origin) / 1e9);
+			out.write(",\"duration\":" + p.durationNanos / 1e9);
+			out.write(",\"count\":" + p.count);
+			if (p.allocatedBytes >= 0)
+				out.write(",\"allocatedBytes\":" + p.allocatedBytes);
+			out.write("}");
+		}
+		out.write("\n]}\n");
+	}
+
+	/**
+	 * Returns a human readable representation of the timeline,
+	 * one line per phase, indented according to the nesting.
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder str = new StringBuilder();
+		for (Phase p : getPhases())
+		{
+			if (str.length() > 0) str.append('\n');
+			for (int i=0;i<p.level;i++)
+				str.append("  ");
+			str.append(p.name);
+			str.append(String.format(": %.3f s", p.durationNanos / 1e9));
+			if (p.count > 1)
+				str.append(" (" + p.count + " times)");
+			if (p.allocatedBytes >= 0)
+				str.append(String.format(", %.1f MiB allocated", p.allocatedBytes / (1024.0 * 1024.0)));
+		}
+		return str.toString();
+	}
+}
@@ -0,0 +1,134 @@
+package ontologizer.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the metrics in the text exposition format of Prometheus.
+ * Timers and histograms are exported as Prometheus histograms.
+ */
+public class PrometheusMetricsExporter implements IMetricsExporter
+{
+	/** The content type of the format */
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+	private OutputStream os;
+
+	/**
+	 * Constructs the exporter.
+	 *
+	 * @param os the stream to which the metrics are written. The stream
+	 *  is flushed but not closed after the export.
+	 */
+	public PrometheusMetricsExporter(OutputStream os)
+	{
+		this.os = os;
+	}
+
+	public void export(MetricsRegistry registry) throws IOException
+	{
+		Writer out = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
+		write(out, registry);
+		out.flush();
+	}
+
+	private static String escape(String str)
+	{
+		return str.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static String number(double d)
+	{
+		if (Double.isNaN(d)) return "NaN";
+		if (Double.isInfinite(d)) return d > 0 ? "+Inf" : "-Inf";
+		return Double.toString(d);
+	}
+
+	/**
+	 * Returns the label part of a sample.
+	 *
+	 * @param labels alternating names and values
+	 * @param le the value of the additional le label or null
+	 */
+	private static String labels(String [] labels, String le)
+	{
+		if (labels.length == 0 && le == null)
+			return "";
+
+		StringBuilder str = new StringBuilder("{");
+		for (int i=0;i<labels.length;i+=2)
+		{
+			if (i > 0) str.append(',');
+			str.append(labels[i]).append("=\"").append(escape(labels[i+1])).append('"');
+		}
+		if (le != null)
+		{
+			if (labels.length > 0) str.append(',');
+			str.append("le=\"").append(le).append('"');
+		}
+		str.append('}');
+		return str.toString();
+	}
+
+	/**
+	 * Writes the metrics of the given registry.
+	 *
+	 * @param out
+	 * @param registry
+	 * @throws IOException
+	 */
+	public static void write(Writer out, MetricsRegistry registry) throws IOException
+	{
+		/* Metrics of the same name must be grouped */
+		Map<String,List<Metric>> byName = new LinkedHashMap<String,List<Metric>>();
+		for (Metric metric : registry.getMetrics())
+		{
+			List<Metric> metrics = byName.get(metric.getName());
+			if (metrics == null)
+			{
+				metrics = new ArrayList<Metric>();
+				byName.put(metric.getName(), metrics);
+			}
+			metrics.add(metric);
+		}
+
+		for (Map.Entry<String,List<Metric>> entry : byName.entrySet())
+		{
+			String name = entry.getKey();
+			Metric first = entry.getValue().get(0);
+
+			out.write("# HELP " + name + " " + first.getHelp().replace("\\", "\\\\").replace("\n", "\\n") + "\n");
+			out.write("# TYPE " + name + " " + (first instanceof Counter ? "counter" : "histogram") + "\n");
+
+			for (Metric metric : entry.getValue())
+			{
+				String [] labels = metric.getLabels();
+				if (metric instanceof Counter)
+				{
+					out.write(name + labels(labels, null) + " " + ((Counter)metric).get() + "\n");
+				} else if (metric instanceof Histogram)
+				{
+					Histogram histogram = (Histogram)metric;
+					double [] bounds = histogram.getBounds();
+					long [] counts = histogram.getBucketCounts();
+					long cumulative = 0;
+					for (int i=0;i<counts.length;i++)
+					{
+						cumulative += counts[i];
+						String le = i < bounds.length ? number(bounds[i]) : "+Inf";
+						out.write(name + "_bucket" + labels(labels, le) + " " + cumulative + "\n");
+					}
+					out.write(name + "_sum" + labels(labels, null) + " " + number(histogram.getSum()) + "\n");
+					out.write(name + "_count" + labels(labels, null) + " " + histogram.getCount() + "\n");
+				}
+			}
+		}
+	}
+}
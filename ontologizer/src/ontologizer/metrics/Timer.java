@@ -0,0 +1,42 @@
+package ontologizer.metrics;
+
+/**
+ * A histogram of durations, which are recorded in seconds.
+ *
+ * Usage:
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * timer.recordSince(start);
+ * </pre>
+ */
+public class Timer extends Histogram
+{
+	Timer(String name, String help, double [] bounds, String [] labels)
+	{
+		super(name, help, bounds, labels);
+	}
+
+	/**
+	 * Records the given duration.
+	 *
+	 * @param nanos the duration in nano seconds
+	 */
+	public void record(long nanos)
+	{
+		observe(nanos / 1e9);
+	}
+
+	/**
+	 * Records the time that has passed since the given start.
+	 *
+	 * @param startNanos the start as returned by System.nanoTime()
+	 * @return the current time as returned by System.nanoTime()
+	 */
+	public long recordSince(long startNanos)
+	{
+		long now = System.nanoTime();
+		record(now - startNanos);
+		return now;
+	}
+}
@@ -26,6 +26,10 @@ import ontologizer.go.Ontology;
 import ontologizer.go.Term;
 import ontologizer.go.TermID;
 import ontologizer.go.Ontology.IVisitingGOVertex;
+import ontologizer.metrics.Counter;
+import ontologizer.metrics.Metrics;
+import ontologizer.metrics.PhaseTimeline;
+import ontologizer.metrics.Timer;
 import ontologizer.parser.ItemAttribute;
 import ontologizer.parser.ValuedItemAttribute;
 import ontologizer.sampling.StudySetSampler;
@@ -45,6 +49,10 @@ public class StudySet implements Iterable<ByteString>
 {
 	private static Logger logger = Logger.getLogger(StudySet.class.getName());
 
+	private static final Timer ENUMERATION_TIMER = Metrics.timer("ontologizer_enumeration_seconds", "Time spent for enumerating the annotated genes of the terms");
+	private static final Counter ENUMERATION_CACHE_HITS = Metrics.cacheHits("enumeration");
+	private static final Counter ENUMERATION_CACHE_MISSES = Metrics.cacheMisses("enumeration");
+
 	/**
 	 * HashMap containing the names of genes (or gene products) of the study
 	 * and their optional description.
@@ -385,8 +393,15 @@ public class StudySet implements Iterable<ByteString>
 	public synchronized GOTermEnumerator enumerateGOTerms(Ontology graph, AssociationContainer associationContainer, Set<ByteString> evidences, GOTermEnumerator.IRemover remover)
 	{
 		/* Return cached enumerator if available */
-		if (goTermEnumerator != null) return goTermEnumerator;
+		if (goTermEnumerator != null)
+		{
+			ENUMERATION_CACHE_HITS.inc();
+			return goTermEnumerator;
+		}
+		ENUMERATION_CACHE_MISSES.inc();
 
+		long startNanos = System.nanoTime();
+		PhaseTimeline.Phase phase = PhaseTimeline.begin(this instanceof PopulationSet ? "population enumeration" : "study enumeration");
 		goTermEnumerator =  new GOTermEnumerator(graph);
 
 		/* Iterate over all gene names and add their annotations to the goTermCounter */
@@ -399,6 +414,8 @@ public class StudySet implements Iterable<ByteString>
 
 		if (remover != null)
 			goTermEnumerator.removeTerms(remover);
+		phase.end();
+		ENUMERATION_TIMER.recordSince(startNanos);
 		return goTermEnumerator;
 	}
 
@@ -6,6 +6,11 @@
  */
 package ontologizer.statistics;
 
+import ontologizer.metrics.Counter;
+import ontologizer.metrics.Metrics;
+import ontologizer.metrics.PhaseTimeline;
+import ontologizer.metrics.Timer;
+
 /**
  * A multiple test correction...
  *
@@ -29,6 +34,60 @@ public abstract class AbstractTestCorrection
 	 */
 	abstract public PValue[] adjustPValues(IPValueCalculation pValueCalculation);
 
+	private static final Timer RAW_PVALUES_TIMER = Metrics.timer("ontologizer_raw_pvalues_seconds", "Time spent for calculating raw p values");
+	private static final Timer RESAMPLING_STEP_TIMER = Metrics.timer("ontologizer_resampling_step_seconds", "Time spent for calculating the p values of a single resampling step");
+	private static final Counter SAMPLE_CACHE_HITS = Metrics.cacheHits("resampling");
+	private static final Counter SAMPLE_CACHE_MISSES = Metrics.cacheMisses("resampling");
+
+	/**
+	 * Performs the multiple test correction like adjustPValues() but
+	 * records the time spent in the metrics and as phases of the timeline
+	 * that is attached to the current thread. The time for calculating
+	 * the raw p values and the time of each resampling step are recorded
+	 * separately.
+	 *
+	 * @param pValueCalculation an object implementing the p value
+	 *        calculation.
+	 * @return the adjusted p values as returned by adjustPValues().
+	 */
+	public PValue[] adjustPValuesMeasured(final IPValueCalculation pValueCalculation)
+	{
+		long startNanos = System.nanoTime();
+		PhaseTimeline.Phase phase = PhaseTimeline.begin("multiple test correction");
+
+		PValue [] p = adjustPValues(new IPValueCalculation()
+		{
+			public PValue[] calculateRawPValues()
+			{
+				long start = System.nanoTime();
+				PhaseTimeline.Phase phase = PhaseTimeline.begin("raw p-values");
+				PValue [] p = pValueCalculation.calculateRawPValues();
+				phase.end();
+				RAW_PVALUES_TIMER.recordSince(start);
+				return p;
+			}
+
+			public PValue[] calculateRandomPValues()
+			{
+				long start = System.nanoTime();
+				PhaseTimeline.Phase phase = PhaseTimeline.begin("resampling");
+				PValue [] p = pValueCalculation.calculateRandomPValues();
+				phase.end();
+				RESAMPLING_STEP_TIMER.recordSince(start);
+				return p;
+			}
+
+			public int currentStudySetSize()
+			{
+				return pValueCalculation.currentStudySetSize();
+			}
+		});
+
+		phase.end();
+		Metrics.timer("ontologizer_mtc_seconds", "Time spent for multiple test correction including the calculation of the p values", "mtc", getName()).recordSince(startNanos);
+		return p;
+	}
+
 	/**
 	 * Return a description of the test.
 	 *
@@ -105,4 +164,17 @@ public abstract class AbstractTestCorrection
 		for (int i=m-2;i>=0;i--)
 			p[i].p_adjusted = Math.min(p[i].p_adjusted,p[i+1].p_adjusted);
 	}
+
+	/**
+	 * Records whether samples for the size of the current study set
+	 * were available. Used by resampling based procedures that cache
+	 * their samples.
+	 *
+	 * @param hit
+	 */
+	protected void recordSampleCacheLookup(boolean hit)
+	{
+		if (hit) SAMPLE_CACHE_HITS.inc();
+		else SAMPLE_CACHE_MISSES.inc();
+	}
 }
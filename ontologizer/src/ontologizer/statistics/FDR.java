@@ -80,10 +80,7 @@ public class FDR extends AbstractTestCorrection
 
 			for (i=0;i<m;i++)
 				pValues[b][i] = randomRawP[i].p;
-
-			System.out.print("created " + (b+1) + " samples out of " + numberOfResamplingSteps + "\r");
 		}
-		System.out.println("");
 
 		/* For every P-value determine the adjusted P-value (but TODO: optimze!!!) */
 		for (i=0;i<m;i++)
@@ -139,7 +136,6 @@ public class FDR extends AbstractTestCorrection
 
 			//System.out.println("adjusted " + fdr);
 			//System.out.print("fdr " + fdr + " for p-value " + p + "\r");
-			System.out.print("corrected " + i + " out of " + m + " p-values (fdr " + fdr + ", p-value " + p + ")\r");
 
 			rawP[i].p_adjusted = fdr;
 		}
@@ -48,10 +48,7 @@ public class FDRBySteffen extends AbstractTestCorrection
 
 			for (i=0;i<m;i++)
 				pValues[b][i] = randomRawP[i].p;
-
-			System.out.print("created " + (b+1) + " samples out of " + numberOfResamplingSteps + "\r");
 		}
-		System.out.println();
 
 		/* For every P-value determine the adjusted P-value */
 
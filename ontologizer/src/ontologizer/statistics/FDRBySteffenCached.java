@@ -2,6 +2,7 @@ package ontologizer.statistics;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.logging.Logger;
 
 /**
  *
@@ -11,6 +12,8 @@ import java.util.HashMap;
 public class FDRBySteffenCached extends AbstractTestCorrection
 						   implements IResampling
 {
+	private static Logger logger = Logger.getLogger(FDRBySteffenCached.class.getCanonicalName());
+
 	/** Specifies the number of resampling steps */
 	private int numberOfResamplingSteps = 1000;
 	private HashMap<Integer,PvalueSetStore> sampledPValuesPerSize = new HashMap<Integer,PvalueSetStore>();
@@ -42,10 +45,12 @@ public class FDRBySteffenCached extends AbstractTestCorrection
 		PvalueSetStore randomSampledPValues;
 
 		if (sampledPValuesPerSize.containsKey(studySetSize)) {
-			System.out.println("Using available samples for study set size " + studySetSize);
+			logger.fine("Using available samples for study set size " + studySetSize);
+			recordSampleCacheLookup(true);
 			randomSampledPValues = sampledPValuesPerSize.get(studySetSize);
 		} else {
-			System.out.println("Sampling for study set size " + studySetSize + "\nThis may take a while...");
+			logger.fine("Sampling for study set size " + studySetSize);
+			recordSampleCacheLookup(false);
 			randomSampledPValues = new PvalueSetStore(numberOfResamplingSteps,m);
 			for (int b=0; b < numberOfResamplingSteps; b++) {
 				/* Compute raw p values of "permuted" data */
@@ -54,10 +59,7 @@ public class FDRBySteffenCached extends AbstractTestCorrection
 
 				assert(randomRawP.length == m);
 				randomSampledPValues.add(randomRawP);
-
-				System.out.print("created " + b + " samples out of " + numberOfResamplingSteps + "\r");
 			}
-			System.out.println();
 			sampledPValuesPerSize.put(studySetSize,randomSampledPValues);
 		}
 
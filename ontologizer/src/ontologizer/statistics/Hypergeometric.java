@@ -19,6 +19,24 @@ public class Hypergeometric
 	 */
 	private Vector<Double> lfactorial;
 
+	/** The p values that are shared by all instances within the JVM */
+	private static final HypergeometricCache sharedCache = new HypergeometricCache("hypergeometric", 1 << 16);
+
+	/** The relative precision at which the summation of a tail is terminated */
+	private static final double TAIL_EPSILON = 0x1.0p-54;
+
+	/** The p values used by this instance */
+	private HypergeometricCache cache;
+
+	/** The minimal standard deviation at which tails are approximated */
+	private static final double APPROXIMATION_MIN_SD = 30;
+
+	/** The minimal p value that is approximated */
+	private static final double APPROXIMATION_MIN_P = 0.1;
+
+	/** Whether large p values of large parameters are approximated */
+	private boolean approximate;
+
 	/**
 	 * <P>
 	 * For the hypergeometric distribution note the following.
@@ -42,6 +60,12 @@ public class Hypergeometric
 	 * We can then calculate the number of genes in the population annotated to
 	 * the term by <B>round(n*p)</B>, and the number of genes not annotated to
 	 * the term by <B>round(n*(1-p))</B>.</LI>
+	 * </UL>
+	 * <P>
+	 * The p values are memorized in a cache, by default in the one that is
+	 * shared by all instances, as the same counts reoccur for many terms
+	 * and resampled study sets.
+	 * </P>
 	 *
 	 *
 	 * @param n
@@ -72,30 +96,163 @@ public class Hypergeometric
 		int np = (int) java.lang.Math.round(n * p); // Round to nearest int
 		int nq = (int) java.lang.Math.round(n * q);
 
-		double log_n_choose_k = lNchooseK(n, k);
-		int top = k;
-		if (np < k)
+		/* The counts determine the p value only if they are consistent */
+		if (approximate && np + nq == n)
 		{
-			top = np;
+			double approximation = approximateUpperTail(n, np, k, r);
+			if (!Double.isNaN(approximation))
+				return approximation;
 		}
 
-		double lfoo = lNchooseK(np, top) + lNchooseK(nq, k - top);
+		if (cache == null || np + nq != n || !HypergeometricCache.isPackable(n, np, k, r))
+			return upperTail(n, np, nq, k, r);
 
-		double sum = 0.0;
+		long key = HypergeometricCache.key(n, np, k, r);
+		double sum = cache.get(key);
+		if (Double.isNaN(sum))
+		{
+			sum = upperTail(n, np, nq, k, r);
+			cache.put(key, sum);
+		}
+		return sum;
+	}
 
-		for (int i = top; i >= r; --i)
+	/**
+	 * Calculates the upper tail of the hypergeometric distribution
+	 * as used by phypergeometric().
+	 *
+	 * The terms are summed starting at the largest one, i.e., either from
+	 * r upwards or, if r does not exceed the mode, the complementary lower
+	 * tail from r-1 downwards. Beyond the mode the ratios of successive
+	 * terms decrease, so the sum is terminated as soon as the remaining
+	 * terms are bounded by a geometric series that cannot change the sum
+	 * in double precision anymore. Hence, the number of summed terms grows
+	 * with the standard deviation rather than with the number of genes.
+	 *
+	 * @param n number of population genes
+	 * @param np number of population genes in group
+	 * @param nq number of population genes not in group
+	 * @param k number of study genes
+	 * @param r number of study genes in group
+	 * @return the probability to see r or more study genes in group
+	 */
+	private double upperTail(int n, int np, int nq, int k, int r)
+	{
+		/* The range of the possible number of study genes in group */
+		int lo = Math.max(0, k - nq);
+		int hi = Math.min(k, np);
+		if (r > hi) return 0.0;
+
+		/* The complement can be used only if the terms sum up to one */
+		boolean consistent = np + nq == n;
+		if (consistent)
 		{
-			sum += java.lang.Math.exp(lfoo - log_n_choose_k);
-			if (i > r)
+			if (r <= lo) return 1.0;
+
+			int mode = (int)((double)(k + 1) * (np + 1) / (n + 2));
+			if (r <= mode)
 			{
-				lfoo = lfoo
-						+ java.lang.Math.log((double) i / (double) (np - i + 1))
-						+ java.lang.Math.log((double) (nq - k + i)
-								/ (double) (k - i + 1));
+				int i = r - 1;
+				double t = Math.exp(lNchooseK(np, i) + lNchooseK(nq, k - i) - lNchooseK(n, k));
+				double sum = t;
+				for (; i > lo; i--)
+				{
+					double ratio = ((double)i * (nq - k + i)) / ((double)(np - i + 1) * (k - i + 1));
+					t *= ratio;
+					sum += t;
+					if (ratio < 1 && t * ratio <= (1 - ratio) * sum * TAIL_EPSILON)
+						break;
+				}
+				return Math.max(0.0, 1.0 - sum);
 			}
+		} else
+		{
+			if (r < lo) r = lo;
+		}
+
+		int i = r;
+		double t = Math.exp(lNchooseK(np, i) + lNchooseK(nq, k - i) - lNchooseK(n, k));
+		double sum = t;
+		for (; i < hi; i++)
+		{
+			double ratio = ((double)(np - i) * (k - i)) / ((double)(i + 1) * (nq - k + i + 1));
+			t *= ratio;
+			sum += t;
+			if (ratio < 1 && t * ratio <= (1 - ratio) * sum * TAIL_EPSILON)
+				break;
 		}
 		return sum;
+	}
+
+	/**
+	 * Approximates the upper tail of the hypergeometric distribution by
+	 * the normal distribution with continuity correction. The approximation
+	 * is only done if the standard deviation is at least
+	 * APPROXIMATION_MIN_SD and the approximated p value is at least
+	 * APPROXIMATION_MIN_P. This is the case for terms with many annotated
+	 * genes that are not over-represented. Then, the absolute error is
+	 * below 0.01, which does not matter for the significance.
+	 *
+	 * @param n number of population genes
+	 * @param np number of population genes in group
+	 * @param k number of study genes
+	 * @param r number of study genes in group
+	 * @return the approximated probability to see r or more study genes in
+	 *  group or NaN if the tail should be evaluated exactly.
+	 */
+	private static double approximateUpperTail(int n, int np, int k, int r)
+	{
+		double mean = (double)k * np / n;
+		double variance = mean * (n - np) / n * (n - k) / (n - 1);
+		if (variance < APPROXIMATION_MIN_SD * APPROXIMATION_MIN_SD)
+			return Double.NaN;
+
+		double z = (r - 0.5 - mean) / Math.sqrt(variance);
+		double p = 0.5 * erfc(z / Math.sqrt(2));
+		if (p < APPROXIMATION_MIN_P)
+			return Double.NaN;
+		return p;
+	}
 
+	/**
+	 * Calculates the complementary error function with a fractional
+	 * error below 1.2e-7 (Chebyshev approximation as given in Numerical
+	 * Recipes).
+	 *
+	 * @param x
+	 * @return erfc(x)
+	 */
+	private static double erfc(double x)
+	{
+		double z = Math.abs(x);
+		double t = 1.0 / (1.0 + 0.5 * z);
+		double ans = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418 +
+				t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587 +
+				t * (-0.82215223 + t * 0.17087277)))))))));
+		return x >= 0 ? ans : 2.0 - ans;
+	}
+
+	/**
+	 * Sets whether p values of large parameters are approximated. The
+	 * approximation is done only for terms whose number of annotated
+	 * study genes varies strongly, i.e., with a standard deviation of
+	 * at least 30, and only if the p value is not small. The absolute error
+	 * is then below 0.01. All other p values are always exact. The default
+	 * is false, i.e., all p values are exact.
+	 *
+	 * @param approximate
+	 */
+	public void setApproximate(boolean approximate)
+	{
+		this.approximate = approximate;
+	}
+
+	/**
+	 * @return whether p values of large parameters are approximated.
+	 */
+	public boolean isApproximate()
+	{
+		return approximate;
 	}
 
 	/**
@@ -174,6 +331,14 @@ public class Hypergeometric
 		}
 	}
 
+	/**
+	 * @return the cache for p values that is shared within the JVM.
+	 */
+	public static HypergeometricCache getSharedCache()
+	{
+		return sharedCache;
+	}
+
 	public double lNchooseK(int n, int k)
 	{
 		double ans;
@@ -184,7 +349,8 @@ public class Hypergeometric
 	/**
 	 * return the log factorial of i. Use a cache to avoid repeatedly
 	 * calculating this. If we have a cache miss, fill up all values from the
-	 * last valid cache value to the value we currently need.
+	 * last valid cache value to the value we currently need. The method
+	 * can be called concurrently.
 	 */
 	public double logfact(int i)
 	{
@@ -194,11 +360,16 @@ public class Hypergeometric
 		 */
 		if (i > (lfactorial.size() - 1))
 		{
-			for (int j = lfactorial.size(); j <= i; j++)
+			/* The check has to be repeated under the lock, as another
+			 * thread may have filled up the values in the meantime */
+			synchronized (lfactorial)
 			{
-				double lf = lfactorial.get(j - 1).doubleValue()
-						+ java.lang.Math.log(j);
-				lfactorial.add(j, new Double(lf));
+				for (int j = lfactorial.size(); j <= i; j++)
+				{
+					double lf = lfactorial.get(j - 1).doubleValue()
+							+ java.lang.Math.log(j);
+					lfactorial.add(j, new Double(lf));
+				}
 			}
 		}
 
@@ -211,6 +382,18 @@ public class Hypergeometric
 	 */
 	public Hypergeometric()
 	{
+		this(sharedCache);
+	}
+
+	/**
+	 * Initialize the object with the given cache for p values.
+	 *
+	 * @param cache the cache that memorizes p values or null if
+	 *  p values should not be memorized.
+	 */
+	public Hypergeometric(HypergeometricCache cache)
+	{
+		this.cache = cache;
 
 		lfactorial = new Vector<Double>();
 		lfactorial.add(0, new Double(0.0)); /* 0! = 1, therefore let log(0)=0 */
@@ -0,0 +1,245 @@
+package ontologizer.statistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import ontologizer.metrics.Counter;
+import ontologizer.metrics.Metrics;
+
+/**
+ * A bounded memo table of hypergeometric p values that can be used
+ * concurrently. The p values are keyed by the counts of the contingency
+ * table, i.e., the size of the population, the number of annotated
+ * genes in the population, the size of the study set and the number
+ * of annotated genes in the study set, which are packed into a single
+ * long.
+ *
+ * The table is direct mapped, i.e., each key has exactly one slot
+ * and a newly calculated value replaces the value of a colliding key.
+ * Hence, the memory consumption is bounded by the capacity and neither
+ * lookups nor insertions need to lock. Values are stored together with
+ * their key, so a lookup never returns the value of a different key.
+ *
+ * The numbers of hits and misses are kept per cache. As lookups are
+ * frequent, they are counted per thread and added to the totals of the
+ * cache and to the metrics in batches.
+ */
+public class HypergeometricCache
+{
+	/** The number of bits that are used for a single count of the key */
+	private static final int BITS = 16;
+
+	/** The largest count that can be packed */
+	public static final int MAX_COUNT = (1 << BITS) - 1;
+
+	/** A single slot of the table */
+	private static class Entry
+	{
+		final long key;
+		final double p;
+
+		Entry(long key, double p)
+		{
+			this.key = key;
+			this.p = p;
+		}
+	}
+
+	/** The number of lookups of a thread after which its counts are added to the totals */
+	private static final int FLUSH_INTERVAL = 1024;
+
+	/** The lookups of a thread that have not been added to the totals yet */
+	private static class Counts
+	{
+		long hits;
+		long misses;
+	}
+
+	private final AtomicReferenceArray<Entry> table;
+	private final int mask;
+
+	private final ThreadLocal<Counts> counts = new ThreadLocal<Counts>()
+	{
+		@Override
+		protected Counts initialValue()
+		{
+			return new Counts();
+		}
+	};
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/** The counters to which the counts are exported */
+	private final Counter exportedHits;
+	private final Counter exportedMisses;
+
+	/**
+	 * Constructs the cache.
+	 *
+	 * @param name the name of the cache as used in the metrics
+	 * @param capacity the number of slots, which is rounded up to the next
+	 *  power of two.
+	 */
+	public HypergeometricCache(String name, int capacity)
+	{
+		if (capacity < 1 || capacity > (1 << 30))
+			throw new IllegalArgumentException("The capacity must be between 1 and 2^30");
+
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) size <<= 1;
+
+		table = new AtomicReferenceArray<Entry>(size);
+		mask = size - 1;
+		exportedHits = Metrics.cacheHits(name);
+		exportedMisses = Metrics.cacheMisses(name);
+	}
+
+	/**
+	 * Returns whether the counts of a contingency table can be packed
+	 * into a key, i.e., whether none is negative or larger than MAX_COUNT.
+	 *
+	 * @param n the size of the population
+	 * @param np the number of annotated genes in the population
+	 * @param k the size of the study set
+	 * @param r the number of annotated genes in the study set
+	 * @return whether the counts can be packed.
+	 */
+	public static boolean isPackable(int n, int np, int k, int r)
+	{
+		return (n | np | k | r) >= 0 && n <= MAX_COUNT && np <= MAX_COUNT && k <= MAX_COUNT && r <= MAX_COUNT;
+	}
+
+	/**
+	 * Packs the counts of a contingency table into a key.
+	 *
+	 * @param n the size of the population
+	 * @param np the number of annotated genes in the population
+	 * @param k the size of the study set
+	 * @param r the number of annotated genes in the study set
+	 * @return the key
+	 * @throws IllegalArgumentException if the counts cannot be packed
+	 * @see #isPackable(int, int, int, int)
+	 */
+	public static long key(int n, int np, int k, int r)
+	{
+		if (!isPackable(n, np, k, r))
+			throw new IllegalArgumentException("The counts " + n + ", " + np + ", " + k + ", " + r + " cannot be packed");
+
+		return ((long)n << (3 * BITS)) | ((long)np << (2 * BITS)) | ((long)k << BITS) | r;
+	}
+
+	private int slot(long key)
+	{
+		/* Finalizer of MurmurHash3 to spread the bits of the counts */
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int)key & mask;
+	}
+
+	/**
+	 * Returns the p value that is stored for the given key.
+	 *
+	 * @param key as returned by key()
+	 * @return the p value or NaN if no value is stored.
+	 */
+	public double get(long key)
+	{
+		Entry entry = table.get(slot(key));
+		Counts c = counts.get();
+		double p;
+		if (entry != null && entry.key == key)
+		{
+			c.hits++;
+			p = entry.p;
+		} else
+		{
+			c.misses++;
+			p = Double.NaN;
+		}
+		if (c.hits + c.misses >= FLUSH_INTERVAL)
+			flush(c);
+		return p;
+	}
+
+	private void flush(Counts c)
+	{
+		if (c.hits != 0)
+		{
+			hits.addAndGet(c.hits);
+			exportedHits.add(c.hits);
+			c.hits = 0;
+		}
+		if (c.misses != 0)
+		{
+			misses.addAndGet(c.misses);
+			exportedMisses.add(c.misses);
+			c.misses = 0;
+		}
+	}
+
+	/**
+	 * Adds the lookups of the current thread that have not been counted
+	 * yet to the totals. Should be called by threads that are done with
+	 * their lookups, e.g., at the end of a calculation.
+	 */
+	public void flush()
+	{
+		flush(counts.get());
+	}
+
+	/**
+	 * Stores the p value for the given key.
+	 *
+	 * @param key as returned by key()
+	 * @param p
+	 */
+	public void put(long key, double p)
+	{
+		table.set(slot(key), new Entry(key, p));
+	}
+
+	/**
+	 * Removes all stored values. The statistics are kept.
+	 */
+	public void clear()
+	{
+		for (int i=0;i<table.length();i++)
+			table.set(i, null);
+	}
+
+	/**
+	 * @return the number of slots.
+	 */
+	public int getCapacity()
+	{
+		return table.length();
+	}
+
+	/**
+	 * Returns the number of lookups that could be answered. Includes all
+	 * lookups of the current thread but those of other threads only if
+	 * they have been flushed.
+	 *
+	 * @return the number of hits.
+	 */
+	public long getHits()
+	{
+		return hits.get() + counts.get().hits;
+	}
+
+	/**
+	 * Returns the number of lookups that could not be answered. Includes
+	 * all lookups of the current thread but those of other threads only
+	 * if they have been flushed.
+	 *
+	 * @return the number of misses.
+	 */
+	public long getMisses()
+	{
+		return misses.get() + counts.get().misses;
+	}
+}
@@ -5,6 +5,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.logging.Logger;
 
 /**
  * Based upon algorithm decribed in "Statistical significance for
@@ -14,6 +15,8 @@ import java.util.Arrays;
  */
 public class Storey implements ITestCorrectionOld
 {
+	private static Logger logger = Logger.getLogger(Storey.class.getCanonicalName());
+
 	/**
 	 *
 	 * @author Sebastian Bauer
@@ -122,7 +125,7 @@ public class Storey implements ITestCorrectionOld
 		int i;
 		int m = sortedPValues.length;
 
-		System.out.println("------------ " + m);
+		logger.fine("------------ " + m);
 		for (i=0;i<pi.length;i++)
 		{
 			int count = 0;
@@ -137,7 +140,7 @@ public class Storey implements ITestCorrectionOld
 
 			pi[i] = count / (m*(1 - lamda));
 
-			System.out.println("lamda = " + lamda + " " + count + " " + pi[i]);
+			logger.fine("lamda = " + lamda + " " + count + " " + pi[i]);
 			lamda += 0.01;
 		}
 
@@ -178,7 +181,7 @@ public class Storey implements ITestCorrectionOld
 
 		for (int i = 0;i<list.size();i++)
 		{
-			System.out.println(correctedPValues[i]);
+			logger.fine(Double.toString(correctedPValues[i]));
 		}
 	}
 }
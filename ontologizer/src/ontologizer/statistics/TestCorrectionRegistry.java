@@ -47,6 +47,40 @@ public class TestCorrectionRegistry
 		return correctionMap.get(name);
 	}
 
+	/**
+	 * Creates a new instance of the given test correction, e.g., if the
+	 * correction is applied to several independent analyses concurrently.
+	 * The settings of resampling based corrections are taken over, but not
+	 * their caches.
+	 *
+	 * @param testCorrection
+	 *            the test correction to be instantiated.
+	 * @return the new instance.
+	 */
+	public static AbstractTestCorrection newInstance(AbstractTestCorrection testCorrection)
+	{
+		AbstractTestCorrection newTestCorrection;
+		try
+		{
+			newTestCorrection = testCorrection.getClass().newInstance();
+		} catch (InstantiationException e)
+		{
+			throw new IllegalArgumentException("Test correction \"" + testCorrection.getName() + "\" couldn't be instantiated!", e);
+		} catch (IllegalAccessException e)
+		{
+			throw new IllegalArgumentException("Test correction \"" + testCorrection.getName() + "\" couldn't be instantiated!", e);
+		}
+
+		if (testCorrection instanceof IResampling)
+		{
+			IResampling resampling = (IResampling)testCorrection;
+			IResampling newResampling = (IResampling)newTestCorrection;
+			newResampling.setNumberOfResamplingSteps(resampling.getNumberOfResamplingSteps());
+			newResampling.setSizeTolerance(resampling.getSizeTolerance());
+		}
+		return newTestCorrection;
+	}
+
 	/**
 	 * Returns names of all registered Test Corrections.
 	 *
@@ -2,9 +2,12 @@ package ontologizer.statistics;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.logging.Logger;
 
 public class WestfallYoungSingleStep extends AbstractResamplingTestCorrection
 {
+	private static Logger logger = Logger.getLogger(WestfallYoungSingleStep.class.getCanonicalName());
+
 	private HashMap<Integer,double[]> sampledMinPPerSize = new HashMap<Integer,double[]>();
 
 	public String getDescription()
@@ -63,10 +66,12 @@ public class WestfallYoungSingleStep extends AbstractResamplingTestCorrection
 		int studySetSize = pvalues.currentStudySetSize();
 
 		if (sampledMinPPerSize.containsKey(studySetSize)) {  // we have samples
-			System.out.println("Using available samples for study set size " + studySetSize);
+			logger.fine("Using available samples for study set size " + studySetSize);
+			recordSampleCacheLookup(true);
 			sampledMinP = sampledMinPPerSize.get(studySetSize);
 		} else {        // we have to sample
-			System.out.println("Sampling for study set size " + studySetSize + "\nThis may take a while...");
+			logger.fine("Sampling for study set size " + studySetSize);
+			recordSampleCacheLookup(false);
 
 			initProgress(numberOfResamplingSteps);
 
@@ -85,7 +90,6 @@ public class WestfallYoungSingleStep extends AbstractResamplingTestCorrection
 				}
 
 				updateProgress(b);
-				System.out.print("created " + b + " samples out of " + numberOfResamplingSteps + "\r");
 			}
 			/* sort sampled minimal p-values according to size */
 			Arrays.sort(sampledMinP);
@@ -2,9 +2,12 @@ package ontologizer.statistics;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.logging.Logger;
 
 public class WestfallYoungSingleStepApproximate extends AbstractResamplingTestCorrection
 {
+	private static Logger logger = Logger.getLogger(WestfallYoungSingleStepApproximate.class.getCanonicalName());
+
 	private HashMap<Integer,double[]> sampledMinPPerSize = new HashMap<Integer,double[]>();
 	private int sizeTolerance = 10;
 
@@ -84,11 +87,13 @@ public class WestfallYoungSingleStepApproximate extends AbstractResamplingTestCo
 
 
 		if (bestStudysetSize != 0 && bestStudysetRatio <= ratioCutoff) {  // use approximate samples
-			System.out.println("Needing samples for study set size " + studySetSize);
-			System.out.println("Using available samples made for study set size " + bestStudysetSize);
+			logger.fine("Needing samples for study set size " + studySetSize);
+			logger.fine("Using available samples made for study set size " + bestStudysetSize);
+			recordSampleCacheLookup(true);
 			sampledMinP = sampledMinPPerSize.get(bestStudysetSize);
 		} else {        // we have to sample
-			System.out.println("Sampling for study set size " + studySetSize + "\nThis may take a while...");
+			logger.fine("Sampling for study set size " + studySetSize);
+			recordSampleCacheLookup(false);
 
 			initProgress(numberOfResamplingSteps);
 
@@ -107,7 +112,6 @@ public class WestfallYoungSingleStepApproximate extends AbstractResamplingTestCo
 				}
 
 				updateProgress(b);
-				System.out.print("created " + b + " samples out of " + numberOfResamplingSteps + "\r");
 			}
 			/* sort sampled minimal p-values according to size */
 			Arrays.sort(sampledMinP);
@@ -1,10 +1,13 @@
 package ontologizer.statistics;
 
 import java.util.Arrays;
+import java.util.logging.Logger;
 
 public class WestfallYoungStepDown extends AbstractTestCorrection
 						   implements IResampling
 {
+	private static Logger logger = Logger.getLogger(WestfallYoungStepDown.class.getCanonicalName());
+
 	/** Specifies the number of resampling steps */
 	private int numberOfResamplingSteps = 1000;
 
@@ -68,7 +71,7 @@ public class WestfallYoungStepDown extends AbstractTestCorrection
 			r[i] = sortedRawPValues[i].index;
 
 		/* Now "permute" */
-		System.out.println("Sampling " + numberOfResamplingSteps + " random study sets\nThis may take a while...");
+		logger.fine("Sampling " + numberOfResamplingSteps + " random study sets");
 		for (int b=0; b < numberOfResamplingSteps; b++)
 		{
 			/* Compute raw p values of "permuted" data */
@@ -87,10 +90,7 @@ public class WestfallYoungStepDown extends AbstractTestCorrection
 				if (q[i] <= rawP[r[i]].p) // = sortedRawPValues[i].value
 					count[i]++;
 			}
-
-			System.out.print(b + "\r");
 		}
-		System.out.println("Done!");
 
 		/* Enforce monotony contraints */
 		int c = count[0];
@@ -2,10 +2,13 @@ package ontologizer.statistics;
 
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.logging.Logger;
 
 public class WestfallYoungStepDownCachedSecondVersion extends AbstractTestCorrection
 						   implements IResampling
 {
+	private static Logger logger = Logger.getLogger(WestfallYoungStepDownCachedSecondVersion.class.getCanonicalName());
+
 	/** Specifies the number of resampling steps */
 	private int numberOfResamplingSteps = 1000;
 
@@ -76,16 +79,16 @@ public class WestfallYoungStepDownCachedSecondVersion extends AbstractTestCorrec
 		PvalueSetStoreSecondVersion randomSampledPValues;
 
 		if (sampledPValuesPerSize.containsKey(studySetSize)) {
-			System.out.println("Using available samples for study set size " + studySetSize);
+			logger.fine("Using available samples for study set size " + studySetSize);
+			recordSampleCacheLookup(true);
 			randomSampledPValues = sampledPValuesPerSize.get(studySetSize);
 		} else {
-			System.out.println("Sampling for study set size " + studySetSize + "\nThis may take a while...");
+			logger.fine("Sampling for study set size " + studySetSize);
+			recordSampleCacheLookup(false);
 			randomSampledPValues = new PvalueSetStoreSecondVersion(numberOfResamplingSteps,m);
 			for (int b=0; b < numberOfResamplingSteps; b++) {
 				/* Compute raw p values of "permuted" data */
 				randomSampledPValues.add(pvalueCalc.calculateRandomPValues());
-
-				System.out.print("created " + b + " samples out of " + numberOfResamplingSteps + "\r");
 			}
 			sampledPValuesPerSize.put(studySetSize,randomSampledPValues);
 		}
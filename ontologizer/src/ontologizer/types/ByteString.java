@@ -226,12 +226,47 @@ public final class ByteString implements Serializable
 		return equals(obj);
 	}
 
+	/**
+	 * Compares the byte string with the given part of a byte array.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param len
+	 * @return true if the contents are equal.
+	 */
+	public boolean equals(byte [] buf, int start, int len)
+	{
+		if (len != bytes.length)
+			return false;
+		for (int i=0;i<len;i++)
+		{
+			if (bytes[i] != buf[start+i])
+				return false;
+		}
+		return true;
+	}
+
 	@Override
 	public int hashCode()
+	{
+		return hashCode(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Returns the hash code of the given part of a byte array. The
+	 * result equals the hash code of a byte string with the same
+	 * contents.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param len
+	 * @return the hash code
+	 */
+	public static int hashCode(byte [] buf, int start, int len)
 	{
 		int hashVal = 0;
-		for (int i = 0; i < bytes.length; i++)
-			hashVal = 31*hashVal + bytes[i];
+		for (int i = start; i < start + len; i++)
+			hashVal = 31*hashVal + buf[i];
 		return hashVal;
 	}
 
@@ -0,0 +1,127 @@
+package ontologizer.types;
+
+import java.util.Collection;
+
+/**
+ * An immutable set of byte strings that can be queried directly with
+ * parts of a byte array, e.g., a line buffer, without creating
+ * temporary ByteString objects.
+ */
+public class ByteStringSet
+{
+	/** The open-addressing table. Unused slots are null */
+	private ByteString [] table;
+
+	/** The hash values of the entries, parallel to table */
+	private int [] hashes;
+
+	/** Mask used to map hash values to table slots */
+	private int mask;
+
+	/** Number of entries */
+	private int size;
+
+	/**
+	 * Constructs the set.
+	 *
+	 * @param strings the byte strings that constitute the set.
+	 */
+	public ByteStringSet(Collection<ByteString> strings)
+	{
+		int capacity = 16;
+		while (capacity < strings.size() * 2)
+			capacity <<= 1;
+
+		table = new ByteString[capacity];
+		hashes = new int[capacity];
+		mask = capacity - 1;
+
+		for (ByteString str : strings)
+		{
+			int hash = str.hashCode();
+			int slot = spread(hash) & mask;
+			boolean found = false;
+
+			while (table[slot] != null)
+			{
+				if (hashes[slot] == hash && table[slot].equals(str))
+				{
+					found = true;
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+
+			if (!found)
+			{
+				table[slot] = str;
+				hashes[slot] = hash;
+				size++;
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of the given hash value.
+	 *
+	 * @param hash
+	 * @return the spread hash value
+	 */
+	private static int spread(int hash)
+	{
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * @return the number of byte strings in this set.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns whether the given part of the byte array is contained
+	 * as a byte string in this set.
+	 *
+	 * @param buf
+	 * @param start
+	 * @param len
+	 * @return whether it is contained.
+	 */
+	public boolean contains(byte [] buf, int start, int len)
+	{
+		int hash = ByteString.hashCode(buf, start, len);
+		int slot = spread(hash) & mask;
+		ByteString str;
+
+		while ((str = table[slot]) != null)
+		{
+			if (hashes[slot] == hash && str.equals(buf, start, len))
+				return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the given byte string is contained in this set.
+	 *
+	 * @param str
+	 * @return whether it is contained.
+	 */
+	public boolean contains(ByteString str)
+	{
+		int hash = str.hashCode();
+		int slot = spread(hash) & mask;
+		ByteString other;
+
+		while ((other = table[slot]) != null)
+		{
+			if (hashes[slot] == hash && other.equals(str))
+				return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+}
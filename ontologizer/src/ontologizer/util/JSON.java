@@ -0,0 +1,238 @@
+package ontologizer.util;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal reader and writer of JSON data, as it is exchanged with the
+ * clients of the daemon or read from batch manifests.
+ *
+ * Objects are represented as maps, arrays as lists, numbers as doubles
+ * and the literals as booleans or null.
+ */
+public class JSON
+{
+	private String str;
+	private int pos;
+
+	private JSON(String str)
+	{
+		this.str = str;
+	}
+
+	/**
+	 * Parses the given JSON text.
+	 *
+	 * @param str
+	 * @return the value represented by the text.
+	 * @throws ParseException
+	 */
+	public static Object parse(String str) throws ParseException
+	{
+		JSON json = new JSON(str);
+		Object value = json.parseValue();
+		json.skipWhitespace();
+		if (json.pos != str.length())
+			throw new ParseException("Unexpected characters after the value", json.pos);
+		return value;
+	}
+
+	private void skipWhitespace()
+	{
+		while (pos < str.length() && Character.isWhitespace(str.charAt(pos)))
+			pos++;
+	}
+
+	private char next() throws ParseException
+	{
+		if (pos >= str.length())
+			throw new ParseException("Unexpected end of input", pos);
+		return str.charAt(pos++);
+	}
+
+	private void expect(char c) throws ParseException
+	{
+		skipWhitespace();
+		if (next() != c)
+			throw new ParseException("Expected '" + c + "'", pos - 1);
+	}
+
+	private Object parseValue() throws ParseException
+	{
+		skipWhitespace();
+		if (pos >= str.length())
+			throw new ParseException("Unexpected end of input", pos);
+
+		char c = str.charAt(pos);
+		switch (c)
+		{
+			case	'{': return parseObject();
+			case	'[': return parseArray();
+			case	'"': return parseString();
+			case	't': parseLiteral("true"); return Boolean.TRUE;
+			case	'f': parseLiteral("false"); return Boolean.FALSE;
+			case	'n': parseLiteral("null"); return null;
+			default: return parseNumber();
+		}
+	}
+
+	private void parseLiteral(String literal) throws ParseException
+	{
+		if (!str.startsWith(literal, pos))
+			throw new ParseException("Unknown literal", pos);
+		pos += literal.length();
+	}
+
+	private Map<String,Object> parseObject() throws ParseException
+	{
+		Map<String,Object> map = new LinkedHashMap<String,Object>();
+		expect('{');
+		skipWhitespace();
+		if (pos < str.length() && str.charAt(pos) == '}')
+		{
+			pos++;
+			return map;
+		}
+
+		while (true)
+		{
+			skipWhitespace();
+			String key = parseString();
+			expect(':');
+			map.put(key, parseValue());
+			skipWhitespace();
+			char c = next();
+			if (c == '}') return map;
+			if (c != ',') throw new ParseException("Expected ',' or '}'", pos - 1);
+		}
+	}
+
+	private List<Object> parseArray() throws ParseException
+	{
+		List<Object> list = new ArrayList<Object>();
+		expect('[');
+		skipWhitespace();
+		if (pos < str.length() && str.charAt(pos) == ']')
+		{
+			pos++;
+			return list;
+		}
+
+		while (true)
+		{
+			list.add(parseValue());
+			skipWhitespace();
+			char c = next();
+			if (c == ']') return list;
+			if (c != ',') throw new ParseException("Expected ',' or ']'", pos - 1);
+		}
+	}
+
+	private String parseString() throws ParseException
+	{
+		if (next() != '"')
+			throw new ParseException("Expected a string", pos - 1);
+
+		StringBuilder sb = new StringBuilder();
+		while (true)
+		{
+			char c = next();
+			if (c == '"') return sb.toString();
+			if (c != '\\')
+			{
+				sb.append(c);
+				continue;
+			}
+
+			c = next();
+			switch (c)
+			{
+				case	'"': case '\\': case '/': sb.append(c); break;
+				case	'b': sb.append('\b'); break;
+				case	'f': sb.append('\f'); break;
+				case	'n': sb.append('\n'); break;
+				case	'r': sb.append('\r'); break;
+				case	't': sb.append('\t'); break;
+				case	'u':
+						if (pos + 4 > str.length())
+							throw new ParseException("Unexpected end of input", pos);
+						try
+						{
+							sb.append((char)Integer.parseInt(str.substring(pos, pos + 4), 16));
+						} catch (NumberFormatException e)
+						{
+							throw new ParseException("Invalid unicode escape", pos);
+						}
+						pos += 4;
+						break;
+				default: throw new ParseException("Invalid escape", pos - 1);
+			}
+		}
+	}
+
+	private Double parseNumber() throws ParseException
+	{
+		int start = pos;
+		while (pos < str.length() && "+-0123456789.eE".indexOf(str.charAt(pos)) != -1)
+			pos++;
+		try
+		{
+			return Double.valueOf(str.substring(start, pos));
+		} catch (NumberFormatException e)
+		{
+			throw new ParseException("Invalid value", start);
+		}
+	}
+
+	/**
+	 * Returns the given string as JSON string literal.
+	 *
+	 * @param str
+	 * @return
+	 */
+	public static String quote(String str)
+	{
+		if (str == null)
+			return "null";
+
+		StringBuilder sb = new StringBuilder(str.length() + 2);
+		sb.append('"');
+		for (int i=0;i<str.length();i++)
+		{
+			char c = str.charAt(i);
+			switch (c)
+			{
+				case	'"': sb.append("\\\""); break;
+				case	'\\': sb.append("\\\\"); break;
+				case	'\n': sb.append("\\n"); break;
+				case	'\r': sb.append("\\r"); break;
+				case	'\t': sb.append("\\t"); break;
+				default:
+						if (c < 0x20) sb.append(String.format("\\u%04x", (int)c));
+						else sb.append(c);
+						break;
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the given number as JSON number. Numbers that cannot be
+	 * represented (e.g., NaN) are written as null.
+	 *
+	 * @param number
+	 * @return
+	 */
+	public static String number(double number)
+	{
+		if (Double.isNaN(number) || Double.isInfinite(number))
+			return "null";
+		if (number == Math.rint(number) && Math.abs(number) < 1e15)
+			return Long.toString((long)number);
+		return Double.toString(number);
+	}
+}
@@ -0,0 +1,353 @@
+package ontologizer.worksets;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import ontologizer.metrics.Counter;
+import ontologizer.metrics.Metrics;
+
+/**
+ * A cache for data that has been parsed from files, e.g., ontologies and
+ * associations.
+ *
+ * A value is loaded only once, further requests for the same key wait
+ * until the pending load has been finished. Each value is weighed by an
+ * estimate of the memory it occupies. Values that are pinned and the
+ * most recently used values up to the maximum weight are referenced
+ * strongly. All other values are referenced only softly, so they stay
+ * available until the garbage collector needs the memory.
+ */
+public class DataCache
+{
+	private static final Counter HITS = Metrics.cacheHits("data");
+	private static final Counter MISSES = Metrics.cacheMisses("data");
+
+	/**
+	 * Loads a value of the cache.
+	 */
+	public static interface Loader<V>
+	{
+		/**
+		 * Loads the value.
+		 *
+		 * @return
+		 * @throws Exception
+		 */
+		V load() throws Exception;
+
+		/**
+		 * Returns an estimate of the memory occupied by the given value.
+		 *
+		 * @param value
+		 * @return the weight in bytes.
+		 */
+		long weigh(V value);
+	}
+
+	private static class Entry
+	{
+		/** The pending load or null */
+		FutureTask<?> loading;
+
+		/** The strong reference to the value or null if it has been demoted */
+		Object strong;
+
+		SoftReference<Object> soft;
+
+		long weight;
+
+		/** Number of pins */
+		int pins;
+
+		Object get()
+		{
+			if (strong != null) return strong;
+			if (soft != null) return soft.get();
+			return null;
+		}
+	}
+
+	/** The entries in the order in which they were accessed */
+	private LinkedHashMap<String,Entry> entries = new LinkedHashMap<String,Entry>(16, 0.75f, true);
+
+	/** The weight of the strongly referenced values */
+	private long strongWeight;
+
+	private long maximumWeight;
+
+	/**
+	 * Constructs the cache.
+	 *
+	 * @param maximumWeight the maximum weight of the values that are
+	 *  referenced strongly without being pinned.
+	 */
+	public DataCache(long maximumWeight)
+	{
+		this.maximumWeight = maximumWeight;
+	}
+
+	/**
+	 * Sets the maximum weight of the strongly referenced values.
+	 *
+	 * @param maximumWeight
+	 */
+	public synchronized void setMaximumWeight(long maximumWeight)
+	{
+		this.maximumWeight = maximumWeight;
+		trim();
+	}
+
+	/**
+	 * @return the maximum weight of the strongly referenced values.
+	 */
+	public synchronized long getMaximumWeight()
+	{
+		return maximumWeight;
+	}
+
+	/**
+	 * @return the weight of the strongly referenced values.
+	 */
+	public synchronized long getWeight()
+	{
+		return strongWeight;
+	}
+
+	/**
+	 * Makes the value of the entry strongly referenced again.
+	 *
+	 * @param entry
+	 * @param value
+	 */
+	private void strengthen(Entry entry, Object value)
+	{
+		if (entry.strong == null)
+		{
+			entry.strong = value;
+			strongWeight += entry.weight;
+		}
+	}
+
+	/**
+	 * Demotes the value of the entry to be softly referenced.
+	 *
+	 * @param entry
+	 */
+	private void demote(Entry entry)
+	{
+		if (entry.strong != null)
+		{
+			entry.strong = null;
+			strongWeight -= entry.weight;
+		}
+	}
+
+	/**
+	 * Demotes the least recently used values that are not pinned until
+	 * the weight doesn't exceed the maximum weight.
+	 */
+	private void trim()
+	{
+		for (Entry entry : entries.values())
+		{
+			if (strongWeight <= maximumWeight)
+				break;
+			if (entry.pins == 0)
+				demote(entry);
+		}
+	}
+
+	/**
+	 * Returns the value of the given key. If the value is not available,
+	 * it is loaded by the given loader in the context of the calling
+	 * thread, unless it is currently loaded by another thread, in which
+	 * case the call waits for the completion of that load.
+	 *
+	 * @param key
+	 * @param loader
+	 * @return
+	 * @throws InterruptedException
+	 * @throws ExecutionException if the loader failed.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V get(final String key, final Loader<V> loader) throws InterruptedException, ExecutionException
+	{
+		FutureTask<V> future;
+		boolean run = false;
+
+		synchronized (this)
+		{
+			Entry entry = entries.get(key);
+			if (entry != null && entry.loading == null)
+			{
+				Object value = entry.get();
+				if (value != null)
+				{
+					strengthen(entry, value);
+					trim();
+					HITS.inc();
+					return (V)value;
+				}
+
+				/* Value has been reclaimed */
+				entries.remove(key);
+				entry = null;
+			}
+
+			if (entry == null)
+			{
+				final Entry newEntry = new Entry();
+				newEntry.loading = new FutureTask<V>(new Callable<V>()
+				{
+					public V call() throws Exception
+					{
+						V value;
+
+						try
+						{
+							value = loader.load();
+						} catch (Exception e)
+						{
+							synchronized (DataCache.this)
+							{
+								if (entries.get(key) == newEntry)
+									entries.remove(key);
+							}
+							throw e;
+						}
+
+						synchronized (DataCache.this)
+						{
+							newEntry.loading = null;
+							newEntry.weight = loader.weigh(value);
+							newEntry.soft = new SoftReference<Object>(value);
+							if (entries.get(key) == newEntry)
+							{
+								strengthen(newEntry, value);
+								trim();
+							}
+						}
+						return value;
+					}
+				});
+				entries.put(key, newEntry);
+				entry = newEntry;
+				run = true;
+			}
+			future = (FutureTask<V>)entry.loading;
+		}
+
+		/* Waiting for the load of another thread counts as hit */
+		if (run)
+		{
+			MISSES.inc();
+			future.run();
+		} else
+		{
+			HITS.inc();
+		}
+		return future.get();
+	}
+
+	/**
+	 * Returns the value of the given key if it is available.
+	 *
+	 * @param key
+	 * @return the value or null if it is not available.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <V> V getIfPresent(String key)
+	{
+		Entry entry = entries.get(key);
+		if (entry == null || entry.loading != null)
+			return null;
+
+		Object value = entry.get();
+		if (value == null)
+		{
+			entries.remove(key);
+			return null;
+		}
+		strengthen(entry, value);
+		trim();
+		return (V)value;
+	}
+
+	/**
+	 * Puts the given value under the new key, replacing the entry of the
+	 * old key. Pins of the old entry remain valid.
+	 *
+	 * @param oldKey
+	 * @param newKey
+	 * @param value
+	 * @param weight
+	 */
+	public synchronized void replace(String oldKey, String newKey, Object value, long weight)
+	{
+		Entry entry = entries.remove(oldKey);
+		if (entry == null || entry.loading != null)
+			entry = new Entry();
+
+		Entry previous = entries.put(newKey, entry);
+		if (previous != null && previous != entry)
+			demote(previous);
+
+		demote(entry);
+		entry.weight = weight;
+		entry.soft = new SoftReference<Object>(value);
+		strengthen(entry, value);
+		trim();
+	}
+
+	/**
+	 * Pins the value of the given key, so it stays strongly referenced.
+	 *
+	 * @param key
+	 * @return the handle, which is to be passed to unpin(), or null if the
+	 *  value is not available.
+	 */
+	public synchronized Object pin(String key)
+	{
+		Entry entry = entries.get(key);
+		if (entry == null || entry.loading != null)
+			return null;
+
+		Object value = entry.get();
+		if (value == null)
+			return null;
+
+		strengthen(entry, value);
+		entry.pins++;
+		return entry;
+	}
+
+	/**
+	 * Removes a pin.
+	 *
+	 * @param handle the handle as returned by pin().
+	 */
+	public synchronized void unpin(Object handle)
+	{
+		Entry entry = (Entry)handle;
+		if (entry.pins > 0)
+			entry.pins--;
+		trim();
+	}
+
+	/**
+	 * Demotes all values that are not pinned to be softly referenced.
+	 * The values stay available until the garbage collector reclaims
+	 * them.
+	 */
+	public synchronized void release()
+	{
+		for (Entry entry : entries.values())
+		{
+			if (entry.pins == 0)
+				demote(entry);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package ontologizer.worksets;
+
+import java.util.Set;
+
+import ontologizer.association.AssociationContainer;
+import ontologizer.go.Ontology;
+import ontologizer.go.OntologyDiff;
+import ontologizer.types.ByteString;
+
+/**
+ * Listener that is informed when already loaded data files of work sets
+ * have been refreshed. Methods are called in the context of the work
+ * set load thread.
+ */
+public interface IWorkSetUpdateListener
+{
+	/**
+	 * Called when the ontology of the given path has been replaced
+	 * by a new version that differs from the previous one.
+	 *
+	 * @param oboPath the path (or url) of the ontology.
+	 * @param ontology the new ontology.
+	 * @param diff the differences to the previous version.
+	 */
+	void ontologyUpdated(String oboPath, Ontology ontology, OntologyDiff diff);
+
+	/**
+	 * Called when the associations of the given path have been replaced
+	 * by a new version that differs from the previous one.
+	 *
+	 * @param associationPath the path (or url) of the associations.
+	 * @param associations the new associations.
+	 * @param changedGenes the genes whose annotations have changed.
+	 */
+	void associationsUpdated(String associationPath, AssociationContainer associations, Set<ByteString> changedGenes);
+}
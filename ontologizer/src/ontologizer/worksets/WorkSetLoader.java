@@ -0,0 +1,915 @@
+package ontologizer.worksets;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ontologizer.FileCache;
+import ontologizer.OntologizerThreadGroups;
+import ontologizer.FileCache.FileCacheUpdateCallback;
+import ontologizer.FileCache.FileDownload;
+import ontologizer.association.AssociationContainer;
+import ontologizer.association.AssociationParser;
+import ontologizer.association.IAssociationParserProgress;
+import ontologizer.go.Ontology;
+import ontologizer.go.IOBOParserProgress;
+import ontologizer.go.OBOParser;
+import ontologizer.go.OBOParserException;
+import ontologizer.go.OBOParserFileInput;
+import ontologizer.go.OntologyDiff;
+import ontologizer.go.TermContainer;
+import ontologizer.types.ByteString;
+import ontologizer.util.MemoryWarningSystem;
+
+/**
+ * Service which is responsible for loading work set files.
+ *
+ * Work sets are loaded by a pool of threads, so independent work sets
+ * are parsed in parallel. Parsed ontologies and associations are kept in
+ * a cache that is keyed by the local file names, so work sets that refer
+ * to the same files share the parsed data. Data of work sets that have
+ * been obtained but not yet released is held strongly, other data is
+ * held strongly only up to a maximum weight and softly beyond. On a low
+ * memory condition, all data that is not in use is demoted to be held
+ * softly.
+ *
+ * When a loaded file is refreshed in the file cache, the new version is
+ * compared to the loaded one. The loaded data is kept if nothing has
+ * changed, otherwise it is replaced and the update listeners are informed
+ * about the changed terms or genes.
+ */
+public class WorkSetLoader
+{
+	private static Logger logger = Logger.getLogger(WorkSetLoader.class.getName());
+
+	/** Estimated number of bytes occupied by a term of a parsed ontology */
+	private static final long TERM_WEIGHT = 2048;
+
+	/** Estimated number of bytes occupied by a parsed association */
+	private static final long ASSOCIATION_WEIGHT = 256;
+
+	/**
+	 * A data file that has been loaded from the file cache. Used to
+	 * detect refreshes of the file.
+	 */
+	private static class LoadedFile
+	{
+		/** The path or url of the file */
+		public String url;
+
+		/** The name of the local file from which the data has been loaded */
+		public String localName;
+
+		/** The modification time of the local file */
+		public long lastModified;
+
+		/** For association files, the path or url of the ontology to which they were resolved */
+		public String oboUrl;
+
+		/**
+		 * @return a copy of this state.
+		 */
+		public LoadedFile copy()
+		{
+			LoadedFile lf = new LoadedFile();
+			lf.url = url;
+			lf.localName = localName;
+			lf.lastModified = lastModified;
+			lf.oboUrl = oboUrl;
+			return lf;
+		}
+	}
+
+	/**
+	 * The new version of a refreshed file that is to be put into the
+	 * cache.
+	 */
+	private static class Replacement
+	{
+		/** The state of the file when the refresh was started */
+		public LoadedFile lf;
+
+		/** The name of the local file containing the new version */
+		public String localName;
+
+		public Object value;
+		public long weight;
+
+		public Replacement(LoadedFile lf, String localName, Object value, long weight)
+		{
+			this.lf = lf;
+			this.localName = localName;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * The pins of an obtained work set.
+	 */
+	private static class Pins
+	{
+		public List<Object> handles = new ArrayList<Object>(2);
+		public boolean released;
+	}
+
+	static private WorkSetLoader loader = new WorkSetLoader();
+
+	static private IWorkSetProgress dummyWorkSetProgress = new IWorkSetProgress()
+	{
+		public void initGauge(int maxWork) {}
+		public void message(String message) {}
+		public void updateGauge(int currentWork){}
+	};
+
+	/**
+	 * Obtain the data files for the given WorkSet. Calls run
+	 * (in a context of another thread) on completion.
+	 *
+	 * @param df
+	 * @param run
+	 */
+	static public void obtainDatafiles(WorkSet df, Runnable run)
+	{
+		obtainDatafiles(df, null, run);
+	}
+
+	/**
+	 * Obtain the data files for the given WorkSet. Calls run
+	 * (in a context of another thread) on completion. The data stays
+	 * available until releaseDatafiles() is called for the work set.
+	 *
+	 * @param df
+	 * @param progress
+	 * @param run
+	 */
+	static public void obtainDatafiles(WorkSet df, IWorkSetProgress progress, Runnable run)
+	{
+		if (progress == null) progress = dummyWorkSetProgress;
+		loader.obtain(df, progress, run);
+	}
+
+	/**
+	 * Release the data files for the given WorkSet.
+	 *
+	 * @param df
+	 */
+	public static void releaseDatafiles(WorkSet df)
+	{
+		loader.release(df);
+	}
+
+	/**
+	 * Demote all data that is not in use, so it can be reclaimed by the
+	 * garbage collector.
+	 */
+	public static void cleanCache()
+	{
+		loader.cache.release();
+	}
+
+	/**
+	 * Sets the maximum weight of the data that is kept strongly although
+	 * it is not in use.
+	 *
+	 * @param maximumWeight the weight in (estimated) bytes.
+	 */
+	public static void setMaximumCacheWeight(long maximumWeight)
+	{
+		loader.cache.setMaximumWeight(maximumWeight);
+	}
+
+	/**
+	 * Sets the maximum number of threads used for loading.
+	 *
+	 * @param maximumNumberOfThreads
+	 */
+	public static void setMaximumNumberOfThreads(int maximumNumberOfThreads)
+	{
+		if (maximumNumberOfThreads < 1)
+			throw new IllegalArgumentException("The maximum number of threads must be positive");
+
+		ThreadPoolExecutor executor = loader.executor;
+		synchronized (executor)
+		{
+			if (maximumNumberOfThreads > executor.getMaximumPoolSize())
+			{
+				executor.setMaximumPoolSize(maximumNumberOfThreads);
+				executor.setCorePoolSize(maximumNumberOfThreads);
+			} else
+			{
+				executor.setCorePoolSize(maximumNumberOfThreads);
+				executor.setMaximumPoolSize(maximumNumberOfThreads);
+			}
+		}
+	}
+
+	public static AssociationContainer getAssociations(String associationPath)
+	{
+		String localPath = FileCache.getLocalFileName(associationPath);
+		if (localPath == null) return null;
+		return loader.cache.getIfPresent(localPath);
+	}
+
+	public static Ontology getGraph(String oboPath)
+	{
+		String localPath = FileCache.getLocalFileName(oboPath);
+		if (localPath == null) return null;
+		return loader.cache.getIfPresent(localPath);
+	}
+
+	/**
+	 * Adds a listener that is informed about refreshed data files.
+	 *
+	 * @param listener
+	 */
+	public static void addUpdateListener(IWorkSetUpdateListener listener)
+	{
+		loader.updateListeners.add(listener);
+	}
+
+	/**
+	 * Removes the given update listener.
+	 *
+	 * @param listener
+	 */
+	public static void removeUpdateListener(IWorkSetUpdateListener listener)
+	{
+		loader.updateListeners.remove(listener);
+	}
+
+	/**
+	 * Checks whether the given file has changed since it has been loaded
+	 * and refreshes the data in that case. Usually, this is triggered by
+	 * the file cache.
+	 *
+	 * @param url
+	 */
+	static void refreshFile(String url)
+	{
+		loader.refresh(url);
+	}
+
+	/* Private attributes */
+	private DataCache cache = new DataCache(Runtime.getRuntime().maxMemory() / 4);
+
+	private ThreadPoolExecutor executor;
+
+	/** The pins of the obtained work sets, indexed by their paths */
+	private Map<String,LinkedList<Pins>> pinMap = new HashMap<String,LinkedList<Pins>>();
+
+	/** Files that have been loaded, indexed by their path or url */
+	private Map<String,LoadedFile> loadedFiles = new HashMap<String,LoadedFile>();
+
+	/** Serializes the refreshes, which parse the new versions without holding loadedFiles */
+	private Object refreshLock = new Object();
+
+	private List<IWorkSetUpdateListener> updateListeners = new CopyOnWriteArrayList<IWorkSetUpdateListener>();
+
+	private WorkSetLoader()
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new ThreadFactory()
+				{
+					private AtomicInteger number = new AtomicInteger();
+
+					public Thread newThread(Runnable r)
+					{
+						Thread t = new Thread(OntologizerThreadGroups.workerThreadGroup, r, "Work Set Loader Thread " + number.incrementAndGet());
+						t.setDaemon(true);
+						t.setPriority(Thread.MIN_PRIORITY);
+						return t;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+
+		/* Low memory handler */
+		try
+		{
+			MemoryWarningSystem.setPercentageUsageThreshold(0.80);
+			MemoryWarningSystem mws = new MemoryWarningSystem();
+			mws.addListener(new MemoryWarningSystem.Listener()
+			{
+				public void memoryUsageLow(long usedMemory, long maxMemory)
+				{
+					logger.warning("Low memory condition! Releasing data that is not in use");
+					cleanCache();
+				}
+			});
+		} catch (Throwable t)
+		{
+			logger.log(Level.WARNING, "Unable to install the low memory handler", t);
+		}
+
+		/* Whenever a file that we have loaded is refreshed, we update our data */
+		FileCache.addUpdateCallback(new FileCacheUpdateCallback()
+		{
+			public void update(final String url)
+			{
+				if (FileCache.getState(url) == FileCache.FileState.CACHED)
+				{
+					executor.execute(new Runnable()
+					{
+						public void run()
+						{
+							refresh(url);
+						}
+					});
+				}
+			}
+
+			public void exception(Exception exception, String url)
+			{
+			}
+		});
+	}
+
+	/**
+	 * Returns the key of the given work set for the pin map.
+	 *
+	 * @param ws
+	 * @return
+	 */
+	private static String pinKey(WorkSet ws)
+	{
+		return ws.getOboPath() + "\n" + ws.getAssociationPath();
+	}
+
+	/**
+	 * Obtain the data files of the given work set. The files are fetched
+	 * first, the loading is started once both of them are available.
+	 *
+	 * @param ws
+	 * @param progress
+	 * @param run
+	 */
+	private void obtain(WorkSet ws, final IWorkSetProgress progress, final Runnable run)
+	{
+		final String oboPath = ws.getOboPath();
+		final String assocPath = ws.getAssociationPath();
+		final Pins pins = new Pins();
+
+		synchronized (pinMap)
+		{
+			LinkedList<Pins> list = pinMap.get(pinKey(ws));
+			if (list == null)
+			{
+				list = new LinkedList<Pins>();
+				pinMap.put(pinKey(ws), list);
+			}
+			list.add(pins);
+		}
+
+		logger.info("The name of the obo file to be loaded is \"" + oboPath + "\"");
+		logger.info("The name of the association file to be loaded is \"" + assocPath + "\"");
+
+		/* The loading starts once both files are available */
+		final AtomicInteger pending = new AtomicInteger(3);
+		final List<Future<String>> futures = new ArrayList<Future<String>>(2);
+		final Runnable load = new Runnable()
+		{
+			public void run()
+			{
+				try
+				{
+					load(oboPath, futures.get(0), assocPath, futures.get(1), pins, progress);
+				} finally
+				{
+					run.run();
+				}
+			}
+		};
+		try
+		{
+			for (String path : new String[]{oboPath, assocPath})
+			{
+				/* Each file is counted only once, either by the callback or,
+				 * for files that are already available, by us */
+				final AtomicBoolean counted = new AtomicBoolean();
+				FileDownload fetched = new FileDownload()
+				{
+					public void initProgress(int max) { }
+					public void progress(int current) { }
+					public void ready(Exception ex, String name)
+					{
+						if (counted.compareAndSet(false, true) && pending.decrementAndGet() == 0)
+							executor.execute(load);
+					}
+				};
+
+				Future<String> future = FileCache.fetch(path, fetched);
+				futures.add(future);
+
+				if (future.isDone() && counted.compareAndSet(false, true))
+					pending.decrementAndGet();
+			}
+		} catch (IOException e)
+		{
+			logger.log(Level.SEVERE, "Failed to obtain files", e);
+			executor.execute(run);
+			return;
+		}
+
+		if (pending.decrementAndGet() == 0)
+			executor.execute(load);
+	}
+
+	/**
+	 * Release the data files of the given work set.
+	 *
+	 * @param ws
+	 */
+	private void release(WorkSet ws)
+	{
+		Pins pins;
+
+		synchronized (pinMap)
+		{
+			LinkedList<Pins> list = pinMap.get(pinKey(ws));
+			if (list == null)
+				return;
+			pins = list.removeFirst();
+			if (list.isEmpty())
+				pinMap.remove(pinKey(ws));
+		}
+
+		synchronized (pins)
+		{
+			pins.released = true;
+			for (Object handle : pins.handles)
+				cache.unpin(handle);
+			pins.handles.clear();
+		}
+	}
+
+	/**
+	 * Returns the result of the given future of a local file name.
+	 *
+	 * @param future
+	 * @return the name or null if the file could not be obtained.
+	 * @throws InterruptedException
+	 */
+	private static String getLocalName(Future<String> future) throws InterruptedException
+	{
+		try
+		{
+			String name = future.get();
+			if (new File(name).exists())
+				return name;
+		} catch (ExecutionException e)
+		{
+			logger.log(Level.SEVERE, "Failed to obtain file", e.getCause());
+		} catch (CancellationException e)
+		{
+		}
+		return null;
+	}
+
+	/**
+	 * Load the files of a work set. Add them as loaded.
+	 *
+	 * @param oboPath
+	 * @param oboFuture
+	 * @param assocPath
+	 * @param assocFuture
+	 * @param pins
+	 * @param workSetProgress
+	 */
+	private void load(String oboPath, Future<String> oboFuture, String assocPath, Future<String> assocFuture, Pins pins, IWorkSetProgress workSetProgress)
+	{
+		try
+		{
+			String oboName = getLocalName(oboFuture);
+			String assocName = getLocalName(assocFuture);
+			if (oboName == null || assocName == null)
+				return;
+
+			Ontology graph = loadGraph(oboName, workSetProgress);
+			loadAssociations(assocName, graph, workSetProgress);
+
+			synchronized (pins)
+			{
+				if (!pins.released)
+				{
+					for (String name : new String[]{oboName, assocName})
+					{
+						Object handle = cache.pin(name);
+						if (handle != null) pins.handles.add(handle);
+					}
+				}
+			}
+
+			synchronized (loadedFiles)
+			{
+				rememberLoadedFile(oboPath, oboName, null);
+				rememberLoadedFile(assocPath, assocName, oboPath);
+			}
+		} catch (InterruptedException e)
+		{
+		} catch (ExecutionException e)
+		{
+			logger.log(Level.SEVERE, "Failed to load files", e.getCause());
+		}
+	}
+
+	/**
+	 * Parse the terms of the given obo file.
+	 *
+	 * @param oboName
+	 * @param workSetProgress
+	 * @return
+	 * @throws IOException
+	 * @throws OBOParserException
+	 */
+	private static TermContainer parseTerms(String oboName, final IWorkSetProgress workSetProgress) throws IOException, OBOParserException
+	{
+		OBOParser oboParser = new OBOParser(new OBOParserFileInput(oboName), OBOParser.IGNORE_SYNONYMS);
+		workSetProgress.message("Parsing OBO file");
+		oboParser.doParse(new IOBOParserProgress()
+		{
+
+			public void init(int max)
+			{
+				workSetProgress.initGauge(max);
+			}
+
+			public void update(int current, int terms)
+			{
+				workSetProgress.message("Parsing OBO file ("+terms+")");
+				workSetProgress.updateGauge(current);
+			}
+		});
+		return new TermContainer(oboParser.getTermMap(), oboParser.getFormatVersion(), oboParser.getDate());
+	}
+
+	/**
+	 * Returns an estimate of the memory occupied by the given graph, as it
+	 * is used to weigh the entries of a DataCache.
+	 *
+	 * @param graph
+	 * @return
+	 */
+	public static long weigh(Ontology graph)
+	{
+		return graph.getNumberOfTerms() * TERM_WEIGHT;
+	}
+
+	/**
+	 * Returns an estimate of the memory occupied by the given associations,
+	 * as it is used to weigh the entries of a DataCache.
+	 *
+	 * @param associations
+	 * @return
+	 */
+	public static long weigh(AssociationContainer associations)
+	{
+		return (long)associations.getNumberOfAssociations() * ASSOCIATION_WEIGHT;
+	}
+
+	/**
+	 * Load the graph. If the graph is currently loaded by another
+	 * thread, wait until it has been loaded.
+	 *
+	 * @param oboName
+	 * @param workSetProgress
+	 * @return
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	private Ontology loadGraph(final String oboName, final IWorkSetProgress workSetProgress) throws InterruptedException, ExecutionException
+	{
+		return cache.get(oboName, new DataCache.Loader<Ontology>()
+		{
+			public Ontology load() throws Exception
+			{
+				TermContainer goTerms = parseTerms(oboName, workSetProgress);
+				workSetProgress.message("Building GO graph");
+				return Ontology.create(goTerms);
+			}
+
+			public long weigh(Ontology value)
+			{
+				return WorkSetLoader.weigh(value);
+			}
+		});
+	}
+
+	/**
+	 * Parse the given association file.
+	 *
+	 * @param assocName
+	 * @param graph the ontology to which the associations are resolved.
+	 * @param workSetProgress
+	 * @return
+	 * @throws IOException
+	 */
+	private static AssociationContainer parseAssociations(String assocName, Ontology graph, final IWorkSetProgress workSetProgress) throws IOException
+	{
+		logger.info("Parse local association file \"" + assocName + "\"");
+
+		workSetProgress.message("Parsing association file");
+		workSetProgress.updateGauge(0);
+		AssociationParser ap = new AssociationParser(new OBOParserFileInput(assocName),graph.getTermContainer(),null,new IAssociationParserProgress()
+		{
+			public void init(int max)
+			{
+				workSetProgress.initGauge(max);
+			}
+
+			public void update(int current)
+			{
+				workSetProgress.updateGauge(current);
+			}
+		});
+
+		AssociationContainer ac = new AssociationContainer(ap.getAssociations(), ap.getSynonym2gene(), ap.getDbObject2gene());
+		workSetProgress.message("");
+		workSetProgress.initGauge(0);
+		return ac;
+	}
+
+	/**
+	 * Load the associations. If the associations are currently loaded by
+	 * another thread, wait until they have been loaded.
+	 *
+	 * @param assocName
+	 * @param graph
+	 * @param workSetProgress
+	 * @return
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	private AssociationContainer loadAssociations(final String assocName, final Ontology graph, final IWorkSetProgress workSetProgress) throws InterruptedException, ExecutionException
+	{
+		return cache.get(assocName, new DataCache.Loader<AssociationContainer>()
+		{
+			public AssociationContainer load() throws Exception
+			{
+				return parseAssociations(assocName, graph, workSetProgress);
+			}
+
+			public long weigh(AssociationContainer value)
+			{
+				return WorkSetLoader.weigh(value);
+			}
+		});
+	}
+
+	/**
+	 * Remember the state of the given file. The state of a file that has
+	 * been loaded from the same local file before is kept, as it describes
+	 * the version of the cached data. Must be called with loadedFiles being
+	 * locked.
+	 *
+	 * @param url
+	 * @param localName
+	 * @param oboUrl
+	 */
+	private void rememberLoadedFile(String url, String localName, String oboUrl)
+	{
+		LoadedFile lf = loadedFiles.get(url);
+		if (lf == null)
+		{
+			lf = new LoadedFile();
+			lf.url = url;
+			loadedFiles.put(url, lf);
+		} else if (localName.equals(lf.localName) && (oboUrl == null ? lf.oboUrl == null : oboUrl.equals(lf.oboUrl)))
+		{
+			return;
+		}
+		lf.localName = localName;
+		lf.lastModified = new File(localName).lastModified();
+		lf.oboUrl = oboUrl;
+	}
+
+	/**
+	 * Called when the given url may have been refreshed. If data of the
+	 * url has been loaded before and the local file has changed since, the
+	 * new version is compared to the loaded one. The loaded data is only
+	 * replaced if it differs, in which case the listeners are informed
+	 * about the differences.
+	 *
+	 * The new version is parsed without holding the lock on loadedFiles,
+	 * so work sets can be loaded in the meantime.
+	 *
+	 * @param url
+	 */
+	private void refresh(String url)
+	{
+		synchronized (refreshLock)
+		{
+			LoadedFile lf;
+			String localName;
+
+			synchronized (loadedFiles)
+			{
+				lf = loadedFiles.get(url);
+				if (lf == null) return;
+
+				localName = FileCache.getLocalFileName(url);
+				if (localName == null) return;
+
+				File localFile = new File(localName);
+				if (!localFile.exists()) return;
+				if (localName.equals(lf.localName) && localFile.lastModified() == lf.lastModified)
+					return;
+
+				lf = lf.copy();
+			}
+
+			try
+			{
+				if (lf.oboUrl == null) refreshOntology(lf, localName);
+				else refreshAssociations(lf, localName);
+			} catch (Exception e)
+			{
+				logger.log(Level.SEVERE, "Failed to refresh \"" + url + "\"", e);
+			}
+		}
+	}
+
+	/**
+	 * Forget the given file, whose data has been removed from our cache in
+	 * the meantime.
+	 *
+	 * @param lf the state of the file when the refresh was started.
+	 */
+	private void forget(LoadedFile lf)
+	{
+		synchronized (loadedFiles)
+		{
+			LoadedFile current = loadedFiles.get(lf.url);
+			if (current != null && lf.localName.equals(current.localName))
+				loadedFiles.remove(lf.url);
+		}
+	}
+
+	/**
+	 * Put the given new versions into the cache. Nothing is replaced if
+	 * any of the files has been reloaded since the refresh was started, as
+	 * a later refresh will take care of it then.
+	 *
+	 * @param replacements
+	 * @return whether the new versions have been put into the cache.
+	 */
+	private boolean replace(List<Replacement> replacements)
+	{
+		synchronized (loadedFiles)
+		{
+			for (Replacement replacement : replacements)
+			{
+				LoadedFile current = loadedFiles.get(replacement.lf.url);
+				if (current == null || !replacement.lf.localName.equals(current.localName) || replacement.lf.lastModified != current.lastModified)
+					return false;
+			}
+
+			for (Replacement replacement : replacements)
+			{
+				LoadedFile lf = replacement.lf;
+				cache.replace(lf.localName, replacement.localName, replacement.value, replacement.weight);
+
+				LoadedFile current = loadedFiles.get(lf.url);
+				current.localName = replacement.localName;
+				current.lastModified = new File(replacement.localName).lastModified();
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Refresh the given ontology. Associations that were resolved against
+	 * the previous version are resolved against the new version if
+	 * annotations may be affected by the differences.
+	 *
+	 * @param lf the state of the ontology when the refresh was started.
+	 * @param localName the name of the local file containing the new version.
+	 * @throws IOException
+	 * @throws OBOParserException
+	 */
+	private void refreshOntology(LoadedFile lf, String localName) throws IOException, OBOParserException
+	{
+		Ontology oldGraph = cache.getIfPresent(lf.localName);
+		if (oldGraph == null)
+		{
+			forget(lf);
+			return;
+		}
+
+		TermContainer newTerms = parseTerms(localName, dummyWorkSetProgress);
+		OntologyDiff diff = OntologyDiff.create(oldGraph.getTermContainer(), newTerms);
+		logger.info("Refreshed \"" + lf.url + "\": " + diff);
+
+		/* Keep the current graph if nothing has changed */
+		Ontology graph = oldGraph;
+		if (!diff.isEmpty())
+			graph = Ontology.create(newTerms);
+
+		List<Replacement> replacements = new ArrayList<Replacement>();
+		replacements.add(new Replacement(lf, localName, graph, weigh(graph)));
+
+		/* Associations that were resolved against the previous version
+		 * stay valid unless terms disappeared or alternative ids changed */
+		List<Set<ByteString>> changedGenes = new ArrayList<Set<ByteString>>();
+		if (diff.affectsAnnotations())
+		{
+			List<LoadedFile> dependents = new ArrayList<LoadedFile>();
+			synchronized (loadedFiles)
+			{
+				for (LoadedFile assoc : loadedFiles.values())
+				{
+					if (lf.url.equals(assoc.oboUrl))
+						dependents.add(assoc.copy());
+				}
+			}
+
+			for (LoadedFile assoc : dependents)
+			{
+				AssociationContainer oldAssociations = cache.getIfPresent(assoc.localName);
+				String assocName = FileCache.getLocalFileName(assoc.url);
+				if (oldAssociations == null || assocName == null || !new File(assocName).exists())
+					continue;
+
+				AssociationContainer associations = parseAssociations(assocName, graph, dummyWorkSetProgress);
+				Set<ByteString> changed = oldAssociations.getChangedGenes(associations);
+				logger.info("Refreshed \"" + assoc.url + "\": annotations of " + changed.size() + " items changed");
+				if (changed.isEmpty())
+					associations = oldAssociations;
+
+				replacements.add(new Replacement(assoc, assocName, associations, weigh(associations)));
+				changedGenes.add(changed);
+			}
+		}
+
+		if (!replace(replacements))
+			return;
+
+		if (!diff.isEmpty())
+		{
+			for (IWorkSetUpdateListener listener : updateListeners)
+				listener.ontologyUpdated(lf.url, graph, diff);
+		}
+
+		for (int i=0;i<changedGenes.size();i++)
+		{
+			if (changedGenes.get(i).isEmpty())
+				continue;
+
+			Replacement replacement = replacements.get(i + 1);
+			for (IWorkSetUpdateListener listener : updateListeners)
+				listener.associationsUpdated(replacement.lf.url, (AssociationContainer)replacement.value, changedGenes.get(i));
+		}
+	}
+
+	/**
+	 * Refresh the given associations.
+	 *
+	 * @param lf the state of the associations when the refresh was started.
+	 * @param localName the name of the local file containing the new version.
+	 * @throws IOException
+	 */
+	private void refreshAssociations(LoadedFile lf, String localName) throws IOException
+	{
+		AssociationContainer oldAssociations = cache.getIfPresent(lf.localName);
+		String oboName = FileCache.getLocalFileName(lf.oboUrl);
+		Ontology graph = oboName != null ? cache.<Ontology>getIfPresent(oboName) : null;
+		if (oldAssociations == null || graph == null)
+		{
+			forget(lf);
+			return;
+		}
+
+		AssociationContainer associations = parseAssociations(localName, graph, dummyWorkSetProgress);
+		Set<ByteString> changedGenes = oldAssociations.getChangedGenes(associations);
+		logger.info("Refreshed \"" + lf.url + "\": annotations of " + changedGenes.size() + " items changed");
+
+		/* Keep the current container if nothing has changed */
+		if (changedGenes.isEmpty())
+			associations = oldAssociations;
+
+		List<Replacement> replacements = new ArrayList<Replacement>(1);
+		replacements.add(new Replacement(lf, localName, associations, weigh(associations)));
+		if (!replace(replacements) || changedGenes.isEmpty())
+			return;
+
+		for (IWorkSetUpdateListener listener : updateListeners)
+			listener.associationsUpdated(lf.url, associations, changedGenes);
+	}
+}
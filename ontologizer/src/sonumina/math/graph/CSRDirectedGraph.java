@@ -0,0 +1,670 @@
+package sonumina.math.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * An immutable directed graph whose vertices are identified by the
+ * indices 0 to n-1. Parents, children, ancestors and descendants are
+ * stored in compressed sparse row format, i.e., each relation is
+ * represented by a flat offset array and a flat target array. The
+ * ancestors and descendants of a vertex include the vertex itself and
+ * are sorted in ascending order.
+ */
+public final class CSRDirectedGraph
+{
+	/** Number of interval labels used for reachability queries */
+	private static final int NUMBER_OF_REACHABILITY_LABELS = 3;
+
+	/** Number of vertices */
+	private int numberOfVertices;
+
+	/** Number of edges */
+	private int numberOfEdges;
+
+	private int [] parentOffsets;
+	private int [] parents;
+
+	private int [] childOffsets;
+	private int [] children;
+
+	/** The labels of the edges to the parents, parallel to parents. Null if there are no labels */
+	private int [] parentLabels;
+
+	/** The labels of the edges to the children, parallel to children. Null if there are no labels */
+	private int [] childLabels;
+
+	private int [] ancestorOffsets;
+	private int [] ancestors;
+
+	private int [] descendantOffsets;
+	private int [] descendants;
+
+	/** Labels to answer reachability queries, null if the graph is cyclic */
+	private ReachabilityIndex reachability;
+
+	private CSRDirectedGraph()
+	{
+	}
+
+	/**
+	 * @return the number of vertices.
+	 */
+	public int getNumberOfVertices()
+	{
+		return numberOfVertices;
+	}
+
+	/**
+	 * @return the number of edges.
+	 */
+	public int getNumberOfEdges()
+	{
+		return numberOfEdges;
+	}
+
+	/**
+	 * Returns the number of parents of the given vertex.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public int getNumberOfParents(int v)
+	{
+		return parentOffsets[v+1] - parentOffsets[v];
+	}
+
+	/**
+	 * Returns the i-th parent of the given vertex.
+	 *
+	 * @param v
+	 * @param i
+	 * @return
+	 */
+	public int getParent(int v, int i)
+	{
+		return parents[parentOffsets[v] + i];
+	}
+
+	/**
+	 * Returns the label of the edge to the i-th parent of the given vertex.
+	 *
+	 * @param v
+	 * @param i
+	 * @return the label or 0 if the edges are not labeled.
+	 */
+	public int getParentLabel(int v, int i)
+	{
+		if (parentLabels == null) return 0;
+		return parentLabels[parentOffsets[v] + i];
+	}
+
+	/**
+	 * Returns the number of children of the given vertex.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public int getNumberOfChildren(int v)
+	{
+		return childOffsets[v+1] - childOffsets[v];
+	}
+
+	/**
+	 * Returns the i-th child of the given vertex.
+	 *
+	 * @param v
+	 * @param i
+	 * @return
+	 */
+	public int getChild(int v, int i)
+	{
+		return children[childOffsets[v] + i];
+	}
+
+	/**
+	 * Returns the label of the edge to the i-th child of the given vertex.
+	 *
+	 * @param v
+	 * @param i
+	 * @return the label or 0 if the edges are not labeled.
+	 */
+	public int getChildLabel(int v, int i)
+	{
+		if (childLabels == null) return 0;
+		return childLabels[childOffsets[v] + i];
+	}
+
+	/**
+	 * Returns the number of ancestors of the given vertex including
+	 * the vertex itself.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public int getNumberOfAncestors(int v)
+	{
+		return ancestorOffsets[v+1] - ancestorOffsets[v];
+	}
+
+	/**
+	 * Returns the i-th ancestor of the given vertex. Ancestors are
+	 * sorted in ascending order.
+	 *
+	 * @param v
+	 * @param i
+	 * @return
+	 */
+	public int getAncestor(int v, int i)
+	{
+		return ancestors[ancestorOffsets[v] + i];
+	}
+
+	/**
+	 * Returns the number of descendants of the given vertex including
+	 * the vertex itself.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public int getNumberOfDescendants(int v)
+	{
+		return descendantOffsets[v+1] - descendantOffsets[v];
+	}
+
+	/**
+	 * Returns the i-th descendant of the given vertex. Descendants are
+	 * sorted in ascending order.
+	 *
+	 * @param v
+	 * @param i
+	 * @return
+	 */
+	public int getDescendant(int v, int i)
+	{
+		return descendants[descendantOffsets[v] + i];
+	}
+
+	/**
+	 * @param v
+	 * @return a copy of the parents of the given vertex.
+	 */
+	public int [] getParents(int v)
+	{
+		return Arrays.copyOfRange(parents, parentOffsets[v], parentOffsets[v+1]);
+	}
+
+	/**
+	 * @param v
+	 * @return a copy of the children of the given vertex.
+	 */
+	public int [] getChildren(int v)
+	{
+		return Arrays.copyOfRange(children, childOffsets[v], childOffsets[v+1]);
+	}
+
+	/**
+	 * @param v
+	 * @return a sorted copy of the ancestors of the given vertex.
+	 */
+	public int [] getAncestors(int v)
+	{
+		return Arrays.copyOfRange(ancestors, ancestorOffsets[v], ancestorOffsets[v+1]);
+	}
+
+	/**
+	 * @param v
+	 * @return a sorted copy of the descendants of the given vertex.
+	 */
+	public int [] getDescendants(int v)
+	{
+		return Arrays.copyOfRange(descendants, descendantOffsets[v], descendantOffsets[v+1]);
+	}
+
+	/**
+	 * Determines whether vertex i is an ancestor of vertex j. Note that
+	 * each vertex is an ancestor of itself. For acyclic graphs, most
+	 * queries are answered in constant time using interval labels, the
+	 * others by a binary search within the ancestors of j.
+	 *
+	 * @param i
+	 * @param j
+	 * @return
+	 */
+	public boolean isAncestor(int i, int j)
+	{
+		if (ancestorOffsets[j] == ancestorOffsets[j+1] || descendantOffsets[i] == descendantOffsets[i+1])
+			return false;
+
+		if (reachability != null)
+		{
+			switch (reachability.query(i, j))
+			{
+				case	ReachabilityIndex.REACHABLE: return true;
+				case	ReachabilityIndex.NOT_REACHABLE: return false;
+			}
+		}
+		return Arrays.binarySearch(ancestors, ancestorOffsets[j], ancestorOffsets[j+1], i) >= 0;
+	}
+
+	/**
+	 * Determines whether vertex i is a descendant of vertex j. Note that
+	 * each vertex is a descendant of itself.
+	 *
+	 * @param i
+	 * @param j
+	 * @return
+	 */
+	public boolean isDescendant(int i, int j)
+	{
+		return isAncestor(j, i);
+	}
+
+	/**
+	 * Builds the adjacency in compressed sparse row format. Within a row,
+	 * the entries keep the order of the edges.
+	 *
+	 * @param n number of vertices
+	 * @param from the vertices whose rows are filled
+	 * @param to the vertices that are stored in the rows
+	 * @param labels the labels of the edges or null
+	 * @param m number of edges
+	 * @param offsets the array receiving the n+1 offsets
+	 * @param rowLabels the array receiving the labels in row order or null
+	 * @return the targets
+	 */
+	private static int [] buildRows(int n, int [] from, int [] to, int [] labels, int m, int [] offsets, int [] rowLabels)
+	{
+		for (int e=0;e<m;e++)
+			offsets[from[e]+1]++;
+		for (int v=0;v<n;v++)
+			offsets[v+1] += offsets[v];
+
+		int [] fill = Arrays.copyOf(offsets, n);
+		int [] targets = new int[m];
+		for (int e=0;e<m;e++)
+		{
+			int k = fill[from[e]]++;
+			targets[k] = to[e];
+			if (rowLabels != null)
+				rowLabels[k] = labels[e];
+		}
+		return targets;
+	}
+
+	/**
+	 * Determines the vertices reachable from each vertex within the given
+	 * adjacency, including the vertex itself. A breadth-first search is
+	 * started from every vertex, so this works also for cyclic graphs.
+	 *
+	 * @param n number of vertices
+	 * @param present whether a vertex is part of the graph
+	 * @param adjOffsets
+	 * @param adj
+	 * @param closureOffsets the array receiving the n+1 offsets
+	 * @return the sorted reachable vertices of all vertices
+	 */
+	private static int [] searchClosure(int n, boolean [] present, int [] adjOffsets, int [] adj, int [] closureOffsets)
+	{
+		int [] visited = new int[n];
+		int [] queue = new int[n];
+		int [] closure = new int[Math.max(16, n * 2)];
+		int size = 0;
+
+		for (int v=0;v<n;v++)
+		{
+			closureOffsets[v] = size;
+			if (!present[v])
+				continue;
+
+			/* Vertex v + 1 is used as epoch, so visited needs no clearing */
+			int epoch = v + 1;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = v;
+			visited[v] = epoch;
+
+			while (head < tail)
+			{
+				int u = queue[head++];
+				for (int k=adjOffsets[u];k<adjOffsets[u+1];k++)
+				{
+					int w = adj[k];
+					if (visited[w] != epoch)
+					{
+						visited[w] = epoch;
+						queue[tail++] = w;
+					}
+				}
+			}
+
+			if (size + tail > closure.length)
+				closure = Arrays.copyOf(closure, Math.max(size + tail, closure.length * 2));
+			System.arraycopy(queue, 0, closure, size, tail);
+			Arrays.sort(closure, size, size + tail);
+			size += tail;
+		}
+		closureOffsets[n] = size;
+		return Arrays.copyOf(closure, size);
+	}
+
+	/**
+	 * Determines a topological order of the present vertices.
+	 *
+	 * @param n number of vertices
+	 * @param present whether a vertex is part of the graph
+	 * @param parentOffsets
+	 * @param childOffsets
+	 * @param children
+	 * @return the present vertices in topological order, i.e., parents
+	 *  come before their children, or null if the graph contains a cycle.
+	 */
+	private static int [] topologicalOrder(int n, boolean [] present, int [] parentOffsets, int [] childOffsets, int [] children)
+	{
+		int [] inDegree = new int[n];
+		int [] order = new int[n];
+		int head = 0;
+		int tail = 0;
+		int numberOfPresent = 0;
+
+		for (int v=0;v<n;v++)
+		{
+			if (!present[v])
+				continue;
+			numberOfPresent++;
+			inDegree[v] = parentOffsets[v+1] - parentOffsets[v];
+			if (inDegree[v] == 0)
+				order[tail++] = v;
+		}
+
+		while (head < tail)
+		{
+			int u = order[head++];
+			for (int k=childOffsets[u];k<childOffsets[u+1];k++)
+			{
+				int w = children[k];
+				if (--inDegree[w] == 0)
+					order[tail++] = w;
+			}
+		}
+
+		if (tail != numberOfPresent)
+			return null;
+		return Arrays.copyOf(order, tail);
+	}
+
+	/**
+	 * Merges two sorted arrays without duplicates.
+	 *
+	 * @param a
+	 * @param alen number of entries of a to consider
+	 * @param b
+	 * @param dest where the merged entries are stored
+	 * @return number of merged entries
+	 */
+	private static int merge(int [] a, int alen, int [] b, int [] dest)
+	{
+		int i = 0, j = 0, k = 0;
+		int blen = b.length;
+
+		while (i < alen && j < blen)
+		{
+			int x = a[i];
+			int y = b[j];
+			if (x < y) { dest[k++] = x; i++; }
+			else if (x > y) { dest[k++] = y; j++; }
+			else { dest[k++] = x; i++; j++; }
+		}
+		while (i < alen) dest[k++] = a[i++];
+		while (j < blen) dest[k++] = b[j++];
+		return k;
+	}
+
+	/**
+	 * Determines the closure row of vertex v by merging the rows of its
+	 * neighbours, which must already be known.
+	 *
+	 * @param v
+	 * @param adjOffsets
+	 * @param adj
+	 * @param rows
+	 * @param scratch two arrays of length n used for merging
+	 * @return the sorted closure row of v
+	 */
+	private static int [] mergeRows(int v, int [] adjOffsets, int [] adj, int [][] rows, int [][] scratch)
+	{
+		int start = adjOffsets[v];
+		int end = adjOffsets[v+1];
+
+		if (start == end)
+			return new int[]{v};
+
+		int [] cur = scratch[0];
+		int [] next = scratch[1];
+		cur[0] = v;
+		int len = 1;
+
+		for (int k=start;k<end;k++)
+		{
+			len = merge(cur, len, rows[adj[k]], next);
+			int [] t = cur; cur = next; next = t;
+		}
+		return Arrays.copyOf(cur, len);
+	}
+
+	/**
+	 * Determines the vertices reachable from each vertex within the given
+	 * adjacency, including the vertex itself, by processing the vertices
+	 * such that all neighbours of a vertex are processed before the
+	 * vertex and merging the sorted rows of the neighbours.
+	 *
+	 * @param n number of vertices
+	 * @param order the order in which the vertices are processed
+	 * @param forward whether the order is processed from first to last
+	 * @param adjOffsets
+	 * @param adj
+	 * @param executor if not null, vertices that don't depend on each other
+	 *  are processed in parallel using the executor.
+	 * @param closureOffsets the array receiving the n+1 offsets
+	 * @return the sorted reachable vertices of all vertices
+	 */
+	private static int [] buildClosure(int n, int [] order, boolean forward, final int [] adjOffsets, final int [] adj, ExecutorService executor, int [] closureOffsets)
+	{
+		final int [][] rows = new int[n][];
+
+		if (executor == null)
+		{
+			int [][] scratch = new int[][]{new int[n], new int[n]};
+			for (int i=0;i<order.length;i++)
+			{
+				int v = order[forward ? i : order.length - 1 - i];
+				rows[v] = mergeRows(v, adjOffsets, adj, rows, scratch);
+			}
+		} else
+		{
+			/* Group the vertices into levels, each level depends only on
+			 * previous levels */
+			int [] level = new int[n];
+			int maxLevel = 0;
+			for (int i=0;i<order.length;i++)
+			{
+				int v = order[forward ? i : order.length - 1 - i];
+				int l = 0;
+				for (int k=adjOffsets[v];k<adjOffsets[v+1];k++)
+					l = Math.max(l, level[adj[k]] + 1);
+				level[v] = l;
+				maxLevel = Math.max(maxLevel, l);
+			}
+
+			int [] levelOffsets = new int[maxLevel + 2];
+			for (int v : order)
+				levelOffsets[level[v]+1]++;
+			for (int l=0;l<=maxLevel;l++)
+				levelOffsets[l+1] += levelOffsets[l];
+			int [] fill = Arrays.copyOf(levelOffsets, maxLevel + 1);
+			final int [] byLevel = new int[order.length];
+			for (int v : order)
+				byLevel[fill[level[v]]++] = v;
+
+			int numberOfTasks = Math.max(1, Runtime.getRuntime().availableProcessors());
+			final int scratchLength = n;
+			for (int l=0;l<=maxLevel;l++)
+			{
+				int from = levelOffsets[l];
+				int to = levelOffsets[l+1];
+				int chunk = Math.max(256, (to - from + numberOfTasks - 1) / numberOfTasks);
+				List<Future<?>> futures = new ArrayList<Future<?>>();
+
+				for (int c=from;c<to;c+=chunk)
+				{
+					final int chunkFrom = c;
+					final int chunkTo = Math.min(to, c + chunk);
+					futures.add(executor.submit(new Runnable()
+					{
+						public void run()
+						{
+							int [][] scratch = new int[][]{new int[scratchLength], new int[scratchLength]};
+							for (int i=chunkFrom;i<chunkTo;i++)
+							{
+								int v = byLevel[i];
+								rows[v] = mergeRows(v, adjOffsets, adj, rows, scratch);
+							}
+						}
+					}));
+				}
+
+				for (Future<?> f : futures)
+				{
+					try
+					{
+						f.get();
+					} catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						throw new RuntimeException(e);
+					} catch (ExecutionException e)
+					{
+						throw new RuntimeException(e.getCause());
+					}
+				}
+			}
+		}
+
+		/* Flatten the rows */
+		int size = 0;
+		for (int v=0;v<n;v++)
+		{
+			closureOffsets[v] = size;
+			if (rows[v] != null)
+				size += rows[v].length;
+		}
+		closureOffsets[n] = size;
+
+		int [] closure = new int[size];
+		for (int v=0;v<n;v++)
+		{
+			if (rows[v] != null)
+			{
+				System.arraycopy(rows[v], 0, closure, closureOffsets[v], rows[v].length);
+				rows[v] = null;
+			}
+		}
+		return closure;
+	}
+
+	/**
+	 * Creates the graph from the given edges.
+	 *
+	 * @param numberOfVertices the number of vertices.
+	 * @param present specifies which of the vertices are part of the graph.
+	 *  Vertices that are not part have no ancestors and descendants (not
+	 *  even themselves). Can be null, in which case all vertices are part of the graph.
+	 * @param sources the parents of the edges.
+	 * @param dests the children of the edges.
+	 * @param numberOfEdges the number of edges, i.e., the number of
+	 *  used entries in sources and dests.
+	 * @return the graph.
+	 */
+	public static CSRDirectedGraph create(int numberOfVertices, boolean [] present, int [] sources, int [] dests, int numberOfEdges)
+	{
+		return create(numberOfVertices, present, sources, dests, null, numberOfEdges, null);
+	}
+
+	/**
+	 * Creates the graph from the given edges. If the graph is acyclic, the
+	 * ancestors and descendants are determined by merging the closures of
+	 * the parents (children) in topological order. Otherwise, a search is
+	 * started from every vertex.
+	 *
+	 * @param numberOfVertices the number of vertices.
+	 * @param present specifies which of the vertices are part of the graph.
+	 *  Vertices that are not part have no ancestors and descendants (not
+	 *  even themselves). Can be null, in which case all vertices are part of the graph.
+	 * @param sources the parents of the edges.
+	 * @param dests the children of the edges.
+	 * @param labels arbitrary labels of the edges, e.g., bit masks that
+	 *  can be used to restrict traversals. May be null.
+	 * @param numberOfEdges the number of edges, i.e., the number of
+	 *  used entries in sources and dests.
+	 * @param executor the executor used to determine the closures in parallel.
+	 *  May be null.
+	 * @return the graph.
+	 */
+	public static CSRDirectedGraph create(int numberOfVertices, boolean [] present, int [] sources, int [] dests, int [] labels, int numberOfEdges, ExecutorService executor)
+	{
+		int n = numberOfVertices;
+
+		if (present == null)
+		{
+			present = new boolean[n];
+			Arrays.fill(present, true);
+		}
+
+		CSRDirectedGraph g = new CSRDirectedGraph();
+		g.numberOfVertices = n;
+		g.numberOfEdges = numberOfEdges;
+
+		if (labels != null)
+		{
+			g.parentLabels = new int[numberOfEdges];
+			g.childLabels = new int[numberOfEdges];
+		}
+		g.parentOffsets = new int[n+1];
+		g.parents = buildRows(n, dests, sources, labels, numberOfEdges, g.parentOffsets, g.parentLabels);
+		g.childOffsets = new int[n+1];
+		g.children = buildRows(n, sources, dests, labels, numberOfEdges, g.childOffsets, g.childLabels);
+
+		g.ancestorOffsets = new int[n+1];
+		g.descendantOffsets = new int[n+1];
+
+		int [] order = topologicalOrder(n, present, g.parentOffsets, g.childOffsets, g.children);
+		if (order != null)
+		{
+			g.ancestors = buildClosure(n, order, true, g.parentOffsets, g.parents, executor, g.ancestorOffsets);
+			g.descendants = buildClosure(n, order, false, g.childOffsets, g.children, executor, g.descendantOffsets);
+			g.reachability = ReachabilityIndex.create(n, order, g.childOffsets, g.children, NUMBER_OF_REACHABILITY_LABELS, 0);
+		} else
+		{
+			g.ancestors = searchClosure(n, present, g.parentOffsets, g.parents, g.ancestorOffsets);
+			g.descendants = searchClosure(n, present, g.childOffsets, g.children, g.descendantOffsets);
+		}
+		return g;
+	}
+
+	/**
+	 * Creates the graph from the given edges. All vertices are part of the graph.
+	 *
+	 * @param numberOfVertices
+	 * @param sources
+	 * @param dests
+	 * @return
+	 */
+	public static CSRDirectedGraph create(int numberOfVertices, int [] sources, int [] dests)
+	{
+		return create(numberOfVertices, null, sources, dests, sources.length);
+	}
+}
@@ -0,0 +1,215 @@
+package sonumina.math.graph;
+
+import java.util.Arrays;
+
+/**
+ * Breadth-first traversals on a CSRDirectedGraph that work solely on
+ * vertex indices. The arrays used for the bookkeeping are allocated once
+ * and reused by subsequent traversals, so an instance should be kept as
+ * long as the graph is used. Visited vertices are marked with the
+ * number of the current traversal, so they need not be cleared between
+ * traversals.
+ *
+ * Instances are not thread-safe.
+ */
+public final class CSRGraphTraversal
+{
+	/** Label mask that follows all edges */
+	public static final int ALL_LABELS = -1;
+
+	/**
+	 * Callback that is informed about the vertices of a traversal
+	 * while the traversal is performed.
+	 */
+	public static interface IVertexVisitor
+	{
+		/**
+		 * Called for every vertex in the order of the visit.
+		 *
+		 * @param vertex
+		 * @return false if the traversal should be stopped (i.e., no
+		 *  further calls to this method will be issued) otherwise true.
+		 */
+		boolean visited(int vertex);
+	}
+
+	/** The graph on which the traversals are performed */
+	private final CSRDirectedGraph graph;
+
+	/** Contains the number of the traversal in which the vertex was visited */
+	private int [] visited;
+
+	/** Number of the current traversal */
+	private int epoch;
+
+	/**
+	 * The visited vertices in the order of their visit. The array also
+	 * serves as queue for the breadth-first search.
+	 */
+	private int [] order;
+
+	/** Number of entries in order */
+	private int numberOfVisited;
+
+	/** Used to pass a single initial vertex */
+	private final int [] single = new int[1];
+
+	/**
+	 * Constructs the traversal for the given graph.
+	 *
+	 * @param graph
+	 */
+	public CSRGraphTraversal(CSRDirectedGraph graph)
+	{
+		this.graph = graph;
+		this.visited = new int[graph.getNumberOfVertices()];
+		this.order = new int[graph.getNumberOfVertices()];
+	}
+
+	/**
+	 * @return the graph on which the traversals are performed.
+	 */
+	public CSRDirectedGraph getGraph()
+	{
+		return graph;
+	}
+
+	/**
+	 * Starts a new traversal.
+	 */
+	private void nextEpoch()
+	{
+		if (++epoch == 0)
+		{
+			Arrays.fill(visited, 0);
+			epoch = 1;
+		}
+		numberOfVisited = 0;
+	}
+
+	/**
+	 * Performs a breadth-first search starting at the given vertices. Only
+	 * edges whose label shares a bit with the given mask are followed. Edges
+	 * with label 0, e.g., all edges of an unlabeled graph, are always followed.
+	 *
+	 * The visited vertices, including the initial ones, can be queried via
+	 * getVisited() in the order in which they were discovered. As for
+	 * AbstractGraph.bfs(), an initial vertex that is given several times
+	 * is reported several times.
+	 *
+	 * @param initial the vertices to start with.
+	 * @param numberOfInitial the number of entries in initial.
+	 * @param againstFlow whether the search walks from the children to the parents.
+	 * @param labelMask the mask of the labels of the edges to follow.
+	 * @return the number of visited vertices.
+	 */
+	public int bfs(int [] initial, int numberOfInitial, boolean againstFlow, int labelMask)
+	{
+		return bfs(initial, numberOfInitial, againstFlow, labelMask, null);
+	}
+
+	/**
+	 * Performs a breadth-first search starting at the given vertices and
+	 * calls the visitor for each vertex in the order of the visit. The
+	 * visitor is called during the search, so a visitor that stops the
+	 * search avoids the traversal of the remaining graph. In this case,
+	 * the returned number of visited vertices includes the vertices that
+	 * were discovered but not yet passed to the visitor.
+	 *
+	 * @param initial the vertices to start with.
+	 * @param numberOfInitial the number of entries in initial.
+	 * @param againstFlow whether the search walks from the children to the parents.
+	 * @param labelMask the mask of the labels of the edges to follow.
+	 * @param visitor the visitor or null.
+	 * @return the number of visited vertices.
+	 * @see #bfs(int[], int, boolean, int)
+	 */
+	public int bfs(int [] initial, int numberOfInitial, boolean againstFlow, int labelMask, IVertexVisitor visitor)
+	{
+		nextEpoch();
+
+		if (numberOfInitial > order.length)
+			order = new int[numberOfInitial + graph.getNumberOfVertices()];
+
+		for (int i=0;i<numberOfInitial;i++)
+		{
+			int v = initial[i];
+			visited[v] = epoch;
+			order[numberOfVisited++] = v;
+		}
+
+		boolean checkLabels = labelMask != ALL_LABELS;
+		int head = 0;
+		while (head < numberOfVisited)
+		{
+			int v = order[head++];
+			if (visitor != null && !visitor.visited(v))
+				break;
+
+			int n = againstFlow ? graph.getNumberOfParents(v) : graph.getNumberOfChildren(v);
+			for (int i=0;i<n;i++)
+			{
+				if (checkLabels)
+				{
+					int label = againstFlow ? graph.getParentLabel(v, i) : graph.getChildLabel(v, i);
+					if (label != 0 && (label & labelMask) == 0)
+						continue;
+				}
+
+				int w = againstFlow ? graph.getParent(v, i) : graph.getChild(v, i);
+				if (visited[w] != epoch)
+				{
+					visited[w] = epoch;
+					if (numberOfVisited == order.length)
+						order = Arrays.copyOf(order, order.length * 2);
+					order[numberOfVisited++] = w;
+				}
+			}
+		}
+		return numberOfVisited;
+	}
+
+	/**
+	 * Performs a breadth-first search starting at the given vertex.
+	 *
+	 * @param vertex
+	 * @param againstFlow
+	 * @return the number of visited vertices.
+	 * @see #bfs(int[], int, boolean, int)
+	 */
+	public int bfs(int vertex, boolean againstFlow)
+	{
+		single[0] = vertex;
+		return bfs(single, 1, againstFlow, ALL_LABELS);
+	}
+
+	/**
+	 * @return the number of vertices visited by the last traversal.
+	 */
+	public int getNumberOfVisited()
+	{
+		return numberOfVisited;
+	}
+
+	/**
+	 * Returns the i-th vertex visited by the last traversal.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public int getVisited(int i)
+	{
+		return order[i];
+	}
+
+	/**
+	 * Returns whether the given vertex was visited by the last traversal.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public boolean isVisited(int v)
+	{
+		return visited[v] == epoch;
+	}
+}
@@ -1,13 +1,24 @@
 package sonumina.math.graph;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
-import java.util.ListIterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A very basic layout algorithm for directed graphs.
  *
+ * Vertices are assigned to levels according to their longest distance
+ * to a root. The order of the vertices within each level is determined
+ * by barycenter sweeps that reduce the number of edge crossings, then
+ * the horizontal positions are iteratively adjusted to shorten the
+ * edges. A layout can be reused to lay out a slightly altered graph,
+ * in which case the previous positions serve as starting point and
+ * the vertices of the previous layout keep their relative order.
+ *
  * @author Sebastian Bauer
  */
 public class DirectedGraphLayout<T>
@@ -48,6 +59,15 @@ public class DirectedGraphLayout<T>
 		void set(T vertex, int left, int top);
 	}
 
+	/** Number of barycenter sweeps (each consists of a down and an up sweep) */
+	private static final int NUMBER_OF_SWEEPS = 4;
+
+	/** Minimum number of vertices of a level for which barycenters are determined in parallel */
+	private static final int PARALLEL_LEVEL_SIZE = 512;
+
+	/** Maximum number of runs of the horizontal position improvement */
+	private static final int NUMBER_OF_RUNS = 100;
+
 	protected DirectedGraph<T> graph;
 	protected IGetDimension<T> dimensionCallback;
 	protected IPosition<T> positionCallback;
@@ -56,47 +76,431 @@ public class DirectedGraphLayout<T>
 	private int maxDistanceToRoot = -1;
 	private Attr [] attrs;
 
+	/** The vertices of each level, ordered by their horizontal rank */
+	private int [][] levelNodes;
+
+	/**
+	 * The rank of each vertex among the vertices of its level that were
+	 * part of the previous layout, or -1 for new vertices. Null if there is
+	 * no previous layout.
+	 */
+	private int [] fixedRank;
+
+	/** Executor used for the determination of barycenters, may be null */
+	private ExecutorService executor;
+
 	DirectedGraphLayout(DirectedGraph<T> graph, IGetDimension<T> dimensionCallback, IPosition<T> positionCallback)
 	{
 		this.graph = graph;
 		this.dimensionCallback = dimensionCallback;
 		this.positionCallback = positionCallback;
-		this.slimGraph = SlimDirectedGraphView.create(graph);
+	}
+
+	/**
+	 * Creates the slim view of the graph and assigns the vertices to
+	 * their levels.
+	 */
+	private void prepare()
+	{
+		slimGraph = SlimDirectedGraphView.create(graph);
 
-		attrs = new Attr[graph.getNumberOfVertices()];
-		for (int i=0;i<graph.getNumberOfVertices();i++)
+		attrs = new Attr[slimGraph.getNumberOfVertices()];
+		for (int i=0;i<attrs.length;i++)
 			attrs[i] = new Attr();
 
-		/* Find the roots */
-		List<T> rootList = new ArrayList<T>(4);
-		for (T n : graph)
-			if (graph.getInDegree(n)==0) rootList.add(n);
-		if (rootList.size() == 0)
-			rootList.add(graph.getArbitaryNode());
+		assignLevels();
+	}
+
+	/**
+	 * Determines the distance to the root of each vertex, i.e., the
+	 * length of the longest path from any root. Vertices are processed
+	 * in topological order, so each vertex is considered only once.
+	 * Vertices that are part of cycles are placed below their already
+	 * processed parents.
+	 */
+	private void assignLevels()
+	{
+		int n = slimGraph.getNumberOfVertices();
+		int [] inDegree = new int[n];
+		int [] queue = new int[n];
+		boolean [] done = new boolean[n];
+		int head = 0, tail = 0;
+
+		for (int i=0;i<n;i++)
+		{
+			inDegree[i] = slimGraph.vertexParents[i].length;
+			if (inDegree[i] == 0)
+				queue[tail++] = i;
+		}
+
+		while (true)
+		{
+			while (head < tail)
+			{
+				int v = queue[head++];
+				done[v] = true;
+				for (int c : slimGraph.vertexChildren[v])
+				{
+					if (!done[c] && attrs[c].distanceToRoot < attrs[v].distanceToRoot + 1)
+						attrs[c].distanceToRoot = attrs[v].distanceToRoot + 1;
+					if (--inDegree[c] == 0)
+						queue[tail++] = c;
+				}
+			}
+
+			if (tail == n)
+				break;
+
+			/* A cycle, break it at the first vertex that was not processed */
+			for (int i=0;i<n;i++)
+			{
+				if (!done[i] && inDegree[i] > 0)
+				{
+					inDegree[i] = 0;
+					queue[tail++] = i;
+					break;
+				}
+			}
+		}
+
+		for (int i=0;i<n;i++)
+			if (attrs[i].distanceToRoot > maxDistanceToRoot)
+				maxDistanceToRoot = attrs[i].distanceToRoot;
+	}
+
+	/**
+	 * Assigns the vertices to the level arrays. The initial order within a
+	 * level is given by the previous layout, if one is given, otherwise
+	 * the vertex order is taken. In the former case, the relative order of
+	 * the known vertices is also recorded.
+	 *
+	 * @param previous
+	 */
+	private void assignLevelNodes(final DirectedGraphLayout<T> previous)
+	{
+		int [] levelCounts = new int[maxDistanceToRoot+1];
+		for (int i=0;i<attrs.length;i++)
+			levelCounts[attrs[i].distanceToRoot]++;
+
+		levelNodes = new int[maxDistanceToRoot+1][];
+		for (int l=0;l<=maxDistanceToRoot;l++)
+			levelNodes[l] = new int[levelCounts[l]];
+
+		int [] levelCounter = new int[maxDistanceToRoot+1];
+		for (int i=0;i<attrs.length;i++)
+		{
+			int l = attrs[i].distanceToRoot;
+			levelNodes[l][levelCounter[l]++] = i;
+		}
+
+		if (previous != null)
+		{
+			/* Known vertices are sorted according to their previous position.
+			 * New vertices keep their place after the preceding known vertex */
+			final double [] key = new double[attrs.length];
+			for (int l=0;l<=maxDistanceToRoot;l++)
+			{
+				double last = -1;
+				for (int j=0;j<levelNodes[l].length;j++)
+				{
+					int v = levelNodes[l][j];
+					Integer pv = previous.slimGraph.vertex2Index.get(slimGraph.getVertex(v));
+					if (pv != null)
+						last = previous.attrs[pv].layoutPosX;
+					key[v] = pv != null ? last : last + 0.5;
+				}
+				sortLevel(l, key);
+			}
+
+			fixedRank = new int[attrs.length];
+			for (int l=0;l<=maxDistanceToRoot;l++)
+			{
+				int rank = 0;
+				for (int v : levelNodes[l])
+					fixedRank[v] = previous.slimGraph.vertex2Index.containsKey(slimGraph.getVertex(v)) ? rank++ : -1;
+			}
+		}
+		updateHorizontalRanks();
+	}
+
+	/**
+	 * Sets the horizontal rank attribute according to the levels.
+	 */
+	private void updateHorizontalRanks()
+	{
+		for (int l=0;l<=maxDistanceToRoot;l++)
+			for (int j=0;j<levelNodes[l].length;j++)
+				attrs[levelNodes[l][j]].horizontalRank = j;
+	}
+
+	/**
+	 * Sorts the vertices of the given level according to the given keys.
+	 * The sort is stable.
+	 *
+	 * @param level
+	 * @param key key of each vertex.
+	 */
+	private void sortLevel(int level, double [] key)
+	{
+		sort(levelNodes[level], levelNodes[level].length, key);
+	}
+
+	/**
+	 * Sorts the first vertices of the given array according to the given
+	 * keys. The sort is stable.
+	 *
+	 * @param nodes
+	 * @param length number of vertices to be sorted.
+	 * @param key key of each vertex.
+	 */
+	private static void sort(int [] nodes, int length, final double [] key)
+	{
+		Integer [] sorted = new Integer[length];
+		for (int j=0;j<length;j++)
+			sorted[j] = nodes[j];
+		Arrays.sort(sorted, new Comparator<Integer>()
+		{
+			public int compare(Integer o1, Integer o2)
+			{
+				return Double.compare(key[o1], key[o2]);
+			}
+		});
+		for (int j=0;j<length;j++)
+			nodes[j] = sorted[j];
+	}
+
+	/**
+	 * Orders the vertices of the given level according to the given keys.
+	 * Vertices of the previous layout keep their relative order, only the
+	 * new vertices are placed among them according to their keys.
+	 *
+	 * @param level
+	 * @param key key of each vertex.
+	 */
+	private void orderLevel(int level, double [] key)
+	{
+		if (fixedRank == null)
+		{
+			sortLevel(level, key);
+			return;
+		}
+
+		int [] nodes = levelNodes[level];
+		int [] known = new int[nodes.length];
+		int [] added = new int[nodes.length];
+		int numberOfKnown = 0;
+		int numberOfAdded = 0;
+
+		for (int v : nodes)
+		{
+			if (fixedRank[v] >= 0)
+			{
+				known[fixedRank[v]] = v;
+				numberOfKnown++;
+			} else
+			{
+				added[numberOfAdded++] = v;
+			}
+		}
+		sort(added, numberOfAdded, key);
+
+		/* Merge the new vertices into the fixed sequence of the known ones */
+		int i = 0, j = 0, k = 0;
+		while (i < numberOfKnown && j < numberOfAdded)
+		{
+			if (key[added[j]] < key[known[i]])
+				nodes[k++] = added[j++];
+			else
+				nodes[k++] = known[i++];
+		}
+		while (i < numberOfKnown)
+			nodes[k++] = known[i++];
+		while (j < numberOfAdded)
+			nodes[k++] = added[j++];
+	}
+
+	/**
+	 * Determines the barycenter of the given vertex with respect to the
+	 * horizontal ranks of the given neighbours. Vertices without neighbours
+	 * keep their current rank.
+	 *
+	 * @param v
+	 * @param neighbours
+	 * @return
+	 */
+	private double barycenter(int v, int [] neighbours)
+	{
+		if (neighbours.length == 0)
+			return attrs[v].horizontalRank;
+
+		double sum = 0;
+		for (int w : neighbours)
+			sum += attrs[w].horizontalRank;
+		return sum / neighbours.length;
+	}
+
+	/**
+	 * Determines the barycenters of all vertices of the given level.
+	 *
+	 * @param level
+	 * @param downwards if true, the parents are considered, otherwise the children.
+	 * @param key where the barycenters are stored.
+	 */
+	private void barycenters(int level, final boolean downwards, final double [] key)
+	{
+		final int [] nodes = levelNodes[level];
+
+		if (executor == null || nodes.length < PARALLEL_LEVEL_SIZE)
+		{
+			for (int v : nodes)
+				key[v] = barycenter(v, downwards ? slimGraph.vertexParents[v] : slimGraph.vertexChildren[v]);
+			return;
+		}
 
-		/* Find out the distance to the root of each vertex. Remember the deepest one */
-		for (T root : rootList)
+		int numberOfTasks = Math.max(1, Runtime.getRuntime().availableProcessors());
+		int chunk = (nodes.length + numberOfTasks - 1) / numberOfTasks;
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		for (int c=0;c<nodes.length;c+=chunk)
+		{
+			final int from = c;
+			final int to = Math.min(nodes.length, c + chunk);
+			futures.add(executor.submit(new Runnable()
+			{
+				public void run()
+				{
+					for (int j=from;j<to;j++)
+					{
+						int v = nodes[j];
+						key[v] = barycenter(v, downwards ? slimGraph.vertexParents[v] : slimGraph.vertexChildren[v]);
+					}
+				}
+			}));
+		}
+
+		for (Future<?> f : futures)
+		{
+			try
+			{
+				f.get();
+			} catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e)
+			{
+				throw new RuntimeException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Counts the crossings of the edges between adjacent levels.
+	 *
+	 * @return
+	 */
+	private long countCrossings()
+	{
+		long crossings = 0;
+		for (int l=1;l<=maxDistanceToRoot;l++)
 		{
-			graph.singleSourceLongestPath(root,new DirectedGraph.IDistanceVisitor<T>() {
-				public boolean visit(T n, List<T> path, int distance)
+			/* Encode the edges from level l-1 to level l as upper rank * size + lower rank */
+			int lowerSize = levelNodes[l].length;
+			long [] edges = new long[16];
+			int numberOfEdges = 0;
+			for (int v : levelNodes[l])
+			{
+				for (int p : slimGraph.vertexParents[v])
 				{
-					/* Note that we could have more than one root, for which the distance
-					 * could be different. We remember the largest distance.
-					 */
-					if (distance > attrs[slimGraph.getVertexIndex(n)].distanceToRoot)
-						attrs[slimGraph.getVertexIndex(n)].distanceToRoot = distance;
-					if (distance > maxDistanceToRoot) maxDistanceToRoot = distance;
-					return true;
+					if (attrs[p].distanceToRoot != l - 1)
+						continue;
+					if (numberOfEdges == edges.length)
+						edges = Arrays.copyOf(edges, edges.length * 2);
+					edges[numberOfEdges++] = (long)attrs[p].horizontalRank * lowerSize + attrs[v].horizontalRank;
 				}
-			});
+			}
+			Arrays.sort(edges, 0, numberOfEdges);
+
+			/* Two edges cross if their lower ranks are inverted. Inversions
+			 * are counted using a binary indexed tree over the lower ranks */
+			int [] tree = new int[lowerSize + 1];
+			for (int i=0;i<numberOfEdges;i++)
+			{
+				int lower = (int)(edges[i] % lowerSize);
+				int notGreater = 0;
+				for (int j=lower+1;j>0;j-=j&-j)
+					notGreater += tree[j];
+				crossings += i - notGreater;
+				for (int j=lower+1;j<=lowerSize;j+=j&-j)
+					tree[j]++;
+			}
 		}
+		return crossings;
 	}
 
-	private void layout(final int horizSpace, final int vertSpace)
+	/**
+	 * Reorders the vertices within the levels to reduce the number of edge
+	 * crossings. Levels are swept downwards and upwards and each vertex is
+	 * placed at the barycenter of its neighbours in the previous level.
+	 * If there is a previous layout, only the new vertices are moved, the
+	 * others keep their relative order. The best order found is kept.
+	 */
+	private void reduceCrossings()
+	{
+		double [] key = new double[attrs.length];
+		long bestCrossings = countCrossings();
+		int [][] bestLevelNodes = copyLevelNodes();
+
+		for (int sweep=0;sweep<NUMBER_OF_SWEEPS && bestCrossings > 0;sweep++)
+		{
+			for (int l=1;l<=maxDistanceToRoot;l++)
+			{
+				barycenters(l, true, key);
+				orderLevel(l, key);
+				for (int j=0;j<levelNodes[l].length;j++)
+					attrs[levelNodes[l][j]].horizontalRank = j;
+			}
+			for (int l=maxDistanceToRoot-1;l>=0;l--)
+			{
+				barycenters(l, false, key);
+				orderLevel(l, key);
+				for (int j=0;j<levelNodes[l].length;j++)
+					attrs[levelNodes[l][j]].horizontalRank = j;
+			}
+
+			long crossings = countCrossings();
+			if (crossings < bestCrossings)
+			{
+				bestCrossings = crossings;
+				bestLevelNodes = copyLevelNodes();
+			}
+		}
+
+		levelNodes = bestLevelNodes;
+		updateHorizontalRanks();
+	}
+
+	/**
+	 * @return a deep copy of the level nodes.
+	 */
+	private int [][] copyLevelNodes()
+	{
+		int [][] copy = new int[levelNodes.length][];
+		for (int l=0;l<levelNodes.length;l++)
+			copy[l] = levelNodes[l].clone();
+		return copy;
+	}
+
+	private void layout(final int horizSpace, final int vertSpace, DirectedGraphLayout<T> previous)
 	{
 		if (graph.getNumberOfVertices() == 0)
 			return;
 
+		/* A previous layout of an empty graph has nothing to offer */
+		if (previous != null && previous.attrs == null)
+			previous = null;
+
+		prepare();
+
 		/* Determine the dimension of each node */
 		final Dimension dim = new Dimension();
 		for (int i=0;i<slimGraph.getNumberOfVertices();i++)
@@ -107,10 +511,13 @@ public class DirectedGraphLayout<T>
 			a.height = dim.height;
 		}
 
-		/* Determine the heights of each level and the width of each level as well as the number of objects per level */
+		/* Assign the nodes to the levels and determine their order */
+		assignLevelNodes(previous);
+		reduceCrossings();
+
+		/* Determine the heights of each level and the width of each level */
 		int [] levelHeight = new int[maxDistanceToRoot+1];
 		int [] levelWidth = new int[maxDistanceToRoot+1];
-		int [] levelCounts = new int[maxDistanceToRoot+1];
 
 		int maxLevelWidth = -1;
 		for (int i=0;i<slimGraph.getNumberOfVertices();i++)
@@ -118,25 +525,13 @@ public class DirectedGraphLayout<T>
 			Attr a = attrs[i];
 			if (a.height > levelHeight[a.distanceToRoot])
 				levelHeight[a.distanceToRoot] = a.height;
-			levelCounts[a.distanceToRoot]++;
 			levelWidth[a.distanceToRoot] += a.width;
 		}
 
-		/* Now assign level nodes */
-		int [][] levelNodes = new int[maxDistanceToRoot+1][];
-		int [] levelCounter = new int[maxDistanceToRoot+1]; /* An index counter per level */
-		for (int i=0;i<slimGraph.getNumberOfVertices();i++)
-		{
-			Attr a = attrs[i];
-			if (levelNodes[a.distanceToRoot] == null)
-				levelNodes[a.distanceToRoot] = new int[levelCounts[a.distanceToRoot]];
-			levelNodes[a.distanceToRoot][levelCounter[a.distanceToRoot]++] = i;
-		}
-
 		/* Determine max width of any level */
 		for (int i=0;i<=maxDistanceToRoot;i++)
 		{
-			levelWidth[i] += horizSpace * levelCounts[i];
+			levelWidth[i] += horizSpace * levelNodes[i].length;
 			if (levelWidth[i] > maxLevelWidth)
 				maxLevelWidth = levelWidth[i];
 		}
@@ -153,106 +548,109 @@ public class DirectedGraphLayout<T>
 			a.layoutPosY = levelYPos[a.distanceToRoot];
 		}
 
-		/* Distribute x rank of nodes for each level */
-		int [] levelCurXRank = new int[maxDistanceToRoot+1];
-		for (int i=0;i<slimGraph.getNumberOfVertices();i++)
+		/* Assign initial xpos. Vertices of a previous layout keep their position
+		 * as far as possible */
+		for (int l=0;l<=maxDistanceToRoot;l++)
 		{
-			Attr a = attrs[i];
-			a.horizontalRank = levelCurXRank[a.distanceToRoot]++;
-		}
-
-		/* Assign initial xpos */
-		int [] levelCurXPos = new int[maxDistanceToRoot+1];
-		for (int i=0;i<slimGraph.getNumberOfVertices();i++)
-		{
-			Attr a = attrs[i];
-			a.layoutPosX = levelCurXPos[a.distanceToRoot];
-			levelCurXPos[a.distanceToRoot] += a.width + horizSpace;
+			int curXPos = 0;
+			for (int v : levelNodes[l])
+			{
+				Attr a = attrs[v];
+				a.layoutPosX = curXPos;
+				if (previous != null)
+				{
+					Integer pv = previous.slimGraph.vertex2Index.get(slimGraph.getVertex(v));
+					if (pv != null && previous.attrs[pv].layoutPosX > curXPos)
+						a.layoutPosX = previous.attrs[pv].layoutPosX;
+				}
+				curXPos = a.layoutPosX + a.width + horizSpace;
+			}
+			if (curXPos > maxLevelWidth)
+				maxLevelWidth = curXPos;
 		}
 
 		int currentScore = scoreLayout();
 
 		/* Build node queue */
-		LinkedList<T> nodeQueue = new LinkedList<T>();
+		int [] nodeQueue = new int[slimGraph.getNumberOfVertices()];
+		int [] newQueue = new int[nodeQueue.length];
+		int [] savedNodes = new int[nodeQueue.length];
+		int k = 0;
 		for (int l = 0; l <= maxDistanceToRoot; l++)
-		{
 			for (int j=0;j<levelNodes[l].length;j++)
-			{
-				nodeQueue.add(slimGraph.getVertex(levelNodes[l][j]));
-			}
-		}
+				nodeQueue[k++] = levelNodes[l][j];
 
 		boolean onlyAcceptImprovements = true;
 
 		/* In each run, we select a node which decreases the score best */
-		for (int run = 0; run < 100; run++)
+		for (int run = 0; run < NUMBER_OF_RUNS; run++)
 		{
 			int bestScore = currentScore;
 			int bestLayoutPosX = -1;
-			T bestNode = null;
+			int bestNode = -1;
 
-			ListIterator<T> queueIter = nodeQueue.listIterator();
-
-			LinkedList<T> savedNodes = new LinkedList<T>();
+			int numberOfNew = 0;
+			int numberOfSaved = 0;
 
 			/* First pass, we try to improve the configuration */
-
-			while (queueIter.hasNext())
+			for (int q=0;q<nodeQueue.length;q++)
 			{
-				T n = queueIter.next();
-				int vi = slimGraph.getVertexIndex(n);
+				int vi = nodeQueue[q];
 				Attr na = attrs[vi];
-
-				int horizRank = na.horizontalRank;
-				int vertRank = na.distanceToRoot;
-
-				/* Determine the minimal x position of this node. This is aligned to the left border of the node */
-				int minX;
-				if (horizRank==0) minX = 0;
-				else minX = attrs[levelNodes[vertRank][horizRank-1]].layoutPosX + attrs[levelNodes[vertRank][horizRank-1]].width + horizSpace;
-
-				/* Determine the maximal x position of this node. This is aligned to the left border of the node */
-				int maxX;
-				if (horizRank==levelNodes[vertRank].length-1) maxX = maxLevelWidth - na.width;
-				else maxX = attrs[levelNodes[vertRank][horizRank+1]].layoutPosX - horizSpace - na.width;
-
-				/* Remember the current pos */
-				int savedLayoutPosX = na.layoutPosX;
-
-				/* Calculate the sum of all horizontal positions (for determination of the mean) */
-				int sumX = 0;
-				for (int p : slimGraph.vertexParents[vi])
-					sumX += getEdgeX(attrs[p]);
-				for (int c : slimGraph.vertexChildren[vi])
-					sumX += getEdgeX(attrs[c]);
+				boolean saved = false;
 
 				int cnt = slimGraph.vertexParents[vi].length + slimGraph.vertexChildren[vi].length;
-
-				na.layoutPosX = Math.min(maxX,Math.max(minX,sumX / cnt - na.width / 2));
-
-				int newScore = scoreLayout();
-				if (newScore <= bestScore && savedLayoutPosX != na.layoutPosX)
+				if (cnt > 0)
 				{
-					if (newScore < bestScore || !onlyAcceptImprovements)
+					int horizRank = na.horizontalRank;
+					int vertRank = na.distanceToRoot;
+
+					/* Determine the minimal x position of this node. This is aligned to the left border of the node */
+					int minX;
+					if (horizRank==0) minX = 0;
+					else minX = attrs[levelNodes[vertRank][horizRank-1]].layoutPosX + attrs[levelNodes[vertRank][horizRank-1]].width + horizSpace;
+
+					/* Determine the maximal x position of this node. This is aligned to the left border of the node */
+					int maxX;
+					if (horizRank==levelNodes[vertRank].length-1) maxX = maxLevelWidth - na.width;
+					else maxX = attrs[levelNodes[vertRank][horizRank+1]].layoutPosX - horizSpace - na.width;
+
+					/* Remember the current pos */
+					int savedLayoutPosX = na.layoutPosX;
+					int savedEdgeLength = edgeLength(vi);
+
+					/* Calculate the sum of all horizontal positions (for determination of the mean) */
+					int sumX = 0;
+					for (int p : slimGraph.vertexParents[vi])
+						sumX += getEdgeX(attrs[p]);
+					for (int c : slimGraph.vertexChildren[vi])
+						sumX += getEdgeX(attrs[c]);
+
+					na.layoutPosX = Math.min(maxX,Math.max(minX,sumX / cnt - na.width / 2));
+
+					/* Only the edges of the moved node are affected */
+					int newScore = currentScore - savedEdgeLength + edgeLength(vi);
+					if (newScore <= bestScore && savedLayoutPosX != na.layoutPosX)
 					{
-						bestScore = newScore;
-						bestLayoutPosX = na.layoutPosX;
-						bestNode = n;
-
-						if (newScore == bestScore)
+						if (newScore < bestScore || !onlyAcceptImprovements)
 						{
-							queueIter.remove();
-							savedNodes.addLast(n);
+							bestScore = newScore;
+							bestLayoutPosX = na.layoutPosX;
+							bestNode = vi;
+							saved = true;
 						}
 					}
+
+					na.layoutPosX = savedLayoutPosX; /* Restore */
 				}
 
-				na.layoutPosX = savedLayoutPosX; /* Restore */
+				if (saved) savedNodes[numberOfSaved++] = vi;
+				else newQueue[numberOfNew++] = vi;
 			}
 
-			if (bestNode != null)
+			if (bestNode != -1)
 			{
-				attrs[slimGraph.getVertexIndex(bestNode)].layoutPosX =  bestLayoutPosX;
+				attrs[bestNode].layoutPosX =  bestLayoutPosX;
 				currentScore = bestScore;
 				onlyAcceptImprovements = true;
 			} else
@@ -263,8 +661,9 @@ public class DirectedGraphLayout<T>
 				onlyAcceptImprovements = false;
 			}
 
-			for (T n : savedNodes)
-				nodeQueue.addLast(n);
+			/* Saved nodes are moved to the end of the queue */
+			System.arraycopy(savedNodes, 0, newQueue, numberOfNew, numberOfSaved);
+			int [] t = nodeQueue; nodeQueue = newQueue; newQueue = t;
 		}
 
 		/* Calculate area */
@@ -286,12 +685,26 @@ public class DirectedGraphLayout<T>
 		}
 	}
 
+	/**
+	 * Returns the horizontal length of all edges of the given vertex.
+	 *
+	 * @param vi
+	 * @return
+	 */
+	private int edgeLength(int vi)
+	{
+		int length = 0;
+		int ex = getEdgeX(attrs[vi]);
+		for (int p : slimGraph.vertexParents[vi])
+			length += Math.abs(ex - getEdgeX(attrs[p]));
+		for (int c : slimGraph.vertexChildren[vi])
+			length += Math.abs(ex - getEdgeX(attrs[c]));
+		return length;
+	}
+
 	/**
 	 * Scores the current layout.
 	 *
-	 * @param nodes2Attrs
-	 * @param maxDistanceToRoot
-	 * @param levelNodes
 	 * @return
 	 */
 	private int scoreLayout()
@@ -332,6 +745,29 @@ public class DirectedGraphLayout<T>
 	{
 		if (graph.getNumberOfVertices() == 0)
 			return;
-		new DirectedGraphLayout<T>(graph,dimensionCallback,positionCallback).layout(horizSpace,vertSpace);
+		new DirectedGraphLayout<T>(graph,dimensionCallback,positionCallback).layout(horizSpace,vertSpace,null);
+	}
+
+	/**
+	 * Lays out the given graph. If a previous layout is given, the vertices
+	 * that are contained in both graphs start at their previous positions
+	 * and keep their relative order within their level, which keeps the
+	 * layout stable when only a few vertices have been added or removed.
+	 *
+	 * @param previous the previous layout as returned by this method or null.
+	 * @param graph the graph to be laid out.
+	 * @param dimensionCallback
+	 * @param positionCallback
+	 * @param horizSpace
+	 * @param vertSpace
+	 * @param executor if not null, used to parallelize the crossing reduction of large levels.
+	 * @return the layout, which can be passed to subsequent calls.
+	 */
+	public static <T> DirectedGraphLayout<T> layout(DirectedGraphLayout<T> previous, DirectedGraph<T> graph, IGetDimension<T> dimensionCallback, IPosition<T> positionCallback, int horizSpace, int vertSpace, ExecutorService executor)
+	{
+		DirectedGraphLayout<T> layout = new DirectedGraphLayout<T>(graph,dimensionCallback,positionCallback);
+		layout.executor = executor;
+		layout.layout(horizSpace,vertSpace,previous);
+		return layout;
 	}
 }
@@ -0,0 +1,178 @@
+package sonumina.math.graph;
+
+import java.util.Random;
+
+/**
+ * Interval labels of a directed acyclic graph that answer most
+ * reachability queries in constant time.
+ *
+ * For several depth-first traversals with randomized child order, each
+ * vertex v gets its post-order rank and the minimum rank of all vertices
+ * reachable from v. If w is reachable from v, the interval of w is
+ * contained in the interval of v, so a non-contained interval proves
+ * that w is not reachable. In addition, the first traversal records the
+ * ranks covered by the vertices of the depth-first tree rooted at v, which
+ * proves reachability if the rank of w lies within. Queries that are
+ * decided by neither need to be answered by other means.
+ */
+final class ReachabilityIndex
+{
+	/** Answer of query() if reachability is certain */
+	public static final int REACHABLE = 1;
+
+	/** Answer of query() if non-reachability is certain */
+	public static final int NOT_REACHABLE = 0;
+
+	/** Answer of query() if the labels don't decide the query */
+	public static final int UNKNOWN = -1;
+
+	private int numberOfVertices;
+
+	private int numberOfLabels;
+
+	/** The post-order ranks, one block of numberOfVertices entries per traversal */
+	private int [] rank;
+
+	/** The minimum ranks of the reachable vertices, laid out like rank */
+	private int [] low;
+
+	/** The minimum ranks of the vertices of the depth-first tree of the first traversal */
+	private int [] treeLow;
+
+	private ReachabilityIndex()
+	{
+	}
+
+	/**
+	 * Determines whether vertex j is reachable from vertex i.
+	 *
+	 * @param i
+	 * @param j
+	 * @return REACHABLE, NOT_REACHABLE or UNKNOWN
+	 */
+	public int query(int i, int j)
+	{
+		if (i == j)
+			return REACHABLE;
+
+		int ri = rank[i];
+		int rj = rank[j];
+		if (rj >= treeLow[i] && rj <= ri)
+			return REACHABLE;
+
+		for (int l=0,o=0;l<numberOfLabels;l++,o+=numberOfVertices)
+		{
+			if (rank[o+j] > rank[o+i] || low[o+j] < low[o+i])
+				return NOT_REACHABLE;
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Creates the labels.
+	 *
+	 * @param n number of vertices.
+	 * @param order the vertices in topological order, i.e., each vertex
+	 *  follows all vertices from which it can be reached. Vertices not
+	 *  contained in the order get arbitrary labels and must not be queried.
+	 * @param adjOffsets offsets of the adjacency in compressed row format.
+	 * @param adj the adjacency.
+	 * @param numberOfLabels the number of traversals (at least 1).
+	 * @param seed the seed used to randomize the traversals.
+	 * @return the labels.
+	 */
+	public static ReachabilityIndex create(int n, int [] order, int [] adjOffsets, int [] adj, int numberOfLabels, long seed)
+	{
+		ReachabilityIndex index = new ReachabilityIndex();
+		index.numberOfVertices = n;
+		index.numberOfLabels = numberOfLabels;
+		index.rank = new int[n * numberOfLabels];
+		index.low = new int[n * numberOfLabels];
+		index.treeLow = new int[n];
+
+		Random rnd = new Random(seed);
+		int [] visited = new int[n];
+		int [] stack = new int[n];
+		int [] pos = new int[n];
+		int [] start = new int[n];
+
+		for (int l=0;l<numberOfLabels;l++)
+		{
+			int o = l * n;
+			int epoch = l + 1;
+			int nextRank = 0;
+
+			/* Start a traversal from every vertex that has not been visited yet.
+			 * Other than for the first traversal, we start at a random position */
+			int first = l == 0 ? 0 : rnd.nextInt(Math.max(1, order.length));
+			for (int r=0;r<order.length;r++)
+			{
+				int root = order[(first + r) % order.length];
+				if (visited[root] == epoch)
+					continue;
+
+				int sp = 0;
+				stack[sp] = root;
+				start[sp] = randomStart(rnd, l, adjOffsets, root);
+				pos[sp] = 0;
+				visited[root] = epoch;
+				if (l == 0) index.treeLow[root] = nextRank;
+
+				while (sp >= 0)
+				{
+					int v = stack[sp];
+					int degree = adjOffsets[v+1] - adjOffsets[v];
+
+					if (pos[sp] < degree)
+					{
+						int w = adj[adjOffsets[v] + (start[sp] + pos[sp]) % degree];
+						pos[sp]++;
+						if (visited[w] != epoch)
+						{
+							visited[w] = epoch;
+							if (l == 0) index.treeLow[w] = nextRank;
+							sp++;
+							stack[sp] = w;
+							start[sp] = randomStart(rnd, l, adjOffsets, w);
+							pos[sp] = 0;
+						}
+					} else
+					{
+						index.rank[o+v] = nextRank++;
+						sp--;
+					}
+				}
+			}
+
+			/* The minimum rank of all reachable vertices, reverse topological order
+			 * ensures that the adjacent vertices are done */
+			for (int r=order.length-1;r>=0;r--)
+			{
+				int v = order[r];
+				int m = index.rank[o+v];
+				for (int k=adjOffsets[v];k<adjOffsets[v+1];k++)
+					m = Math.min(m, index.low[o+adj[k]]);
+				index.low[o+v] = m;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the position from which the adjacent vertices of v
+	 * are traversed.
+	 *
+	 * @param rnd
+	 * @param label
+	 * @param adjOffsets
+	 * @param v
+	 * @return
+	 */
+	private static int randomStart(Random rnd, int label, int [] adjOffsets, int v)
+	{
+		int degree = adjOffsets[v+1] - adjOffsets[v];
+		if (label == 0 || degree < 2)
+			return 0;
+		return rnd.nextInt(degree);
+	}
+}
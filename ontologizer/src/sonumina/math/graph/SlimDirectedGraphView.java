@@ -1,17 +1,15 @@
 package sonumina.math.graph;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 
-import sonumina.math.graph.AbstractGraph.IVisitor;
-
 /**
  * Instances of this class represent a slim view of a graph. Most attributes can be
- * accessed directly.
+ * accessed directly. The ancestors and descendants are not stored by the view
+ * but are taken from the compressed graph index on which it is based.
  *
  * @author Sebastian Bauer, Sebastian Koehler
  */
@@ -23,19 +21,24 @@ public class SlimDirectedGraphView<VertexType>
 	/** Map specific terms to the index in the allTerms array */
 	public HashMap<VertexType,Integer> vertex2Index;
 
-	/** Contains all the ancestors of the terms (and the terms itself).
-	 * Note that the array of ancestors is sorted. */
-	public int [][] vertexAncestors;
-
 	/** Contains the parents of the terms */
 	public int [][] vertexParents;
 
 	/** Contains the children of the term */
 	public int [][] vertexChildren;
 
-	/** Contains the descendants of the (i.e., children, grand-children, etc. and the term itself).
-	 * Note that the array of descendants is sorted.*/
-	public int [][] vertexDescendants;
+	/** The compressed representation that contains the ancestors and descendants */
+	private CSRDirectedGraph graphIndex;
+
+	/**
+	 * Maps the indices of the view to the vertices of the graph index in
+	 * ascending order, so the sorting of the closures is kept. Null if
+	 * both are the same.
+	 */
+	private int [] view2GraphIndex;
+
+	/** Maps the vertices of the graph index to the indices of the view or -1. Null if both are the same */
+	private int [] graphIndex2View;
 
 	/**
 	 * Default constructor.
@@ -118,9 +121,9 @@ public class SlimDirectedGraphView<VertexType>
 	 */
 	public boolean isAncestor(int i, int j)
 	{
-		int [] ancs = vertexAncestors[j];
-		int r 		=  Arrays.binarySearch(ancs,i);
-		return r >= 0;
+		if (view2GraphIndex != null)
+			return graphIndex.isAncestor(view2GraphIndex[i], view2GraphIndex[j]);
+		return graphIndex.isAncestor(i, j);
 	}
 
 	/**
@@ -134,9 +137,61 @@ public class SlimDirectedGraphView<VertexType>
 	 */
 	public boolean isDescendant(int i, int j)
 	{
-		int [] descs 	= vertexDescendants[j];
-		int r 			= Arrays.binarySearch(descs,i);
-		return r >= 0;
+		return isAncestor(j, i);
+	}
+
+	/**
+	 * Returns the number of ancestors of the vertex with the given index
+	 * including the vertex itself.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public int getNumberOfAncestors(int v)
+	{
+		return graphIndex.getNumberOfAncestors(view2GraphIndex != null ? view2GraphIndex[v] : v);
+	}
+
+	/**
+	 * Returns the index of the i-th ancestor of the vertex with the given
+	 * index. Ancestors are sorted in ascending order.
+	 *
+	 * @param v
+	 * @param i
+	 * @return
+	 */
+	public int getAncestor(int v, int i)
+	{
+		if (view2GraphIndex != null)
+			return graphIndex2View[graphIndex.getAncestor(view2GraphIndex[v], i)];
+		return graphIndex.getAncestor(v, i);
+	}
+
+	/**
+	 * Returns the number of descendants of the vertex with the given index
+	 * including the vertex itself.
+	 *
+	 * @param v
+	 * @return
+	 */
+	public int getNumberOfDescendants(int v)
+	{
+		return graphIndex.getNumberOfDescendants(view2GraphIndex != null ? view2GraphIndex[v] : v);
+	}
+
+	/**
+	 * Returns the index of the i-th descendant of the vertex with the given
+	 * index. Descendants are sorted in ascending order.
+	 *
+	 * @param v
+	 * @param i
+	 * @return
+	 */
+	public int getDescendant(int v, int i)
+	{
+		if (view2GraphIndex != null)
+			return graphIndex2View[graphIndex.getDescendant(view2GraphIndex[v], i)];
+		return graphIndex.getDescendant(v, i);
 	}
 
 	/**
@@ -194,15 +249,15 @@ public class SlimDirectedGraphView<VertexType>
 
 		/* get the index of the vertex */
 		int indexOfTerm 						= getVertexIndex(t);
-		/* get all descendent indices of the vertex */
-		int[] descendantIndices					= vertexDescendants[indexOfTerm];
+		/* get the number of descendants of the vertex */
+		int numberOfDescendants					= getNumberOfDescendants(indexOfTerm);
 
 		/* init the return list of vertex-objects */
-		ArrayList<VertexType> descendantObjects = new ArrayList<VertexType>(descendantIndices.length);
+		ArrayList<VertexType> descendantObjects = new ArrayList<VertexType>(numberOfDescendants);
 
 		/* convert each descendant-index to an vertex object */
-		for (int descendantIdx : descendantIndices){
-			VertexType descendantVertex = getVertex(descendantIdx);
+		for (int i=0;i<numberOfDescendants;i++){
+			VertexType descendantVertex = getVertex(getDescendant(indexOfTerm, i));
 			descendantObjects.add(descendantVertex);
 		}
 		return descendantObjects;
@@ -219,15 +274,15 @@ public class SlimDirectedGraphView<VertexType>
 
 		/* get the index of the vertex */
 		int indexOfTerm 							= getVertexIndex(t);
-		/* get all descendent indices of the vertex */
-		int[] ancestorIndices					= vertexAncestors[indexOfTerm];
+		/* get the number of ancestors of the vertex */
+		int numberOfAncestors					= getNumberOfAncestors(indexOfTerm);
 
 		/* init the return list of vertex-objects */
-		ArrayList<VertexType> ancestorObjects 	= new ArrayList<VertexType>(ancestorIndices.length);
+		ArrayList<VertexType> ancestorObjects 	= new ArrayList<VertexType>(numberOfAncestors);
 
 		/* convert each ancestor-index to an vertex object */
-		for (int ancestorIdx : ancestorIndices){
-			VertexType ancestorVertex = getVertex(ancestorIdx);
+		for (int i=0;i<numberOfAncestors;i++){
+			VertexType ancestorVertex = getVertex(getAncestor(indexOfTerm, i));
 			ancestorObjects.add(ancestorVertex);
 		}
 		return ancestorObjects;
@@ -311,25 +366,6 @@ public class SlimDirectedGraphView<VertexType>
 			slim.vertexParents[i] 				= createIndicesFromIter(slim.vertex2Index,parentIter);
 		}
 
-		/* Term ancestor stuff */
-		slim.vertexAncestors = new int[slim.vertices.length][];
-		for (i=0;i<slim.vertices.length;i++)
-		{
-			V v = (V)slim.vertices[i];
-			final List<V> ancestors = new ArrayList<V>(20);
-			graph.bfs(v, true, new IVisitor<V>() {
-				public boolean visited(V vertex)
-				{
-					ancestors.add(vertex);
-					return true;
-				};
-			});
-			slim.vertexAncestors[i] = createIndicesFromIter(slim.vertex2Index,ancestors.iterator());
-
-			/* Sort them, as we require this for binary search in isAncestor() */
-			Arrays.sort(slim.vertexAncestors[i]);
-		}
-
 		/* Term children stuff */
 		slim.vertexChildren = new int[slim.vertices.length][];
 		for (i=0;i<slim.vertices.length;i++)
@@ -340,23 +376,94 @@ public class SlimDirectedGraphView<VertexType>
 			slim.vertexChildren[i] 		= createIndicesFromIter(slim.vertex2Index,childrenIter);
 		}
 
-		/* Term descendants stuff */
-		slim.vertexDescendants = new int[slim.vertices.length][];
+		/* Term ancestor and descendants stuff. The closures are kept by the
+		 * compressed representation */
+		int numberOfEdges = 0;
+		for (i=0;i<slim.vertices.length;i++)
+			numberOfEdges += slim.vertexChildren[i].length;
+
+		int [] sources = new int[numberOfEdges];
+		int [] dests = new int[numberOfEdges];
+		int e = 0;
 		for (i=0;i<slim.vertices.length;i++)
 		{
-			V v = (V)slim.vertices[i];
-			final List<V> descendants = new ArrayList<V>(20);
-			graph.bfs(v, false, new IVisitor<V>() {
-				public boolean visited(V vertex)
-				{
-					descendants.add(vertex);
-					return true;
-				};
-			});
-			slim.vertexDescendants[i] = createIndicesFromIter(slim.vertex2Index, descendants.iterator());
-
-			/* Sort them, as we require this for binary search in isDescendant() */
-			Arrays.sort(slim.vertexDescendants[i]);
+			for (int c : slim.vertexChildren[i])
+			{
+				sources[e] = i;
+				dests[e] = c;
+				e++;
+			}
+		}
+
+		slim.graphIndex = CSRDirectedGraph.create(slim.vertices.length, sources, dests);
+		slim.view2GraphIndex = null;
+		slim.graphIndex2View = null;
+	}
+
+	/**
+	 * Initialize the slim graph view from an existing graph index, whose
+	 * closures are shared rather than copied.
+	 *
+	 * @param slim
+	 * @param graphIndex
+	 * @param indexVertices the vertex of each vertex of the graph index or
+	 *  null if it is not part of the view. Vertices that are part of the
+	 *  view must not be connected to vertices that are not.
+	 */
+	public static <V> void init(SlimDirectedGraphView<V> slim, CSRDirectedGraph graphIndex, List<V> indexVertices)
+	{
+		int n = graphIndex.getNumberOfVertices();
+		if (indexVertices.size() != n)
+			throw new IllegalArgumentException("The number of vertices doesn't match the graph index");
+
+		/* Vertices */
+		int [] graphIndex2View = new int[n];
+		int numberOfVertices = 0;
+		for (int i=0;i<n;i++)
+		{
+			if (indexVertices.get(i) != null) graphIndex2View[i] = numberOfVertices++;
+			else graphIndex2View[i] = -1;
+		}
+
+		int [] view2GraphIndex = new int[numberOfVertices];
+		slim.vertices = new Object[numberOfVertices];
+		slim.vertex2Index = new HashMap<V, Integer>();
+		for (int i=0;i<n;i++)
+		{
+			int v = graphIndex2View[i];
+			if (v < 0) continue;
+			view2GraphIndex[v] = i;
+			slim.vertices[v] = indexVertices.get(i);
+			slim.vertex2Index.put(indexVertices.get(i), v);
+		}
+
+		/* Term parents and children stuff */
+		slim.vertexParents = new int[numberOfVertices][];
+		slim.vertexChildren = new int[numberOfVertices][];
+		for (int v=0;v<numberOfVertices;v++)
+		{
+			int i = view2GraphIndex[v];
+
+			int [] parents = new int[graphIndex.getNumberOfParents(i)];
+			for (int j=0;j<parents.length;j++)
+				parents[j] = graphIndex2View[graphIndex.getParent(i, j)];
+			slim.vertexParents[v] = parents;
+
+			int [] children = new int[graphIndex.getNumberOfChildren(i)];
+			for (int j=0;j<children.length;j++)
+				children[j] = graphIndex2View[graphIndex.getChild(i, j)];
+			slim.vertexChildren[v] = children;
+		}
+
+		slim.graphIndex = graphIndex;
+		if (numberOfVertices != n)
+		{
+			slim.view2GraphIndex = view2GraphIndex;
+			slim.graphIndex2View = graphIndex2View;
+		} else
+		{
+			slim.view2GraphIndex = null;
+			slim.graphIndex2View = null;
 		}
 	}
 
@@ -397,4 +504,20 @@ public class SlimDirectedGraphView<VertexType>
 		init(g, graph);
 		return g;
 	}
+
+	/**
+	 * Create the slim view from the given graph index.
+	 *
+	 * @param graphIndex
+	 * @param indexVertices the vertex of each vertex of the graph index or
+	 *  null if it is not part of the view.
+	 * @return
+	 * @see #init(SlimDirectedGraphView, CSRDirectedGraph, List)
+	 */
+	public static <V> SlimDirectedGraphView<V> create(CSRDirectedGraph graphIndex, List<V> indexVertices)
+	{
+		SlimDirectedGraphView<V> g = new SlimDirectedGraphView<V>();
+		init(g, graphIndex, indexVertices);
+		return g;
+	}
 }